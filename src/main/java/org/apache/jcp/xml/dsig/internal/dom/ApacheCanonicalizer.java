@@ -147,7 +147,7 @@ public abstract class ApacheCanonicalizer extends TransformService {
                         return new OctetStreamData(new ByteArrayInputStream(getC14nBytes(writer, isByteArrayOutputStream)));
                     }
                 } else if (in.isNodeSet()) {
-                    nodeSet = in.getNodeSet();
+                    nodeSet = in.getNodeSetView();
                 } else {
                     canonicalizer.canonicalize(Utils.readBytesFromStream(in.getUnprocessedInput()), writer, secVal);
                     return new OctetStreamData(new ByteArrayInputStream(getC14nBytes(writer, isByteArrayOutputStream)));
@@ -209,8 +209,12 @@ public abstract class ApacheCanonicalizer extends TransformService {
 
         if (apacheTransform == null) {
             try {
-                apacheTransform =
-                    new Transform(ownerDoc, getAlgorithm(), transformElem.getChildNodes());
+                // creating nodes updates state of the owner document, References
+                // may be validated in parallel
+                synchronized (ownerDoc) {
+                    apacheTransform =
+                        new Transform(ownerDoc, getAlgorithm(), transformElem.getChildNodes());
+                }
                 apacheTransform.setElement(transformElem, xc.getBaseURI());
                 LOG.log(Level.DEBUG, "Created transform for algorithm: {0}", getAlgorithm());
             } catch (Exception ex) {
@@ -23,15 +23,14 @@ package org.apache.jcp.xml.dsig.internal.dom;
 
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import javax.xml.crypto.NodeSetData;
 
 import org.apache.xml.security.signature.NodeFilter;
+import org.apache.xml.security.signature.SubtreeNodeSet;
 import org.apache.xml.security.signature.XMLSignatureInput;
-import org.apache.xml.security.transforms.TransformationException;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Node;
 
@@ -52,7 +51,7 @@ public class ApacheNodeSetData implements ApacheData, NodeSetData {
                         (getNodeSet(xi.getNodeFilters())).iterator();
             }
 
-            return Collections.unmodifiableSet(xi.getNodeSet()).iterator();
+            return xi.getNodeSetView().iterator();
         } catch (Exception e) {
             // should not occur
             throw new RuntimeException
@@ -65,29 +64,12 @@ public class ApacheNodeSetData implements ApacheData, NodeSetData {
         return xi;
     }
 
-    private Set<Node> getNodeSet(List<NodeFilter> nodeFilters) throws TransformationException {
+    private Set<Node> getNodeSet(List<NodeFilter> nodeFilters) {
         if (xi.isNeedsToBeExpanded()) {
             XMLUtils.circumventBug2650
                 (XMLUtils.getOwnerDocument(xi.getSubNode()));
         }
 
-        Set<Node> inputSet = new LinkedHashSet<>();
-        XMLUtils.getSet(xi.getSubNode(), inputSet,
-                        null, !xi.isExcludeComments());
-        Set<Node> nodeSet = new LinkedHashSet<>();
-        for (Node currentNode : inputSet) {
-            Iterator<NodeFilter> it = nodeFilters.iterator();
-            boolean skipNode = false;
-            while (it.hasNext() && !skipNode) {
-                NodeFilter nf = it.next();
-                if (nf.isNodeInclude(currentNode) != 1) {
-                    skipNode = true;
-                }
-            }
-            if (!skipNode) {
-                nodeSet.add(currentNode);
-            }
-        }
-        return nodeSet;
+        return new SubtreeNodeSet(xi.getSubNode(), null, !xi.isExcludeComments(), nodeFilters);
     }
 }
@@ -142,8 +142,12 @@ public abstract class ApacheTransform extends TransformService {
 
         if (transform == null) {
             try {
-                transform =
-                    new Transform(ownerDoc, getAlgorithm(), transformElem.getChildNodes());
+                // creating nodes updates state of the owner document, References
+                // may be validated in parallel
+                synchronized (ownerDoc) {
+                    transform =
+                        new Transform(ownerDoc, getAlgorithm(), transformElem.getChildNodes());
+                }
                 transform.setElement(transformElem, xc.getBaseURI());
                 LOG.log(Level.DEBUG, "Created transform for algorithm: {0}", getAlgorithm());
             } catch (Exception ex) {
@@ -48,6 +48,7 @@ import javax.xml.crypto.dom.DOMCryptoContext;
 import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.keyinfo.KeyValue;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -182,7 +183,6 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
     static final class RSA extends DOMKeyValue<RSAPublicKey> {
         // RSAKeyValue CryptoBinaries
         private DOMCryptoBinary modulus, exponent;
-        private KeyFactory rsakf;
 
         RSA(RSAPublicKey key) throws KeyException {
             super(key);
@@ -218,13 +218,12 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
         RSAPublicKey unmarshalKeyValue(Element kvtElem)
             throws MarshalException
         {
-            if (rsakf == null) {
-                try {
-                    rsakf = KeyFactory.getInstance("RSA");
-                } catch (NoSuchAlgorithmException e) {
-                    throw new RuntimeException
-                        ("unable to create RSA KeyFactory: " + e.getMessage());
-                }
+            KeyFactory rsakf;
+            try {
+                rsakf = JCAFactoryCache.getKeyFactory("RSA");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException
+                    ("unable to create RSA KeyFactory: " + e.getMessage());
             }
             Element modulusElem = DOMUtils.getFirstChildElement(kvtElem,
                                                                 "Modulus",
@@ -242,7 +241,6 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
     static final class DSA extends DOMKeyValue<DSAPublicKey> {
         // DSAKeyValue CryptoBinaries
         private DOMCryptoBinary p, q, g, y; //, seed, pgen;
-        private KeyFactory dsakf;
 
         DSA(DSAPublicKey key) throws KeyException {
             super(key);
@@ -290,13 +288,12 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
         DSAPublicKey unmarshalKeyValue(Element kvtElem)
             throws MarshalException
         {
-            if (dsakf == null) {
-                try {
-                    dsakf = KeyFactory.getInstance("DSA");
-                } catch (NoSuchAlgorithmException e) {
-                    throw new RuntimeException
-                        ("unable to create DSA KeyFactory: " + e.getMessage());
-                }
+            KeyFactory dsakf;
+            try {
+                dsakf = JCAFactoryCache.getKeyFactory("DSA");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException
+                    ("unable to create DSA KeyFactory: " + e.getMessage());
             }
             // P, Q, and G are optional according to the XML Signature
             // Recommendation as they might be known from application context,
@@ -323,7 +320,6 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
     static final class EC extends DOMKeyValue<ECPublicKey> {
      // ECKeyValue CryptoBinaries
         private byte[] ecPublicKey;
-        private KeyFactory eckf;
         private ECParameterSpec ecParams;
 
         /* Supported curve, secp256r1 */
@@ -495,13 +491,12 @@ public abstract class DOMKeyValue<K extends PublicKey> extends DOMStructure impl
         ECPublicKey unmarshalKeyValue(Element kvtElem)
             throws MarshalException
         {
-            if (eckf == null) {
-                try {
-                    eckf = KeyFactory.getInstance("EC");
-                } catch (NoSuchAlgorithmException e) {
-                    throw new RuntimeException
-                        ("unable to create EC KeyFactory: " + e.getMessage());
-                }
+            KeyFactory eckf;
+            try {
+                eckf = JCAFactoryCache.getKeyFactory("EC");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException
+                    ("unable to create EC KeyFactory: " + e.getMessage());
             }
             ECParameterSpec ecParams = null;
             Element curElem = DOMUtils.getFirstChildElement(kvtElem);
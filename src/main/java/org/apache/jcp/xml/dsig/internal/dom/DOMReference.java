@@ -377,6 +377,16 @@ public final class DOMReference extends DOMStructure
 
     public void digest(XMLSignContext signContext)
         throws XMLSignatureException
+    {
+        setDigestValue(calculateDigest(signContext));
+    }
+
+    /**
+     * Calculates the digest value without storing it in the DigestValue element.
+     * The document is not modified unless {@link #addsC14N11Transform(XMLSignContext)}.
+     */
+    byte[] calculateDigest(XMLSignContext signContext)
+        throws XMLSignatureException
     {
         Data data = null;
         if (appliedTransformData == null) {
@@ -384,7 +394,25 @@ public final class DOMReference extends DOMStructure
         } else {
             data = appliedTransformData;
         }
-        digestValue = transform(data, signContext);
+        return transform(data, signContext);
+    }
+
+    /**
+     * Returns whether an explicit C14N 1.1 transform may be added to this Reference while the
+     * digest is calculated.
+     */
+    boolean addsC14N11Transform(XMLSignContext signContext) {
+        return useC14N11 || Boolean.TRUE.equals(signContext.getProperty("org.apache.xml.security.useC14N11"));
+    }
+
+    /**
+     * Stores a digest value calculated by {@link #calculateDigest(XMLSignContext)} in the
+     * DigestValue element.
+     */
+    void setDigestValue(byte[] digestValue)
+        throws XMLSignatureException
+    {
+        this.digestValue = digestValue;
 
         // insert digestValue into DigestValue element
         String encodedDV = XMLUtils.encodeToString(digestValue);
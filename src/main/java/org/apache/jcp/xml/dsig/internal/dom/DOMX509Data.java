@@ -42,6 +42,7 @@ import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.keyinfo.X509Data;
 import javax.xml.crypto.dsig.keyinfo.X509IssuerSerial;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -55,7 +56,6 @@ import org.w3c.dom.Node;
 public final class DOMX509Data extends DOMStructure implements X509Data {
 
     private final List<Object> content;
-    private CertificateFactory cf;
 
     /**
      * Creates a DOMX509Data.
@@ -218,16 +218,21 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
     private X509Certificate unmarshalX509Certificate(Element elem)
         throws MarshalException
     {
-        try (ByteArrayInputStream bs = unmarshalBase64Binary(elem)) {
-            return (X509Certificate)cf.generateCertificate(bs);
+        try {
+            String content = XMLUtils.getFullTextChildrenFromNode(elem);
+            return JCAFactoryCache.getX509Certificate(XMLUtils.decode(content));
         } catch (CertificateException e) {
             throw new MarshalException("Cannot create X509Certificate", e);
-        } catch (IOException e) {
-            throw new MarshalException("Error closing stream", e);
         }
     }
 
     private X509CRL unmarshalX509CRL(Element elem) throws MarshalException {
+        CertificateFactory cf;
+        try {
+            cf = JCAFactoryCache.getCertificateFactory("X.509");
+        } catch (CertificateException e) {
+            throw new MarshalException("Cannot create CertificateFactory", e);
+        }
         try (ByteArrayInputStream bs = unmarshalBase64Binary(elem)) {
             return (X509CRL)cf.generateCRL(bs);
         } catch (CRLException e) {
@@ -237,17 +242,9 @@ public final class DOMX509Data extends DOMStructure implements X509Data {
         }
     }
 
-    private ByteArrayInputStream unmarshalBase64Binary(Element elem)
-        throws MarshalException {
-        try {
-            if (cf == null) {
-                cf = CertificateFactory.getInstance("X.509");
-            }
-            String content = XMLUtils.getFullTextChildrenFromNode(elem);
-            return new ByteArrayInputStream(XMLUtils.decode(content));
-        } catch (CertificateException e) {
-            throw new MarshalException("Cannot create CertificateFactory", e);
-        }
+    private ByteArrayInputStream unmarshalBase64Binary(Element elem) {
+        String content = XMLUtils.getFullTextChildrenFromNode(elem);
+        return new ByteArrayInputStream(XMLUtils.decode(content));
     }
 
     @Override
@@ -36,8 +36,11 @@ import java.security.Provider;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 import javax.xml.crypto.KeySelector;
 import javax.xml.crypto.KeySelectorException;
@@ -60,6 +63,7 @@ import javax.xml.crypto.dsig.dom.DOMSignContext;
 import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 
+import org.apache.xml.security.utils.OrderedTaskRunner;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -75,6 +79,15 @@ public final class DOMXMLSignature extends DOMStructure
 
     private static final Logger LOG = System.getLogger(DOMXMLSignature.class.getName());
 
+    private static final String VERIFICATION_EXECUTOR =
+        "org.apache.jcp.xml.dsig.referenceVerificationExecutor";
+    private static final String VERIFICATION_PARALLELISM =
+        "org.apache.jcp.xml.dsig.referenceVerificationParallelism";
+    private static final String DIGEST_EXECUTOR =
+        "org.apache.jcp.xml.dsig.referenceDigestExecutor";
+    private static final String DIGEST_PARALLELISM =
+        "org.apache.jcp.xml.dsig.referenceDigestParallelism";
+
     private final String id;
     private final SignatureValue sv;
     private KeyInfo ki;
@@ -289,13 +302,7 @@ public final class DOMXMLSignature extends DOMStructure
         // validate all References
         @SuppressWarnings("unchecked")
         List<Reference> refs = this.si.getReferences();
-        boolean validateRefs = true;
-        for (int i = 0, size = refs.size(); validateRefs && i < size; i++) {
-            Reference ref = refs.get(i);
-            boolean refValid = ref.validate(vc);
-            LOG.log(Level.DEBUG, "Reference [{0}] is valid: {1}", ref.getURI(), refValid);
-            validateRefs &= refValid;
-        }
+        boolean validateRefs = validateReferences(refs, vc, "Reference [{0}] is valid: {1}");
         if (!validateRefs) {
             LOG.log(Level.DEBUG, "Couldn't validate the References");
             validationStatus = false;
@@ -308,30 +315,20 @@ public final class DOMXMLSignature extends DOMStructure
         if (Boolean.TRUE.equals(vc.getProperty
                                 ("org.jcp.xml.dsig.validateManifests")))
         {
-            for (int i=0, size=objects.size(); validateMans && i < size; i++) {
-                XMLObject xo = objects.get(i);
+            List<Reference> manRefs = new ArrayList<>();
+            for (XMLObject xo : objects) {
                 @SuppressWarnings("unchecked")
                 List<XMLStructure> content = xo.getContent();
-                int csize = content.size();
-                for (int j = 0; validateMans && j < csize; j++) {
-                    XMLStructure xs = content.get(j);
+                for (XMLStructure xs : content) {
                     if (xs instanceof Manifest) {
                         LOG.log(Level.DEBUG, "validating manifest");
-                        Manifest man = (Manifest)xs;
                         @SuppressWarnings("unchecked")
-                        List<Reference> manRefs = man.getReferences();
-                        int rsize = manRefs.size();
-                        for (int k = 0; validateMans && k < rsize; k++) {
-                            Reference ref = manRefs.get(k);
-                            boolean refValid = ref.validate(vc);
-                            LOG.log(Level.DEBUG,
-                                "Manifest ref [{0}] is valid: {1}", ref.getURI(),  refValid
-                            );
-                            validateMans &= refValid;
-                        }
+                        List<Reference> references = ((Manifest)xs).getReferences();
+                        manRefs.addAll(references);
                     }
                 }
             }
+            validateMans = validateReferences(manRefs, vc, "Manifest ref [{0}] is valid: {1}");
         }
 
         validationStatus = validateMans;
@@ -339,6 +336,78 @@ public final class DOMXMLSignature extends DOMStructure
         return validationStatus;
     }
 
+    /**
+     * Validates the given References in document order and stops at the first invalid one.
+     * If the property "org.apache.jcp.xml.dsig.referenceVerificationExecutor" (an Executor) or
+     * "org.apache.jcp.xml.dsig.referenceVerificationParallelism" (an Integer greater than 1) is
+     * set, the References are validated concurrently, but the results are still evaluated in
+     * document order. The document must not be modified by the application in the meantime.
+     */
+    private boolean validateReferences(List<Reference> refs, XMLValidateContext vc, String logMessage)
+        throws XMLSignatureException
+    {
+        Executor executor = (Executor)vc.getProperty(VERIFICATION_EXECUTOR);
+        Integer parallelism = (Integer)vc.getProperty(VERIFICATION_PARALLELISM);
+        if (refs.size() < 2 || executor == null && (parallelism == null || parallelism <= 1)) {
+            for (Reference ref : refs) {
+                boolean refValid = ref.validate(vc);
+                LOG.log(Level.DEBUG, logMessage, ref.getURI(), refValid);
+                if (!refValid) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // the References only read the document, so build its lazily built parts upfront
+        Document doc = DOMUtils.getOwnerDocument(((DOMValidateContext)vc).getNode());
+        if (anyReferenceHasTransform(refs, Transform.XPATH)) {
+            XMLUtils.circumventBug2650(doc);
+        }
+        XMLUtils.prepareForConcurrentReads(doc);
+
+        List<OrderedTaskRunner.Task<Boolean>> tasks = new ArrayList<>(refs.size());
+        for (Reference ref : refs) {
+            tasks.add(() -> ref.validate(vc));
+        }
+        OrderedTaskRunner<Boolean> runner;
+        try {
+            runner = OrderedTaskRunner.run(tasks, refValid -> !refValid, executor,
+                parallelism != null && parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XMLSignatureException(ex);
+        }
+        for (int i = 0; i < refs.size(); i++) {
+            boolean refValid;
+            try {
+                refValid = runner.get(i);
+            } catch (XMLSignatureException | RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new XMLSignatureException(ex);
+            }
+            LOG.log(Level.DEBUG, logMessage, refs.get(i).getURI(), refValid);
+            if (!refValid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean anyReferenceHasTransform(List<? extends Reference> refs, String algorithm) {
+        for (Reference ref : refs) {
+            @SuppressWarnings("unchecked")
+            List<Transform> transforms = ref.getTransforms();
+            for (Transform transform : transforms) {
+                if (algorithm.equals(transform.getAlgorithm())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public void sign(XMLSignContext signContext)
         throws MarshalException, XMLSignatureException
@@ -385,8 +454,9 @@ public final class DOMXMLSignature extends DOMStructure
         allReferences.addAll(refs);
 
         // generate/digest each reference
+        Map<Reference, OrderedTaskRunner.Task<byte[]>> digests = calculateDigests(allReferences, signContext);
         for (Reference ref : allReferences) {
-            digestReference((DOMReference)ref, signContext);
+            digestReference((DOMReference)ref, signContext, digests);
         }
 
         // do final sweep to digest any references that were skipped or missed
@@ -464,7 +534,8 @@ public final class DOMXMLSignature extends DOMStructure
         return result;
     }
 
-    private void digestReference(DOMReference ref, XMLSignContext signContext)
+    private void digestReference(DOMReference ref, XMLSignContext signContext,
+                                 Map<Reference, OrderedTaskRunner.Task<byte[]>> digests)
         throws XMLSignatureException
     {
         if (ref.isDigested()) {
@@ -477,12 +548,12 @@ public final class DOMXMLSignature extends DOMStructure
             if (parsedId != null && signatureIdMap.containsKey(parsedId)) {
                 XMLStructure xs = signatureIdMap.get(parsedId);
                 if (xs instanceof DOMReference) {
-                    digestReference((DOMReference) xs, signContext);
+                    digestReference((DOMReference) xs, signContext, digests);
                 } else if (xs instanceof Manifest) {
                     Manifest man = (Manifest) xs;
                     List<Reference> manRefs = DOMManifest.getManifestReferences(man);
                     for (Reference manRef : manRefs) {
-                        digestReference((DOMReference) manRef, signContext);
+                        digestReference((DOMReference) manRef, signContext, digests);
                     }
                 }
             }
@@ -500,7 +571,106 @@ public final class DOMXMLSignature extends DOMStructure
                 }
             }
         }
-        ref.digest(signContext);
+        OrderedTaskRunner.Task<byte[]> digest = digests.remove(ref);
+        if (digest == null) {
+            ref.digest(signContext);
+            return;
+        }
+        try {
+            ref.setDigestValue(digest.call());
+        } catch (CancellationException ex) {
+            // skipped since another Reference failed, which is reported when its turn comes
+            ref.digest(signContext);
+        } catch (XMLSignatureException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new XMLSignatureException(ex);
+        }
+    }
+
+    /**
+     * Calculates the digests of the References whose content contains no DigestValue of this
+     * signature concurrently, if the property "org.apache.jcp.xml.dsig.referenceDigestExecutor"
+     * (an Executor) or "org.apache.jcp.xml.dsig.referenceDigestParallelism" (an Integer greater
+     * than 1) is set. The digests are stored in the DigestValue elements by the calling thread
+     * afterwards, in the same order as before, so the document is only read meanwhile.
+     *
+     * @return the outcomes of the calculated digests, the other References have to be digested as usual
+     */
+    private Map<Reference, OrderedTaskRunner.Task<byte[]>> calculateDigests(List<Reference> refs, XMLSignContext signContext)
+        throws XMLSignatureException
+    {
+        Executor executor = (Executor)signContext.getProperty(DIGEST_EXECUTOR);
+        Integer parallelism = (Integer)signContext.getProperty(DIGEST_PARALLELISM);
+        if (refs.size() < 2 || executor == null && (parallelism == null || parallelism <= 1)) {
+            return Collections.emptyMap();
+        }
+
+        List<DOMReference> independentRefs = new ArrayList<>(refs.size());
+        for (Reference ref : refs) {
+            if (isIndependent((DOMReference)ref, signContext)) {
+                independentRefs.add((DOMReference)ref);
+            }
+        }
+        if (independentRefs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Document doc = DOMUtils.getOwnerDocument(sigElem);
+        if (anyReferenceHasTransform(independentRefs, Transform.XPATH)) {
+            XMLUtils.circumventBug2650(doc);
+        }
+        XMLUtils.prepareForConcurrentReads(doc);
+
+        List<OrderedTaskRunner.Task<byte[]>> tasks = new ArrayList<>(independentRefs.size());
+        for (DOMReference ref : independentRefs) {
+            tasks.add(() -> ref.calculateDigest(signContext));
+        }
+        OrderedTaskRunner<byte[]> runner;
+        try {
+            runner = OrderedTaskRunner.run(tasks, digest -> false, executor,
+                parallelism != null && parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XMLSignatureException(ex);
+        }
+
+        // an exception is rethrown when the failed Reference is stored
+        Map<Reference, OrderedTaskRunner.Task<byte[]>> digests = new IdentityHashMap<>();
+        for (int i = 0; i < independentRefs.size(); i++) {
+            int index = i;
+            digests.put(independentRefs.get(i), () -> runner.get(index));
+        }
+        return digests;
+    }
+
+    /**
+     * Returns whether the content of the given Reference is neither this signature nor a part
+     * of it nor an element which contains it, so that its digest doesn't depend on the DigestValues
+     * of the other References, and whether it is digested without modifying the document.
+     */
+    private boolean isIndependent(DOMReference ref, XMLSignContext signContext) {
+        String uri = ref.getURI();
+        if (uri == null || ref.addsC14N11Transform(signContext)) {
+            return false;
+        }
+        if (!Utils.sameDocumentURI(uri)) {
+            return true;
+        }
+        if (uri.length() == 0 || uri.startsWith("#xpointer(") && !uri.startsWith("#xpointer(id(")) {
+            return false;
+        }
+        String parsedId = Utils.parseIdFromSameDocumentURI(uri);
+        if (signatureIdMap.containsKey(parsedId)) {
+            return false;
+        }
+        Node target = ((DOMSignContext)signContext).getElementById(parsedId);
+        if (target == null) {
+            target = sigElem.getOwnerDocument().getElementById(parsedId);
+        }
+        return target != null
+            && !XMLUtils.isDescendantOrSelf(target, sigElem)
+            && !XMLUtils.isDescendantOrSelf(sigElem, target);
     }
 
     public class DOMSignatureValue extends DOMStructure
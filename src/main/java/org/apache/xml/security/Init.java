@@ -32,6 +32,8 @@ import org.apache.xml.security.algorithms.SignatureAlgorithm;
 import org.apache.xml.security.c14n.Canonicalizer;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.keyresolver.KeyResolver;
+import org.apache.xml.security.parser.XMLParserException;
+import org.apache.xml.security.parser.XMLParserImpl;
 import org.apache.xml.security.transforms.Transform;
 import org.apache.xml.security.utils.ClassLoaderUtils;
 import org.apache.xml.security.utils.ElementProxy;
@@ -93,6 +95,12 @@ public class Init {
             LOG.log(Level.WARNING, ex.getMessage(), ex);
         }
 
+        try {
+            XMLParserImpl.warmUp();
+        } catch (XMLParserException ex) {
+            LOG.log(Level.WARNING, ex.getMessage(), ex);
+        }
+
         alreadyInitialized = true;
     }
 
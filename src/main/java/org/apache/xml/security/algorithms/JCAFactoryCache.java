@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivilegedAction;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the {@link KeyFactory} and {@link CertificateFactory} instances which are needed to parse
+ * keys and certificates, and the parsed certificates themselves.
+ *
+ * The JCA doesn't guarantee that a KeyFactory or CertificateFactory may be used by several threads
+ * at the same time, so the factories are cached per thread, keyed by type and provider.
+ *
+ * X.509 certificates are immutable, so they are shared by all threads. The same signer certificate
+ * is typically embedded in every message, so the parsed certificates are kept in a bounded cache
+ * keyed by the SHA-256 digest of their encoded form. The number of cached certificates can be
+ * configured with the system property "org.apache.xml.security.certificateCacheSize" (default 256);
+ * a value of 0 disables the certificate cache.
+ */
+public final class JCAFactoryCache {
+
+    private static final int CERTIFICATE_CACHE_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.certificateCacheSize", 256));
+
+    private static final String X509 = "X.509";
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    private static final ThreadLocal<Factories> FACTORIES = ThreadLocal.withInitial(Factories::new);
+
+    private static final Map<ByteBuffer, CachedCertificate> CERTIFICATES =
+        new LinkedHashMap<ByteBuffer, CachedCertificate>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedCertificate> eldest) {
+                return size() > CERTIFICATE_CACHE_SIZE;
+            }
+        };
+
+    private static final LongAdder CERTIFICATE_HITS = new LongAdder();
+    private static final LongAdder CERTIFICATE_MISSES = new LongAdder();
+
+    private JCAFactoryCache() {
+        // complete
+    }
+
+    /**
+     * @param algorithm the key algorithm, e.g. "RSA"
+     * @return the KeyFactory of the default provider lookup, owned by the current thread
+     * @throws NoSuchAlgorithmException if no provider supports the algorithm
+     */
+    public static KeyFactory getKeyFactory(String algorithm) throws NoSuchAlgorithmException {
+        try {
+            return getKeyFactory(algorithm, null);
+        } catch (NoSuchProviderException ex) {
+            // can't happen without a provider name
+            throw new NoSuchAlgorithmException(ex);
+        }
+    }
+
+    /**
+     * @param algorithm the key algorithm, e.g. "RSA"
+     * @param provider the provider name or null for the default provider lookup
+     * @return the KeyFactory, owned by the current thread
+     * @throws NoSuchAlgorithmException if the provider doesn't support the algorithm
+     * @throws NoSuchProviderException if the provider isn't installed
+     */
+    public static KeyFactory getKeyFactory(String algorithm, String provider)
+        throws NoSuchAlgorithmException, NoSuchProviderException {
+        FactoryKey key = new FactoryKey(KeyFactory.class, algorithm, provider);
+        Map<FactoryKey, Object> factories = getFactories();
+        KeyFactory keyFactory = (KeyFactory) factories.get(key);
+        if (keyFactory == null) {
+            keyFactory = provider == null
+                ? KeyFactory.getInstance(algorithm) : KeyFactory.getInstance(algorithm, provider);
+            factories.put(key, keyFactory);
+        }
+        return keyFactory;
+    }
+
+    /**
+     * @param type the certificate type, e.g. "X.509"
+     * @return the CertificateFactory of the default provider lookup, owned by the current thread
+     * @throws CertificateException if no provider supports the certificate type
+     */
+    public static CertificateFactory getCertificateFactory(String type) throws CertificateException {
+        try {
+            return getCertificateFactory(type, null);
+        } catch (NoSuchProviderException ex) {
+            // can't happen without a provider name
+            throw new CertificateException(ex);
+        }
+    }
+
+    /**
+     * @param type the certificate type, e.g. "X.509"
+     * @param provider the provider name or null for the default provider lookup
+     * @return the CertificateFactory, owned by the current thread
+     * @throws CertificateException if the provider doesn't support the certificate type
+     * @throws NoSuchProviderException if the provider isn't installed
+     */
+    public static CertificateFactory getCertificateFactory(String type, String provider)
+        throws CertificateException, NoSuchProviderException {
+        FactoryKey key = new FactoryKey(CertificateFactory.class, type, provider);
+        Map<FactoryKey, Object> factories = getFactories();
+        CertificateFactory certificateFactory = (CertificateFactory) factories.get(key);
+        if (certificateFactory == null) {
+            certificateFactory = provider == null
+                ? CertificateFactory.getInstance(type) : CertificateFactory.getInstance(type, provider);
+            factories.put(key, certificateFactory);
+        }
+        return certificateFactory;
+    }
+
+    /**
+     * Parses an X.509 certificate with the default provider lookup, or returns the certificate
+     * which was parsed from the same octets before.
+     *
+     * @param encoded the certificate in any form accepted by
+     *        {@link CertificateFactory#generateCertificate(java.io.InputStream)}
+     * @return the certificate
+     * @throws CertificateException if the octets can't be parsed
+     */
+    public static X509Certificate getX509Certificate(byte[] encoded) throws CertificateException {
+        if (CERTIFICATE_CACHE_SIZE <= 0) {
+            return parseX509Certificate(encoded);
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha256(encoded));
+        CachedCertificate cached;
+        synchronized (CERTIFICATES) {
+            cached = CERTIFICATES.get(key);
+        }
+        // compare the octets as well, the certificate is trusted to be the one in the message
+        if (cached != null && Arrays.equals(cached.encoded, encoded)) {
+            CERTIFICATE_HITS.increment();
+            return cached.certificate;
+        }
+        CERTIFICATE_MISSES.increment();
+        X509Certificate certificate = parseX509Certificate(encoded);
+        synchronized (CERTIFICATES) {
+            CERTIFICATES.put(key, new CachedCertificate(encoded.clone(), certificate));
+        }
+        return certificate;
+    }
+
+    /**
+     * @return the number of certificates which were found in the certificate cache
+     */
+    public static long getCertificateHits() {
+        return CERTIFICATE_HITS.sum();
+    }
+
+    /**
+     * @return the number of certificates which had to be parsed
+     */
+    public static long getCertificateMisses() {
+        return CERTIFICATE_MISSES.sum();
+    }
+
+    /**
+     * Discards all cached factories and certificates, e.g. after the installed security providers
+     * have changed. The factories of other threads are discarded on their next lookup.
+     */
+    public static void clear() {
+        GENERATION.incrementAndGet();
+        synchronized (CERTIFICATES) {
+            CERTIFICATES.clear();
+        }
+    }
+
+    private static X509Certificate parseX509Certificate(byte[] encoded) throws CertificateException {
+        return (X509Certificate) getCertificateFactory(X509).generateCertificate(new ByteArrayInputStream(encoded));
+    }
+
+    private static byte[] sha256(byte[] encoded) throws CertificateException {
+        JCEEnginePool<MessageDigest> pool = JCEEnginePool.getMessageDigestPool("SHA-256", (String) null);
+        MessageDigest md;
+        try {
+            md = pool.borrow();
+        } catch (GeneralSecurityException ex) {
+            throw new CertificateException(ex);
+        }
+        byte[] digest = md.digest(encoded);
+        pool.release(md);
+        return digest;
+    }
+
+    private static Map<FactoryKey, Object> getFactories() {
+        Factories factories = FACTORIES.get();
+        int generation = GENERATION.get();
+        if (factories.generation != generation) {
+            factories.generation = generation;
+            factories.instances.clear();
+        }
+        return factories.instances;
+    }
+
+    private static final class Factories {
+        private final Map<FactoryKey, Object> instances = new HashMap<>();
+        private int generation = GENERATION.get();
+    }
+
+    private static final class CachedCertificate {
+        private final byte[] encoded;
+        private final X509Certificate certificate;
+
+        CachedCertificate(byte[] encoded, X509Certificate certificate) {
+            this.encoded = encoded;
+            this.certificate = certificate;
+        }
+    }
+
+    private static final class FactoryKey {
+        private final Class<?> factoryClass;
+        private final String type;
+        private final String provider;
+
+        FactoryKey(Class<?> factoryClass, String type, String provider) {
+            this.factoryClass = factoryClass;
+            this.type = type;
+            this.provider = provider;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FactoryKey)) {
+                return false;
+            }
+            FactoryKey other = (FactoryKey) obj;
+            return factoryClass == other.factoryClass && type.equals(other.type)
+                && Objects.equals(provider, other.provider);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * factoryClass.hashCode() + type.hashCode()) + Objects.hashCode(provider);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.algorithms;
+
+import java.math.BigInteger;
+import java.security.AccessController;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivilegedAction;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A thread-safe pool of JCE engines ({@link MessageDigest}, {@link Signature}, {@link Mac} and
+ * {@link Cipher}) for one (algorithm, provider) combination. Looking up a JCE engine walks the
+ * provider list and instantiates the provider service on every call, which is measurable under load.
+ * Engines are borrowed with {@link #borrow()} and must be handed back with {@link #release(Object)}
+ * once the caller is done with them. Engines which are in an undefined state (e.g. after an exception)
+ * must simply not be released.
+ *
+ * Released MessageDigest engines are reset. Signature, Mac and Cipher engines don't have an operation
+ * which forgets their key, so they are initialized again with a throwaway key of the same algorithm
+ * before they are pooled, i.e. an idle engine never keeps the key of its last borrower reachable.
+ * An engine which can't be initialized with a throwaway key is not pooled. Borrowed engines must be
+ * initialized by the borrower before they are used.
+ *
+ * Pools are kept per provider name, so creating a new Provider instance for every operation doesn't
+ * add a pool each time. The engines of a pool are created by the first Provider instance which was
+ * passed for its name.
+ *
+ * The number of idle engines per pool can be configured with the system property
+ * "org.apache.xml.security.jceEnginePoolSize"; a value of 0 disables pooling.
+ *
+ * @param <T> the JCE engine type
+ */
+public final class JCEEnginePool<T> {
+
+    private static final int DEFAULT_POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final int POOL_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.jceEnginePoolSize",
+                                                                 DEFAULT_POOL_SIZE));
+
+    private static final ConcurrentMap<PoolKey, JCEEnginePool<?>> POOLS = new ConcurrentHashMap<>();
+
+    private final EngineType<T> engineType;
+    private final String algorithm;
+    private final Object provider;
+    private final BlockingDeque<T> idleEngines;
+
+    private static final BigInteger NEUTRAL_RSA_MODULUS = BigInteger.ONE.shiftLeft(2047).add(BigInteger.ONE);
+
+    private static final ConcurrentMap<String, Key> NEUTRAL_KEYS = new ConcurrentHashMap<>();
+
+    private JCEEnginePool(EngineType<T> engineType, String algorithm, Object provider) {
+        this.engineType = engineType;
+        this.algorithm = algorithm;
+        this.provider = provider;
+        this.idleEngines = POOL_SIZE > 0 ? new LinkedBlockingDeque<>(POOL_SIZE) : null;
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider name or null for the default provider lookup
+     * @return the MessageDigest pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<MessageDigest> getMessageDigestPool(String algorithm, String provider) {
+        return getPool(EngineType.MESSAGE_DIGEST, algorithm, provider);
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider or null for the default provider lookup
+     * @return the MessageDigest pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<MessageDigest> getMessageDigestPool(String algorithm, Provider provider) {
+        return getPool(EngineType.MESSAGE_DIGEST, algorithm, provider);
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider name or null for the default provider lookup
+     * @return the Signature pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<Signature> getSignaturePool(String algorithm, String provider) {
+        return getPool(EngineType.SIGNATURE, algorithm, provider);
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider or null for the default provider lookup
+     * @return the Signature pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<Signature> getSignaturePool(String algorithm, Provider provider) {
+        return getPool(EngineType.SIGNATURE, algorithm, provider);
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider name or null for the default provider lookup
+     * @return the Mac pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<Mac> getMacPool(String algorithm, String provider) {
+        return getPool(EngineType.MAC, algorithm, provider);
+    }
+
+    /**
+     * @param algorithm the JCE algorithm name
+     * @param provider the provider or null for the default provider lookup
+     * @return the Mac pool for the given algorithm and provider
+     */
+    public static JCEEnginePool<Mac> getMacPool(String algorithm, Provider provider) {
+        return getPool(EngineType.MAC, algorithm, provider);
+    }
+
+    /**
+     * @param transformation the JCE cipher transformation
+     * @param provider the provider name or null for the default provider lookup
+     * @return the Cipher pool for the given transformation and provider
+     */
+    public static JCEEnginePool<Cipher> getCipherPool(String transformation, String provider) {
+        return getPool(EngineType.CIPHER, transformation, provider);
+    }
+
+    /**
+     * @param transformation the JCE cipher transformation
+     * @param provider the provider or null for the default provider lookup
+     * @return the Cipher pool for the given transformation and provider
+     */
+    public static JCEEnginePool<Cipher> getCipherPool(String transformation, Provider provider) {
+        return getPool(EngineType.CIPHER, transformation, provider);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> JCEEnginePool<T> getPool(EngineType<T> engineType, String algorithm, Object provider) {
+        return (JCEEnginePool<T>) POOLS.computeIfAbsent(new PoolKey(engineType, algorithm, provider),
+            key -> new JCEEnginePool<>(engineType, algorithm, provider));
+    }
+
+    /**
+     * Discards all pooled engines, e.g. after the installed security providers have changed.
+     */
+    public static void clear() {
+        POOLS.clear();
+    }
+
+    /**
+     * @return the JCE algorithm name of the pooled engines
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns an idle engine of this pool or creates a new one if there is none.
+     *
+     * @return the engine which is exclusively owned by the caller until it is released
+     * @throws GeneralSecurityException if the engine can't be created
+     */
+    public T borrow() throws GeneralSecurityException {
+        if (idleEngines != null) {
+            // the most recently released engine is the most likely to be cache-warm
+            T engine = idleEngines.pollFirst();
+            if (engine != null) {
+                return engine;
+            }
+        }
+        return engineType.newInstance(algorithm, provider);
+    }
+
+    /**
+     * Hands an engine back to this pool. The engine must not be used by the caller afterwards.
+     * If the pool is full the engine is left to the garbage collector.
+     *
+     * @param engine the engine which was previously borrowed from this pool, may be null
+     */
+    public void release(T engine) {
+        if (engine == null || idleEngines == null) {
+            return;
+        }
+        if (engineType.reset(engine, algorithm)) {
+            idleEngines.offerFirst(engine); //NOPMD
+        }
+    }
+
+    private abstract static class EngineType<T> {
+
+        static final EngineType<MessageDigest> MESSAGE_DIGEST = new EngineType<MessageDigest>() {
+            @Override
+            MessageDigest newInstance(String algorithm, Object provider) throws GeneralSecurityException {
+                if (provider instanceof Provider) {
+                    return MessageDigest.getInstance(algorithm, (Provider) provider);
+                }
+                return provider == null
+                    ? MessageDigest.getInstance(algorithm) : MessageDigest.getInstance(algorithm, (String) provider);
+            }
+
+            @Override
+            boolean reset(MessageDigest engine, String algorithm) {
+                engine.reset();
+                return true;
+            }
+        };
+
+        static final EngineType<Signature> SIGNATURE = new EngineType<Signature>() {
+            @Override
+            Signature newInstance(String algorithm, Object provider) throws GeneralSecurityException {
+                if (provider instanceof Provider) {
+                    return Signature.getInstance(algorithm, (Provider) provider);
+                }
+                return provider == null
+                    ? Signature.getInstance(algorithm) : Signature.getInstance(algorithm, (String) provider);
+            }
+
+            @Override
+            boolean reset(Signature engine, String algorithm) {
+                Key key = getNeutralKey(getSignatureKeyAlgorithm(algorithm));
+                if (!(key instanceof PublicKey)) {
+                    return false;
+                }
+                try {
+                    // replaces the private or public key of the last borrower
+                    engine.initVerify((PublicKey) key);
+                    return true;
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    return false;
+                }
+            }
+        };
+
+        static final EngineType<Mac> MAC = new EngineType<Mac>() {
+            @Override
+            Mac newInstance(String algorithm, Object provider) throws GeneralSecurityException {
+                if (provider instanceof Provider) {
+                    return Mac.getInstance(algorithm, (Provider) provider);
+                }
+                return provider == null
+                    ? Mac.getInstance(algorithm) : Mac.getInstance(algorithm, (String) provider);
+            }
+
+            @Override
+            boolean reset(Mac engine, String algorithm) {
+                try {
+                    // Mac.reset() keeps the key of the last borrower
+                    engine.init(new SecretKeySpec(new byte[32], engine.getAlgorithm()));
+                    return true;
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    return false;
+                }
+            }
+        };
+
+        static final EngineType<Cipher> CIPHER = new EngineType<Cipher>() {
+            @Override
+            Cipher newInstance(String algorithm, Object provider) throws GeneralSecurityException {
+                if (provider instanceof Provider) {
+                    return Cipher.getInstance(algorithm, (Provider) provider);
+                }
+                return provider == null
+                    ? Cipher.getInstance(algorithm) : Cipher.getInstance(algorithm, (String) provider);
+            }
+
+            @Override
+            boolean reset(Cipher engine, String algorithm) {
+                String keyAlgorithm = getCipherKeyAlgorithm(algorithm);
+                if (keyAlgorithm == null) {
+                    return false;
+                }
+                try {
+                    if ("RSA".equals(keyAlgorithm)) {
+                        Key key = getNeutralKey(keyAlgorithm);
+                        if (key == null) {
+                            return false;
+                        }
+                        engine.init(Cipher.ENCRYPT_MODE, key);
+                        return true;
+                    }
+                    AlgorithmParameterSpec parameterSpec = null;
+                    if (algorithm.contains("/GCM/")) {
+                        parameterSpec = new GCMParameterSpec(128, new byte[12]);
+                    } else if (algorithm.contains("/CBC/")) {
+                        parameterSpec = new IvParameterSpec(new byte[engine.getBlockSize()]);
+                    }
+                    // some key wrap ciphers only support the wrap modes, or only the key size they are named after
+                    int mode = algorithm.toUpperCase(Locale.ROOT).contains("WRAP")
+                        ? Cipher.UNWRAP_MODE : Cipher.DECRYPT_MODE;
+                    for (int keySize : "DESede".equals(keyAlgorithm) ? new int[] {24} : new int[] {16, 24, 32}) {
+                        try {
+                            engine.init(mode, new SecretKeySpec(new byte[keySize], keyAlgorithm), parameterSpec);
+                            return true;
+                        } catch (InvalidKeyException e) { //NOPMD
+                            // try the next key size
+                        }
+                    }
+                    return false;
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    return false;
+                }
+            }
+        };
+
+        abstract T newInstance(String algorithm, Object provider) throws GeneralSecurityException;
+
+        /**
+         * Prepares a released engine for the pool.
+         *
+         * @return false if the engine must not be pooled
+         */
+        abstract boolean reset(T engine, String algorithm);
+    }
+
+    private static String getSignatureKeyAlgorithm(String algorithm) {
+        String name = algorithm.toUpperCase(Locale.ROOT);
+        if (name.contains("ECDSA")) {
+            return "EC";
+        } else if (name.contains("RSA")) {
+            return "RSA";
+        } else if (name.startsWith("ED448")) {
+            return "Ed448";
+        } else if (name.startsWith("ED")) {
+            return "Ed25519";
+        } else if (name.contains("DSA")) {
+            return "DSA";
+        }
+        return null;
+    }
+
+    private static String getCipherKeyAlgorithm(String transformation) {
+        String name = transformation.toUpperCase(Locale.ROOT);
+        if (name.startsWith("RSA")) {
+            return "RSA";
+        } else if (name.startsWith("AES")) {
+            return "AES";
+        } else if (name.startsWith("DESEDE")) {
+            return "DESede";
+        } else if (name.startsWith("CAMELLIA")) {
+            return "Camellia";
+        } else if (name.startsWith("SEED")) {
+            return "SEED";
+        }
+        return null;
+    }
+
+    /**
+     * Returns a public key of the given algorithm, which is only used to replace the key of a
+     * released engine. It is created once per algorithm.
+     *
+     * @param keyAlgorithm the key algorithm, may be null
+     * @return the key or null if no key can be created for the algorithm
+     */
+    private static Key getNeutralKey(String keyAlgorithm) {
+        if (keyAlgorithm == null) {
+            return null;
+        }
+        return NEUTRAL_KEYS.computeIfAbsent(keyAlgorithm, alg -> {
+            try {
+                if ("RSA".equals(alg)) {
+                    // no need to generate a key pair, the key never verifies anything
+                    return KeyFactory.getInstance(alg).generatePublic(
+                        new RSAPublicKeySpec(NEUTRAL_RSA_MODULUS, RSAKeyGenParameterSpec.F4));
+                }
+                return KeyPairGenerator.getInstance(alg).generateKeyPair().getPublic();
+            } catch (GeneralSecurityException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Pools are keyed by engine type, algorithm and provider name. A Provider instance and its name
+     * are distinct keys, since a Provider instance doesn't have to be installed.
+     */
+    private static final class PoolKey {
+
+        private final EngineType<?> engineType;
+        private final String algorithm;
+        private final Object provider;
+
+        PoolKey(EngineType<?> engineType, String algorithm, Object provider) {
+            this.engineType = engineType;
+            this.algorithm = algorithm;
+            this.provider = provider;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey other = (PoolKey) obj;
+            if (engineType != other.engineType || !Objects.equals(algorithm, other.algorithm)) {
+                return false;
+            }
+            if (provider instanceof Provider != other.provider instanceof Provider) {
+                return false;
+            }
+            return Objects.equals(getProviderName(provider), getProviderName(other.provider));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(engineType) + Objects.hashCode(algorithm))
+                + Objects.hashCode(getProviderName(provider));
+        }
+
+        private static String getProviderName(Object provider) {
+            return provider instanceof Provider ? ((Provider) provider).getName() : (String) provider;
+        }
+    }
+}
@@ -18,9 +18,9 @@
  */
 package org.apache.xml.security.algorithms;
 
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
+import java.security.ProviderException;
 
 import org.apache.xml.security.signature.XMLSignatureException;
 import org.apache.xml.security.utils.Constants;
@@ -69,8 +69,11 @@ public final class MessageDigestAlgorithm extends Algorithm {
     public static final String ALGO_ID_DIGEST_SHA3_512 =
         Constants.XML_DSIG_NS_MORE_07_05 + "sha3-512";
 
+    /** Field pool is the pool the actual {@link java.security.MessageDigest} is borrowed from */
+    private final JCEEnginePool<MessageDigest> pool;
+
     /** Field algorithm stores the actual {@link java.security.MessageDigest} */
-    private final MessageDigest algorithm;
+    private MessageDigest algorithm;
 
     /**
      * Constructor for the brave who pass their own message digest algorithms and the
@@ -82,7 +85,14 @@ public final class MessageDigestAlgorithm extends Algorithm {
         throws XMLSignatureException {
         super(doc, algorithmURI);
 
-        algorithm = getDigestInstance(algorithmURI);
+        pool = getDigestPool(algorithmURI);
+        try {
+            algorithm = pool.borrow();
+        } catch (GeneralSecurityException ex) {
+            Object[] exArgs = { pool.getAlgorithm(), ex.getLocalizedMessage() };
+
+            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
+        }
     }
 
     /**
@@ -99,7 +109,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
         return new MessageDigestAlgorithm(doc, algorithmURI);
     }
 
-    private static MessageDigest getDigestInstance(String algorithmURI) throws XMLSignatureException {
+    private static JCEEnginePool<MessageDigest> getDigestPool(String algorithmURI) throws XMLSignatureException {
         String algorithmID = JCEMapper.translateURItoJCEID(algorithmURI);
 
         if (algorithmID == null) {
@@ -107,21 +117,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
             throw new XMLSignatureException("algorithms.NoSuchMap", exArgs);
         }
 
-        MessageDigest md;
-        String provider = JCEMapper.getProviderId();
-        try {
-            if (provider == null) {
-                md = MessageDigest.getInstance(algorithmID);
-            } else {
-                md = MessageDigest.getInstance(algorithmID, provider);
-            }
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Object[] exArgs = { algorithmID, ex.getLocalizedMessage() };
-
-            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
-        }
-
-        return md;
+        return JCEEnginePool.getMessageDigestPool(algorithmID, JCEMapper.getProviderId());
     }
 
     /**
@@ -130,9 +126,28 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the actual {@link java.security.MessageDigest} algorithm object
      */
     public MessageDigest getAlgorithm() {
+        if (algorithm == null) {
+            try {
+                algorithm = pool.borrow();
+            } catch (GeneralSecurityException ex) {
+                // the same algorithm was available when this object was created
+                throw new ProviderException(ex);
+            }
+        }
         return algorithm;
     }
 
+    /**
+     * Hands the actual {@link java.security.MessageDigest} back to the pool it was borrowed from.
+     * The MessageDigest previously returned by {@link #getAlgorithm()} must not be used afterwards.
+     * Using this object again is allowed, a new MessageDigest is borrowed in that case.
+     */
+    public void release() {
+        MessageDigest md = algorithm;
+        algorithm = null;
+        pool.release(md);
+    }
+
     /**
      * Proxy method for {@link java.security.MessageDigest#isEqual}
      * which is executed on the internal {@link java.security.MessageDigest} object.
@@ -152,7 +167,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the result of the {@link java.security.MessageDigest#digest()} method
      */
     public byte[] digest() {
-        return algorithm.digest();
+        return getAlgorithm().digest();
     }
 
     /**
@@ -163,7 +178,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the result of the {@link java.security.MessageDigest#digest(byte[])} method
      */
     public byte[] digest(byte[] input) {
-        return algorithm.digest(input);
+        return getAlgorithm().digest(input);
     }
 
     /**
@@ -177,7 +192,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @throws java.security.DigestException
      */
     public int digest(byte[] buf, int offset, int len) throws java.security.DigestException {
-        return algorithm.digest(buf, offset, len);
+        return getAlgorithm().digest(buf, offset, len);
     }
 
     /**
@@ -187,7 +202,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the result of the {@link java.security.MessageDigest#getAlgorithm} method
      */
     public String getJCEAlgorithmString() {
-        return algorithm.getAlgorithm();
+        return getAlgorithm().getAlgorithm();
     }
 
     /**
@@ -197,7 +212,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the result of the {@link java.security.MessageDigest#getProvider} method
      */
     public java.security.Provider getJCEProvider() {
-        return algorithm.getProvider();
+        return getAlgorithm().getProvider();
     }
 
     /**
@@ -207,7 +222,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @return the result of the {@link java.security.MessageDigest#getDigestLength} method
      */
     public int getDigestLength() {
-        return algorithm.getDigestLength();
+        return getAlgorithm().getDigestLength();
     }
 
     /**
@@ -216,7 +231,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      *
      */
     public void reset() {
-        algorithm.reset();
+        getAlgorithm().reset();
     }
 
     /**
@@ -226,7 +241,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @param input
      */
     public void update(byte[] input) {
-        algorithm.update(input);
+        getAlgorithm().update(input);
     }
 
     /**
@@ -236,7 +251,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @param input
      */
     public void update(byte input) {
-        algorithm.update(input);
+        getAlgorithm().update(input);
     }
 
     /**
@@ -248,7 +263,7 @@ public final class MessageDigestAlgorithm extends Algorithm {
      * @param len
      */
     public void update(byte[] buf, int offset, int len) {
-        algorithm.update(buf, offset, len);
+        getAlgorithm().update(buf, offset, len);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.algorithms;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.Provider;
+import java.security.ProviderException;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.Mac;
+
+/**
+ * A {@link Mac} facade which borrows its engine from a {@link JCEEnginePool}. The engine is
+ * handed back to the pool by {@link #doFinal()}. Since the key and the parameters of this object
+ * are remembered, it can be used again afterwards just like a Mac: a new engine is borrowed and
+ * initialized transparently.
+ *
+ * Like Mac, this class is not thread-safe.
+ */
+public final class PooledMac {
+
+    private final JCEEnginePool<Mac> pool;
+    private final String algorithm;
+    private final Provider provider;
+
+    private Mac mac;
+    private Key key;
+    private AlgorithmParameterSpec parameterSpec;
+
+    /**
+     * @param pool the pool to borrow the engines from
+     * @throws GeneralSecurityException if no engine can be created for the pool
+     */
+    public PooledMac(JCEEnginePool<Mac> pool) throws GeneralSecurityException {
+        this.pool = pool;
+        this.mac = pool.borrow();
+        this.algorithm = mac.getAlgorithm();
+        this.provider = mac.getProvider();
+    }
+
+    /**
+     * @see Mac#getAlgorithm()
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @see Mac#getProvider()
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @see Mac#init(Key)
+     */
+    public void init(Key key) throws InvalidKeyException {
+        try {
+            init(key, null);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new InvalidKeyException(e);
+        }
+    }
+
+    /**
+     * @see Mac#init(Key, AlgorithmParameterSpec)
+     */
+    public void init(Key key, AlgorithmParameterSpec params)
+        throws InvalidKeyException, InvalidAlgorithmParameterException {
+        Mac engine = engine();
+        try {
+            if (params == null) {
+                engine.init(key);
+            } else {
+                engine.init(key, params);
+            }
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+            // the engine may still be initialized with a previous key
+            mac = null;
+            this.key = null;
+            this.parameterSpec = null;
+            throw e;
+        }
+        this.key = key;
+        this.parameterSpec = params;
+    }
+
+    /**
+     * @see Mac#update(byte)
+     */
+    public void update(byte input) {
+        initializedEngine().update(input);
+    }
+
+    /**
+     * @see Mac#update(byte[])
+     */
+    public void update(byte[] input) {
+        initializedEngine().update(input);
+    }
+
+    /**
+     * @see Mac#update(byte[], int, int)
+     */
+    public void update(byte[] input, int offset, int len) {
+        initializedEngine().update(input, offset, len);
+    }
+
+    /**
+     * Finishes the MAC operation and hands the engine back to the pool.
+     *
+     * @see Mac#doFinal()
+     */
+    public byte[] doFinal() {
+        Mac engine = initializedEngine();
+        mac = null;
+        byte[] result = engine.doFinal();
+        pool.release(engine);
+        return result;
+    }
+
+    /**
+     * Hands the current engine back to the pool without finishing the MAC operation.
+     */
+    public void release() {
+        Mac engine = mac;
+        mac = null;
+        pool.release(engine);
+    }
+
+    private Mac initializedEngine() {
+        if (key == null) {
+            // a pooled engine may still be initialized with the key of its previous user
+            throw new IllegalStateException("MAC not initialized");
+        }
+        return engine();
+    }
+
+    private Mac engine() {
+        if (mac == null) {
+            try {
+                Mac engine = pool.borrow();
+                if (key != null) {
+                    if (parameterSpec == null) {
+                        engine.init(key);
+                    } else {
+                        engine.init(key, parameterSpec);
+                    }
+                }
+                mac = engine;
+            } catch (GeneralSecurityException e) {
+                // the same algorithm, key and parameters were accepted before
+                throw new ProviderException(e);
+            }
+        }
+        return mac;
+    }
+}
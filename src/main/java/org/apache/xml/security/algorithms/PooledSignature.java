@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.algorithms;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.ProviderException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * A {@link Signature} facade which borrows its engine from a {@link JCEEnginePool}. The engine is
+ * handed back to the pool when a signature was generated or verified. Since the parameters and the
+ * key of this object are remembered, it can be used again afterwards just like a Signature: a new
+ * engine is borrowed and initialized transparently.
+ *
+ * Like Signature, this class is not thread-safe.
+ */
+public final class PooledSignature {
+
+    private final JCEEnginePool<Signature> pool;
+    private final String algorithm;
+    private final Provider provider;
+
+    private Signature signature;
+    private AlgorithmParameterSpec parameterSpec;
+    private PrivateKey privateKey;
+    private SecureRandom secureRandom;
+    private PublicKey publicKey;
+
+    /**
+     * @param pool the pool to borrow the engines from
+     * @throws GeneralSecurityException if no engine can be created for the pool
+     */
+    public PooledSignature(JCEEnginePool<Signature> pool) throws GeneralSecurityException {
+        this.pool = pool;
+        this.signature = pool.borrow();
+        this.algorithm = signature.getAlgorithm();
+        this.provider = signature.getProvider();
+    }
+
+    /**
+     * @see Signature#getAlgorithm()
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @see Signature#getProvider()
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @see Signature#setParameter(AlgorithmParameterSpec)
+     */
+    public void setParameter(AlgorithmParameterSpec params) throws InvalidAlgorithmParameterException {
+        engine().setParameter(params);
+        parameterSpec = params;
+    }
+
+    /**
+     * @see Signature#initSign(PrivateKey, SecureRandom)
+     */
+    public void initSign(PrivateKey privateKey, SecureRandom secureRandom) throws InvalidKeyException {
+        Signature engine = engine();
+        try {
+            if (secureRandom == null) {
+                engine.initSign(privateKey);
+            } else {
+                engine.initSign(privateKey, secureRandom);
+            }
+        } catch (InvalidKeyException e) {
+            discard();
+            throw e;
+        }
+        this.privateKey = privateKey;
+        this.secureRandom = secureRandom;
+        this.publicKey = null;
+    }
+
+    /**
+     * @see Signature#initVerify(PublicKey)
+     */
+    public void initVerify(PublicKey publicKey) throws InvalidKeyException {
+        try {
+            engine().initVerify(publicKey);
+        } catch (InvalidKeyException e) {
+            discard();
+            throw e;
+        }
+        this.publicKey = publicKey;
+        this.privateKey = null;
+        this.secureRandom = null;
+    }
+
+    /**
+     * @see Signature#update(byte)
+     */
+    public void update(byte input) throws SignatureException {
+        initializedEngine().update(input);
+    }
+
+    /**
+     * @see Signature#update(byte[])
+     */
+    public void update(byte[] input) throws SignatureException {
+        initializedEngine().update(input);
+    }
+
+    /**
+     * @see Signature#update(byte[], int, int)
+     */
+    public void update(byte[] input, int offset, int len) throws SignatureException {
+        initializedEngine().update(input, offset, len);
+    }
+
+    /**
+     * Generates the signature and hands the engine back to the pool.
+     *
+     * @see Signature#sign()
+     */
+    public byte[] sign() throws SignatureException {
+        Signature engine = initializedEngine();
+        signature = null;
+        byte[] result = engine.sign();
+        pool.release(engine);
+        return result;
+    }
+
+    /**
+     * Verifies the signature and hands the engine back to the pool.
+     *
+     * @see Signature#verify(byte[])
+     */
+    public boolean verify(byte[] signatureValue) throws SignatureException {
+        Signature engine = initializedEngine();
+        signature = null;
+        boolean result = engine.verify(signatureValue);
+        pool.release(engine);
+        return result;
+    }
+
+    /**
+     * Hands the current engine back to the pool without generating or verifying a signature.
+     */
+    public void release() {
+        Signature engine = signature;
+        signature = null;
+        pool.release(engine);
+    }
+
+    /**
+     * Drops the current engine, which may still be initialized with a previous key.
+     */
+    private void discard() {
+        signature = null;
+        privateKey = null;
+        secureRandom = null;
+        publicKey = null;
+    }
+
+    private Signature initializedEngine() throws SignatureException {
+        if (privateKey == null && publicKey == null) {
+            // a pooled engine may still be initialized with the key of its previous user
+            throw new SignatureException("object not initialized for signing or verification");
+        }
+        return engine();
+    }
+
+    private Signature engine() {
+        if (signature == null) {
+            try {
+                Signature engine = pool.borrow();
+                if (parameterSpec != null) {
+                    engine.setParameter(parameterSpec);
+                }
+                if (privateKey != null) {
+                    if (secureRandom == null) {
+                        engine.initSign(privateKey);
+                    } else {
+                        engine.initSign(privateKey, secureRandom);
+                    }
+                } else if (publicKey != null) {
+                    engine.initVerify(publicKey);
+                }
+                signature = engine;
+            } catch (GeneralSecurityException e) {
+                // the same algorithm, parameters and key were accepted before
+                throw new ProviderException(e);
+            }
+        }
+        return signature;
+    }
+}
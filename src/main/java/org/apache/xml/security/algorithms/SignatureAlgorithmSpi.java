@@ -18,9 +18,11 @@
  */
 package org.apache.xml.security.algorithms;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Signature;
@@ -218,4 +220,66 @@ public abstract class SignatureAlgorithmSpi {
         }
     }
 
+    /**
+     * Returns a Signature facade whose engines are borrowed from the {@link JCEEnginePool} for
+     * the given algorithm and provider.
+     *
+     * @param algorithmID the JCE algorithm name
+     * @param provider the provider or null to use the provider configured in the {@link JCEMapper}
+     * @return the pooled Signature
+     * @throws XMLSignatureException if the algorithm is not available
+     */
+    protected static PooledSignature getPooledSignature(String algorithmID, Provider provider)
+        throws XMLSignatureException {
+        try {
+            JCEEnginePool<Signature> pool = provider == null
+                ? JCEEnginePool.getSignaturePool(algorithmID, JCEMapper.getProviderId())
+                : JCEEnginePool.getSignaturePool(algorithmID, provider);
+            return new PooledSignature(pool);
+        } catch (GeneralSecurityException ex) {
+            Object[] exArgs = {algorithmID, ex.getLocalizedMessage()};
+            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
+        }
+    }
+
+    protected static void engineInitVerify(Key publicKey, PooledSignature signatureAlgorithm)
+        throws XMLSignatureException {
+        if (!(publicKey instanceof PublicKey)) {
+            String supplied = null;
+            if (publicKey != null) {
+                supplied = publicKey.getClass().getName();
+            }
+            String needed = PublicKey.class.getName();
+            Object[] exArgs = { supplied, needed };
+
+            throw new XMLSignatureException("algorithms.WrongKeyForThisOperation", exArgs);
+        }
+
+        try {
+            signatureAlgorithm.initVerify((PublicKey) publicKey);
+        } catch (InvalidKeyException ex) {
+            throw new XMLSignatureException(ex);
+        }
+    }
+
+    protected static void engineInitSign(Key privateKey, SecureRandom secureRandom, PooledSignature signatureAlgorithm)
+            throws XMLSignatureException {
+        if (!(privateKey instanceof PrivateKey)) {
+            String supplied = null;
+            if (privateKey != null) {
+                supplied = privateKey.getClass().getName();
+            }
+            String needed = PrivateKey.class.getName();
+            Object[] exArgs = { supplied, needed };
+
+            throw new XMLSignatureException("algorithms.WrongKeyForThisOperation", exArgs);
+        }
+
+        try {
+            signatureAlgorithm.initSign((PrivateKey) privateKey, secureRandom);
+        } catch (InvalidKeyException ex) {
+            throw new XMLSignatureException(ex);
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ package org.apache.xml.security.algorithms.implementations;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -27,11 +28,12 @@ import java.security.Provider;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
 
-import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 
+import org.apache.xml.security.algorithms.JCEEnginePool;
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.algorithms.PooledMac;
 import org.apache.xml.security.algorithms.SignatureAlgorithmSpi;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.signature.XMLSignatureException;
@@ -47,7 +49,7 @@ public abstract class IntegrityHmac extends SignatureAlgorithmSpi {
     private static final Logger LOG = System.getLogger(IntegrityHmac.class.getName());
 
     /** Field macAlgorithm */
-    private final Mac macAlgorithm;
+    private final PooledMac macAlgorithm;
 
     /** Field hmacOutputLength */
     private HMACOutputLength hmacOutputLength;
@@ -71,8 +73,8 @@ public abstract class IntegrityHmac extends SignatureAlgorithmSpi {
         LOG.log(Level.DEBUG, "Created IntegrityHmacSHA1 using {0}", algorithmID);
 
         try {
-            this.macAlgorithm = (provider == null) ? Mac.getInstance(algorithmID) : Mac.getInstance(algorithmID, provider);
-        } catch (java.security.NoSuchAlgorithmException ex) {
+            this.macAlgorithm = new PooledMac(JCEEnginePool.getMacPool(algorithmID, provider));
+        } catch (GeneralSecurityException ex) {
             Object[] exArgs = { algorithmID, ex.getLocalizedMessage() };
 
             throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
@@ -22,17 +22,15 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.Provider;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PSSParameterSpec;
 
 import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.PooledSignature;
 import org.apache.xml.security.algorithms.SignatureAlgorithmSpi;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.signature.XMLSignatureException;
@@ -47,7 +45,7 @@ public abstract class SignatureBaseRSA extends SignatureAlgorithmSpi {
     private static final Logger LOG = System.getLogger(SignatureBaseRSA.class.getName());
 
     /** Field algorithm */
-    private final Signature signatureAlgorithm;
+    private final PooledSignature signatureAlgorithm;
 
     /**
      * Constructor SignatureRSA
@@ -65,26 +63,9 @@ public abstract class SignatureBaseRSA extends SignatureAlgorithmSpi {
             algorithmID, signatureAlgorithm.getProvider());
     }
 
-    Signature getSignature(Provider provider, String algorithmID)
+    PooledSignature getSignature(Provider provider, String algorithmID)
         throws XMLSignatureException {
-        try {
-            if (provider == null) {
-                String providerId = JCEMapper.getProviderId();
-                if (providerId == null) {
-                    return Signature.getInstance(algorithmID);
-
-                } else {
-                    return Signature.getInstance(algorithmID, providerId);
-                }
-
-            } else {
-                return Signature.getInstance(algorithmID, provider);
-            }
-
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Object[] exArgs = {algorithmID, ex.getLocalizedMessage()};
-            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
-        }
+        return getPooledSignature(algorithmID, provider);
     }
 
     /** {@inheritDoc} */
@@ -380,29 +361,21 @@ public abstract class SignatureBaseRSA extends SignatureAlgorithmSpi {
         }
 
         @Override
-        Signature getSignature(Provider provider, String algorithmID)
+        PooledSignature getSignature(Provider provider, String algorithmID)
             throws XMLSignatureException {
+            PooledSignature sig;
             try {
-                Signature sig;
-                if (provider == null) {
-                    String providerId = JCEMapper.getProviderId();
-                    if (providerId == null) {
-                        sig = Signature.getInstance("RSASSA-PSS");
-                    } else {
-                        sig = Signature.getInstance("RSASSA-PSS", providerId);
-                    }
-                } else {
-                    sig = Signature.getInstance("RSASSA-PSS", provider);
-                }
-                try {
-                    sig.setParameter(getPSSParameterSpec());
-                } catch (InvalidAlgorithmParameterException e) {
-                    throw new NoSuchAlgorithmException("Should not happen", e);
-                }
-                return sig;
-            } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+                sig = getPooledSignature("RSASSA-PSS", provider);
+            } catch (XMLSignatureException e) {
+                return super.getSignature(provider, algorithmID);
+            }
+            try {
+                sig.setParameter(getPSSParameterSpec());
+            } catch (InvalidAlgorithmParameterException e) {
+                sig.release();
                 return super.getSignature(provider, algorithmID);
             }
+            return sig;
         }
 
         abstract PSSParameterSpec getPSSParameterSpec();
@@ -23,16 +23,14 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.Provider;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.DSAKey;
 import java.security.spec.AlgorithmParameterSpec;
 
 import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.PooledSignature;
 import org.apache.xml.security.algorithms.SignatureAlgorithmSpi;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.signature.XMLSignatureException;
@@ -47,7 +45,7 @@ public class SignatureDSA extends SignatureAlgorithmSpi {
     private static final Logger LOG = System.getLogger(SignatureDSA.class.getName());
 
     /** Field algorithm */
-    private final Signature signatureAlgorithm;
+    private final PooledSignature signatureAlgorithm;
 
     /** size of Q */
     private int size;
@@ -75,24 +73,7 @@ public class SignatureDSA extends SignatureAlgorithmSpi {
         String algorithmID = JCEMapper.translateURItoJCEID(engineGetURI());
         LOG.log(Level.DEBUG, "Created SignatureDSA using {0}", algorithmID);
 
-        try {
-            if (provider == null) {
-                String providerId = JCEMapper.getProviderId();
-                if (providerId == null) {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID);
-
-                } else {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID, providerId);
-                }
-
-            } else {
-                this.signatureAlgorithm = Signature.getInstance(algorithmID, provider);
-            }
-
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Object[] exArgs = {algorithmID, ex.getLocalizedMessage()};
-            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
-        }
+        this.signatureAlgorithm = getPooledSignature(algorithmID, provider);
     }
 
     /**
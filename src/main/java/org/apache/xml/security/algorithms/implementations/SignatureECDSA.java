@@ -23,16 +23,14 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.Provider;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.ECPrivateKey;
 import java.security.spec.AlgorithmParameterSpec;
 
 import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.PooledSignature;
 import org.apache.xml.security.algorithms.SignatureAlgorithmSpi;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.signature.XMLSignatureException;
@@ -45,7 +43,7 @@ public abstract class SignatureECDSA extends SignatureAlgorithmSpi {
 
     private static final Logger LOG = System.getLogger(SignatureECDSA.class.getName());
 
-    private final Signature signatureAlgorithm;
+    private final PooledSignature signatureAlgorithm;
 
     /** Length for each integer in signature */
     private int signIntLen = -1;
@@ -98,24 +96,7 @@ public abstract class SignatureECDSA extends SignatureAlgorithmSpi {
         String algorithmID = JCEMapper.translateURItoJCEID(this.engineGetURI());
         LOG.log(Level.DEBUG, "Created SignatureECDSA using {0}", algorithmID);
 
-        try {
-            if (provider == null) {
-                String providerId = JCEMapper.getProviderId();
-                if (providerId == null) {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID);
-
-                } else {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID, providerId);
-                }
-
-            } else {
-                this.signatureAlgorithm = Signature.getInstance(algorithmID, provider);
-            }
-
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Object[] exArgs = { algorithmID, ex.getLocalizedMessage() };
-            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
-        }
+        this.signatureAlgorithm = getPooledSignature(algorithmID, provider);
     }
 
     /** {@inheritDoc} */
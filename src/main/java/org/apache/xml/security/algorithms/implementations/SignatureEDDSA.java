@@ -22,15 +22,13 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.Provider;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.AlgorithmParameterSpec;
 
 import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.PooledSignature;
 import org.apache.xml.security.algorithms.SignatureAlgorithmSpi;
 import org.apache.xml.security.signature.XMLSignature;
 import org.apache.xml.security.signature.XMLSignatureException;
@@ -43,7 +41,7 @@ public abstract class SignatureEDDSA extends SignatureAlgorithmSpi {
 
     private static final Logger LOG = System.getLogger(SignatureEDDSA.class.getName());
 
-    private final Signature signatureAlgorithm;
+    private final PooledSignature signatureAlgorithm;
 
 
     /**
@@ -59,24 +57,7 @@ public abstract class SignatureEDDSA extends SignatureAlgorithmSpi {
         String algorithmID = JCEMapper.translateURItoJCEID(this.engineGetURI());
         LOG.log(Level.DEBUG, "Created SignatureEDDSA using {0}", algorithmID);
 
-        try {
-            if (provider == null) {
-                String providerId = JCEMapper.getProviderId();
-                if (providerId == null) {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID);
-
-                } else {
-                    this.signatureAlgorithm = Signature.getInstance(algorithmID, providerId);
-                }
-
-            } else {
-                this.signatureAlgorithm = Signature.getInstance(algorithmID, provider);
-            }
-
-        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
-            Object[] exArgs = { algorithmID, ex.getLocalizedMessage() };
-            throw new XMLSignatureException("algorithms.NoSuchAlgorithm", exArgs);
-        }
+        this.signatureAlgorithm = getPooledSignature(algorithmID, provider);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,366 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.c14n;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.xml.security.utils.UnsyncByteArrayOutputStream;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+/**
+ * An opt-in cache of the canonical form of subtrees of a Document. If the same subtree is
+ * canonicalized repeatedly, e.g. a SignedInfo which is displayed and verified, or an element
+ * which is referenced by several signatures, the canonicalizers write the cached octets instead
+ * of traversing the subtree again.
+ * <p>
+ * The cache is attached to the Document with {@link #enable(Document)}. Entries are keyed by the
+ * identity of the root node and the exclude node, the algorithm, the comment flag and the
+ * parameters of the algorithm, like the inclusive namespace prefixes. Any DOM mutation event of
+ * the Document clears the cache, so the Document has to support DOM Level 2 mutation events, like
+ * the Xerces implementation of the JDK does.
+ * <p>
+ * Enabling the cache is not free: once a mutation listener is registered, the DOM implementation
+ * dispatches an event for every subsequent modification of the whole Document, which slows down
+ * building or editing it. Enable the cache on Documents which are mostly read, e.g. after parsing a
+ * message which is going to be verified, and {@link #disable(Document) disable} it before
+ * modifying the Document extensively.
+ * <p>
+ * References with an enveloped signature transform are cached, as the excluded Signature element
+ * is part of the key. Input which was turned into an XPath node set, e.g. by an XPath or XPath
+ * Filter 2.0 transform, is never cached. Neither are subtrees which are not attached to the
+ * Document, like a Signature which hasn't been appended yet, as their modifications don't fire
+ * mutation events on the Document.
+ * <p>
+ * The memory of the cache is bounded, the least recently used entries are evicted first.
+ */
+public final class CanonicalizationCache {
+
+    private static final Logger LOG = System.getLogger(CanonicalizationCache.class.getName());
+
+    /** The default maximum number of cached octets of a Document */
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final String USER_DATA_KEY = CanonicalizationCache.class.getName();
+
+    private static final String[] MUTATION_EVENTS = {
+        "DOMSubtreeModified", "DOMNodeInserted", "DOMNodeRemoved", "DOMAttrModified", "DOMCharacterDataModified"
+    };
+
+    private final int maxBytes;
+    private final Map<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final EventListener invalidator = new EventListener() {
+        @Override
+        public void handleEvent(Event evt) {
+            clear();
+        }
+    };
+    private int size;
+    private long hits;
+    private long misses;
+
+    private CanonicalizationCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Attaches a cache with the {@link #DEFAULT_MAX_BYTES} to the given Document.
+     *
+     * @param doc the Document
+     * @return the cache, or null if the Document doesn't support mutation events
+     */
+    public static CanonicalizationCache enable(Document doc) {
+        return enable(doc, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Attaches a cache to the given Document, unless one is attached already. From now on, the
+     * DOM implementation fires mutation events for all modifications of the Document, until the
+     * cache is disabled again.
+     *
+     * @param doc the Document
+     * @param maxBytes the maximum number of cached octets
+     * @return the cache, or null if the Document doesn't support mutation events
+     */
+    public static CanonicalizationCache enable(Document doc, int maxBytes) {
+        CanonicalizationCache cache = getCache(doc);
+        if (cache != null) {
+            return cache;
+        }
+        if (!(doc instanceof EventTarget) || !doc.getImplementation().hasFeature("MutationEvents", "2.0")) {
+            LOG.log(Level.DEBUG, "The Document does not support mutation events, the canonicalization cache is disabled");
+            return null;
+        }
+        cache = new CanonicalizationCache(maxBytes);
+        for (String type : MUTATION_EVENTS) {
+            ((EventTarget) doc).addEventListener(type, cache.invalidator, false);
+        }
+        doc.setUserData(USER_DATA_KEY, cache, null);
+        return cache;
+    }
+
+    /**
+     * Detaches the cache from the given Document.
+     *
+     * @param doc the Document
+     */
+    public static void disable(Document doc) {
+        CanonicalizationCache cache = getCache(doc);
+        if (cache != null) {
+            for (String type : MUTATION_EVENTS) {
+                ((EventTarget) doc).removeEventListener(type, cache.invalidator, false);
+            }
+            doc.setUserData(USER_DATA_KEY, null, null);
+            cache.clear();
+        }
+    }
+
+    /**
+     * @param node a Node
+     * @return the cache attached to the owner Document of the Node, or null
+     */
+    public static CanonicalizationCache getCache(Node node) {
+        if (node == null) {
+            return null;
+        }
+        Document doc = node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node : node.getOwnerDocument();
+        return doc == null ? null : (CanonicalizationCache) doc.getUserData(USER_DATA_KEY);
+    }
+
+    /**
+     * Returns the cache of the owner Document of the given Node, if the Node is part of the
+     * Document. The mutation events of a subtree which isn't attached to the Document don't reach
+     * the listener of the cache, so such a subtree must not be cached.
+     *
+     * @param node a Node
+     * @return the cache attached to the owner Document of the Node, or null if there is none or
+     *    the Node isn't attached to the Document
+     */
+    public static CanonicalizationCache getAttachedCache(Node node) {
+        CanonicalizationCache cache = getCache(node);
+        if (cache == null || node.getNodeType() == Node.DOCUMENT_NODE) {
+            return cache;
+        }
+        Document doc = node.getOwnerDocument();
+        return (doc.compareDocumentPosition(node) & Node.DOCUMENT_POSITION_DISCONNECTED) == 0 ? cache : null;
+    }
+
+    /**
+     * Writes the cached canonical form of the given key to the stream, or runs the
+     * canonicalization and caches its result.
+     *
+     * @param key the key of the subtree
+     * @param os the stream to write the canonical form to
+     * @param canonicalization writes the canonical form of the subtree to the given stream
+     * @throws CanonicalizationException
+     */
+    public void canonicalize(Key key, OutputStream os, Canonicalization canonicalization)
+        throws CanonicalizationException {
+        byte[] octets = get(key);
+        if (octets != null) {
+            try {
+                os.write(octets);
+                os.flush();
+            } catch (IOException ex) {
+                throw new CanonicalizationException(ex);
+            }
+            return;
+        }
+        RecordingOutputStream recorder = new RecordingOutputStream(os, maxBytes);
+        canonicalization.canonicalize(recorder);
+        if (!recorder.isOverflown()) {
+            put(key, recorder.toByteArray());
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the number of cached octets
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of canonicalizations which were served from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of canonicalizations which were not served from the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private synchronized byte[] get(Key key) {
+        byte[] octets = entries.get(key);
+        if (octets != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return octets;
+    }
+
+    private synchronized void put(Key key, byte[] octets) {
+        byte[] previous = entries.put(key, octets);
+        size += octets.length - (previous == null ? 0 : previous.length);
+        Iterator<byte[]> iterator = entries.values().iterator();
+        while (size > maxBytes && iterator.hasNext()) {
+            size -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Writes the canonical form of a subtree.
+     */
+    @FunctionalInterface
+    public interface Canonicalization {
+
+        /**
+         * @param os the stream to write the canonical form to
+         * @throws CanonicalizationException
+         */
+        void canonicalize(OutputStream os) throws CanonicalizationException;
+    }
+
+    /**
+     * The key of a canonicalized subtree. Nodes are compared by identity.
+     */
+    public static final class Key {
+
+        private final Node root;
+        private final String algorithm;
+        private final boolean includeComments;
+        private final String parameters;
+        private final Node excludeNode;
+        private final int hashCode;
+
+        /**
+         * @param root the root of the subtree
+         * @param algorithm the URI of the canonicalization algorithm
+         * @param includeComments whether comments are included
+         * @param parameters the parameters of the algorithm, e.g. the inclusive namespace
+         *    prefixes of exclusive canonicalization, or null
+         * @param excludeNode a node which is excluded from the subtree, or null
+         */
+        public Key(Node root, String algorithm, boolean includeComments, String parameters, Node excludeNode) {
+            this.root = root;
+            this.algorithm = algorithm;
+            this.includeComments = includeComments;
+            this.parameters = parameters;
+            this.excludeNode = excludeNode;
+            this.hashCode = Objects.hash(System.identityHashCode(root), algorithm, includeComments,
+                                         parameters, System.identityHashCode(excludeNode));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return root == other.root && excludeNode == other.excludeNode
+                && includeComments == other.includeComments
+                && Objects.equals(algorithm, other.algorithm)
+                && Objects.equals(parameters, other.parameters);
+        }
+    }
+
+    /**
+     * Passes the octets on and keeps a copy of them, as long as they don't exceed the limit.
+     */
+    private static final class RecordingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final int limit;
+        private UnsyncByteArrayOutputStream copy = new UnsyncByteArrayOutputStream();
+        private int count;
+
+        RecordingOutputStream(OutputStream out, int limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            record(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        boolean isOverflown() {
+            return copy == null;
+        }
+
+        byte[] toByteArray() {
+            return copy.toByteArray();
+        }
+
+        private void record(byte[] b, int off, int len) {
+            if (copy != null) {
+                count += len;
+                if (count > limit) {
+                    copy = null;
+                } else {
+                    copy.write(b, off, len);
+                }
+            }
+        }
+    }
+}
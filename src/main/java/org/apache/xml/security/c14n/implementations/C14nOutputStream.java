@@ -0,0 +1,256 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.c14n.implementations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The reusable output buffer of a canonicalizer. The canonical form is encoded and escaped
+ * directly into an internal byte array which is handed over to the target OutputStream in
+ * bulk. Constant byte sequences are copied into the buffer, so they never reach the (possibly
+ * untrusted) target stream and don't need to be cloned.
+ *
+ * This class is not thread-safe.
+ */
+final class C14nOutputStream extends OutputStream {
+
+    /** The maximum number of bytes a single char is encoded to, e.g. &amp;quot; */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[] XA = {'&','#','x','A',';'};
+    private static final byte[] X9 = {'&','#','x','9',';'};
+    private static final byte[] QUOT = {'&','q','u','o','t',';'};
+    private static final byte[] XD = {'&','#','x','D',';'};
+    private static final byte[] GT = {'&','g','t',';'};
+    private static final byte[] LT = {'&','l','t',';'};
+    private static final byte[] AMP = {'&','a','m','p',';'};
+
+    private final byte[] buf = new byte[8192];
+    private int count;
+    private OutputStream out;
+
+    C14nOutputStream() {
+        super();
+    }
+
+    C14nOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Sets the stream the buffered bytes are written to and discards the content of the buffer.
+     *
+     * @param out the target stream or null to release the current one
+     */
+    void setOutputStream(OutputStream out) {
+        this.out = out;
+        this.count = 0;
+    }
+
+    /**
+     * @return whether the buffer is currently attached to a target stream
+     */
+    boolean isAttached() {
+        return out != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buf.length - count) {
+            flushBuffer();
+            if (len > buf.length) {
+                out.write(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes the buffered bytes to the target stream and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered bytes to the target stream. The target stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+    }
+
+    void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes a String (e.g. an element or attribute name) in UTF-8 without escaping.
+     *
+     * @see UtfHelpper#writeStringToUtf8(String, OutputStream)
+     */
+    void writeUtf8(String str) throws IOException {
+        final int length = str.length();
+        int i = 0;
+        while (i < length) {
+            if (count > buf.length - MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char ch = str.charAt(i);
+            if (ch < 0x80) {
+                buf[count++] = (byte) ch;
+                i++;
+            } else {
+                int c = str.codePointAt(i);
+                i += Character.charCount(c);
+                count = UtfHelpper.writeCodePointToUtf8(c, buf, count);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a Text or CDATA node: &amp;, &lt;, &gt; and #xD are escaped.
+     */
+    void writeText(String text) throws IOException {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (count > buf.length - MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                i++;
+                switch (ch) {
+                case '&' :
+                    put(AMP);
+                    break;
+                case '<' :
+                    put(LT);
+                    break;
+                case '>' :
+                    put(GT);
+                    break;
+                case 0xD :
+                    put(XD);
+                    break;
+                default :
+                    buf[count++] = (byte) ch;
+                }
+            } else {
+                int c = text.codePointAt(i);
+                i += Character.charCount(c);
+                count = UtfHelpper.writeCodePointToUtf8(c, buf, count);
+            }
+        }
+    }
+
+    /**
+     * Writes an attribute value: &amp;, &lt;, &quot;, #x9, #xA and #xD are escaped.
+     */
+    void writeAttributeValue(String value) throws IOException {
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            if (count > buf.length - MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                i++;
+                switch (ch) {
+                case '&' :
+                    put(AMP);
+                    break;
+                case '<' :
+                    put(LT);
+                    break;
+                case '"' :
+                    put(QUOT);
+                    break;
+                case 0x09 :
+                    put(X9);
+                    break;
+                case 0x0A :
+                    put(XA);
+                    break;
+                case 0x0D :
+                    put(XD);
+                    break;
+                default :
+                    buf[count++] = (byte) ch;
+                }
+            } else {
+                int c = value.codePointAt(i);
+                i += Character.charCount(c);
+                count = UtfHelpper.writeCodePointToUtf8(c, buf, count);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a comment or processing instruction: only #xD is escaped.
+     */
+    void writeCharacterData(String data) throws IOException {
+        final int length = data.length();
+        int i = 0;
+        while (i < length) {
+            if (count > buf.length - MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char ch = data.charAt(i);
+            if (ch < 0x80) {
+                i++;
+                if (ch == 0x0D) {
+                    put(XD);
+                } else {
+                    buf[count++] = (byte) ch;
+                }
+            } else {
+                int c = data.codePointAt(i);
+                i += Character.charCount(c);
+                count = UtfHelpper.writeCodePointToUtf8(c, buf, count);
+            }
+        }
+    }
+
+    /**
+     * Copies an escape sequence into the buffer, which must have room for it.
+     */
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+}
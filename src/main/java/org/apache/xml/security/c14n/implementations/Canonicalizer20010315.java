@@ -22,8 +22,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.helper.C14nHelper;
@@ -49,6 +47,9 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
     private final XmlAttrStack xmlattrStack;
     private final boolean c14n11;
 
+    // reused for the attributes of every element
+    private final SortedAttrList result = new SortedAttrList();
+
     /**
      * Constructor Canonicalizer20010315
      *
@@ -143,7 +144,7 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
             return;
         }
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        result.clear();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -186,9 +187,12 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        result.sort(COMPARE);
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
+        result.clear();
     }
 
     /**
@@ -211,7 +215,7 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         // result will contain the attrs which have to be output
         xmlattrStack.push(ns.getLevel());
         boolean isRealVisible = isVisibleDO(element, ns.getLevel()) == 1;
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
+        result.clear();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -291,9 +295,12 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         }
 
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        result.sort(COMPARE);
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
+        result.clear();
     }
 
     @Override
@@ -306,7 +313,7 @@ public abstract class Canonicalizer20010315 extends CanonicalizerBase {
         if (input.getSubNode() != null) {
             doc = XMLUtils.getOwnerDocument(input.getSubNode());
         } else {
-            doc = XMLUtils.getOwnerDocument(input.getNodeSet());
+            doc = XMLUtils.getOwnerDocument(input.getNodeSetView());
         }
         XMLUtils.circumventBug2650(doc);
     }
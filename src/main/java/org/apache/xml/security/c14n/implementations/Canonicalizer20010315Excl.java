@@ -20,11 +20,12 @@ package org.apache.xml.security.c14n.implementations;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.helper.C14nHelper;
@@ -62,6 +63,16 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
     private SortedSet<String> inclusiveNSSet = Collections.emptySortedSet();
     private boolean propagateDefaultNamespace = false;
 
+    // reused for the attributes of every element
+    private final SortedAttrList result = new SortedAttrList();
+
+    /**
+     * The prefixes visibly utilized (in the attribute or in the name) by the current element,
+     * in addition to the inclusive namespaces. A prefix may be contained more than once: once
+     * its namespace definition is rendered, the NameSpaceSymbTable returns no mapping for it.
+     */
+    private final List<String> visiblyUtilized = new ArrayList<>();
+
     /**
      * Constructor Canonicalizer20010315Excl
      *
@@ -131,6 +142,12 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
         super.engineCanonicalizeSubTree(rootNode, excl, writer);
     }
 
+    @Override
+    protected String getCacheParameters() {
+        String parameters = String.join(" ", inclusiveNSSet);
+        return propagateDefaultNamespace ? parameters + " #propagateDefault" : parameters;
+    }
+
     /**
      *
      * @param rootNode
@@ -167,14 +184,8 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
                                            Map<String, byte[]> cache, OutputStream writer)
         throws CanonicalizationException, DOMException, IOException {
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
-
-        // The prefix visibly utilized (in the attribute or in the name) in
-        // the element
-        SortedSet<String> visiblyUtilized = new TreeSet<>();
-        if (!inclusiveNSSet.isEmpty()) {
-            visiblyUtilized.addAll(inclusiveNSSet);
-        }
+        result.clear();
+        visiblyUtilized.clear();
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -221,18 +232,9 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
             prefix = XMLNS;
         }
         visiblyUtilized.add(prefix);
+        addVisiblyUtilizedMappings(ns);
 
-        for (String s : visiblyUtilized) {
-            Attr key = ns.getMapping(s);
-            if (key != null) {
-                result.add(key);
-            }
-        }
-
-        //we output all Attrs which are available
-        for (Attr attr : result) {
-            outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
-        }
+        outputResult(writer, cache);
     }
 
     @Override
@@ -240,19 +242,10 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
                                     Map<String, byte[]> cache, OutputStream writer)
         throws CanonicalizationException, DOMException, IOException {
         // result will contain the attrs which have to be output
-        SortedSet<Attr> result = new TreeSet<>(COMPARE);
-
-        // The prefix visibly utilized (in the attribute or in the name) in
-        // the element
-        Set<String> visiblyUtilized = null;
+        result.clear();
+        visiblyUtilized.clear();
         // It's the output selected.
         boolean isOutputElement = isVisibleDO(element, ns.getLevel()) == 1;
-        if (isOutputElement) {
-            visiblyUtilized = new TreeSet<>();
-            if (!inclusiveNSSet.isEmpty()) {
-                visiblyUtilized.addAll(inclusiveNSSet);
-            }
-        }
 
         if (element.hasAttributes()) {
             NamedNodeMap attrs = element.getAttributes();
@@ -321,19 +314,40 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
                 prefix = XMLNS;
             }
             visiblyUtilized.add(prefix);
+            addVisiblyUtilizedMappings(ns);
+        }
 
-            for (String s : visiblyUtilized) {
-                Attr key = ns.getMapping(s);
-                if (key != null) {
-                    result.add(key);
-                }
+        outputResult(writer, cache);
+    }
+
+    /**
+     * Adds the namespace definitions of the inclusive namespaces and the visibly utilized
+     * prefixes which have to be rendered to the result.
+     */
+    private void addVisiblyUtilizedMappings(NameSpaceSymbTable ns) {
+        for (String s : inclusiveNSSet) {
+            Attr key = ns.getMapping(s);
+            if (key != null) {
+                result.add(key);
             }
         }
+        for (int i = 0; i < visiblyUtilized.size(); i++) {
+            Attr key = ns.getMapping(visiblyUtilized.get(i));
+            if (key != null) {
+                result.add(key);
+            }
+        }
+        visiblyUtilized.clear();
+    }
 
+    private void outputResult(OutputStream writer, Map<String, byte[]> cache) throws IOException {
         //we output all Attrs which are available
-        for (Attr attr : result) {
+        result.sort(COMPARE);
+        for (int i = 0; i < result.size(); i++) {
+            Attr attr = result.get(i);
             outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
         }
+        result.clear();
     }
 
     @Override
@@ -346,7 +360,7 @@ public abstract class Canonicalizer20010315Excl extends CanonicalizerBase {
         if (input.getSubNode() != null) {
             doc = XMLUtils.getOwnerDocument(input.getSubNode());
         } else {
-            doc = XMLUtils.getOwnerDocument(input.getNodeSet());
+            doc = XMLUtils.getOwnerDocument(input.getNodeSetView());
         }
         XMLUtils.circumventBug2650(doc);
     }
@@ -28,6 +28,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.xml.security.c14n.CanonicalizationCache;
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.CanonicalizerSpi;
 import org.apache.xml.security.c14n.helper.AttrCompare;
@@ -62,7 +63,8 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
     protected static final int NODE_AFTER_DOCUMENT_ELEMENT = 1;
 
     // Make sure you clone the following mutable arrays before passing to
-    // potentially untrusted objects such as OutputStreams.
+    // potentially untrusted objects such as OutputStreams. They don't need to be
+    // cloned when written to a C14nOutputStream, which copies them into its buffer.
     private static final byte[] END_PI = {'?','>'};
     private static final byte[] BEGIN_PI = {'<','?'};
     private static final byte[] END_COMM = {'-','-','>'};
@@ -71,7 +73,6 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
     private static final byte[] X9 = {'&','#','x','9',';'};
     private static final byte[] QUOT = {'&','q','u','o','t',';'};
     private static final byte[] XD = {'&','#','x','D',';'};
-    private static final byte[] GT = {'&','g','t',';'};
     private static final byte[] LT = {'&','l','t',';'};
     private static final byte[] END_TAG = {'<','/'};
     private static final byte[] AMP = {'&','a','m','p',';'};
@@ -82,6 +83,12 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
 
     private Set<Node> xpathNodeSet;
 
+    /**
+     * The reusable output buffer, which is attached to the target OutputStream for the
+     * duration of one canonicalization.
+     */
+    private final C14nOutputStream outputBuffer = new C14nOutputStream();
+
     /**
      * The null xmlns definition.
      */
@@ -148,7 +155,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 if (input.getSubNode() != null) {
                     engineCanonicalizeXPathNodeSetInternal(input.getSubNode(), writer);
                 } else {
-                    engineCanonicalizeXPathNodeSet(input.getNodeSet(), writer);
+                    engineCanonicalizeXPathNodeSet(input.getNodeSetView(), writer);
                 }
             }
         } catch (XMLParserException | IOException ex) {
@@ -168,6 +175,33 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      */
     protected void engineCanonicalizeSubTree(Node rootNode, Node excludeNode, OutputStream writer)
         throws CanonicalizationException {
+        // An enveloped signature is passed as excludeNode, which is part of the key. Only state
+        // left over from a node-set canonicalization by this instance prevents caching.
+        CanonicalizationCache cache = nodeFilter == null && xpathNodeSet == null
+            ? CanonicalizationCache.getAttachedCache(rootNode) : null;
+        if (cache == null) {
+            canonicalizeSubTree(rootNode, excludeNode, writer);
+            return;
+        }
+        CanonicalizationCache.Key key = new CanonicalizationCache.Key(
+            rootNode, engineGetURI(), includeComments, getCacheParameters(), excludeNode);
+        cache.canonicalize(key, writer, os -> canonicalizeSubTree(rootNode, excludeNode, os));
+    }
+
+    /**
+     * Returns the parameters of the algorithm, which affect the canonical form of a subtree
+     * in addition to the algorithm URI and the comment flag. Subtrees canonicalized with
+     * different parameters are cached separately.
+     *
+     * @return the parameters, or null
+     */
+    protected String getCacheParameters() {
+        return null;
+    }
+
+    private void canonicalizeSubTree(Node rootNode, Node excludeNode, OutputStream writer)
+        throws CanonicalizationException {
+        C14nOutputStream out = attachOutputBuffer(writer);
         try {
             NameSpaceSymbTable ns = new NameSpaceSymbTable();
             int nodeLevel = NODE_BEFORE_DOCUMENT_ELEMENT;
@@ -176,12 +210,38 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 getParentNameSpaces((Element)rootNode, ns);
                 nodeLevel = NODE_NOT_BEFORE_OR_AFTER_DOCUMENT_ELEMENT;
             }
-            this.canonicalizeSubTree(rootNode, ns, rootNode, nodeLevel, excludeNode, writer);
-            writer.flush();
+            this.canonicalizeSubTree(rootNode, ns, rootNode, nodeLevel, excludeNode, out);
+            out.flush();
         } catch (UnsupportedEncodingException ex) {
             throw new CanonicalizationException(ex);
         } catch (IOException ex) {
             throw new CanonicalizationException(ex);
+        } finally {
+            detachOutputBuffer(out);
+        }
+    }
+
+    /**
+     * Attaches the reusable output buffer of this canonicalizer to the given stream.
+     *
+     * @param writer the target stream
+     * @return the buffer to write the canonicalization result to
+     */
+    private C14nOutputStream attachOutputBuffer(OutputStream writer) {
+        if (writer instanceof C14nOutputStream) {
+            return (C14nOutputStream) writer;
+        }
+        if (outputBuffer.isAttached()) {
+            // a nested canonicalization, e.g. triggered by a node filter
+            return new C14nOutputStream(writer);
+        }
+        outputBuffer.setOutputStream(writer);
+        return outputBuffer;
+    }
+
+    private void detachOutputBuffer(C14nOutputStream out) {
+        if (out == outputBuffer) {
+            outputBuffer.setOutputStream(null);
         }
     }
 
@@ -200,7 +260,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      */
     private void canonicalizeSubTree(
         Node currentNode, NameSpaceSymbTable ns, Node endnode, int documentLevel,
-        Node excludeNode, OutputStream writer
+        Node excludeNode, C14nOutputStream writer
     ) throws CanonicalizationException, IOException {
         if (currentNode == null || isVisibleInt(currentNode) == -1) {
             return;
@@ -249,15 +309,15 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 ns.outputNodePush();
                 writer.write('<');
                 String name = currentElement.getTagName();
-                UtfHelpper.writeByte(name, writer, cache);
+                writer.writeUtf8(name);
 
                 outputAttributesSubtree(currentElement, ns, cache, writer);
 
                 writer.write('>');
                 sibling = currentNode.getFirstChild();
                 if (sibling == null) {
-                    writer.write(END_TAG.clone());
-                    UtfHelpper.writeStringToUtf8(name, writer);
+                    writer.write(END_TAG);
+                    writer.writeUtf8(name);
                     writer.write('>');
                     //We finished with this level, pop to the previous definitions.
                     ns.outputNodePop();
@@ -274,8 +334,8 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                 break;
             }
             while (sibling == null && parentNode != null) {
-                writer.write(END_TAG.clone());
-                UtfHelpper.writeByte(((Element)parentNode).getTagName(), writer, cache);
+                writer.write(END_TAG);
+                writer.writeUtf8(((Element)parentNode).getTagName());
                 writer.write('>');
                 //We finished with this level, pop to the previous definitions.
                 ns.outputNodePop();
@@ -300,11 +360,14 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
 
     private void engineCanonicalizeXPathNodeSetInternal(Node doc, OutputStream writer)
         throws CanonicalizationException {
+        C14nOutputStream out = attachOutputBuffer(writer);
         try {
-            this.canonicalizeXPathNodeSet(doc, doc, writer);
-            writer.flush();
+            this.canonicalizeXPathNodeSet(doc, doc, out);
+            out.flush();
         } catch (IOException ex) {
             throw new CanonicalizationException(ex);
+        } finally {
+            detachOutputBuffer(out);
         }
     }
 
@@ -318,7 +381,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      * @throws CanonicalizationException
      * @throws IOException
      */
-    private void canonicalizeXPathNodeSet(Node currentNode, Node endnode, OutputStream writer)
+    private void canonicalizeXPathNodeSet(Node currentNode, Node endnode, C14nOutputStream writer)
         throws CanonicalizationException, IOException {
         if (isVisibleInt(currentNode) == -1) {
             return;
@@ -393,7 +456,7 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
                     ns.outputNodePush();
                     writer.write('<');
                     name = currentElement.getTagName();
-                    UtfHelpper.writeByte(name, writer, cache);
+                    writer.writeUtf8(name);
                 } else {
                     ns.push();
                 }
@@ -407,8 +470,8 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
 
                 if (sibling == null) {
                     if (currentNodeIsVisible) {
-                        writer.write(END_TAG.clone());
-                        UtfHelpper.writeByte(name, writer, cache);
+                        writer.write(END_TAG);
+                        writer.writeUtf8(name);
                         writer.write('>');
                         //We finished with this level, pop to the previous definitions.
                         ns.outputNodePop();
@@ -429,8 +492,8 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
             }
             while (sibling == null && parentNode != null) {
                 if (isVisible(parentNode)) {
-                    writer.write(END_TAG.clone());
-                    UtfHelpper.writeByte(((Element)parentNode).getTagName(), writer, cache);
+                    writer.write(END_TAG);
+                    writer.writeUtf8(((Element)parentNode).getTagName());
                     writer.write('>');
                     //We finished with this level, pop to the previous definitions.
                     ns.outputNodePop();
@@ -624,6 +687,15 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         final String name, final String value,
         final OutputStream writer, final Map<String, byte[]> cache
     ) throws IOException {
+        if (writer instanceof C14nOutputStream) {
+            C14nOutputStream out = (C14nOutputStream) writer;
+            out.write(' ');
+            out.writeUtf8(name);
+            out.write(EQUALS_STR);
+            out.writeAttributeValue(value);
+            out.write('\"');
+            return;
+        }
         writer.write(' ');
         UtfHelpper.writeByte(name, writer, cache);
         writer.write(EQUALS_STR.clone());
@@ -684,6 +756,10 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
     protected void outputPItoWriter(
         ProcessingInstruction currentPI, OutputStream writer, int position
     ) throws IOException {
+        if (writer instanceof C14nOutputStream) {
+            writePI(currentPI, (C14nOutputStream) writer, position);
+            return;
+        }
         if (position == NODE_AFTER_DOCUMENT_ELEMENT) {
             writer.write('\n');
         }
@@ -740,6 +816,10 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
     protected void outputCommentToWriter(
         Comment currentComment, OutputStream writer, int position
     ) throws IOException {
+        if (writer instanceof C14nOutputStream) {
+            writeComment(currentComment, (C14nOutputStream) writer, position);
+            return;
+        }
         if (position == NODE_AFTER_DOCUMENT_ELEMENT) {
             writer.write('\n');
         }
@@ -768,6 +848,39 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
         }
     }
 
+    private static void writePI(
+        ProcessingInstruction currentPI, C14nOutputStream writer, int position
+    ) throws IOException {
+        if (position == NODE_AFTER_DOCUMENT_ELEMENT) {
+            writer.write('\n');
+        }
+        writer.write(BEGIN_PI);
+        writer.writeCharacterData(currentPI.getTarget());
+        final String data = currentPI.getData();
+        if (data.length() > 0) {
+            writer.write(' ');
+            writer.writeCharacterData(data);
+        }
+        writer.write(END_PI);
+        if (position == NODE_BEFORE_DOCUMENT_ELEMENT) {
+            writer.write('\n');
+        }
+    }
+
+    private static void writeComment(
+        Comment currentComment, C14nOutputStream writer, int position
+    ) throws IOException {
+        if (position == NODE_AFTER_DOCUMENT_ELEMENT) {
+            writer.write('\n');
+        }
+        writer.write(BEGIN_COMM);
+        writer.writeCharacterData(currentComment.getData());
+        writer.write(END_COMM);
+        if (position == NODE_BEFORE_DOCUMENT_ELEMENT) {
+            writer.write('\n');
+        }
+    }
+
     /**
      * Outputs a Text of CDATA section to the internal Writer.
      *
@@ -775,43 +888,10 @@ public abstract class CanonicalizerBase extends CanonicalizerSpi {
      * @param writer writer where to write the things
      * @throws IOException
      */
-    private static final void outputTextToWriter(
-        final String text, final OutputStream writer
+    private static void outputTextToWriter(
+        final String text, final C14nOutputStream writer
     ) throws IOException {
-        final int length = text.length();
-        byte[] toWrite;
-        for (int i = 0; i < length; ) {
-            int c = text.codePointAt(i);
-            i += Character.charCount(c);
-
-            switch (c) {
-
-            case '&' :
-                toWrite = AMP.clone();
-                break;
-
-            case '<' :
-                toWrite = LT.clone();
-                break;
-
-            case '>' :
-                toWrite = GT.clone();
-                break;
-
-            case 0xD :
-                toWrite = XD.clone();
-                break;
-
-            default :
-                if (c < 0x80) {
-                    writer.write(c);
-                } else {
-                    UtfHelpper.writeCodePointToUtf8(c, writer);
-                }
-                continue;
-            }
-            writer.write(toWrite);
-        }
+        writer.writeText(text);
     }
 
     // The null xmlns definition.
@@ -22,8 +22,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.Canonicalizer;
@@ -49,6 +47,9 @@ import org.w3c.dom.ProcessingInstruction;
  */
 public class CanonicalizerPhysical extends CanonicalizerBase {
 
+    // reused for the attributes of every element
+    private final SortedAttrList result = new SortedAttrList();
+
     /**
      * Constructor Canonicalizer20010315
      */
@@ -126,7 +127,7 @@ public class CanonicalizerPhysical extends CanonicalizerBase {
         throws CanonicalizationException, DOMException, IOException {
         if (element.hasAttributes()) {
             // result will contain all the attrs declared directly on that element
-            SortedSet<Attr> result = new TreeSet<>(COMPARE);
+            result.clear();
 
             NamedNodeMap attrs = element.getAttributes();
             int attrsLength = attrs.getLength();
@@ -137,9 +138,12 @@ public class CanonicalizerPhysical extends CanonicalizerBase {
             }
 
             //we output all Attrs which are available
-            for (Attr attr : result) {
+            result.sort(COMPARE);
+            for (int i = 0; i < result.size(); i++) {
+                Attr attr = result.get(i);
                 outputAttrToWriter(attr.getNodeName(), attr.getNodeValue(), writer, cache);
             }
+            result.clear();
         }
     }
 
@@ -20,9 +20,8 @@ package org.apache.xml.security.c14n.implementations;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Node;
@@ -30,7 +29,8 @@ import org.w3c.dom.Node;
 /**
  * A stack based Symbol Table.
  *<br>For speed reasons all the symbols are introduced in the same map,
- * and at the same time in a list so it can be removed when the frame is pop back.
+ * and the entries they replace are recorded in an undo log, so they can be restored
+ * when the frame is pop back.
  */
 public class NameSpaceSymbTable {
 
@@ -48,9 +48,14 @@ public class NameSpaceSymbTable {
     /**The map between prefix-> entry table. */
     private SymbMap symb;
 
-    /**The stacks for removing the definitions when doing pop.*/
-    private final List<SymbMap> level = new ArrayList<>();
-    private boolean cloned = true;
+    /**The undo log: the prefixes and the entries they were mapped to before a modification.*/
+    private String[] undoKeys = new String[16];
+    private NameSpaceSymbEntry[] undoEntries = new NameSpaceSymbEntry[16];
+    private int undoSize;
+
+    /**The size of the undo log when each frame was pushed.*/
+    private int[] frames = new int[16];
+    private int depth;
 
     /**
      * Default constructor
@@ -70,12 +75,14 @@ public class NameSpaceSymbTable {
      * @param result the list where to fill the unrendered xmlns definitions.
      **/
     public void getUnrenderedNodes(Collection<Attr> result) {
-        for (NameSpaceSymbEntry nsEntry : symb.entrySet()) {
+        NameSpaceSymbEntry[] entries = symb.entries;
+        for (int i = 0; i < entries.length; i++) {
+            NameSpaceSymbEntry nsEntry = entries[i];
             //put them rendered?
-            if (!nsEntry.rendered && nsEntry.n != null) {
+            if (nsEntry != null && !nsEntry.uri.isEmpty() && !nsEntry.rendered && nsEntry.n != null) {
                 nsEntry = nsEntry.clone();
-                needsClone();
-                symb.put(nsEntry.prefix, nsEntry);
+                // replaces the entry of an existing key, so the entries array stays the same
+                put(nsEntry.prefix, nsEntry);
                 nsEntry.lastrendered = nsEntry.uri;
                 nsEntry.rendered = true;
 
@@ -104,9 +111,11 @@ public class NameSpaceSymbTable {
      * Inclusive or Exclusive.
      **/
     public void push() {
-        //Put the number of namespace definitions in the stack.
-        level.add(null);
-        cloned = false;
+        //Put the size of the undo log in the stack.
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth << 1);
+        }
+        frames[depth++] = undoSize;
     }
 
     /**
@@ -114,33 +123,30 @@ public class NameSpaceSymbTable {
      * Inclusive or Exclusive.
      **/
     public void pop() {
-        int size = level.size() - 1;
-        Object ob = level.remove(size);
-        if (ob != null) {
-            symb = (SymbMap)ob;
-            if (size == 0) {
-                cloned = false;
-            } else {
-                cloned = level.get(size - 1) != symb;
-            }
-        } else {
-            cloned = false;
+        int mark = frames[--depth];
+        //Restore the definitions replaced in this frame, the latest first.
+        while (undoSize > mark) {
+            undoSize--;
+            symb.put(undoKeys[undoSize], undoEntries[undoSize]);
+            undoKeys[undoSize] = null;
+            undoEntries[undoSize] = null;
         }
     }
 
-    final void needsClone() {
-        if (!cloned) {
-            level.set(level.size() - 1, symb);
-            try {
-                symb = symb.clone();
-            } catch (CloneNotSupportedException e) {
-                LOG.log(Level.ERROR, "Error cloning the symbol map");
-            }
-            cloned = true;
+    /**
+     * Maps the prefix to the entry, recording the current entry of the prefix in the undo log.
+     */
+    private void put(String prefix, NameSpaceSymbEntry entry) {
+        if (undoSize == undoKeys.length) {
+            undoKeys = Arrays.copyOf(undoKeys, undoSize << 1);
+            undoEntries = Arrays.copyOf(undoEntries, undoSize << 1);
         }
+        undoKeys[undoSize] = prefix;
+        undoEntries[undoSize] = symb.get(prefix);
+        undoSize++;
+        symb.put(prefix, entry);
     }
 
-
     /**
      * Gets the attribute node that defines the binding for the prefix.
      * @param prefix the prefix to obtain the attribute.
@@ -159,8 +165,7 @@ public class NameSpaceSymbTable {
         }
         // Mark this entry as render.
         entry = entry.clone();
-        needsClone();
-        symb.put(prefix, entry);
+        put(prefix, entry);
         entry.rendered = true;
         entry.lastrendered = entry.uri;
         // Return the node for outputting.
@@ -199,8 +204,7 @@ public class NameSpaceSymbTable {
         }
         //Creates and entry in the table for this new definition.
         NameSpaceSymbEntry ne = new NameSpaceSymbEntry(uri, n, false, prefix);
-        needsClone();
-        symb.put(prefix, ne);
+        put(prefix, ne);
         if (ob != null) {
             //We have a previous definition store it for the pop.
             //Check if a previous definition(not the inmidiatly one) has been rendered.
@@ -227,8 +231,7 @@ public class NameSpaceSymbTable {
         if (ob != null && uri.equals(ob.uri)) {
             if (!ob.rendered) {
                 ob = ob.clone();
-                needsClone();
-                symb.put(prefix, ob);
+                put(prefix, ob);
                 ob.lastrendered = uri;
                 ob.rendered = true;
                 return ob.n;
@@ -238,8 +241,7 @@ public class NameSpaceSymbTable {
 
         NameSpaceSymbEntry ne = new NameSpaceSymbEntry(uri, n, true, prefix);
         ne.lastrendered = uri;
-        needsClone();
-        symb.put(prefix, ne);
+        put(prefix, ne);
         if (ob != null && ob.lastrendered != null && ob.lastrendered.equals(uri)) {
             ne.rendered = true;
             return null;
@@ -248,15 +250,14 @@ public class NameSpaceSymbTable {
     }
 
     public int getLevel() {
-        return level.size();
+        return depth;
     }
 
     public void removeMapping(String prefix) {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null) {
-            needsClone();
-            symb.put(prefix, null);
+            put(prefix, null);
         }
     }
 
@@ -264,8 +265,7 @@ public class NameSpaceSymbTable {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null && !ob.rendered) {
-            needsClone();
-            symb.put(prefix, null);
+            put(prefix, null);
         }
     }
 
@@ -273,8 +273,7 @@ public class NameSpaceSymbTable {
         NameSpaceSymbEntry ob = symb.get(prefix);
 
         if (ob != null && ob.rendered) {
-            needsClone();
-            symb.put(prefix, null);
+            put(prefix, null);
         }
         return false;
     }
@@ -339,16 +338,6 @@ class SymbMap implements Cloneable {
         }
     }
 
-    List<NameSpaceSymbEntry> entrySet() {
-        List<NameSpaceSymbEntry> a = new ArrayList<>();
-        for (NameSpaceSymbEntry nsEntry : entries) {
-            if (nsEntry != null && !nsEntry.uri.isEmpty()) {
-                a.add(nsEntry);
-            }
-        }
-        return a;
-    }
-
     protected int index(Object obj) {
         Object[] set = keys;
         int length = set.length;
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.c14n.implementations;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.w3c.dom.Attr;
+
+/**
+ * A reusable replacement for the <code>TreeSet&lt;Attr&gt;</code> which collects the attributes
+ * of an element: the attributes are appended to an array which is sorted once all of them are
+ * collected. The array is kept between elements, so the common case doesn't allocate.
+ *
+ * This class is not thread-safe.
+ */
+final class SortedAttrList extends AbstractCollection<Attr> {
+
+    private Attr[] attrs = new Attr[16];
+    private int size;
+
+    @Override
+    public boolean add(Attr attr) {
+        if (size == attrs.length) {
+            attrs = Arrays.copyOf(attrs, size << 1);
+        }
+        attrs[size++] = attr;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(attrs, 0, size, null);
+        size = 0;
+    }
+
+    Attr get(int index) {
+        return attrs[index];
+    }
+
+    /**
+     * Sorts the attributes. Of several attributes which are equal according to the comparator
+     * only the first one which was added is kept, just like a TreeSet does.
+     *
+     * @param comparator the attribute order
+     */
+    void sort(Comparator<Attr> comparator) {
+        if (size < 2) {
+            return;
+        }
+        // stable, and allocation free for the small arrays which are the common case
+        Arrays.sort(attrs, 0, size, comparator);
+        int newSize = 1;
+        for (int i = 1; i < size; i++) {
+            if (comparator.compare(attrs[newSize - 1], attrs[i]) != 0) {
+                attrs[newSize++] = attrs[i];
+            }
+        }
+        Arrays.fill(attrs, newSize, size, null);
+        size = newSize;
+    }
+
+    @Override
+    public Iterator<Attr> iterator() {
+        return new Iterator<Attr>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Attr next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return attrs[index++];
+            }
+        };
+    }
+}
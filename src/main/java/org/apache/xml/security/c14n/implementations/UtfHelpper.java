@@ -114,6 +114,53 @@ public final class UtfHelpper {
         }
     }
 
+    /**
+     * Encodes a code point like {@link #writeCodePointToUtf8(int, OutputStream)}, but into a byte array.
+     *
+     * @param c the code point
+     * @param out the array to write to, which must have room for at least 4 bytes starting at pos
+     * @param pos the position of the first byte to write
+     * @return the position after the last written byte
+     */
+    static int writeCodePointToUtf8(final int c, final byte[] out, int pos) {
+        if (!Character.isValidCodePoint(c) || c >= 0xD800 && c <= 0xDBFF || c >= 0xDC00 && c <= 0xDFFF) {
+            // valid code point: c >= 0x0000 && c <= 0x10FFFF
+            out[pos++] = 0x3f;
+            return pos;
+        }
+        if (OLD_UTF8 && c >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            // version 2 or before output 2 question mark characters for 32 bit chars
+            out[pos++] = 0x3f;
+            out[pos++] = 0x3f;
+            return pos;
+        }
+
+        if (c < 0x80) {
+            // 0x00000000 - 0x0000007F
+            // 0xxxxxxx
+            out[pos++] = (byte)c;
+        } else if (c < 0x800) {
+            // 0x00000080 - 0x000007FF
+            // 110xxxxx 10xxxxxx
+            out[pos++] = (byte)(0xC0 | (c >>> 6));
+            out[pos++] = (byte)(0x80 | (c & 0x3F));
+        } else if (c < 0x10000) {
+            // 0x00000800 - 0x0000FFFF
+            // 1110xxxx 10xxxxxx 10xxxxxx
+            out[pos++] = (byte)(0xE0 | (c >>> 12));
+            out[pos++] = (byte)(0x80 | ((c >>> 6) & 0x3F));
+            out[pos++] = (byte)(0x80 | (c & 0x3F));
+        } else {
+            // 0x00010000 - 0x0010FFFF
+            // 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+            out[pos++] = (byte)(0xF0 | (c >>> 18));
+            out[pos++] = (byte)(0x80 | ((c >>> 12) & 0x3F));
+            out[pos++] = (byte)(0x80 | ((c >>> 6) & 0x3F));
+            out[pos++] = (byte)(0x80 | (c & 0x3F));
+        }
+        return pos;
+    }
+
     public static void writeStringToUtf8(
         final String str, final OutputStream out
     ) throws IOException {
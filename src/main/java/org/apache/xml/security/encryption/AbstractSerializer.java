@@ -20,6 +20,7 @@ package org.apache.xml.security.encryption;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -59,7 +60,7 @@ public abstract class AbstractSerializer implements Serializer {
     @Override
     public byte[] serializeToByteArray(Element element) throws Exception {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            canon.canonicalizeSubtree(element, baos);
+            serialize(element, baos);
             return baos.toByteArray();
         }
     }
@@ -76,13 +77,37 @@ public abstract class AbstractSerializer implements Serializer {
     @Override
     public byte[] serializeToByteArray(NodeList content) throws Exception {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            for (int i = 0; i < content.getLength(); i++) {
-                canon.canonicalizeSubtree(content.item(i), baos);
-            }
+            serialize(content, baos);
             return baos.toByteArray();
         }
     }
 
+    /**
+     * Canonicalizes the specified <code>Element</code> straight into the given stream.
+     *
+     * @param element the <code>Element</code> to serialize.
+     * @param os the stream to write the serialized <code>Element</code> to.
+     * @throws Exception
+     */
+    @Override
+    public void serialize(Element element, OutputStream os) throws Exception {
+        canon.canonicalizeSubtree(element, os);
+    }
+
+    /**
+     * Canonicalizes the specified <code>NodeList</code> straight into the given stream.
+     *
+     * @param content the <code>NodeList</code> to serialize.
+     * @param os the stream to write the serialized <code>NodeList</code> to.
+     * @throws Exception
+     */
+    @Override
+    public void serialize(NodeList content, OutputStream os) throws Exception {
+        for (int i = 0; i < content.getLength(); i++) {
+            canon.canonicalizeSubtree(content.item(i), os);
+        }
+    }
+
     protected static byte[] createContext(byte[] source, Node ctx) throws XMLEncryptionException {
         // Create the context to parse the document against
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
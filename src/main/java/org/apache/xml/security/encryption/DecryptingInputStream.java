@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+
+/**
+ * Pull based counterpart of the IVSplittingOutputStream / CipherOutputStream combination:
+ * The IV is read from the first bytes of the underlying stream, then the remaining bytes
+ * are decrypted on demand while this stream is read. It is used by XMLCipher as well as by
+ * the StAX decryption.
+ *
+ * Unlike javax.crypto.CipherInputStream, authentication and padding failures are reported as
+ * IOException. For AEAD (GCM) ciphers no plaintext is released before the authentication tag
+ * was verified.
+ */
+public class DecryptingInputStream extends FilterInputStream {
+
+    private final Cipher cipher;
+    private final Key secretKey;
+    private final int ivLength;
+    private final boolean fullyBuffered;
+
+    private final byte[] inputBuffer = new byte[8192];
+    private byte[] outputBuffer = new byte[8192];
+    private int outputPos;
+    private int outputLimit;
+
+    private boolean initialized;
+    private boolean finished;
+
+    public DecryptingInputStream(InputStream in, Cipher cipher, Key secretKey, int ivLength) {
+        super(in);
+        this.cipher = cipher;
+        this.secretKey = secretKey;
+        this.ivLength = ivLength;
+        //In GCM mode the authentication tag is appended after the last cipher block...
+        this.fullyBuffered = cipher.getAlgorithm().toUpperCase().contains("GCM");
+    }
+
+    /**
+     * Called once after the last cipher block was successfully decrypted.
+     */
+    protected void endOfStream() throws IOException {
+    }
+
+    private void initializeCipher() throws IOException {
+        byte[] iv = new byte[ivLength];
+        int read = in.readNBytes(iv, 0, ivLength);
+        if (read != ivLength) {
+            throw new IOException("Premature end of stream while reading the IV");
+        }
+        AlgorithmParameterSpec parameterSpec =
+            XMLCipherUtil.constructBlockCipherParameters(fullyBuffered, iv);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+        initialized = true;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (outputLimit + additionalBytes > outputBuffer.length) {
+            outputBuffer = Arrays.copyOf(outputBuffer, Math.max(outputBuffer.length * 2, outputLimit + additionalBytes));
+        }
+    }
+
+    /**
+     * Decrypts the next chunk into the output buffer
+     *
+     * @return false if the end of the stream is reached
+     */
+    private boolean fill() throws IOException {
+        if (!initialized) {
+            initializeCipher();
+        }
+        outputPos = 0;
+        outputLimit = 0;
+        while (!finished && (outputLimit == 0 || fullyBuffered)) {
+            int read = in.read(inputBuffer);
+            try {
+                if (read == -1) {
+                    ensureCapacity(cipher.getOutputSize(0));
+                    outputLimit += cipher.doFinal(outputBuffer, outputLimit);
+                    finished = true;
+                    endOfStream();
+                } else if (read > 0) {
+                    ensureCapacity(cipher.getOutputSize(read));
+                    outputLimit += cipher.update(inputBuffer, 0, read, outputBuffer, outputLimit);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+        }
+        return outputLimit > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (outputPos == outputLimit && !fill()) {
+            return -1;
+        }
+        return outputBuffer[outputPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (outputPos == outputLimit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, outputLimit - outputPos);
+        System.arraycopy(outputBuffer, outputPos, b, off, count);
+        outputPos += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (outputPos < outputLimit || fill())) {
+            int count = (int) Math.min(n - skipped, outputLimit - outputPos);
+            outputPos += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return outputLimit - outputPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
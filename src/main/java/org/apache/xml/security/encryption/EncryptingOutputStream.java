@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+
+/**
+ * Encrypts the octets written to it with an initialized Cipher and writes the cipher text to the
+ * underlying stream. Closing the stream completes the encryption, but leaves the underlying
+ * stream open. In contrast to javax.crypto.CipherOutputStream, a failure of the Cipher is
+ * reported as IOException instead of being ignored.
+ */
+final class EncryptingOutputStream extends OutputStream {
+
+    private final Cipher cipher;
+    private final OutputStream out;
+    private final byte[] singleByte = new byte[1];
+    private byte[] buffer = new byte[0];
+    private boolean closed;
+
+    EncryptingOutputStream(Cipher cipher, OutputStream out) {
+        this.cipher = cipher;
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int size = cipher.getOutputSize(len);
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+        try {
+            int encrypted = cipher.update(b, off, len, buffer, 0);
+            out.write(buffer, 0, encrypted);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.write(cipher.doFinal());
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex);
+        }
+        out.flush();
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.xml.security.encryption;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -51,6 +52,30 @@ public interface Serializer {
      */
     byte[] serializeToByteArray(NodeList content) throws Exception;
 
+    /**
+     * Writes the serialized form of the specified <code>Element</code> to the given stream.
+     * The default implementation writes the result of {@link #serializeToByteArray(Element)}.
+     *
+     * @param element the <code>Element</code> to serialize.
+     * @param os the stream to write the serialized <code>Element</code> to.
+     * @throws Exception
+     */
+    default void serialize(Element element, OutputStream os) throws Exception {
+        os.write(serializeToByteArray(element));
+    }
+
+    /**
+     * Writes the serialized form of the specified <code>NodeList</code> to the given stream.
+     * The default implementation writes the result of {@link #serializeToByteArray(NodeList)}.
+     *
+     * @param content the <code>NodeList</code> to serialize.
+     * @param os the stream to write the serialized <code>NodeList</code> to.
+     * @throws Exception
+     */
+    default void serialize(NodeList content, OutputStream os) throws Exception {
+        os.write(serializeToByteArray(content));
+    }
+
     /**
      * @param source
      * @param ctx
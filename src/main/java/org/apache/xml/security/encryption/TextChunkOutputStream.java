@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the ASCII octets written to it, e.g. by a Base64 encoder, as a list of Strings of
+ * limited length. Unlike a ByteArrayOutputStream, the text is never copied into one array, so
+ * no more than a single chunk is needed on top of the text itself.
+ */
+final class TextChunkOutputStream extends OutputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final List<String> chunks = new ArrayList<>();
+    private final byte[] buffer;
+    private int count;
+
+    TextChunkOutputStream() {
+        this(CHUNK_SIZE);
+    }
+
+    TextChunkOutputStream(int chunkSize) {
+        buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == buffer.length) {
+            flushChunk();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (count > 0) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * @return the text written so far, without the octets which weren't flushed by close() yet
+     */
+    List<String> getChunks() {
+        return chunks;
+    }
+
+    private void flushChunk() {
+        chunks.add(new String(buffer, 0, count, StandardCharsets.ISO_8859_1));
+        count = 0;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.encryption;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the characters of a text, e.g. of Base64 encoded octets, as ISO-8859-1 octets. Unlike
+ * <code>new ByteArrayInputStream(text.getBytes())</code>, the text isn't copied into an array.
+ * The text may consist of several chunks, like the text nodes of an element, which are read
+ * one after the other without joining them.
+ */
+final class TextInputStream extends InputStream {
+
+    private final Iterator<? extends CharSequence> chunks;
+    private CharSequence text = "";
+    private int pos;
+
+    TextInputStream(CharSequence text) {
+        this(Collections.singletonList(text));
+    }
+
+    TextInputStream(List<? extends CharSequence> chunks) {
+        this.chunks = chunks.iterator();
+    }
+
+    @Override
+    public int read() {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return toOctet(text.charAt(pos++));
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, text.length() - pos);
+        for (int i = 0; i < count; i++) {
+            b[off + i] = (byte) toOctet(text.charAt(pos++));
+        }
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return text.length() - pos;
+    }
+
+    /**
+     * Moves on to the next non-empty chunk if the current one is exhausted.
+     */
+    private boolean hasRemaining() {
+        while (pos == text.length()) {
+            if (!chunks.hasNext()) {
+                return false;
+            }
+            CharSequence next = chunks.next();
+            text = next != null ? next : "";
+            pos = 0;
+        }
+        return true;
+    }
+
+    private static int toOctet(char c) {
+        // like String.getBytes(ISO_8859_1), which the Base64 decoder ignores for other characters
+        return c <= 0xFF ? c : '?';
+    }
+}
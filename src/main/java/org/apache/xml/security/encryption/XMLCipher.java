@@ -18,20 +18,19 @@
  */
 package org.apache.xml.security.encryption;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.MGF1ParameterSpec;
@@ -49,11 +48,11 @@ import java.util.Set;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.OAEPParameterSpec;
 import javax.crypto.spec.PSource;
 import javax.xml.transform.TransformerConfigurationException;
 
+import org.apache.xml.security.algorithms.JCEEnginePool;
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
 import org.apache.xml.security.c14n.Canonicalizer;
@@ -70,12 +69,14 @@ import org.apache.xml.security.transforms.TransformationException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.ElementProxy;
 import org.apache.xml.security.utils.EncryptionConstants;
+import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
 
 /**
  * <code>XMLCipher</code> encrypts and decrypts the contents of
@@ -1090,8 +1091,59 @@ public final class XMLCipher {
         return encryptData(context, element, type, null);
     }
 
+    /**
+     * Returns an <code>EncryptedData</code> interface like
+     * {@link #encryptData(Document, Element, boolean)}, but writes the encrypted octets, i.e. the
+     * IV followed by the cipher text, to the given stream instead of the <code>CipherValue</code>.
+     * The <code>CipherData</code> of the returned <code>EncryptedData</code> is a
+     * <code>CipherReference</code> to the given URI, where the caller has to make the octets
+     * available.
+     *
+     * The element is encrypted while it is serialized, so neither the plain text nor the cipher
+     * text is held in memory. This does not change the source document in any way.
+     *
+     * @param context the context <code>Document</code>.
+     * @param element the <code>Element</code> that will be encrypted.
+     * @param contentMode <code>true</code> to encrypt element's content only,
+     *    <code>false</code> otherwise
+     * @param cipherReferenceURI the URI of the <code>CipherReference</code>
+     * @param cipherOutput the stream to write the encrypted octets to, it is not closed
+     * @return the <code>EncryptedData</code>
+     * @throws Exception
+     */
+    public EncryptedData encryptData(
+        Document context, Element element, boolean contentMode, String cipherReferenceURI, OutputStream cipherOutput
+    ) throws /* XMLEncryption */ Exception {
+        LOG.log(Level.DEBUG, "Encrypting element to a stream...");
+        if (null == context) {
+            throw new XMLEncryptionException("empty", "Context document unexpectedly null...");
+        }
+        if (null == element) {
+            throw new XMLEncryptionException("empty", "Element unexpectedly null...");
+        }
+        if (null == cipherOutput) {
+            throw new XMLEncryptionException("empty", "Output stream unexpectedly null...");
+        }
+        if (cipherMode != ENCRYPT_MODE) {
+            throw new XMLEncryptionException("empty", "XMLCipher unexpectedly not in ENCRYPT_MODE...");
+        }
+
+        CipherData cipherData = factory.newCipherData(CipherData.REFERENCE_TYPE);
+        cipherData.setCipherReference(factory.newCipherReference(cipherReferenceURI));
+        ((Factory.EncryptedTypeImpl) ed).setCipherData(cipherData);
+
+        String type = contentMode ? EncryptionConstants.TYPE_CONTENT : EncryptionConstants.TYPE_ELEMENT;
+        return encryptData(context, element, type, null, cipherOutput);
+    }
+
     private EncryptedData encryptData(
         Document context, Element element, String type, InputStream serializedData
+    ) throws /* XMLEncryption */ Exception {
+        return encryptData(context, element, type, serializedData, null);
+    }
+
+    private EncryptedData encryptData(
+        Document context, Element element, String type, InputStream serializedData, OutputStream cipherOutput
     ) throws /* XMLEncryption */ Exception {
         contextDocument = context;
 
@@ -1101,29 +1153,10 @@ public final class XMLCipher {
         if (element != null && element.getParentNode() == null) {
             throw new XMLEncryptionException("empty", "The element can't be serialized as it has no parent");
         }
-
-        byte[] serializedOctets = null;
-        if (serializedData == null) {
-            if (EncryptionConstants.TYPE_CONTENT.equals(type)) {
-                if (element == null) {
-                    throw new XMLEncryptionException("empty", "Cannot encrypt null element");
-                }
-                NodeList children = element.getChildNodes();
-                if (null != children) {
-                    serializedOctets = serializer.serializeToByteArray(children);
-                } else {
-                    throw new XMLEncryptionException("empty", "Element has no content.");
-                }
-            } else {
-                serializedOctets = serializer.serializeToByteArray(element);
-            }
-            if (LOG.isLoggable(Level.DEBUG)) {
-                LOG.log(Level.DEBUG, "Serialized octets:\n" + new String(serializedOctets, StandardCharsets.UTF_8));
-            }
+        if (serializedData == null && element == null) {
+            throw new XMLEncryptionException("empty", "Cannot encrypt null element");
         }
 
-        byte[] encryptedBytes = null;
-
         // Now create the working cipher if none was created already
         Cipher c;
         if (contextCipher == null) {
@@ -1142,52 +1175,46 @@ public final class XMLCipher {
             throw new XMLEncryptionException(ike);
         }
 
-        try {
-            if (serializedData != null) {
-                int numBytes;
-                byte[] buf = new byte[8192];
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                    while ((numBytes = serializedData.read(buf)) != -1) {
-                        byte[] data = c.update(buf, 0, numBytes);
-                        baos.write(data);
-                    }
-                    baos.write(c.doFinal());
-                    encryptedBytes = baos.toByteArray();
-                }
-            } else {
-                encryptedBytes = c.doFinal(serializedOctets);
-                if (LOG.isLoggable(Level.DEBUG)) {
-                    LOG.log(Level.DEBUG, "Expected cipher.outputSize = " +
-                        Integer.toString(c.getOutputSize(serializedOctets.length)));
-                }
-            }
-            if (LOG.isLoggable(Level.DEBUG)) {
-                LOG.log(Level.DEBUG, "Actual cipher.outputSize = "
-                             + Integer.toString(encryptedBytes.length));
-            }
-        } catch (IllegalStateException | IllegalBlockSizeException
-                | BadPaddingException | UnsupportedEncodingException e) {
-            throw new XMLEncryptionException(e);
-        }
-
         // Get IV from Cipher Object. If this is null (see BouncyCastle issue BJA-473) then use
         // the original IV that was generated
         if (c.getIV() != null) {
             iv = c.getIV();
         }
-        // Now build up to a properly XML Encryption encoded octet stream
-        byte[] finalEncryptedBytes = new byte[iv.length + encryptedBytes.length];
-        System.arraycopy(iv, 0, finalEncryptedBytes, 0, iv.length);
-        System.arraycopy(encryptedBytes, 0, finalEncryptedBytes, iv.length, encryptedBytes.length);
-        String base64EncodedEncryptedOctets = XMLUtils.encodeToString(finalEncryptedBytes);
 
-        LOG.log(Level.DEBUG, "Encrypted octets:\n{0}", base64EncodedEncryptedOctets);
-        LOG.log(Level.DEBUG, "Encrypted octets length = {0}", base64EncodedEncryptedOctets.length());
+        // The IV and the cipher text are written as they are encrypted, either to the given
+        // stream or Base64 encoded into chunks of the CipherValue text
+        TextChunkOutputStream cipherValue = null;
+        try {
+            if (cipherOutput != null) {
+                encrypt(c, iv, element, type, serializedData, cipherOutput);
+            } else {
+                cipherValue = new TextChunkOutputStream();
+                try (OutputStream base64 = XMLUtils.encodeStream(cipherValue)) {
+                    encrypt(c, iv, element, type, serializedData, base64);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            throw new XMLEncryptionException(e);
+        } finally {
+            releaseCipher(c);
+        }
 
         try {
             CipherData cd = ed.getCipherData();
-            CipherValue cv = cd.getCipherValue();
-            cv.setValue(base64EncodedEncryptedOctets);
+            if (cipherValue != null) {
+                if (cd.getDataType() != CipherData.VALUE_TYPE) {
+                    // a previous call of this XMLCipher wrote the cipher text to a stream
+                    cd = factory.newCipherData(CipherData.VALUE_TYPE);
+                    cd.setCipherValue(factory.newCipherValue(""));
+                    ((Factory.EncryptedTypeImpl) ed).setCipherData(cd);
+                }
+                CipherValue cv = cd.getCipherValue();
+                if (cv instanceof Factory.CipherValueImpl) {
+                    ((Factory.CipherValueImpl) cv).setValue(cipherValue.getChunks());
+                } else {
+                    cv.setValue(String.join("", cipherValue.getChunks()));
+                }
+            }
 
             if (type != null) {
                 ed.setType(new URI(type).toString());
@@ -1202,6 +1229,28 @@ public final class XMLCipher {
         return ed;
     }
 
+    /**
+     * Writes the IV followed by the encrypted serialized data to the given stream.
+     */
+    private void encrypt(
+        Cipher c, byte[] iv, Element element, String type, InputStream serializedData, OutputStream os
+    ) throws Exception {
+        os.write(iv);
+        try (OutputStream encrypted = new UnsyncBufferedOutputStream(new EncryptingOutputStream(c, os))) {
+            if (serializedData != null) {
+                int numBytes;
+                byte[] buf = new byte[8192];
+                while ((numBytes = serializedData.read(buf)) != -1) {
+                    encrypted.write(buf, 0, numBytes);
+                }
+            } else if (EncryptionConstants.TYPE_CONTENT.equals(type)) {
+                serializer.serialize(element.getChildNodes(), encrypted);
+            } else {
+                serializer.serialize(element, encrypted);
+            }
+        }
+    }
+
     /**
      * Build an <code>AlgorithmParameterSpec</code> instance used to initialize a <code>Cipher</code> instance
      * for block cipher encryption and decryption.
@@ -1387,6 +1436,7 @@ public final class XMLCipher {
                 }
             }
             encryptedBytes = c.wrap(key);
+            releaseCipher(c);
         } catch (InvalidKeyException | IllegalBlockSizeException | InvalidAlgorithmParameterException e) {
             throw new XMLEncryptionException(e);
         }
@@ -1491,6 +1541,7 @@ public final class XMLCipher {
                 c.init(Cipher.UNWRAP_MODE, key, oaepParameters);
             }
             ret = c.unwrap(encryptedBytes, jceKeyAlgorithm, Cipher.SECRET_KEY);
+            releaseCipher(c);
         } catch (InvalidKeyException | NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
             throw new XMLEncryptionException(e);
         }
@@ -1548,22 +1599,49 @@ public final class XMLCipher {
 
         Cipher c;
         try {
-            if (requestedJCEProvider == null) {
-                c = Cipher.getInstance(jceAlgorithm);
-            } else {
-                c = Cipher.getInstance(jceAlgorithm, requestedJCEProvider);
-            }
+            c = getCipher(jceAlgorithm);
         } catch (NoSuchAlgorithmException nsae) {
             // Check to see if an RSA OAEP MGF-1 with SHA-1 algorithm was requested
             // Some JDKs don't support RSA/ECB/OAEPPadding
             c = constructCipher(algorithm, digestAlgorithm, nsae);
-        } catch (NoSuchProviderException | NoSuchPaddingException e) {
+        } catch (GeneralSecurityException e) {
             throw new XMLEncryptionException(e);
         }
 
         return c;
     }
 
+    /**
+     * Returns the Base64 text of the given CipherValue as consecutive chunks, e.g. the text nodes of
+     * a parsed CipherValue element, so that it can be decoded without joining it into one String.
+     *
+     * @param cipherValue the CipherValue
+     * @return the chunks of the value
+     */
+    static List<String> getValueChunks(CipherValue cipherValue) {
+        if (cipherValue instanceof Factory.CipherValueImpl) {
+            return ((Factory.CipherValueImpl) cipherValue).getValueChunks();
+        }
+        return Collections.singletonList(cipherValue.getValue());
+    }
+
+    /**
+     * Borrows a Cipher for the given transformation from the {@link JCEEnginePool}
+     */
+    private Cipher getCipher(String transformation) throws GeneralSecurityException {
+        return JCEEnginePool.getCipherPool(transformation, requestedJCEProvider).borrow();
+    }
+
+    /**
+     * Hands a Cipher obtained by {@link #constructCipher(String, String)} back to the pool,
+     * unless it is the context cipher of this XMLCipher
+     */
+    private void releaseCipher(Cipher c) {
+        if (c != contextCipher) {
+            JCEEnginePool.getCipherPool(c.getAlgorithm(), requestedJCEProvider).release(c);
+        }
+    }
+
     private Cipher constructCipher(String algorithm, String digestAlgorithm, Exception nsae) throws XMLEncryptionException {
         if (!XMLCipher.RSA_OAEP.equals(algorithm)) {
             throw new XMLEncryptionException(nsae);
@@ -1572,51 +1650,31 @@ public final class XMLCipher {
         if (digestAlgorithm == null
             || MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA1.equals(digestAlgorithm)) {
             try {
-                if (requestedJCEProvider == null) {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA1AndMGF1Padding");
-                } else {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA1AndMGF1Padding", requestedJCEProvider);
-                }
+                return getCipher("RSA/ECB/OAEPWithSHA1AndMGF1Padding");
             } catch (Exception ex) {
                 throw new XMLEncryptionException(ex);
             }
         } else if (MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA224.equals(digestAlgorithm)) {
             try {
-                if (requestedJCEProvider == null) {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-224andMGF1Padding");
-                } else {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-224andMGF1Padding", requestedJCEProvider);
-                }
+                return getCipher("RSA/ECB/OAEPWithSHA-224andMGF1Padding");
             } catch (Exception ex) {
                 throw new XMLEncryptionException(ex);
             }
         } else if (MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256.equals(digestAlgorithm)) {
             try {
-                if (requestedJCEProvider == null) {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
-                } else {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1Padding", requestedJCEProvider);
-                }
+                return getCipher("RSA/ECB/OAEPWithSHA-256AndMGF1Padding");
             } catch (Exception ex) {
                 throw new XMLEncryptionException(ex);
             }
         } else if (MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA384.equals(digestAlgorithm)) {
             try {
-                if (requestedJCEProvider == null) {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-384AndMGF1Padding");
-                } else {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-384AndMGF1Padding", requestedJCEProvider);
-                }
+                return getCipher("RSA/ECB/OAEPWithSHA-384AndMGF1Padding");
             } catch (Exception ex) {
                 throw new XMLEncryptionException(ex);
             }
         } else if (MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA512.equals(digestAlgorithm)) {
             try {
-                if (requestedJCEProvider == null) {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-512AndMGF1Padding");
-                } else {
-                    return Cipher.getInstance("RSA/ECB/OAEPWithSHA-512AndMGF1Padding", requestedJCEProvider);
-                }
+                return getCipher("RSA/ECB/OAEPWithSHA-512AndMGF1Padding");
             } catch (Exception ex) {
                 throw new XMLEncryptionException(ex);
             }
@@ -1736,28 +1794,7 @@ public final class XMLCipher {
 
         EncryptedData encryptedData = factory.newEncryptedData(element);
         String encMethodAlgorithm = encryptedData.getEncryptionMethod().getAlgorithm();
-
-        if (key == null) {
-            KeyInfo ki = encryptedData.getKeyInfo();
-            if (ki != null) {
-                try {
-                    // Add an EncryptedKey resolver
-                    EncryptedKeyResolver resolver = new EncryptedKeyResolver(encMethodAlgorithm, kek, internalKeyResolvers);
-                    ki.registerInternalKeyResolver(resolver);
-                    ki.setSecureValidation(secureValidation);
-                    key = ki.getSecretKey();
-                } catch (KeyResolverException kre) {
-                    LOG.log(Level.DEBUG, kre.getMessage(), kre);
-                }
-            }
-
-            if (key == null) {
-                LOG.log(Level.ERROR,
-                    "XMLCipher::decryptElement unable to resolve a decryption key"
-                );
-                throw new XMLEncryptionException("empty", "encryption.nokey");
-            }
-        }
+        resolveKey(encryptedData, encMethodAlgorithm);
 
         // Obtain the encrypted octets
         XMLCipherInput cipherInput = new XMLCipherInput(encryptedData);
@@ -1771,12 +1808,8 @@ public final class XMLCipher {
 
         Cipher c;
         try {
-            if (requestedJCEProvider == null) {
-                c = Cipher.getInstance(jceAlgorithm);
-            } else {
-                c = Cipher.getInstance(jceAlgorithm, requestedJCEProvider);
-            }
-        } catch (NoSuchAlgorithmException | NoSuchProviderException | NoSuchPaddingException e) {
+            c = getCipher(jceAlgorithm);
+        } catch (GeneralSecurityException e) {
             throw new XMLEncryptionException(e);
         }
 
@@ -1803,12 +1836,113 @@ public final class XMLCipher {
         }
 
         try {
-            return c.doFinal(encryptedBytes, ivLen, encryptedBytes.length - ivLen);
+            byte[] plainBytes = c.doFinal(encryptedBytes, ivLen, encryptedBytes.length - ivLen);
+            releaseCipher(c);
+            return plainBytes;
         } catch (IllegalBlockSizeException | BadPaddingException e) {
             throw new XMLEncryptionException(e);
         }
     }
 
+    /**
+     * Decrypt an EncryptedData element to a stream.
+     *
+     * Like {@link #decryptToByteArray(Element)}, but the encrypted octets are decoded or read
+     * from the <code>CipherReference</code> and decrypted chunk by chunk, so neither the cipher
+     * text nor the plain text is held in memory as a whole. An exception is AES-GCM, where no
+     * plain text is released before the authentication tag was verified.
+     *
+     * Does not modify the source document.
+     * @param element the <code>EncryptedData</code> to decrypt
+     * @param os the stream to write the decrypted octets to, it is not closed
+     * @throws XMLEncryptionException
+     */
+    public void decryptToStream(Element element, OutputStream os) throws XMLEncryptionException {
+        try (InputStream decrypted = decryptAsInputStream(element)) {
+            decrypted.transferTo(os);
+        } catch (IOException e) {
+            throw new XMLEncryptionException(e);
+        }
+    }
+
+    /**
+     * Decrypt an EncryptedData element to an InputStream.
+     *
+     * The encrypted octets are decrypted while the returned stream is read, see
+     * {@link #decryptToStream(Element, OutputStream)}. A wrong key or corrupted cipher text
+     * is reported as <code>IOException</code> when reading the stream.
+     *
+     * Does not modify the source document.
+     * @param element the <code>EncryptedData</code> to decrypt
+     * @return the stream of the decrypted octets, which has to be closed by the caller
+     * @throws XMLEncryptionException
+     */
+    public InputStream decryptAsInputStream(Element element) throws XMLEncryptionException {
+        LOG.log(Level.DEBUG, "Decrypting to InputStream...");
+
+        if (cipherMode != DECRYPT_MODE) {
+            throw new XMLEncryptionException("empty", "XMLCipher unexpectedly not in DECRYPT_MODE...");
+        }
+
+        EncryptedData encryptedData = factory.newEncryptedData(element);
+        String encMethodAlgorithm = encryptedData.getEncryptionMethod().getAlgorithm();
+        resolveKey(encryptedData, encMethodAlgorithm);
+
+        // Obtain the encrypted octets
+        XMLCipherInput cipherInput = new XMLCipherInput(encryptedData);
+        cipherInput.setSecureValidation(secureValidation);
+        InputStream encryptedOctets = cipherInput.getInputStream();
+
+        // Now create the working cipher
+        String jceAlgorithm =
+            JCEMapper.translateURItoJCEID(encMethodAlgorithm);
+        LOG.log(Level.DEBUG, "JCE Algorithm = {0}", jceAlgorithm);
+
+        Cipher c;
+        try {
+            c = getCipher(jceAlgorithm);
+        } catch (GeneralSecurityException e) {
+            throw new XMLEncryptionException(e);
+        }
+
+        int ivLen = JCEMapper.getIVLengthFromURI(encMethodAlgorithm) / 8;
+        return new DecryptingInputStream(encryptedOctets, c, key, ivLen) {
+            @Override
+            protected void endOfStream() {
+                // the Cipher is only reused if the stream was read completely
+                releaseCipher(c);
+            }
+        };
+    }
+
+    /**
+     * Resolves the key from the <code>KeyInfo</code> of the given <code>EncryptedData</code>,
+     * unless a key was set in {@link #init(int, Key)}.
+     */
+    private void resolveKey(EncryptedData encryptedData, String encMethodAlgorithm) throws XMLEncryptionException {
+        if (key == null) {
+            KeyInfo ki = encryptedData.getKeyInfo();
+            if (ki != null) {
+                try {
+                    // Add an EncryptedKey resolver
+                    EncryptedKeyResolver resolver = new EncryptedKeyResolver(encMethodAlgorithm, kek, internalKeyResolvers);
+                    ki.registerInternalKeyResolver(resolver);
+                    ki.setSecureValidation(secureValidation);
+                    key = ki.getSecretKey();
+                } catch (KeyResolverException kre) {
+                    LOG.log(Level.DEBUG, kre.getMessage(), kre);
+                }
+            }
+
+            if (key == null) {
+                LOG.log(Level.ERROR,
+                    "XMLCipher::decryptElement unable to resolve a decryption key"
+                );
+                throw new XMLEncryptionException("empty", "encryption.nokey");
+            }
+        }
+    }
+
     /*
      * Expose the interface for creating XML Encryption objects
      */
@@ -2199,9 +2333,18 @@ public final class XMLCipher {
          * @return a new CipherValue
          */
         CipherValue newCipherValue(Element element) {
-            String value = XMLUtils.getFullTextChildrenFromNode(element);
-
-            return newCipherValue(value);
+            // keep the data of the text nodes, so that the value can be streamed without joining it
+            List<String> chunks = new ArrayList<>();
+            Node child = element.getFirstChild();
+            while (child != null) {
+                if (child.getNodeType() == Node.TEXT_NODE) {
+                    chunks.add(((Text) child).getData());
+                }
+                child = child.getNextSibling();
+            }
+            CipherValueImpl result = new CipherValueImpl(null);
+            result.setValue(chunks);
+            return result;
         }
 
         /**
@@ -2728,6 +2871,8 @@ public final class XMLCipher {
 
         private class CipherValueImpl implements CipherValue {
             private String cipherValue;
+            /** The value as consecutive chunks, as long as it wasn't requested as a whole */
+            private List<String> cipherValueChunks;
 
             /**
              * @param value
@@ -2739,6 +2884,10 @@ public final class XMLCipher {
             /** {@inheritDoc} */
             @Override
             public String getValue() {
+                if (cipherValueChunks != null) {
+                    cipherValue = String.join("", cipherValueChunks);
+                    cipherValueChunks = null;
+                }
                 return cipherValue;
             }
 
@@ -2746,6 +2895,25 @@ public final class XMLCipher {
             @Override
             public void setValue(String value) {
                 cipherValue = value;
+                cipherValueChunks = null;
+            }
+
+            /**
+             * Sets the value as consecutive chunks, which become adjacent text nodes of the
+             * CipherValue element, so a large value is never copied into a single String.
+             *
+             * @param chunks the chunks of the cipher value
+             */
+            void setValue(List<String> chunks) {
+                cipherValue = null;
+                cipherValueChunks = chunks;
+            }
+
+            /**
+             * @return the value as consecutive chunks, without joining them
+             */
+            List<String> getValueChunks() {
+                return cipherValueChunks != null ? cipherValueChunks : Collections.singletonList(cipherValue);
             }
 
             Element toElement() {
@@ -2753,7 +2921,13 @@ public final class XMLCipher {
                     XMLUtils.createElementInEncryptionSpace(
                         contextDocument, EncryptionConstants._TAG_CIPHERVALUE
                     );
-                result.appendChild(contextDocument.createTextNode(cipherValue));
+                if (cipherValueChunks != null) {
+                    for (String chunk : cipherValueChunks) {
+                        result.appendChild(contextDocument.createTextNode(chunk));
+                    }
+                } else {
+                    result.appendChild(contextDocument.createTextNode(cipherValue));
+                }
 
                 return result;
             }
@@ -2933,6 +3107,14 @@ public final class XMLCipher {
                 cipherData = data;
             }
 
+            /**
+             * Replaces the CipherData, e.g. by a CipherReference to the streamed cipher text.
+             * @param data
+             */
+            void setCipherData(CipherData data) {
+                cipherData = data;
+            }
+
             /**
              *
              * @return the Id
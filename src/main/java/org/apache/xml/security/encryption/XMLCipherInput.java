@@ -18,7 +18,9 @@
  */
 package org.apache.xml.security.encryption;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 
@@ -95,60 +97,41 @@ public class XMLCipherInput {
     }
 
     /**
-     * Internal method to get bytes in decryption mode
-     * @return the decrypted bytes
+     * Dereferences the input and returns it as a stream, so that the encrypted octets don't
+     * have to be held in memory as a whole. The Base64 text of a <code>CipherValue</code> is
+     * decoded while the stream is read, a <code>CipherReference</code> is streamed if the
+     * resolved and transformed input is an octet stream.
+     *
      * @throws XMLEncryptionException
+     * @return The encrypted octets.
      */
-    private byte[] getDecryptBytes() throws XMLEncryptionException {
-        String base64EncodedEncryptedOctets = null;
-
+    public InputStream getInputStream() throws XMLEncryptionException {
         if (cipherData.getDataType() == CipherData.REFERENCE_TYPE) {
-            // Fun time!
-            LOG.log(Level.DEBUG, "Found a reference type CipherData");
-            CipherReference cr = cipherData.getCipherReference();
-
-            // Need to wrap the uri in an Attribute node so that we can
-            // Pass to the resource resolvers
-
-            Attr uriAttr = cr.getURIAsAttr();
-            XMLSignatureInput input = null;
-
+            XMLSignatureInput input = dereference();
             try {
-                ResourceResolverContext resolverContext =
-                    new ResourceResolverContext(uriAttr, null, secureValidation);
-                if (resolverContext.isURISafeToResolve()) {
-                    input = ResourceResolver.resolve(resolverContext);
-                } else {
-                    String uriToResolve = uriAttr != null ? uriAttr.getValue() : null;
-                    Object[] exArgs = {uriToResolve != null ? uriToResolve : "null", null};
-
-                    throw new ResourceResolverException("utils.resolver.noClass", exArgs, uriToResolve, null);
+                if (input.hasUnprocessedInput()) {
+                    return input.getUnprocessedInput();
                 }
-            } catch (ResourceResolverException ex) {
+                return new ByteArrayInputStream(input.getBytes());
+            } catch (IOException | CanonicalizationException ex) {
                 throw new XMLEncryptionException(ex);
             }
+        } else if (cipherData.getDataType() == CipherData.VALUE_TYPE) {
+            return XMLUtils.decodeStream(new TextInputStream(XMLCipher.getValueChunks(cipherData.getCipherValue())));
+        }
+        throw new XMLEncryptionException("CipherData.getDataType() returned unexpected value");
+    }
 
-            if (input != null) {
-                LOG.log(Level.DEBUG, "Managed to resolve URI \"{0}\"", cr.getURI());
-            } else {
-                LOG.log(Level.DEBUG, "Failed to resolve URI \"{0}\"", cr.getURI());
-                throw new XMLEncryptionException();
-            }
-
-            // Lets see if there are any transforms
-            Transforms transforms = cr.getTransforms();
-            if (transforms != null) {
-                LOG.log(Level.DEBUG, "Have transforms in cipher reference");
-                try {
-                    org.apache.xml.security.transforms.Transforms dsTransforms =
-                        transforms.getDSTransforms();
-                    dsTransforms.setSecureValidation(secureValidation);
-                    input = dsTransforms.performTransforms(input);
-                } catch (TransformationException ex) {
-                    throw new XMLEncryptionException(ex);
-                }
-            }
+    /**
+     * Internal method to get bytes in decryption mode
+     * @return the decrypted bytes
+     * @throws XMLEncryptionException
+     */
+    private byte[] getDecryptBytes() throws XMLEncryptionException {
+        String base64EncodedEncryptedOctets = null;
 
+        if (cipherData.getDataType() == CipherData.REFERENCE_TYPE) {
+            XMLSignatureInput input = dereference();
             try {
                 return input.getBytes();
             } catch (IOException | CanonicalizationException ex) {
@@ -166,4 +149,58 @@ public class XMLCipherInput {
 
         return XMLUtils.decode(base64EncodedEncryptedOctets);
     }
+
+    /**
+     * Resolves the URI of the <code>CipherReference</code> and applies its transforms
+     * @return the referenced input
+     * @throws XMLEncryptionException
+     */
+    private XMLSignatureInput dereference() throws XMLEncryptionException {
+        // Fun time!
+        LOG.log(Level.DEBUG, "Found a reference type CipherData");
+        CipherReference cr = cipherData.getCipherReference();
+
+        // Need to wrap the uri in an Attribute node so that we can
+        // Pass to the resource resolvers
+
+        Attr uriAttr = cr.getURIAsAttr();
+        XMLSignatureInput input = null;
+
+        try {
+            ResourceResolverContext resolverContext =
+                new ResourceResolverContext(uriAttr, null, secureValidation);
+            if (resolverContext.isURISafeToResolve()) {
+                input = ResourceResolver.resolve(resolverContext);
+            } else {
+                String uriToResolve = uriAttr != null ? uriAttr.getValue() : null;
+                Object[] exArgs = {uriToResolve != null ? uriToResolve : "null", null};
+
+                throw new ResourceResolverException("utils.resolver.noClass", exArgs, uriToResolve, null);
+            }
+        } catch (ResourceResolverException ex) {
+            throw new XMLEncryptionException(ex);
+        }
+
+        if (input != null) {
+            LOG.log(Level.DEBUG, "Managed to resolve URI \"{0}\"", cr.getURI());
+        } else {
+            LOG.log(Level.DEBUG, "Failed to resolve URI \"{0}\"", cr.getURI());
+            throw new XMLEncryptionException();
+        }
+
+        // Lets see if there are any transforms
+        Transforms transforms = cr.getTransforms();
+        if (transforms != null) {
+            LOG.log(Level.DEBUG, "Have transforms in cipher reference");
+            try {
+                org.apache.xml.security.transforms.Transforms dsTransforms =
+                    transforms.getDSTransforms();
+                dsTransforms.setSecureValidation(secureValidation);
+                input = dsTransforms.performTransforms(input);
+            } catch (TransformationException ex) {
+                throw new XMLEncryptionException(ex);
+            }
+        }
+        return input;
+    }
 }
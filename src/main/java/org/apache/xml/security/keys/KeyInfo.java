@@ -820,6 +820,16 @@ public class KeyInfo extends SignatureElementProxy {
      * @throws KeyResolverException
      */
     public PublicKey getPublicKey() throws KeyResolverException {
+        Object cacheKey = getResolutionCacheKey("PublicKey");
+        PublicKey pk = KeyResolutionCache.get(cacheKey, PublicKey.class);
+        if (pk == null) {
+            pk = resolvePublicKey();
+            KeyResolutionCache.put(cacheKey, pk);
+        }
+        return pk;
+    }
+
+    private PublicKey resolvePublicKey() throws KeyResolverException {
         PublicKey pk = this.getPublicKeyFromInternalResolvers();
 
         if (pk != null) {
@@ -854,7 +864,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null) {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     for (StorageResolver storage : storageResolvers) {
                         PublicKey pk =
                             keyResolver.engineLookupAndResolvePublicKey(
@@ -884,7 +895,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null)      {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     for (StorageResolver storage : storageResolvers) {
                         PublicKey pk =
                             keyResolver.engineLookupAndResolvePublicKey(
@@ -910,6 +922,34 @@ public class KeyInfo extends SignatureElementProxy {
      * @throws KeyResolverException
      */
     public X509Certificate getX509Certificate() throws KeyResolverException {
+        Object cacheKey = getResolutionCacheKey("X509Certificate");
+        X509Certificate cert = KeyResolutionCache.get(cacheKey, X509Certificate.class);
+        if (cert == null) {
+            cert = resolveX509Certificate();
+            KeyResolutionCache.put(cacheKey, cert);
+        }
+        return cert;
+    }
+
+    /**
+     * @param kind what is resolved
+     * @return the key of the {@link KeyResolutionCache} entry, or null if the cache is disabled
+     *         or the content of this KeyInfo can't be cached
+     */
+    private Object getResolutionCacheKey(String kind) {
+        if (!KeyResolutionCache.isEnabled()) {
+            return null;
+        }
+        byte[] fingerprint = KeyResolutionCache.fingerprint(getElement());
+        if (fingerprint == null) {
+            return null;
+        }
+        List<Object> context = new ArrayList<>(storageResolvers);
+        context.addAll(internalKeyResolvers);
+        return KeyResolutionCache.newKey(secureValidation ? kind + "/secure" : kind, context, fingerprint);
+    }
+
+    private X509Certificate resolveX509Certificate() throws KeyResolverException {
         // First search using the individual resolvers from the user
         X509Certificate cert = this.getX509CertificateFromInternalResolvers();
 
@@ -963,7 +1003,8 @@ public class KeyInfo extends SignatureElementProxy {
     ) throws KeyResolverException {
         Node currentChild = getFirstChild();
         while (currentChild != null)      {
-            if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+            if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                 for (StorageResolver storage : storageResolvers) {
                     X509Certificate cert =
                         keyResolver.engineLookupResolveX509Certificate(
@@ -1045,7 +1086,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null)      {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     for (StorageResolver storage : storageResolvers) {
                         SecretKey sk =
                             keyResolver.engineLookupAndResolveSecretKey(
@@ -1076,7 +1118,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null)      {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     for (StorageResolver storage : storageResolvers) {
                         SecretKey sk =
                             keyResolver.engineLookupAndResolveSecretKey(
@@ -1133,7 +1176,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null)      {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     // not using StorageResolvers at the moment
                     // since they cannot return private keys
                     PrivateKey pk =
@@ -1163,7 +1207,8 @@ public class KeyInfo extends SignatureElementProxy {
             Node currentChild = getFirstChild();
             String uri = this.getBaseURI();
             while (currentChild != null) {
-                if (currentChild.getNodeType() == Node.ELEMENT_NODE) {
+                if (currentChild.getNodeType() == Node.ELEMENT_NODE
+                    && KeyResolver.isCandidate(keyResolver, (Element) currentChild)) {
                     // not using StorageResolvers at the moment
                     // since they cannot return private keys
                     PrivateKey pk =
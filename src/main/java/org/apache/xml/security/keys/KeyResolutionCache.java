@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.keys;
+
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.xml.security.algorithms.JCEEnginePool;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.storage.StorageResolver;
+import org.apache.xml.security.keys.storage.StorageResolverSpi;
+import org.apache.xml.security.utils.Constants;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * An opt-in cache of the public keys and certificates which were resolved from KeyInfo content.
+ * Messages from the same peer usually carry the same KeyInfo, so the resolver chain only has to
+ * run once per distinct KeyInfo content. Entries are keyed by a fingerprint of that content and
+ * by the resolvers which were used, and expire after a time to live.
+ *
+ * The cache is disabled unless the system property
+ * "org.apache.xml.security.keyResolutionCacheSize" is set to a positive number of entries, or
+ * {@link #configure(int, long)} is called. The time to live is configured in seconds with
+ * "org.apache.xml.security.keyResolutionCacheTTL" (default 300).
+ *
+ * Only KeyInfo elements whose children are all KeyName, KeyValue, X509Data or DEREncodedKeyValue
+ * elements are cached; RetrievalMethod, KeyInfoReference and other children refer to content
+ * outside of the KeyInfo. Failed resolutions aren't cached.
+ *
+ * An entry which was resolved with a StorageResolver is only used while the
+ * {@link StorageResolver#getVersion() version} of its certificates is unchanged. The version is
+ * checked on every lookup. A KeyStore is compared with its index at most once per refresh interval
+ * of the {@link org.apache.xml.security.keys.storage.implementations.KeyStoreResolver} (1 second
+ * by default), so a certificate removed from a trust store may resolve for up to that long; calling
+ * its refresh() makes the change visible at once. Storages which don't report a version keep their
+ * entries for the time to live, unless {@link #clear()} or {@link #invalidate(Object)} is called.
+ */
+public final class KeyResolutionCache {
+
+    private static final Logger LOG = System.getLogger(KeyResolutionCache.class.getName());
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static final Map<CacheKey, CachedValue> ENTRIES = new LinkedHashMap<CacheKey, CachedValue>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedValue> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private static volatile int maxEntries =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.keyResolutionCacheSize", 0));
+
+    private static volatile long ttlNanos =
+        TimeUnit.SECONDS.toNanos(AccessController.doPrivileged(
+            (PrivilegedAction<Long>) () -> Long.getLong("org.apache.xml.security.keyResolutionCacheTTL", 300L)));
+
+    private KeyResolutionCache() {
+        // complete
+    }
+
+    /**
+     * Enables, resizes or disables the cache. The cached entries are discarded.
+     *
+     * @param maxEntries the maximum number of entries, 0 disables the cache
+     * @param ttlMillis the time to live of an entry in milliseconds
+     */
+    public static void configure(int maxEntries, long ttlMillis) {
+        synchronized (ENTRIES) {
+            KeyResolutionCache.maxEntries = maxEntries;
+            KeyResolutionCache.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * @return whether the cache is enabled
+     */
+    public static boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Creates the key of a cache entry.
+     *
+     * @param kind what was resolved from which kind of content, e.g. "RSAKeyValue"
+     * @param context the objects, e.g. StorageResolvers, which took part in the resolution.
+     *        They are compared by identity.
+     * @param content the octets the result was resolved from
+     * @return the key, or null if the cache is disabled
+     */
+    public static Object newKey(String kind, List<?> context, byte[]... content) {
+        if (!isEnabled()) {
+            return null;
+        }
+        List<ByteBuffer> buffers = new ArrayList<>(content.length);
+        for (byte[] bytes : content) {
+            buffers.add(ByteBuffer.wrap(bytes == null ? new byte[0] : bytes.clone()));
+        }
+        long[] versions = new long[context.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = getVersion(context.get(i));
+        }
+        return new CacheKey(kind, new ArrayList<>(context), buffers, versions);
+    }
+
+    private static long getVersion(Object context) {
+        if (context instanceof StorageResolver) {
+            return ((StorageResolver) context).getVersion();
+        } else if (context instanceof StorageResolverSpi) {
+            return ((StorageResolverSpi) context).getVersion();
+        }
+        return 0;
+    }
+
+    /**
+     * @param key the key created by {@link #newKey(String, List, byte[]...)}, may be null
+     * @param type the type of the cached value
+     * @return the cached value, or null if there is none, it has expired or the certificates
+     *         it was resolved with have changed since
+     */
+    public static <T> T get(Object key, Class<T> type) {
+        if (key == null) {
+            return null;
+        }
+        CachedValue cached;
+        synchronized (ENTRIES) {
+            cached = ENTRIES.get(key);
+            if (cached != null && (System.nanoTime() - cached.created > ttlNanos
+                || !Arrays.equals(cached.versions, ((CacheKey) key).versions))) {
+                ENTRIES.remove(key);
+                cached = null;
+            }
+        }
+        if (cached == null || !type.isInstance(cached.value)) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        return type.cast(cached.value);
+    }
+
+    /**
+     * @param key the key created by {@link #newKey(String, List, byte[]...)}, may be null
+     * @param value the resolved value, which is ignored if null
+     */
+    public static void put(Object key, Object value) {
+        if (key == null || value == null) {
+            return;
+        }
+        synchronized (ENTRIES) {
+            // the versions were taken before the value was resolved
+            ENTRIES.put((CacheKey) key, new CachedValue(value, ((CacheKey) key).versions));
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * Removes the entries which were resolved with the given object, e.g. a StorageResolver
+     * whose certificates have changed.
+     *
+     * @param context the object
+     */
+    public static void invalidate(Object context) {
+        synchronized (ENTRIES) {
+            Iterator<CacheKey> iterator = ENTRIES.keySet().iterator();
+            while (iterator.hasNext()) {
+                for (Object object : iterator.next().context) {
+                    if (object == context) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups which found a valid entry
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return the number of lookups which didn't find a valid entry
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return the number of entries, including expired ones which weren't looked up again yet
+     */
+    public static int getSize() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    /**
+     * @param keyInfo the KeyInfo element
+     * @return the SHA-256 digest of the exclusive canonical form of the child elements, or null
+     *         if the KeyInfo has children whose resolution depends on content outside of it
+     */
+    static byte[] fingerprint(Element keyInfo) {
+        JCEEnginePool<MessageDigest> pool = JCEEnginePool.getMessageDigestPool("SHA-256", (String) null);
+        MessageDigest md = null;
+        try {
+            md = pool.borrow();
+            OutputStream os = new DigestOutputStream(OutputStream.nullOutputStream(), md);
+            Canonicalizer c14n = Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+            for (Node child = keyInfo.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+                if (!isSelfContained((Element) child)) {
+                    return null;
+                }
+                c14n.canonicalizeSubtree(child, os);
+            }
+            return md.digest();
+        } catch (GeneralSecurityException | XMLSecurityException ex) {
+            LOG.log(Level.DEBUG, "KeyInfo content can't be cached: {0}", ex.getMessage());
+            return null;
+        } finally {
+            // release() resets the digest, also after a failure in the middle of the content
+            pool.release(md);
+        }
+    }
+
+    private static boolean isSelfContained(Element child) {
+        String localName = child.getLocalName();
+        if (Constants.SignatureSpecNS.equals(child.getNamespaceURI())) {
+            return Constants._TAG_KEYNAME.equals(localName) || Constants._TAG_KEYVALUE.equals(localName)
+                || Constants._TAG_X509DATA.equals(localName);
+        }
+        return Constants.SignatureSpec11NS.equals(child.getNamespaceURI())
+            && Constants._TAG_DERENCODEDKEYVALUE.equals(localName);
+    }
+
+    private static final class CacheKey {
+        private final String kind;
+        private final List<Object> context;
+        private final List<ByteBuffer> content;
+        /** The versions of the context objects, which are not part of the identity of the key */
+        private final long[] versions;
+
+        CacheKey(String kind, List<Object> context, List<ByteBuffer> content, long[] versions) {
+            this.kind = kind;
+            this.context = context;
+            this.content = content;
+            this.versions = versions;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            if (!kind.equals(other.kind) || !content.equals(other.content)
+                || context.size() != other.context.size()) {
+                return false;
+            }
+            for (int i = 0; i < context.size(); i++) {
+                if (context.get(i) != other.context.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * kind.hashCode() + content.hashCode();
+            for (Object object : context) {
+                result = 31 * result + System.identityHashCode(object);
+            }
+            return result;
+        }
+    }
+
+    private static final class CachedValue {
+        private final Object value;
+        private final long[] versions;
+        private final long created = System.nanoTime();
+
+        CachedValue(Object value, long[] versions) {
+            this.value = value;
+            this.versions = versions;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.Signature11ElementProxy;
@@ -111,7 +112,7 @@ public class DEREncodedKeyValue extends Signature11ElementProxy implements KeyIn
         // Iterate over the supported key types until one produces a public key.
         for (String keyType : supportedKeyTypes) {
             try {
-                KeyFactory keyFactory = KeyFactory.getInstance(keyType);
+                KeyFactory keyFactory = JCAFactoryCache.getKeyFactory(keyType);
                 X509EncodedKeySpec keySpec = new X509EncodedKeySpec(encodedKey);
                 PublicKey publicKey = keyFactory.generatePublic(keySpec);
                 if (publicKey != null) {
@@ -132,7 +133,7 @@ public class DEREncodedKeyValue extends Signature11ElementProxy implements KeyIn
      */
     protected byte[] getEncodedDER(PublicKey publicKey) throws XMLSecurityException {
         try {
-            KeyFactory keyFactory = KeyFactory.getInstance(publicKey.getAlgorithm());
+            KeyFactory keyFactory = JCAFactoryCache.getKeyFactory(publicKey.getAlgorithm());
             X509EncodedKeySpec keySpec = keyFactory.getKeySpec(publicKey, X509EncodedKeySpec.class);
             return keySpec.getEncoded();
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
@@ -28,6 +28,7 @@ import java.security.interfaces.DSAPublicKey;
 import java.security.spec.DSAPublicKeySpec;
 import java.security.spec.InvalidKeySpecException;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.I18n;
@@ -111,7 +112,7 @@ public class DSAKeyValue extends SignatureElementProxy implements KeyValueConten
                         Constants._TAG_G, Constants.SignatureSpecNS
                     )
                 );
-            KeyFactory dsaFactory = KeyFactory.getInstance("DSA");
+            KeyFactory dsaFactory = JCAFactoryCache.getKeyFactory("DSA");
 
             return dsaFactory.generatePublic(pkspec);
         } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
@@ -21,7 +21,6 @@ package org.apache.xml.security.keys.content.keyvalues;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.Key;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.interfaces.ECPublicKey;
@@ -36,6 +35,7 @@ import java.util.Arrays;
 
 import javax.xml.crypto.MarshalException;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.I18n;
@@ -199,7 +199,7 @@ public class ECKeyValue extends Signature11ElementProxy implements KeyValueConte
             }
 
             ECPublicKeySpec spec = new ECPublicKeySpec(ecPoint, ecParams);
-            return KeyFactory.getInstance("EC").generatePublic(spec);
+            return JCAFactoryCache.getKeyFactory("EC").generatePublic(spec);
         } catch (NoSuchAlgorithmException | InvalidKeySpecException | MarshalException ex) {
             throw new XMLSecurityException(ex);
         }
@@ -27,6 +27,7 @@ import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.RSAPublicKeySpec;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.I18n;
@@ -92,7 +93,7 @@ public class RSAKeyValue extends SignatureElementProxy implements KeyValueConten
     @Override
     public PublicKey getPublicKey() throws XMLSecurityException {
         try {
-            KeyFactory rsaFactory = KeyFactory.getInstance("RSA");
+            KeyFactory rsaFactory = JCAFactoryCache.getKeyFactory("RSA");
 
             RSAPublicKeySpec rsaKeyspec =
                 new RSAPublicKeySpec(
@@ -18,16 +18,14 @@
  */
 package org.apache.xml.security.keys.content.x509;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.System.Logger.Level;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.SignatureElementProxy;
@@ -98,11 +96,9 @@ public class XMLX509Certificate extends SignatureElementProxy implements XMLX509
      */
     public X509Certificate getX509Certificate() throws XMLSecurityException {
         byte[] certbytes = this.getCertificateBytes();
-        try (InputStream is = new ByteArrayInputStream(certbytes)) {
-            CertificateFactory certFact =
-                CertificateFactory.getInstance(XMLX509Certificate.JCA_CERT_ID);
-            return (X509Certificate) certFact.generateCertificate(is);
-        } catch (CertificateException | IOException ex) {
+        try {
+            return JCAFactoryCache.getX509Certificate(certbytes);
+        } catch (CertificateException ex) {
             throw new XMLSecurityException(ex);
         }
     }
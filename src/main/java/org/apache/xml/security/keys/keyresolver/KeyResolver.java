@@ -23,11 +23,15 @@ import java.lang.System.Logger.Level;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.xml.namespace.QName;
+
+import org.apache.xml.security.keys.KeyResolutionCache;
 import org.apache.xml.security.keys.keyresolver.implementations.DEREncodedKeyValueResolver;
 import org.apache.xml.security.keys.keyresolver.implementations.DSAKeyValueResolver;
 import org.apache.xml.security.keys.keyresolver.implementations.ECKeyValueResolver;
@@ -42,12 +46,18 @@ import org.apache.xml.security.keys.keyresolver.implementations.X509SubjectNameR
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.utils.ClassLoaderUtils;
 import org.apache.xml.security.utils.JavaUtils;
+import org.apache.xml.security.utils.ResolverDispatchIndex;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 /**
  * KeyResolver is factory class for subclass of KeyResolverSpi that
  * represent child element of KeyInfo.
+ * <p>
+ * The registered resolvers are indexed by the element names they declare with
+ * {@link KeyResolverSpi#engineGetResolvableElements()}, so that an element is only offered to
+ * the resolvers which declared its name and to those which didn't declare any name. The order
+ * in which they are consulted is the order of registration.
  */
 public class KeyResolver {
 
@@ -55,6 +65,9 @@ public class KeyResolver {
 
     private static List<KeyResolverSpi> resolverList = new CopyOnWriteArrayList<>();
 
+    private static volatile ResolverDispatchIndex<QName, KeyResolverSpi> dispatchIndex =
+        new ResolverDispatchIndex<>(new ArrayList<>(), KeyResolverSpi::getResolvableElements);
+
     private static final AtomicBoolean defaultResolversAdded = new AtomicBoolean();
 
     /**
@@ -80,7 +93,7 @@ public class KeyResolver {
     public static final X509Certificate getX509Certificate(
         Element element, String baseURI, StorageResolver storage, boolean secureValidation
     ) throws KeyResolverException {
-        for (KeyResolverSpi resolver : resolverList) {
+        for (KeyResolverSpi resolver : dispatchIndex.getCandidates(getElementName(element))) {
             if (resolver == null) {
                 Object[] exArgs = {
                         element != null
@@ -120,7 +133,7 @@ public class KeyResolver {
     public static final PublicKey getPublicKey(
         Element element, String baseURI, StorageResolver storage, boolean secureValidation
     ) throws KeyResolverException {
-        for (KeyResolverSpi resolver : resolverList) {
+        for (KeyResolverSpi resolver : dispatchIndex.getCandidates(getElementName(element))) {
             if (resolver == null) {
                 Object[] exArgs = {
                         element != null
@@ -225,6 +238,9 @@ public class KeyResolver {
         } else {
             resolverList.add(keyResolverSpi);
         }
+        updateDispatchIndex();
+        // keys which were resolved before may resolve differently now
+        KeyResolutionCache.clear();
     }
 
     /**
@@ -253,6 +269,8 @@ public class KeyResolver {
             keyResolverList.add(keyResolverSpi);
         }
         resolverList.addAll(keyResolverList);
+        updateDispatchIndex();
+        KeyResolutionCache.clear();
     }
 
     /**
@@ -275,9 +293,51 @@ public class KeyResolver {
             keyResolverList.add(new ECKeyValueResolver());
 
             resolverList.addAll(keyResolverList);
+            updateDispatchIndex();
+            KeyResolutionCache.clear();
         }
     }
 
+    /**
+     * Returns whether the given resolver has to be consulted for the given element, i.e.
+     * whether it declared the name of the element or didn't declare any names.
+     *
+     * @param resolver a KeyResolverSpi
+     * @param element a child element of KeyInfo
+     * @return false if the resolver can't resolve the element
+     */
+    public static boolean isCandidate(KeyResolverSpi resolver, Element element) {
+        Collection<QName> names = resolver.getResolvableElements();
+        if (names == null || names.isEmpty() || element == null || element.getLocalName() == null) {
+            return true;
+        }
+        String localName = element.getLocalName();
+        String namespace = element.getNamespaceURI() != null ? element.getNamespaceURI() : "";
+        for (QName name : names) {
+            if (localName.equals(name.getLocalPart()) && namespace.equals(name.getNamespaceURI())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static QName getElementName(Element element) {
+        if (element == null || element.getLocalName() == null) {
+            return null;
+        }
+        String namespace = element.getNamespaceURI();
+        return new QName(namespace != null ? namespace : "", element.getLocalName());
+    }
+
+    /**
+     * Rebuilds the dispatch index from the current resolver list. It is called after every
+     * registration, so the last rebuild always sees all registered resolvers.
+     */
+    private static synchronized void updateDispatchIndex() {
+        dispatchIndex =
+            new ResolverDispatchIndex<>(new ArrayList<>(resolverList), KeyResolverSpi::getResolvableElements);
+    }
+
     /**
      * Iterate over the KeyResolverSpi instances
      */
@@ -24,8 +24,10 @@ import java.io.InputStream;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.parser.XMLParserException;
@@ -44,9 +46,53 @@ import org.w3c.dom.Element;
  * </PRE>
  *
  * Extensions of this class must be thread-safe.
+ *
+ * An extension which only handles elements with certain names should declare them by
+ * overriding {@link #engineGetResolvableElements()}, so that {@link KeyResolver} doesn't
+ * consult it for other elements. A subclass which overrides {@link #engineCanResolve}
+ * without declaring the names again is consulted for every element.
  */
 public abstract class KeyResolverSpi {
 
+    private static final ClassValue<Boolean> DECLARATION_IS_CURRENT = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> clazz = type; clazz != KeyResolverSpi.class; clazz = clazz.getSuperclass()) {
+                if (declaresMethod(clazz, "engineGetResolvableElements")) {
+                    return Boolean.TRUE;
+                }
+                if (declaresMethod(clazz, "engineCanResolve", Element.class, String.class, StorageResolver.class)) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+
+    /**
+     * Returns the qualified names of the elements this KeyResolverSpi is able to resolve.
+     * {@link #engineCanResolve} is then only called for elements with one of these names.
+     * The default implementation returns null, i.e. the KeyResolverSpi is asked for every
+     * element.
+     *
+     * @return the names of the resolvable elements, or null if they are not known in advance.
+     *         The returned collection must not change afterwards.
+     */
+    protected Collection<QName> engineGetResolvableElements() {
+        return null;
+    }
+
+    /**
+     * Returns the names of {@link #engineGetResolvableElements()}, unless the class overrides
+     * {@link #engineCanResolve} below the class which declared them. Such a subclass may accept
+     * other elements than its parent, so it is asked for every element.
+     *
+     * @return the names of the resolvable elements, or null
+     */
+    final Collection<QName> getResolvableElements() {
+        return DECLARATION_IS_CURRENT.get(getClass()) ? engineGetResolvableElements() : null;
+    }
+
     /**
      * This method returns whether the KeyResolverSpi is able to perform the requested action.
      *
@@ -215,4 +261,12 @@ public abstract class KeyResolverSpi {
         }
     }
 
+    private static boolean declaresMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            clazz.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 }
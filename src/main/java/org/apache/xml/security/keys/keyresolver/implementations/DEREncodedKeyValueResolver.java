@@ -23,8 +23,11 @@ import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.DEREncodedKeyValue;
@@ -44,6 +47,15 @@ public class DEREncodedKeyValueResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(DEREncodedKeyValueResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpec11NS, Constants._TAG_DERENCODEDKEYVALUE));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
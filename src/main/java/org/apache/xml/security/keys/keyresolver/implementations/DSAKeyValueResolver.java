@@ -23,6 +23,10 @@ import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.keyvalues.DSAKeyValue;
@@ -36,6 +40,17 @@ public class DSAKeyValueResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(DSAKeyValueResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Arrays.asList(
+            new QName(Constants.SignatureSpecNS, Constants._TAG_KEYVALUE),
+            new QName(Constants.SignatureSpecNS, Constants._TAG_DSAKEYVALUE));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -25,10 +25,12 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.encryption.EncryptedKey;
 import org.apache.xml.security.encryption.XMLCipher;
@@ -54,6 +56,9 @@ public class EncryptedKeyResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(EncryptedKeyResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_ENCRYPTEDKEY));
+
     private final Key kek;
     private final String algorithm;
     private final List<KeyResolverSpi> internalKeyResolvers;
@@ -84,6 +89,12 @@ public class EncryptedKeyResolver extends KeyResolverSpi {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -24,6 +24,8 @@ import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.crypto.SecretKey;
 import javax.xml.namespace.QName;
@@ -55,6 +57,15 @@ public class KeyInfoReferenceResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(KeyInfoReferenceResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpec11NS, Constants._TAG_KEYINFOREFERENCE));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -29,9 +29,11 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.X509Data;
@@ -55,6 +57,11 @@ public class PrivateKeyResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(PrivateKeyResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Arrays.asList(
+            new QName(Constants.SignatureSpecNS, Constants._TAG_X509DATA),
+            new QName(Constants.SignatureSpecNS, Constants._TAG_KEYNAME));
+
     private final KeyStore keyStore;
     private final char[] password;
 
@@ -66,6 +73,12 @@ public class PrivateKeyResolver extends KeyResolverSpi {
         this.password = password;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
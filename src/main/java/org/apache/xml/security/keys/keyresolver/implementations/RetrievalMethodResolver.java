@@ -18,25 +18,26 @@
  */
 package org.apache.xml.security.keys.keyresolver.implementations;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 
+import javax.xml.namespace.QName;
+
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.RetrievalMethod;
-import org.apache.xml.security.keys.content.x509.XMLX509Certificate;
 import org.apache.xml.security.keys.keyresolver.KeyResolver;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
@@ -67,6 +68,15 @@ public class RetrievalMethodResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(RetrievalMethodResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_RETRIEVALMETHOD));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -221,7 +231,7 @@ public class RetrievalMethodResolver extends KeyResolverSpi {
             e = (Element) resource.getSubNode();
         } else if (resource.isNodeSet()) {
             // Retrieved resource is a nodeSet
-            e = getDocumentElement(resource.getNodeSet());
+            e = getDocumentElement(resource.getNodeSetView());
         } else {
             // Retrieved resource is an inputStream
             byte[] inputBytes = resource.getBytes();
@@ -236,11 +246,7 @@ public class RetrievalMethodResolver extends KeyResolverSpi {
         throws CanonicalizationException, IOException, CertificateException {
         byte[] inputBytes = resource.getBytes();
         // if the resource stores a raw certificate, we have to handle it
-        CertificateFactory certFact =
-            CertificateFactory.getInstance(XMLX509Certificate.JCA_CERT_ID);
-        try (InputStream is = new ByteArrayInputStream(inputBytes)) {
-            return (X509Certificate) certFact.generateCertificate(is);
-        }
+        return JCAFactoryCache.getX509Certificate(inputBytes);
     }
 
     /**
@@ -25,8 +25,11 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
@@ -43,6 +46,9 @@ public class SecretKeyResolver extends KeyResolverSpi
 {
     private static final Logger LOG = System.getLogger(SecretKeyResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_KEYNAME));
+
     private final KeyStore keyStore;
     private final char[] password;
 
@@ -54,6 +60,12 @@ public class SecretKeyResolver extends KeyResolverSpi
         this.password = password;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
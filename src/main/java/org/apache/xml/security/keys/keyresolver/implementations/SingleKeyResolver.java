@@ -21,8 +21,11 @@ package org.apache.xml.security.keys.keyresolver.implementations;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
@@ -36,6 +39,9 @@ import org.w3c.dom.Element;
  */
 public class SingleKeyResolver extends KeyResolverSpi {
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_KEYNAME));
+
     private final String keyName;
     private final PublicKey publicKey;
     private final PrivateKey privateKey;
@@ -77,6 +83,12 @@ public class SingleKeyResolver extends KeyResolverSpi {
         privateKey = null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -22,18 +22,19 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.crypto.SecretKey;
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.X509Data;
 import org.apache.xml.security.keys.content.x509.XMLX509Digest;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.XMLUtils;
@@ -48,6 +49,15 @@ public class X509DigestResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(X509DigestResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_X509DATA));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -110,8 +120,6 @@ public class X509DigestResolver extends KeyResolverSpi {
     private X509Certificate resolveCertificate(Element element, String baseURI, StorageResolver storage)
         throws XMLSecurityException {
 
-        XMLX509Digest x509Digests[] = null;
-
         Element x509childNodes[] = XMLUtils.selectDs11Nodes(element.getFirstChild(), Constants._TAG_X509DIGEST);
 
         if (x509childNodes == null || x509childNodes.length <= 0) {
@@ -121,25 +129,16 @@ public class X509DigestResolver extends KeyResolverSpi {
         try {
             checkStorage(storage);
 
-            x509Digests = new XMLX509Digest[x509childNodes.length];
-
-            for (int i = 0; i < x509childNodes.length; i++) {
-                x509Digests[i] = new XMLX509Digest(x509childNodes[i], baseURI);
+            CertificateQuery query = new CertificateQuery();
+            for (Element x509childNode : x509childNodes) {
+                XMLX509Digest keyInfoDigest = new XMLX509Digest(x509childNode, baseURI);
+                query.addDigest(keyInfoDigest.getAlgorithm(), keyInfoDigest.getDigestBytes());
             }
 
-            Iterator<Certificate> storageIterator = storage.getIterator();
-            while (storageIterator.hasNext()) {
-                X509Certificate cert = (X509Certificate) storageIterator.next();
-
-                for (XMLX509Digest keyInfoDigest : x509Digests) {
-                    byte[] certDigestBytes = XMLX509Digest.getDigestBytesFromCert(cert, keyInfoDigest.getAlgorithm());
-
-                    if (Arrays.equals(keyInfoDigest.getDigestBytes(), certDigestBytes)) {
-                        LOG.log(Level.DEBUG, "Found certificate with: {0}", cert.getSubjectX500Principal().getName());
-                        return cert;
-                    }
-
-                }
+            X509Certificate cert = storage.find(query);
+            if (cert != null) {
+                LOG.log(Level.DEBUG, "Found certificate with: {0}", cert.getSubjectX500Principal().getName());
+                return cert;
             }
 
         } catch (XMLSecurityException ex) {
@@ -22,15 +22,18 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.X509Data;
 import org.apache.xml.security.keys.content.x509.XMLX509IssuerSerial;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.XMLUtils;
@@ -40,6 +43,15 @@ public class X509IssuerSerialResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(X509IssuerSerialResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_X509DATA));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -99,29 +111,19 @@ public class X509IssuerSerialResolver extends KeyResolverSpi {
 
             int noOfISS = x509data.lengthIssuerSerial();
 
-            Iterator<Certificate> storageIterator = storage.getIterator();
-            while (storageIterator.hasNext()) {
-                X509Certificate cert = (X509Certificate)storageIterator.next();
-                XMLX509IssuerSerial certSerial = new XMLX509IssuerSerial(element.getOwnerDocument(), cert);
-
-                LOG.log(Level.DEBUG, "Found Certificate Issuer: {0}", certSerial.getIssuerName());
-                LOG.log(Level.DEBUG, "Found Certificate Serial: {0}", certSerial.getSerialNumber().toString());
+            CertificateQuery query = new CertificateQuery();
+            for (int i = 0; i < noOfISS; i++) {
+                XMLX509IssuerSerial xmliss = x509data.itemIssuerSerial(i);
 
-                for (int i = 0; i < noOfISS; i++) {
-                    XMLX509IssuerSerial xmliss = x509data.itemIssuerSerial(i);
+                LOG.log(Level.DEBUG, "Found Element Issuer:     {0}", xmliss.getIssuerName());
+                LOG.log(Level.DEBUG, "Found Element Serial:     {0}", xmliss.getSerialNumber().toString());
 
-                    LOG.log(Level.DEBUG, "Found Element Issuer:     {0}", xmliss.getIssuerName());
-                    LOG.log(Level.DEBUG, "Found Element Serial:     {0}", xmliss.getSerialNumber().toString());
-
-                    if (certSerial.equals(xmliss)) {
-                        LOG.log(Level.DEBUG, "match !!! ");
-                        return cert;
-                    }
-                    LOG.log(Level.DEBUG, "no match...");
-                }
+                query.addIssuerSerial(xmliss.getIssuerName(), xmliss.getSerialNumber());
             }
 
-            return null;
+            X509Certificate cert = storage.find(query);
+            LOG.log(Level.DEBUG, cert != null ? "match !!! " : "no match...");
+            return cert;
         } catch (XMLSecurityException ex) {
             LOG.log(Level.DEBUG, "XMLSecurityException", ex);
 
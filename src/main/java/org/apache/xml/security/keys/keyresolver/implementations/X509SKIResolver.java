@@ -22,14 +22,17 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.x509.XMLX509SKI;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.XMLUtils;
@@ -39,6 +42,15 @@ public class X509SKIResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(X509SKIResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_X509DATA));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -89,22 +101,24 @@ public class X509SKIResolver extends KeyResolverSpi {
                 throw ex;
             }
 
-            XMLX509SKI[] x509childObject = new XMLX509SKI[x509childNodes.length];
-            for (int i = 0; i < x509childNodes.length; i++) {
-                x509childObject[i] = new XMLX509SKI(x509childNodes[i], baseURI);
+            CertificateQuery query = new CertificateQuery();
+            for (Element x509childNode : x509childNodes) {
+                XMLX509SKI childNodeSKI = new XMLX509SKI(x509childNode, baseURI);
+                try {
+                    query.addSKI(childNodeSKI.getSKIBytes());
+                } catch (XMLSecurityException ex) {
+                    // like XMLX509SKI.equals, an SKI which can't be decoded never matches
+                    LOG.log(Level.DEBUG, ex.getMessage(), ex);
+                }
+            }
+            if (query.isEmpty()) {
+                return null;
             }
 
-            Iterator<Certificate> storageIterator = storage.getIterator();
-            while (storageIterator.hasNext()) {
-                X509Certificate cert = (X509Certificate) storageIterator.next();
-                XMLX509SKI certSKI = new XMLX509SKI(element.getOwnerDocument(), cert);
-
-                for (XMLX509SKI childNodeSKI : x509childObject) {
-                    if (certSKI.equals(childNodeSKI)) {
-                        LOG.log(Level.DEBUG, "Return PublicKey from {0}", cert.getSubjectX500Principal().getName());
-                        return cert;
-                    }
-                }
+            X509Certificate cert = storage.find(query);
+            if (cert != null) {
+                LOG.log(Level.DEBUG, "Return PublicKey from {0}", cert.getSubjectX500Principal().getName());
+                return cert;
             }
         } catch (XMLSecurityException ex) {
             throw new KeyResolverException(ex);
@@ -22,14 +22,17 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.xml.namespace.QName;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.content.x509.XMLX509SubjectName;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.StorageResolver;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.XMLUtils;
@@ -39,6 +42,15 @@ public class X509SubjectNameResolver extends KeyResolverSpi {
 
     private static final Logger LOG = System.getLogger(X509SubjectNameResolver.class.getName());
 
+    private static final Collection<QName> RESOLVABLE_ELEMENTS =
+        Collections.singletonList(new QName(Constants.SignatureSpecNS, Constants._TAG_X509DATA));
+
+    /** {@inheritDoc} */
+    @Override
+    protected Collection<QName> engineGetResolvableElements() {
+        return RESOLVABLE_ELEMENTS;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
@@ -89,30 +101,17 @@ public class X509SubjectNameResolver extends KeyResolverSpi {
                 throw ex;
             }
 
-            XMLX509SubjectName[] x509childObject = new XMLX509SubjectName[x509childNodes.length];
-
-            for (int i = 0; i < x509childNodes.length; i++) {
-                x509childObject[i] = new XMLX509SubjectName(x509childNodes[i], baseURI);
-            }
+            CertificateQuery query = new CertificateQuery();
+            for (Element x509childNode : x509childNodes) {
+                XMLX509SubjectName childSubject = new XMLX509SubjectName(x509childNode, baseURI);
+                LOG.log(Level.DEBUG, "Found Element SN:     {0}", childSubject.getSubjectName());
 
-            Iterator<Certificate> storageIterator = storage.getIterator();
-            while (storageIterator.hasNext()) {
-                X509Certificate cert = (X509Certificate) storageIterator.next();
-                XMLX509SubjectName certSN = new XMLX509SubjectName(element.getOwnerDocument(), cert);
-                LOG.log(Level.DEBUG, "Found Certificate SN: {0}", certSN.getSubjectName());
-
-                for (XMLX509SubjectName childSubject : x509childObject) {
-                    LOG.log(Level.DEBUG, "Found Element SN:     {0}", childSubject.getSubjectName());
-
-                    if (certSN.equals(childSubject)) {
-                        LOG.log(Level.DEBUG, "match !!! ");
-                        return cert;
-                    }
-                    LOG.log(Level.DEBUG, "no match...");
-                }
+                query.addSubjectName(childSubject.getSubjectName());
             }
 
-            return null;
+            X509Certificate cert = storage.find(query);
+            LOG.log(Level.DEBUG, cert != null ? "match !!! " : "no match...");
+            return cert;
         } catch (XMLSecurityException ex) {
             LOG.log(Level.DEBUG, "XMLSecurityException", ex);
             throw new KeyResolverException(ex);
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.keys.storage;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.storage.CertificateQuery.KeyType;
+
+/**
+ * Hash indexes over the certificates of a {@link StorageResolverSpi}, so a {@link CertificateQuery}
+ * is answered without computing the SKI, names or digests of every certificate again. The index
+ * of a criterion is built for all certificates when it is first queried, and is kept up to date
+ * when certificates are put or removed afterwards.
+ *
+ * Every certificate is stored under a handle, e.g. its KeyStore alias. If several certificates
+ * match a query, the one which was put first is returned. This class is not thread-safe.
+ */
+public final class CertificateIndex {
+
+    private final Map<Object, Entry> entries = new LinkedHashMap<>();
+    private final Map<KeyType, TypeIndex> indexes = new HashMap<>();
+    private long nextPosition;
+
+    /**
+     * Adds a certificate, or replaces the certificate which was stored under the same handle.
+     *
+     * @param handle the handle of the certificate
+     * @param cert the certificate
+     */
+    public void put(Object handle, X509Certificate cert) {
+        remove(handle);
+        Entry entry = new Entry(handle, cert, nextPosition++);
+        entries.put(handle, entry);
+        for (TypeIndex index : indexes.values()) {
+            index.add(entry);
+        }
+    }
+
+    /**
+     * @param handle the handle of the certificate to remove
+     */
+    public void remove(Object handle) {
+        Entry entry = entries.remove(handle);
+        if (entry != null) {
+            for (TypeIndex index : indexes.values()) {
+                index.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * @param handle the handle of a certificate
+     * @return the certificate stored under the handle, or null
+     */
+    public X509Certificate get(Object handle) {
+        Entry entry = entries.get(handle);
+        return entry == null ? null : entry.cert;
+    }
+
+    /**
+     * @return the number of certificates
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param query the criteria
+     * @return the first certificate which matches any of the criteria, or null
+     * @throws XMLSecurityException if nothing matches and a criterion couldn't be computed for
+     *         one of the certificates, e.g. because it has no SKI
+     */
+    public X509Certificate find(CertificateQuery query) throws XMLSecurityException {
+        Entry found = null;
+        XMLSecurityException failure = null;
+        for (int i = 0; i < query.size(); i++) {
+            TypeIndex index = indexes.get(query.getType(i));
+            if (index == null) {
+                index = new TypeIndex(query.getType(i));
+                for (Entry entry : entries.values()) {
+                    index.add(entry);
+                }
+                indexes.put(query.getType(i), index);
+            }
+            Entry entry = index.find(query.getKey(i));
+            if (entry != null && (found == null || entry.position < found.position)) {
+                found = entry;
+            }
+            if (failure == null) {
+                failure = index.getFailure();
+            }
+        }
+        if (found == null && failure != null) {
+            throw failure;
+        }
+        return found == null ? null : found.cert;
+    }
+
+    private static final class Entry {
+        private final Object handle;
+        private final X509Certificate cert;
+        private final long position;
+
+        Entry(Object handle, X509Certificate cert, long position) {
+            this.handle = handle;
+            this.cert = cert;
+            this.position = position;
+        }
+    }
+
+    private static final class TypeIndex {
+        private final KeyType type;
+        private final Map<Object, List<Entry>> entriesByKey = new HashMap<>();
+        private final Map<Object, Object> keysByHandle = new HashMap<>();
+        private final Map<Object, XMLSecurityException> failures = new LinkedHashMap<>();
+
+        TypeIndex(KeyType type) {
+            this.type = type;
+        }
+
+        void add(Entry entry) {
+            Object key;
+            try {
+                key = type.keyOf(entry.cert);
+            } catch (XMLSecurityException ex) {
+                failures.put(entry.handle, ex);
+                return;
+            }
+            keysByHandle.put(entry.handle, key);
+            entriesByKey.computeIfAbsent(key, k -> new ArrayList<>(1)).add(entry);
+        }
+
+        void remove(Entry entry) {
+            failures.remove(entry.handle);
+            Object key = keysByHandle.remove(entry.handle);
+            if (key != null) {
+                List<Entry> list = entriesByKey.get(key);
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    entriesByKey.remove(key);
+                }
+            }
+        }
+
+        Entry find(Object key) {
+            List<Entry> list = entriesByKey.get(key);
+            // entries are appended in the order they were put
+            return list == null ? null : list.get(0);
+        }
+
+        XMLSecurityException getFailure() {
+            return failures.isEmpty() ? null : failures.values().iterator().next();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.keys.storage;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.content.x509.XMLX509Digest;
+import org.apache.xml.security.keys.content.x509.XMLX509SKI;
+import org.apache.xml.security.utils.RFC2253Parser;
+
+/**
+ * The X509Data children a certificate is looked up with in a {@link StorageResolver}. A certificate
+ * matches if it matches any of the added criteria; the names are compared in the form of
+ * {@link RFC2253Parser#normalize(String)}, like the X509Data content classes compare them.
+ */
+public final class CertificateQuery {
+
+    private final List<KeyType> types = new ArrayList<>();
+    private final List<Object> keys = new ArrayList<>();
+
+    /**
+     * @param ski the X509SKI octets
+     * @return this query
+     */
+    public CertificateQuery addSKI(byte[] ski) {
+        return add(KeyType.SKI, ByteBuffer.wrap(ski.clone()));
+    }
+
+    /**
+     * @param issuerName the normalized issuer name
+     * @param serialNumber the serial number
+     * @return this query
+     */
+    public CertificateQuery addIssuerSerial(String issuerName, BigInteger serialNumber) {
+        return add(KeyType.ISSUER_SERIAL, Arrays.asList(issuerName, serialNumber));
+    }
+
+    /**
+     * @param subjectName the normalized subject name
+     * @return this query
+     */
+    public CertificateQuery addSubjectName(String subjectName) {
+        return add(KeyType.SUBJECT_NAME, subjectName);
+    }
+
+    /**
+     * @param algorithmURI the digest algorithm URI
+     * @param digest the digest of the encoded certificate
+     * @return this query
+     */
+    public CertificateQuery addDigest(String algorithmURI, byte[] digest) {
+        return add(new KeyType(algorithmURI), ByteBuffer.wrap(digest.clone()));
+    }
+
+    /**
+     * @return whether no criteria were added
+     */
+    public boolean isEmpty() {
+        return types.isEmpty();
+    }
+
+    private CertificateQuery add(KeyType type, Object key) {
+        types.add(type);
+        keys.add(key);
+        return this;
+    }
+
+    int size() {
+        return types.size();
+    }
+
+    KeyType getType(int i) {
+        return types.get(i);
+    }
+
+    Object getKey(int i) {
+        return keys.get(i);
+    }
+
+    /**
+     * @param cert the candidate
+     * @return whether the certificate matches any of the criteria
+     * @throws XMLSecurityException if a criterion can't be computed for the certificate
+     */
+    boolean matches(X509Certificate cert) throws XMLSecurityException {
+        Map<KeyType, Object> certKeys = new HashMap<>();
+        for (int i = 0; i < types.size(); i++) {
+            KeyType type = types.get(i);
+            Object certKey = certKeys.get(type);
+            if (certKey == null) {
+                certKey = type.keyOf(cert);
+                certKeys.put(type, certKey);
+            }
+            if (certKey.equals(keys.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The property of a certificate a criterion compares. The digest types are distinguished by
+     * their algorithm.
+     */
+    static final class KeyType {
+
+        static final KeyType SKI = new KeyType("#SKI");
+        static final KeyType ISSUER_SERIAL = new KeyType("#IssuerSerial");
+        static final KeyType SUBJECT_NAME = new KeyType("#SubjectName");
+
+        private final String name;
+
+        private KeyType(String name) {
+            this.name = name;
+        }
+
+        Object keyOf(X509Certificate cert) throws XMLSecurityException {
+            if (this == SKI) {
+                return ByteBuffer.wrap(XMLX509SKI.getSKIBytesFromCert(cert));
+            } else if (this == ISSUER_SERIAL) {
+                return Arrays.asList(RFC2253Parser.normalize(cert.getIssuerX500Principal().getName()),
+                                     cert.getSerialNumber());
+            } else if (this == SUBJECT_NAME) {
+                return RFC2253Parser.normalize(cert.getSubjectX500Principal().getName());
+            }
+            return ByteBuffer.wrap(XMLX509Digest.getDigestBytesFromCert(cert, name));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof KeyType && name.equals(((KeyType) obj).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
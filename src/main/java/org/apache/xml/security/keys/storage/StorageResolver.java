@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.storage.implementations.KeyStoreResolver;
 import org.apache.xml.security.keys.storage.implementations.SingleCertificateResolver;
 
@@ -107,6 +108,35 @@ public class StorageResolver {
         return new StorageResolverIterator(this.storageResolvers.iterator());
     }
 
+    /**
+     * Method find
+     *
+     * @param query the criteria
+     * @return the first certificate of the resolvers which matches the query, or null
+     * @throws XMLSecurityException if a criterion can't be computed for a certificate
+     */
+    public X509Certificate find(CertificateQuery query) throws XMLSecurityException {
+        for (StorageResolverSpi resolver : storageResolvers) {
+            X509Certificate cert = resolver.find(query);
+            if (cert != null) {
+                return cert;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a number which grows whenever the certificates of one of the resolvers change
+     * @see StorageResolverSpi#getVersion()
+     */
+    public long getVersion() {
+        long version = 0;
+        for (StorageResolverSpi resolver : storageResolvers) {
+            version += resolver.getVersion();
+        }
+        return version;
+    }
+
     /**
      * Class StorageResolverIterator
      * This iterates over all the Certificates found in all the resolvers.
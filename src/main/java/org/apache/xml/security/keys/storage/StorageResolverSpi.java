@@ -19,8 +19,11 @@
 package org.apache.xml.security.keys.storage;
 
 import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
 import java.util.Iterator;
 
+import org.apache.xml.security.exceptions.XMLSecurityException;
+
 public abstract class StorageResolverSpi {
 
     /**
@@ -29,4 +32,39 @@ public abstract class StorageResolverSpi {
      * @return the iterator for the storage
      */
     public abstract Iterator<Certificate> getIterator();
+
+    /**
+     * Method find
+     *
+     * Returns the first certificate of this storage which matches the query. This implementation
+     * walks {@link #getIterator()}; storages with many certificates should answer the query from
+     * a {@link CertificateIndex} instead.
+     *
+     * @param query the criteria
+     * @return the matching certificate or null
+     * @throws XMLSecurityException if a criterion can't be computed for a certificate
+     */
+    public X509Certificate find(CertificateQuery query) throws XMLSecurityException {
+        Iterator<Certificate> iterator = getIterator();
+        while (iterator.hasNext()) {
+            Certificate cert = iterator.next();
+            if (cert instanceof X509Certificate && query.matches((X509Certificate) cert)) {
+                return (X509Certificate) cert;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a number which grows whenever the certificates of this storage change, so that
+     * results which were resolved with the previous certificates can be recognized as outdated.
+     * The check must be cheap, since it runs on every lookup of the {@link
+     * org.apache.xml.security.keys.KeyResolutionCache}. This implementation returns 0, i.e. the
+     * certificates are assumed not to change.
+     *
+     * @return the version of the certificates
+     */
+    public long getVersion() {
+        return 0;
+    }
 }
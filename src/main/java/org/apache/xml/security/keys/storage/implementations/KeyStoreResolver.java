@@ -20,30 +20,76 @@ package org.apache.xml.security.keys.storage.implementations;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.security.AccessController;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.PrivilegedAction;
 import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.storage.CertificateIndex;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.StorageResolverException;
 import org.apache.xml.security.keys.storage.StorageResolverSpi;
 
 /**
  * Makes the Certificates from a JAVA {@link KeyStore} object available to the
  * {@link org.apache.xml.security.keys.storage.StorageResolver}.
+ *
+ * Queries are answered from a {@link CertificateIndex}. A KeyStore doesn't report modifications,
+ * so the index is compared with the aliases of the KeyStore whenever its size has changed, and
+ * otherwise at most once per refresh interval. The interval can be configured in milliseconds
+ * with the system property "org.apache.xml.security.keyStoreRefreshInterval" (default 1000).
+ * Applications which replace certificates in the KeyStore can call {@link #refresh()} to make
+ * the change visible immediately. Only the modified aliases are indexed again, and the version
+ * is increased if anything has changed, which invalidates the {@link org.apache.xml.security.keys.KeyResolutionCache} entries
+ * resolved with the previous certificates.
+ *
+ * The KeyStore is read by one thread at a time without blocking the lookups, which are answered
+ * from the current index meanwhile. Only the first lookup waits until the index is built.
  */
 public class KeyStoreResolver extends StorageResolverSpi {
 
     private static final Logger LOG = System.getLogger(KeyStoreResolver.class.getName());
 
+    private static final long REFRESH_INTERVAL_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(AccessController.doPrivileged(
+            (PrivilegedAction<Long>) () -> Long.getLong("org.apache.xml.security.keyStoreRefreshInterval", 1000L)));
+
     /** Field keyStore */
     private final KeyStore keyStore;
 
+    /** The certificates of all aliases as they were indexed, null for aliases without one */
+    private final Map<String, Certificate> indexedCertificates = new HashMap<>();
+
+    /** Guarded by its own monitor */
+    private final CertificateIndex index = new CertificateIndex();
+
+    /** Held while the KeyStore is compared with the index, guards indexedCertificates */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile boolean indexed;
+
+    private volatile int indexedSize;
+
+    private volatile long lastRefresh;
+
+    private volatile long version;
+
     /**
      * Constructor KeyStoreResolver
      *
@@ -66,6 +112,122 @@ public class KeyStoreResolver extends StorageResolverSpi {
         return new KeyStoreIterator(this.keyStore);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public X509Certificate find(CertificateQuery query) throws XMLSecurityException {
+        refreshIfStale();
+        synchronized (index) {
+            return index.find(query);
+        }
+    }
+
+    /**
+     * Compares the KeyStore with the index first if the index is stale.
+     */
+    @Override
+    public long getVersion() {
+        refreshIfStale();
+        return version;
+    }
+
+    /**
+     * Compares the index with the current content of the KeyStore and indexes the certificates
+     * of added or modified aliases.
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            compareWithKeyStore();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void refreshIfStale() {
+        if (!indexed) {
+            refreshLock.lock();
+            try {
+                if (!indexed) {
+                    compareWithKeyStore();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        } else if (isStale() && refreshLock.tryLock()) {
+            // a thread which finds another one refreshing uses the current index
+            try {
+                compareWithKeyStore();
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+
+    private boolean isStale() {
+        if (System.nanoTime() - lastRefresh > REFRESH_INTERVAL_NANOS) {
+            return true;
+        }
+        try {
+            return keyStore.size() != indexedSize;
+        } catch (KeyStoreException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Reads the KeyStore and applies the differences to the index. Must be called with the
+     * refreshLock held.
+     */
+    private void compareWithKeyStore() {
+        Map<String, Certificate> modified = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        try {
+            Set<String> aliases = new HashSet<>();
+            Enumeration<String> enumeration = keyStore.aliases();
+            while (enumeration.hasMoreElements()) {
+                String alias = enumeration.nextElement();
+                aliases.add(alias);
+                Certificate cert = keyStore.getCertificate(alias);
+                if (!indexedCertificates.containsKey(alias)
+                    || !Objects.equals(indexedCertificates.get(alias), cert)) {
+                    modified.put(alias, cert);
+                }
+            }
+            for (String alias : indexedCertificates.keySet()) {
+                if (!aliases.contains(alias)) {
+                    removed.add(alias);
+                }
+            }
+        } catch (KeyStoreException ex) {
+            LOG.log(Level.DEBUG, "Error reading certificates: {0}", ex.getMessage());
+        }
+
+        boolean changed = !modified.isEmpty() || !removed.isEmpty();
+        if (changed) {
+            indexedCertificates.putAll(modified);
+            indexedCertificates.keySet().removeAll(removed);
+            synchronized (index) {
+                for (Map.Entry<String, Certificate> entry : modified.entrySet()) {
+                    if (entry.getValue() instanceof X509Certificate) {
+                        index.put(entry.getKey(), (X509Certificate) entry.getValue());
+                    } else {
+                        index.remove(entry.getKey());
+                    }
+                }
+                for (String alias : removed) {
+                    index.remove(alias);
+                }
+            }
+        }
+        if (changed && indexed) {
+            // keys which were resolved with the previous certificates may be cached
+            version++;
+        }
+        indexedSize = indexedCertificates.size();
+        lastRefresh = System.nanoTime();
+        indexed = true;
+    }
+
     /**
      * Class KeyStoreIterator
      */
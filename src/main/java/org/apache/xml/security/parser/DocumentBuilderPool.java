@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * A bounded pool of DocumentBuilders of one ClassLoader, which all share the same configuration.
+ * The idle DocumentBuilders are kept in slots, which are taken and filled with atomic operations.
+ * A thread starts the search for a slot at a position derived from its id, so threads rarely
+ * compete for the same slot. The DocumentBuilderFactory is created once per pool.
+ * <p>
+ * The counters of a pool can be used to size it with the system property
+ * <code>org.apache.xml.security.parser.pool-size</code>: many misses and discards indicate that
+ * more DocumentBuilders are used concurrently than the pool keeps idle.
+ */
+public final class DocumentBuilderPool {
+
+    private final DocumentBuilderFactory factory;
+    private final AtomicReferenceArray<DocumentBuilder> slots;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder creates = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    DocumentBuilderPool(boolean disallowDocTypeDeclarations, int maxIdle) throws ParserConfigurationException {
+        factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", disallowDocTypeDeclarations);
+        slots = new AtomicReferenceArray<>(maxIdle);
+    }
+
+    /**
+     * @return an idle DocumentBuilder, or a new one if the pool is empty
+     * @throws ParserConfigurationException
+     */
+    DocumentBuilder take() throws ParserConfigurationException {
+        int length = slots.length();
+        int start = startIndex();
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            DocumentBuilder db = slots.get(index);
+            if (db != null && slots.compareAndSet(index, db, null)) {
+                hits.increment();
+                return db;
+            }
+        }
+        misses.increment();
+        return create();
+    }
+
+    /**
+     * Resets the given DocumentBuilder and puts it back into the pool, unless the pool is full.
+     *
+     * @param db a DocumentBuilder taken from this pool
+     */
+    void release(DocumentBuilder db) {
+        db.reset();
+        if (!offer(db)) {
+            discards.increment();
+        }
+    }
+
+    /**
+     * Fills the pool with new DocumentBuilders.
+     *
+     * @param count the number of DocumentBuilders to create, at most the maximum idle size
+     * @throws ParserConfigurationException
+     */
+    void warmUp(int count) throws ParserConfigurationException {
+        for (int i = 0; i < Math.min(count, slots.length()); i++) {
+            if (!offer(create())) {
+                discards.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of DocumentBuilders taken from the pool
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of DocumentBuilders requested while the pool was empty
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of DocumentBuilders created, including the ones of the warm-up
+     */
+    public long getCreates() {
+        return creates.sum();
+    }
+
+    /**
+     * @return the number of DocumentBuilders which were dropped, because the pool was full
+     */
+    public long getDiscards() {
+        return discards.sum();
+    }
+
+    /**
+     * @return the number of idle DocumentBuilders in the pool
+     */
+    public int getIdle() {
+        int idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * @return the maximum number of idle DocumentBuilders in the pool
+     */
+    public int getMaxIdle() {
+        return slots.length();
+    }
+
+    private boolean offer(DocumentBuilder db) {
+        int length = slots.length();
+        int start = startIndex();
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, db)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DocumentBuilder create() throws ParserConfigurationException {
+        DocumentBuilder db;
+        // DocumentBuilderFactory isn't thread-safe
+        synchronized (factory) {
+            db = factory.newDocumentBuilder();
+        }
+        creates.increment();
+        return db;
+    }
+
+    private int startIndex() {
+        return slots.length() == 0 ? 0 : (int) (Thread.currentThread().getId() % slots.length());
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.parser;
+
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.utils.ClassLoaderUtils;
+import org.apache.xml.security.utils.JavaUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * An XMLParser which builds the DOM from the events of a Woodstox XMLStreamReader. It can be
+ * selected with the system property <code>org.apache.xml.security.XMLParser</code>.
+ * <p>
+ * The parser provides the same guarantees as the secure processing mode of XMLParserImpl: a
+ * DocType declaration is rejected if requested, external DTDs and entities are never resolved,
+ * and the number of entity expansions and attributes per element is limited. A DocType is not
+ * represented as a node in the resulting Document, the entities and default attributes it
+ * declares are expanded though, and its ID attributes are registered.
+ */
+public class WoodstoxXMLParserImpl implements XMLParser {
+
+    private static final String WOODSTOX_INPUT_FACTORY = "com.ctc.wstx.stax.WstxInputFactory";
+
+    // the limits of the JDK parser in secure processing mode
+    private static final int MAX_ENTITY_COUNT = 64000;
+    private static final int MAX_ATTRIBUTES_PER_ELEMENT = 10000;
+    private static final int MAX_ELEMENT_DEPTH = Integer.MAX_VALUE;
+
+    private static final XMLResolver REJECTING_RESOLVER = (publicID, systemID, baseURI, namespace) -> {
+        throw new XMLStreamException("Resolving external resources is not allowed: " + systemID);
+    };
+
+    private final XMLInputFactory inputFactory;
+    private final XMLInputFactory inputFactoryDisallowDocType;
+    private final DOMImplementation domImplementation;
+
+    /**
+     * @throws IllegalStateException if Woodstox isn't available
+     */
+    public WoodstoxXMLParserImpl() {
+        inputFactory = createInputFactory(true);
+        inputFactoryDisallowDocType = createInputFactory(false);
+        try {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            domImplementation = dbf.newDocumentBuilder().getDOMImplementation();
+        } catch (ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public Document parse(InputStream inputStream, boolean disallowDocTypeDeclarations) throws XMLParserException {
+        XMLInputFactory factory = disallowDocTypeDeclarations ? inputFactoryDisallowDocType : inputFactory;
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                return buildDocument(reader, disallowDocTypeDeclarations);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new XMLParserException(ex, "empty", new Object[] {"Error parsing the inputstream"});
+        }
+    }
+
+    private Document buildDocument(XMLStreamReader reader, boolean disallowDocTypeDeclarations)
+        throws XMLStreamException {
+        Document doc = domImplementation.createDocument(null, null, null);
+        // the names were checked by the parser already
+        doc.setStrictErrorChecking(false);
+        Node current = doc;
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                // whitespace outside of the document element isn't part of the DOM
+                if (current != doc) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                continue;
+            }
+            if (text.length() > 0) {
+                current.appendChild(doc.createTextNode(text.toString()));
+                text.setLength(0);
+            }
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                Element element = createElement(doc, reader);
+                current.appendChild(element);
+                current = element;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                current = current.getParentNode();
+                break;
+            case XMLStreamConstants.CDATA:
+                current.appendChild(doc.createCDATASection(reader.getText()));
+                break;
+            case XMLStreamConstants.COMMENT:
+                current.appendChild(doc.createComment(reader.getText()));
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                String data = reader.getPIData();
+                current.appendChild(doc.createProcessingInstruction(reader.getPITarget(), data == null ? "" : data));
+                break;
+            case XMLStreamConstants.DTD:
+                if (disallowDocTypeDeclarations) {
+                    throw new XMLStreamException("DOCTYPE is disallowed", reader.getLocation());
+                }
+                break;
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                throw new XMLStreamException("Unresolved entity reference " + reader.getLocalName(),
+                                             reader.getLocation());
+            default:
+                break;
+            }
+        }
+        doc.setStrictErrorChecking(true);
+        return doc;
+    }
+
+    private static Element createElement(Document doc, XMLStreamReader reader) {
+        Element element = doc.createElementNS(emptyToNull(reader.getNamespaceURI()),
+                                              qualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            String uri = reader.getNamespaceURI(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                                   prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                                   uri == null ? "" : uri);
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            Attr attr = doc.createAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+            attr.setValue(reader.getAttributeValue(i));
+            element.setAttributeNodeNS(attr);
+            if ("ID".equals(reader.getAttributeType(i))) {
+                element.setIdAttributeNode(attr, true);
+            }
+        }
+        return element;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String namespaceURI) {
+        return namespaceURI == null || namespaceURI.isEmpty() ? null : namespaceURI;
+    }
+
+    private static XMLInputFactory createInputFactory(boolean supportDTD) {
+        XMLInputFactory factory;
+        try {
+            factory = (XMLInputFactory) JavaUtils.newInstanceWithEmptyConstructor(
+                ClassLoaderUtils.loadClass(WOODSTOX_INPUT_FACTORY, WoodstoxXMLParserImpl.class));
+        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException ex) {
+            throw new IllegalStateException("Woodstox is not available", ex);
+        }
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, supportDTD);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.RESOLVER, REJECTING_RESOLVER);
+        factory.setProperty("com.ctc.wstx.dtdResolver", REJECTING_RESOLVER);
+        factory.setProperty("com.ctc.wstx.entityResolver", REJECTING_RESOLVER);
+        // report errors as XMLStreamException from next(), not as RuntimeException from getText()
+        factory.setProperty("com.ctc.wstx.lazyParsing", false);
+        factory.setProperty("com.ctc.wstx.maxEntityCount", MAX_ENTITY_COUNT);
+        factory.setProperty("com.ctc.wstx.maxAttributesPerElement", MAX_ATTRIBUTES_PER_ELEMENT);
+        factory.setProperty("com.ctc.wstx.maxElementDepth", MAX_ELEMENT_DEPTH);
+        return factory;
+    }
+}
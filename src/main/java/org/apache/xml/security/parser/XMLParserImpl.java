@@ -20,13 +20,12 @@ package org.apache.xml.security.parser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Collections;
 import java.util.Map;
-import java.util.Queue;
 import java.util.WeakHashMap;
-import java.util.concurrent.ArrayBlockingQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -37,7 +36,13 @@ import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 /**
- * A default implementation of XMLParser that uses two pools of DocumentBuilders.
+ * A default implementation of XMLParser that uses two pools of DocumentBuilders per ClassLoader,
+ * one of them for DocumentBuilders which disallow DocType declarations.
+ * <p>
+ * The maximum number of idle DocumentBuilders of a pool is set by the system property
+ * <code>org.apache.xml.security.parser.pool-size</code> (default 20). The system property
+ * <code>org.apache.xml.security.parser.pool-warmup</code> sets the number of DocumentBuilders
+ * which {@link #warmUp()} creates in advance (default 0).
  */
 public class XMLParserImpl implements XMLParser {
 
@@ -45,53 +50,90 @@ public class XMLParserImpl implements XMLParser {
             AccessController.doPrivileged(
                     (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.parser.pool-size", 20));
 
-    private static final Map<ClassLoader, Queue<DocumentBuilder>> DOCUMENT_BUILDERS =
-            Collections.synchronizedMap(new WeakHashMap<>());
+    private static int parserPoolWarmUp =
+            AccessController.doPrivileged(
+                    (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.parser.pool-warmup", 0));
 
-    private static final Map<ClassLoader, Queue<DocumentBuilder>> DOCUMENT_BUILDERS_DISALLOW_DOCTYPE =
+    private static final Map<ClassLoader, LoaderPools> DOCUMENT_BUILDER_POOLS =
             Collections.synchronizedMap(new WeakHashMap<>());
 
+    /**
+     * The pools of the ClassLoader used last. Usually all threads use the same ClassLoader, so
+     * they don't need to synchronize on DOCUMENT_BUILDER_POOLS.
+     */
+    private static volatile LoaderPools lastPools;
+
     @Override
     public Document parse(InputStream inputStream, boolean disallowDocTypeDeclarations) throws XMLParserException {
         try {
-            ClassLoader loader = getContextClassLoader();
-            if (loader == null) {
-                loader = getClassLoader(XMLUtils.class);
-            }
+            ClassLoader loader = getLoader();
             // If the ClassLoader is null then just create a DocumentBuilder and use it
             if (loader == null) {
                 DocumentBuilder documentBuilder = createDocumentBuilder(disallowDocTypeDeclarations);
                 return documentBuilder.parse(inputStream);
             }
 
-            Queue<DocumentBuilder> queue = getDocumentBuilderQueue(disallowDocTypeDeclarations, loader);
-            DocumentBuilder documentBuilder = getDocumentBuilder(disallowDocTypeDeclarations, queue);
+            DocumentBuilderPool pool = getDocumentBuilderPool(loader, disallowDocTypeDeclarations);
+            DocumentBuilder documentBuilder = pool.take();
             Document doc = documentBuilder.parse(inputStream);
-            repoolDocumentBuilder(documentBuilder, queue);
+            pool.release(documentBuilder);
             return doc;
         } catch (ParserConfigurationException | SAXException | IOException ex) {
             throw new XMLParserException(ex, "empty", new Object[] {"Error parsing the inputstream"});
         }
     }
 
-    private static Queue<DocumentBuilder> getDocumentBuilderQueue(boolean disallowDocTypeDeclarations, ClassLoader loader) throws ParserConfigurationException {
-        Map<ClassLoader, Queue<DocumentBuilder>> docBuilderCache =
-                disallowDocTypeDeclarations ? DOCUMENT_BUILDERS_DISALLOW_DOCTYPE : DOCUMENT_BUILDERS;
-        Queue<DocumentBuilder> queue = docBuilderCache.get(loader);
-        if (queue == null) {
-            queue = new ArrayBlockingQueue<>(parserPoolSize);
-            docBuilderCache.put(loader, queue);
+    /**
+     * Returns the pool of DocumentBuilders of the given ClassLoader, e.g. to read its counters.
+     * The pool is created if it doesn't exist yet.
+     *
+     * @param loader the ClassLoader
+     * @param disallowDocTypeDeclarations whether the DocumentBuilders disallow DocType declarations
+     * @return the pool
+     * @throws ParserConfigurationException if the DocumentBuilderFactory can't be configured
+     */
+    public static DocumentBuilderPool getDocumentBuilderPool(ClassLoader loader, boolean disallowDocTypeDeclarations)
+        throws ParserConfigurationException {
+        LoaderPools pools = lastPools;
+        if (pools == null || pools.loader.get() != loader) {
+            synchronized (DOCUMENT_BUILDER_POOLS) {
+                pools = DOCUMENT_BUILDER_POOLS.get(loader);
+                if (pools == null) {
+                    pools = new LoaderPools(loader);
+                    DOCUMENT_BUILDER_POOLS.put(loader, pools);
+                }
+            }
+            lastPools = pools;
         }
+        return pools.getPool(disallowDocTypeDeclarations);
+    }
 
-        return queue;
+    /**
+     * Fills the pools of the current ClassLoader with the number of DocumentBuilders given by
+     * the system property <code>org.apache.xml.security.parser.pool-warmup</code>. This is
+     * called by {@link org.apache.xml.security.Init#init()}.
+     *
+     * @throws XMLParserException if the DocumentBuilderFactory can't be configured
+     */
+    public static void warmUp() throws XMLParserException {
+        ClassLoader loader = getLoader();
+        if (parserPoolWarmUp <= 0 || loader == null) {
+            return;
+        }
+        try {
+            getDocumentBuilderPool(loader, true).warmUp(parserPoolWarmUp);
+            getDocumentBuilderPool(loader, false).warmUp(parserPoolWarmUp);
+        } catch (ParserConfigurationException ex) {
+            throw new XMLParserException(ex, "empty", new Object[] {"Error creating a DocumentBuilder"});
+        }
     }
 
-    private static DocumentBuilder getDocumentBuilder(boolean disallowDocTypeDeclarations, Queue<DocumentBuilder> queue) throws ParserConfigurationException {
-        DocumentBuilder db = queue.poll();
-        if (db == null) {
-            db = createDocumentBuilder(disallowDocTypeDeclarations);
+    private static ClassLoader getLoader() {
+        ClassLoader loader = getContextClassLoader();
+        if (loader == null) {
+            loader = getClassLoader(XMLUtils.class);
         }
-        return db;
+        return loader;
     }
 
     private static DocumentBuilder createDocumentBuilder(boolean disallowDocTypeDeclarations) throws ParserConfigurationException {
@@ -102,13 +144,6 @@ public class XMLParserImpl implements XMLParser {
         return f.newDocumentBuilder();
     }
 
-    private static void repoolDocumentBuilder(DocumentBuilder db, Queue<DocumentBuilder> queue) {
-        if (queue != null) {
-            db.reset();
-            queue.offer(db);
-        }
-    }
-
     private static ClassLoader getContextClassLoader() {
         final SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
@@ -134,4 +169,37 @@ public class XMLParserImpl implements XMLParser {
         }
         return clazz.getClassLoader();
     }
-}
\ No newline at end of file
+
+    /**
+     * The pools of a ClassLoader. The pools are created on first use, as the DocumentBuilderFactory
+     * is looked up with the context ClassLoader at that time.
+     */
+    private static final class LoaderPools {
+
+        private final WeakReference<ClassLoader> loader;
+        private volatile DocumentBuilderPool pool;
+        private volatile DocumentBuilderPool poolDisallowDocType;
+
+        LoaderPools(ClassLoader loader) {
+            this.loader = new WeakReference<>(loader);
+        }
+
+        DocumentBuilderPool getPool(boolean disallowDocTypeDeclarations) throws ParserConfigurationException {
+            DocumentBuilderPool result = disallowDocTypeDeclarations ? poolDisallowDocType : pool;
+            if (result == null) {
+                synchronized (this) {
+                    result = disallowDocTypeDeclarations ? poolDisallowDocType : pool;
+                    if (result == null) {
+                        result = new DocumentBuilderPool(disallowDocTypeDeclarations, parserPoolSize);
+                        if (disallowDocTypeDeclarations) {
+                            poolDisallowDocType = result;
+                        } else {
+                            pool = result;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
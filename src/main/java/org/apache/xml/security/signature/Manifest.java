@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.xml.security.c14n.CanonicalizationException;
 import org.apache.xml.security.c14n.InvalidCanonicalizerException;
@@ -37,6 +38,7 @@ import org.apache.xml.security.parser.XMLParserException;
 import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.I18n;
+import org.apache.xml.security.utils.OrderedTaskRunner;
 import org.apache.xml.security.utils.SignatureElementProxy;
 import org.apache.xml.security.utils.XMLUtils;
 import org.apache.xml.security.utils.resolver.ResourceResolverSpi;
@@ -79,6 +81,14 @@ public class Manifest extends SignatureElementProxy {
 
     private boolean secureValidation = true;
 
+    private Executor verificationExecutor;
+
+    private int verificationParallelism;
+
+    private Executor digestExecutor;
+
+    private int digestParallelism;
+
     /**
      * Constructs {@link Manifest}
      *
@@ -204,10 +214,67 @@ public class Manifest extends SignatureElementProxy {
      */
     public void generateDigestValues()
         throws XMLSignatureException, ReferenceNotInitializedException {
+        OrderedTaskRunner<byte[]> digests = null;
+        if ((digestExecutor != null || digestParallelism > 1) && this.getLength() > 1) {
+            digests = calculateDigestValuesInParallel();
+        }
         for (int i = 0; i < this.getLength(); i++) {
             // update the cached Reference object, the Element content is automatically updated
             Reference currentRef = this.references.get(i);
-            currentRef.generateDigestValue();
+            byte[] digestValue = digests == null ? null : getDigestValue(digests, i);
+            if (digestValue == null) {
+                currentRef.generateDigestValue();
+            } else {
+                currentRef.setDigestValue(digestValue);
+            }
+        }
+    }
+
+    /**
+     * Calculates the digests of the References which don't depend on the DigestValues of the
+     * other References concurrently. The digests are stored in the DigestValue elements in
+     * document order by the calling thread afterwards, so the document is only read meanwhile.
+     * The remaining References are digested when their turn comes, as before.
+     */
+    private OrderedTaskRunner<byte[]> calculateDigestValuesInParallel() throws XMLSignatureException {
+        List<OrderedTaskRunner.Task<byte[]>> tasks = new ArrayList<>(references.size());
+        boolean xpath = false;
+        try {
+            for (Reference reference : references) {
+                if (reference.isIndependentOf(getElement())) {
+                    tasks.add(reference::calculateDigestValue);
+                    xpath |= hasTransform(reference, Transforms.TRANSFORM_XPATH);
+                } else {
+                    tasks.add(() -> null);
+                }
+            }
+        } catch (XMLSecurityException ex) {
+            throw new XMLSignatureException(ex);
+        }
+        Document doc = getDocument();
+        if (xpath) {
+            XMLUtils.circumventBug2650(doc);
+        }
+        XMLUtils.prepareForConcurrentReads(doc);
+
+        int parallelism = digestParallelism > 0 ? digestParallelism : Runtime.getRuntime().availableProcessors();
+        LOG.log(Level.DEBUG, "Digesting {0} References with a parallelism of {1}", tasks.size(), parallelism);
+        try {
+            return OrderedTaskRunner.run(tasks, digest -> false, digestExecutor, parallelism);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XMLSignatureException(ex);
+        }
+    }
+
+    private static byte[] getDigestValue(OrderedTaskRunner<byte[]> digests, int index)
+        throws XMLSignatureException, ReferenceNotInitializedException {
+        try {
+            return digests.get(index);
+        } catch (XMLSignatureException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new XMLSignatureException(ex);
         }
     }
 
@@ -324,17 +391,29 @@ public class Manifest extends SignatureElementProxy {
             throw new XMLSecurityException("signature.tooManyReferences", exArgs);
         }
 
+        OrderedTaskRunner<Boolean> parallelVerification = null;
+        if (isParallelVerification()) {
+            for (int i = 0; i < this.referencesEl.length; i++) {
+                this.references.set(i, new Reference(referencesEl[i], this.baseURI, this, secureValidation));
+            }
+            parallelVerification = verifyReferencesInParallel();
+        }
+
         this.verificationResults = new ArrayList<>(referencesEl.length);
         boolean verify = true;
         for (int i = 0; i < this.referencesEl.length; i++) {
-            Reference currentRef =
-                new Reference(referencesEl[i], this.baseURI, this, secureValidation);
-
-            this.references.set(i, currentRef);
+            Reference currentRef;
+            if (parallelVerification == null) {
+                currentRef = new Reference(referencesEl[i], this.baseURI, this, secureValidation);
+                this.references.set(i, currentRef);
+            } else {
+                currentRef = this.references.get(i);
+            }
 
             // if only one item does not verify, the whole verification fails
             try {
-                boolean currentRefVerified = currentRef.verify();
+                boolean currentRefVerified =
+                    parallelVerification == null ? currentRef.verify() : getResult(parallelVerification, i);
 
                 if (!currentRefVerified) {
                     verify = false;
@@ -350,7 +429,7 @@ public class Manifest extends SignatureElementProxy {
                     try {
                         XMLSignatureInput signedManifestNodes =
                             currentRef.dereferenceURIandPerformTransforms(null);
-                        Set<Node> nl = signedManifestNodes.getNodeSet();
+                        Set<Node> nl = signedManifestNodes.getNodeSetView();
                         Manifest referencedManifest = null;
 
                         for (Node n : nl) {
@@ -380,6 +459,8 @@ public class Manifest extends SignatureElementProxy {
 
                         referencedManifest.perManifestResolvers = this.perManifestResolvers;
                         referencedManifest.resolverProperties = this.resolverProperties;
+                        referencedManifest.verificationExecutor = this.verificationExecutor;
+                        referencedManifest.verificationParallelism = this.verificationParallelism;
 
                         boolean referencedManifestValid =
                             referencedManifest.verifyReferences(followManifests);
@@ -412,6 +493,156 @@ public class Manifest extends SignatureElementProxy {
         return verify;
     }
 
+    private boolean isParallelVerification() {
+        return (verificationExecutor != null || verificationParallelism > 1) && referencesEl.length > 1;
+    }
+
+    /**
+     * Verifies the References concurrently. The document is only read while the References are
+     * verified: its lazily built parts are built upfront and the namespace nodes which the
+     * XPath transform adds to the document (see {@link XMLUtils#circumventBug2650(Document)})
+     * are added before the References are verified.
+     */
+    private OrderedTaskRunner<Boolean> verifyReferencesInParallel() throws XMLSecurityException {
+        Document doc = getDocument();
+        if (anyReferenceHasTransform(Transforms.TRANSFORM_XPATH)) {
+            XMLUtils.circumventBug2650(doc);
+        }
+        XMLUtils.prepareForConcurrentReads(doc);
+
+        List<OrderedTaskRunner.Task<Boolean>> tasks = new ArrayList<>(references.size());
+        for (Reference reference : references) {
+            tasks.add(reference::verify);
+        }
+        int parallelism = verificationParallelism > 0
+            ? verificationParallelism : Runtime.getRuntime().availableProcessors();
+        LOG.log(Level.DEBUG, "Verifying {0} References with a parallelism of {1}", tasks.size(), parallelism);
+        try {
+            // an invalid Reference doesn't stop the verification, all results are reported
+            return OrderedTaskRunner.run(tasks, valid -> false, verificationExecutor, parallelism);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XMLSecurityException(ex);
+        }
+    }
+
+    private boolean anyReferenceHasTransform(String transformURI) throws XMLSecurityException {
+        for (Reference reference : references) {
+            if (hasTransform(reference, transformURI)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasTransform(Reference reference, String transformURI) throws XMLSecurityException {
+        Transforms transforms = reference.getTransforms();
+        if (transforms != null) {
+            for (int i = 0; i < transforms.getLength(); i++) {
+                if (transformURI.equals(transforms.item(i).getURI())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean getResult(OrderedTaskRunner<Boolean> parallelVerification, int index)
+        throws XMLSecurityException {
+        try {
+            return parallelVerification.get(index);
+        } catch (XMLSecurityException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new XMLSecurityException(ex);
+        }
+    }
+
+    /**
+     * Sets the Executor which verifies the References of this Manifest concurrently. The
+     * References are verified by the calling thread and by up to
+     * {@link #setVerificationParallelism(int) parallelism - 1} tasks which are submitted to the
+     * Executor. Nested Manifests use the same Executor.
+     * <p>
+     * The document must not be modified while the References are verified. ResourceResolvers
+     * and Transforms which are registered by the application must be thread-safe.
+     *
+     * @param verificationExecutor the Executor or null to use the common ForkJoinPool if
+     * a parallelism greater than 1 is set and to verify the References sequentially otherwise
+     */
+    public void setVerificationExecutor(Executor verificationExecutor) {
+        this.verificationExecutor = verificationExecutor;
+    }
+
+    /**
+     * @return the Executor which verifies the References concurrently or null
+     */
+    public Executor getVerificationExecutor() {
+        return verificationExecutor;
+    }
+
+    /**
+     * Sets the maximum number of References which are verified at the same time, including the
+     * calling thread. A value greater than 1 enables the concurrent verification, using the common
+     * ForkJoinPool unless an Executor is set.
+     *
+     * @param verificationParallelism the parallelism or 0 to use the number of available processors
+     * if an Executor is set
+     */
+    public void setVerificationParallelism(int verificationParallelism) {
+        this.verificationParallelism = verificationParallelism;
+    }
+
+    /**
+     * @return the maximum number of References which are verified at the same time
+     */
+    public int getVerificationParallelism() {
+        return verificationParallelism;
+    }
+
+    /**
+     * Sets the Executor which calculates the digests of the References of this Manifest
+     * concurrently in {@link #generateDigestValues()}. The digests are calculated by the calling
+     * thread and by up to {@link #setDigestParallelism(int) parallelism - 1} tasks which are
+     * submitted to the Executor. Only References whose content doesn't contain the DigestValue
+     * of another Reference of this Manifest are digested concurrently.
+     * <p>
+     * The document must not be modified while the digests are calculated. ResourceResolvers
+     * and Transforms which are registered by the application must be thread-safe.
+     *
+     * @param digestExecutor the Executor or null to use the common ForkJoinPool if a parallelism
+     * greater than 1 is set and to calculate the digests sequentially otherwise
+     */
+    public void setDigestExecutor(Executor digestExecutor) {
+        this.digestExecutor = digestExecutor;
+    }
+
+    /**
+     * @return the Executor which calculates the digests concurrently or null
+     */
+    public Executor getDigestExecutor() {
+        return digestExecutor;
+    }
+
+    /**
+     * Sets the maximum number of digests which are calculated at the same time, including the
+     * calling thread. A value greater than 1 enables the concurrent calculation, using the common
+     * ForkJoinPool unless an Executor is set.
+     *
+     * @param digestParallelism the parallelism or 0 to use the number of available processors
+     * if an Executor is set
+     */
+    public void setDigestParallelism(int digestParallelism) {
+        this.digestParallelism = digestParallelism;
+    }
+
+    /**
+     * @return the maximum number of digests which are calculated at the same time
+     */
+    public int getDigestParallelism() {
+        return digestParallelism;
+    }
+
     /**
      * After verifying a {@link Manifest} or a {@link SignedInfo} using the
      * {@link Manifest#verifyReferences()} or {@link SignedInfo#verify()} methods,
@@ -421,6 +421,60 @@ public class Reference extends SignatureElementProxy {
         this.setDigestValueElement(this.calculateDigest(false));
     }
 
+    /**
+     * Calculates the digest value for signing without storing it in the DigestValue element.
+     *
+     * @return the digest value
+     * @throws ReferenceNotInitializedException
+     * @throws XMLSignatureException
+     * @see #isIndependentOf(Element)
+     */
+    byte[] calculateDigestValue()
+        throws XMLSignatureException, ReferenceNotInitializedException {
+        return this.calculateDigest(false);
+    }
+
+    /**
+     * Stores a digest value calculated by {@link #calculateDigestValue()} in the DigestValue element.
+     *
+     * @param digestValue the digest value
+     */
+    void setDigestValue(byte[] digestValue) {
+        this.setDigestValueElement(digestValue);
+    }
+
+    /**
+     * Returns whether the digest of this Reference can be calculated at the same time as the
+     * digests of the other References of the given Manifest element: the calculation doesn't
+     * modify the document and the referenced content doesn't contain a DigestValue of the Manifest.
+     *
+     * @param manifestElement the Manifest or SignedInfo element which holds the References
+     * @return whether the digest doesn't depend on the digests of the other References
+     */
+    boolean isIndependentOf(Element manifestElement) {
+        String uri = this.getURI();
+        if (useC14N11 || uri == null || uri.isEmpty()) {
+            return false;
+        }
+        if (uri.charAt(0) != '#') {
+            // the content isn't part of this document
+            return true;
+        }
+        String id = uri.substring(1);
+        if (id.startsWith("xpointer(")) {
+            int i1 = id.indexOf('\'');
+            int i2 = id.indexOf('\'', i1 + 1);
+            if (!id.startsWith("xpointer(id(") || i1 < 0 || i2 < 0) {
+                return false;
+            }
+            id = id.substring(i1 + 1, i2);
+        }
+        Element target = getDocument().getElementById(id);
+        return target != null
+            && !XMLUtils.isDescendantOrSelf(target, manifestElement)
+            && !XMLUtils.isDescendantOrSelf(manifestElement, target);
+    }
+
     /**
      * Returns the XMLSignatureInput which is created by de-referencing the URI attribute.
      * @return the XMLSignatureInput of the source of this reference
@@ -735,6 +789,7 @@ public class Reference extends SignatureElementProxy {
         } catch (XMLSecurityException | IOException ex) {
             throw new ReferenceNotInitializedException(ex);
         } finally {
+            mda.release();
             if (output instanceof Closeable) {
                 close((Closeable) output);
             }
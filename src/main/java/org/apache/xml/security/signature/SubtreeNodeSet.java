@@ -0,0 +1,309 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.xml.security.transforms.TransformationException;
+import org.apache.xml.security.utils.XMLUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * An unmodifiable view of the nodes of a subtree as XPath node-set, which is evaluated on
+ * demand instead of being copied into a Set. It contains the same nodes in the same order as
+ * {@link XMLUtils#getSet(Node, java.util.Set, Node, boolean)} would add them, minus the nodes
+ * rejected by the node filters.
+ * <p>
+ * {@link #contains(Object)} remembers for every element it has seen whether its children are
+ * part of the subtree, so a lookup costs a hash lookup of the parent once the ancestors are
+ * known. {@link #size()} iterates the whole subtree. The DOM must not be modified while the view
+ * is used, and the view is not thread-safe. A TransformationException of a node filter is thrown
+ * as IllegalStateException.
+ */
+public final class SubtreeNodeSet extends AbstractSet<Node> {
+
+    private final Node root;
+    private final Node exclude;
+    private final boolean comments;
+    private final List<NodeFilter> nodeFilters;
+    private final boolean excludedEntirely;
+    /** Whether the children of an element are within the subtree, by element */
+    private final Map<Node, Boolean> containsChildren = new HashMap<>();
+
+    /**
+     * @param root the root of the subtree
+     * @param exclude a node whose subtree isn't part of the node-set, or null
+     * @param comments whether comments are part of the node-set
+     * @param nodeFilters the filters a node must pass, or null
+     */
+    public SubtreeNodeSet(Node root, Node exclude, boolean comments, List<NodeFilter> nodeFilters) {
+        this.root = root;
+        this.exclude = exclude;
+        this.comments = comments;
+        this.nodeFilters = nodeFilters == null ? Collections.emptyList() : nodeFilters;
+        this.excludedEntirely = exclude != null && XMLUtils.isDescendantOrSelf(exclude, root);
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+        return new NodeIterator();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Iterator<Node> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !iterator().hasNext();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Node)) {
+            return false;
+        }
+        Node node = (Node) o;
+        if (node.getNodeType() == Node.ATTRIBUTE_NODE) {
+            Element owner = ((Attr) node).getOwnerElement();
+            if (owner == null || !isInSubtree(owner)) {
+                return false;
+            }
+        } else if (!isInSubtree(node)) {
+            return false;
+        }
+        return isAccepted(node);
+    }
+
+    /**
+     * @return whether the given node, which isn't an attribute, is part of the node-set before
+     *    the node filters are applied
+     */
+    private boolean isInSubtree(Node node) {
+        if (excludedEntirely) {
+            return false;
+        }
+        if (node == root) {
+            return getRootStep() == Step.INCLUDE_AND_DESCEND || getRootStep() == Step.INCLUDE;
+        }
+        if (getChildStep(node) == Step.SKIP) {
+            return false;
+        }
+        return containsChildren(node.getParentNode());
+    }
+
+    /**
+     * @return whether the children of the given node are within the subtree
+     */
+    private boolean containsChildren(Node node) {
+        // walk up to the root of the subtree or to an ancestor which is known already
+        List<Node> unknown = null;
+        Node n = node;
+        Boolean result = null;
+        while (result == null) {
+            if (n == root) {
+                result = getRootStep() == Step.INCLUDE_AND_DESCEND || getRootStep() == Step.DESCEND;
+            } else if (n == null || n.getNodeType() != Node.ELEMENT_NODE || n == exclude) {
+                result = Boolean.FALSE;
+            } else {
+                result = containsChildren.get(n);
+                if (result == null) {
+                    if (unknown == null) {
+                        unknown = new ArrayList<>();
+                    }
+                    unknown.add(n);
+                    n = n.getParentNode();
+                }
+            }
+        }
+        if (unknown != null) {
+            for (Node element : unknown) {
+                containsChildren.put(element, result);
+            }
+        }
+        return result;
+    }
+
+    private boolean isAccepted(Node node) {
+        try {
+            for (NodeFilter filter : nodeFilters) {
+                if (filter.isNodeInclude(node) != 1) {
+                    return false;
+                }
+            }
+        } catch (TransformationException ex) {
+            throw new IllegalStateException("Error evaluating a node filter", ex);
+        }
+        return true;
+    }
+
+    private Step getRootStep() {
+        switch (root.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            return Step.INCLUDE_AND_DESCEND;
+        case Node.DOCUMENT_NODE:
+            return Step.DESCEND;
+        case Node.COMMENT_NODE:
+            return comments ? Step.INCLUDE : Step.SKIP;
+        case Node.DOCUMENT_TYPE_NODE:
+            return Step.SKIP;
+        default:
+            return Step.INCLUDE;
+        }
+    }
+
+    private Step getChildStep(Node node) {
+        switch (node.getNodeType()) {
+        case Node.TEXT_NODE:
+            // only the first of adjacent text nodes is part of the node-set
+            Node previous = node.getPreviousSibling();
+            return previous != null && previous.getNodeType() == Node.TEXT_NODE ? Step.SKIP : Step.INCLUDE;
+        case Node.ELEMENT_NODE:
+            return node == exclude ? Step.SKIP : Step.INCLUDE_AND_DESCEND;
+        case Node.COMMENT_NODE:
+            return comments && node != exclude ? Step.INCLUDE : Step.SKIP;
+        case Node.DOCUMENT_TYPE_NODE:
+            return Step.SKIP;
+        default:
+            return node == exclude ? Step.SKIP : Step.INCLUDE;
+        }
+    }
+
+    private enum Step {
+        INCLUDE, INCLUDE_AND_DESCEND, DESCEND, SKIP
+    }
+
+    /**
+     * Walks the subtree in document order, the attributes of an element follow the element.
+     */
+    private final class NodeIterator implements Iterator<Node> {
+
+        private Node current;
+        private boolean started;
+        private NamedNodeMap attributes;
+        private int attributeIndex;
+        private Node next;
+
+        NodeIterator() {
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Node next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node result = next;
+            next = advance();
+            return result;
+        }
+
+        private Node advance() {
+            Node node = step();
+            while (node != null && !isAccepted(node)) {
+                node = step();
+            }
+            return node;
+        }
+
+        private Node step() {
+            if (attributes != null) {
+                if (attributeIndex < attributes.getLength()) {
+                    return attributes.item(attributeIndex++);
+                }
+                attributes = null;
+            }
+            Step step;
+            if (!started) {
+                started = true;
+                if (excludedEntirely) {
+                    return null;
+                }
+                current = root;
+                step = getRootStep();
+            } else {
+                current = nextInTree(current);
+                step = current == null ? Step.SKIP : getChildStep(current);
+            }
+            while (current != null) {
+                if (step == Step.INCLUDE_AND_DESCEND) {
+                    if (current.hasAttributes()) {
+                        attributes = current.getAttributes();
+                        attributeIndex = 0;
+                    }
+                    return current;
+                } else if (step == Step.INCLUDE) {
+                    return current;
+                } else if (step == Step.DESCEND && current.getFirstChild() != null) {
+                    current = current.getFirstChild();
+                } else {
+                    current = nextSibling(current);
+                }
+                step = current == null ? Step.SKIP : getChildStep(current);
+            }
+            return null;
+        }
+
+        /**
+         * @return the node following the given one, which was included, in document order
+         */
+        private Node nextInTree(Node node) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && node.getFirstChild() != null) {
+                return node.getFirstChild();
+            }
+            return nextSibling(node);
+        }
+
+        /**
+         * @return the next sibling of the given node or of its closest ancestor within the
+         *    subtree, skipping the descendants of the given node
+         */
+        private Node nextSibling(Node node) {
+            Node n = node;
+            while (n != root) {
+                Node sibling = n.getNextSibling();
+                if (sibling != null) {
+                    return sibling;
+                }
+                n = n.getParentNode();
+            }
+            return null;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.security.Provider;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.Executor;
 
 import javax.crypto.SecretKey;
 
@@ -1023,6 +1024,50 @@ public final class XMLSignature extends SignatureElementProxy {
         this.followManifestsDuringValidation = followManifests;
     }
 
+    /**
+     * Sets the Executor which verifies the References of the SignedInfo (and of the nested
+     * Manifests, if they are followed) concurrently.
+     *
+     * @param verificationExecutor the Executor or null
+     * @see Manifest#setVerificationExecutor(Executor)
+     */
+    public void setReferenceVerificationExecutor(Executor verificationExecutor) {
+        this.signedInfo.setVerificationExecutor(verificationExecutor);
+    }
+
+    /**
+     * Sets the maximum number of References which are verified at the same time. A value greater
+     * than 1 enables the concurrent verification of the References.
+     *
+     * @param verificationParallelism the parallelism
+     * @see Manifest#setVerificationParallelism(int)
+     */
+    public void setReferenceVerificationParallelism(int verificationParallelism) {
+        this.signedInfo.setVerificationParallelism(verificationParallelism);
+    }
+
+    /**
+     * Sets the Executor which calculates the digests of the References of the SignedInfo
+     * concurrently when the signature is created.
+     *
+     * @param digestExecutor the Executor or null
+     * @see Manifest#setDigestExecutor(Executor)
+     */
+    public void setReferenceDigestExecutor(Executor digestExecutor) {
+        this.signedInfo.setDigestExecutor(digestExecutor);
+    }
+
+    /**
+     * Sets the maximum number of digests which are calculated at the same time when the
+     * signature is created. A value greater than 1 enables the concurrent calculation.
+     *
+     * @param digestParallelism the parallelism
+     * @see Manifest#setDigestParallelism(int)
+     */
+    public void setReferenceDigestParallelism(int digestParallelism) {
+        this.signedInfo.setDigestParallelism(digestParallelism);
+    }
+
     /**
      * Get the local name of this element
      *
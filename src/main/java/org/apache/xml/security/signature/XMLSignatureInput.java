@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -157,7 +158,31 @@ public abstract class XMLSignatureInput {
      * @throws IOException
      */
     public Set<Node> getNodeSet() throws XMLParserException, IOException {
-        return getNodeSet(false);
+        Set<Node> nodeSet = getNodeSet(false);
+        if (nodeSet instanceof SubtreeNodeSet) {
+            Set<Node> copy = new LinkedHashSet<>(nodeSet);
+            if (nodeSet == inputNodeSet) {
+                inputNodeSet = copy;
+            }
+            return copy;
+        }
+        return nodeSet;
+    }
+
+
+    /**
+     * Returns the same nodes as {@link #getNodeSet()}, but as an unmodifiable set which may be a
+     * {@link SubtreeNodeSet}, i.e. a view of the subtree which is evaluated on demand instead of
+     * being copied. This is meant for callers which only read the node set while the document
+     * isn't modified, e.g. the canonicalizers.
+     *
+     * @return the node set
+     * @throws XMLParserException
+     * @throws IOException
+     */
+    public Set<Node> getNodeSetView() throws XMLParserException, IOException {
+        Set<Node> nodeSet = getNodeSet(false);
+        return nodeSet instanceof SubtreeNodeSet ? nodeSet : Collections.unmodifiableSet(nodeSet);
     }
 
 
@@ -181,14 +206,11 @@ public abstract class XMLSignatureInput {
             if (circumvent) {
                 XMLUtils.circumventBug2650(XMLUtils.getOwnerDocument(subNode));
             }
-            inputNodeSet = new LinkedHashSet<>();
-            XMLUtils.getSet(subNode, inputNodeSet, excludeNode, excludeComments);
+            inputNodeSet = new SubtreeNodeSet(subNode, excludeNode, excludeComments, null);
             return inputNodeSet;
         } else if (hasUnprocessedInput()) {
             this.subNode = convertToNode();
-            Set<Node> result = new LinkedHashSet<>();
-            XMLUtils.getSet(subNode, result, null, false);
-            return result;
+            return new SubtreeNodeSet(subNode, null, false, null);
         }
 
         throw new RuntimeException("getNodeSet() called but no input data present");
@@ -0,0 +1,497 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.signature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Provider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.xml.security.algorithms.JCEEnginePool;
+import org.apache.xml.security.algorithms.JCEMapper;
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.I18n;
+import org.apache.xml.security.utils.OrderedTaskRunner;
+import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
+import org.apache.xml.security.utils.XMLUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Signs and verifies many documents with the same algorithms, e.g. a stream of small messages
+ * which are all signed with the same key. Every document gets an enveloped signature with a
+ * single Reference to the whole document (<code>URI=""</code>).
+ * <p>
+ * The algorithm URIs are resolved and the Signature element is built once when the template is
+ * created, and is only copied into every document afterwards. If the SignedInfo is canonicalized
+ * with exclusive c14n, its canonical form doesn't depend on the document either: the canonical
+ * octets around the DigestValue are then calculated once as well.
+ * <p>
+ * A template is immutable and may be used by several threads at the same time, but each
+ * document must only be used by a single thread.
+ */
+public final class XMLSignatureTemplate {
+
+    private static final Logger LOG = System.getLogger(XMLSignatureTemplate.class.getName());
+
+    private final String signatureMethodURI;
+    private final String canonicalizationMethodURI;
+    private final String digestMethodURI;
+    private final List<String> transformURIs;
+    private final Provider provider;
+
+    private final JCEEnginePool<MessageDigest> digestPool;
+
+    /** The Signature element in a private document, which is only read after construction */
+    private final Element template;
+
+    /** The canonical SignedInfo before and after the DigestValue, null if it depends on the document */
+    private final byte[] signedInfoPrefix;
+    private final byte[] signedInfoSuffix;
+
+    /**
+     * Constructor XMLSignatureTemplate
+     *
+     * @param signatureMethodURI the signature algorithm
+     * @param canonicalizationMethodURI the canonicalization algorithm of the SignedInfo
+     * @param digestMethodURI the digest algorithm of the Reference
+     * @param transformURIs the transforms of the Reference, which must contain the enveloped
+     * signature transform
+     * @throws XMLSecurityException if an algorithm is unknown
+     */
+    public XMLSignatureTemplate(
+        String signatureMethodURI, String canonicalizationMethodURI, String digestMethodURI,
+        List<String> transformURIs
+    ) throws XMLSecurityException {
+        this(signatureMethodURI, canonicalizationMethodURI, digestMethodURI, transformURIs, null);
+    }
+
+    /**
+     * Constructor XMLSignatureTemplate
+     *
+     * @param signatureMethodURI the signature algorithm
+     * @param canonicalizationMethodURI the canonicalization algorithm of the SignedInfo
+     * @param digestMethodURI the digest algorithm of the Reference
+     * @param transformURIs the transforms of the Reference, which must contain the enveloped
+     * signature transform
+     * @param provider the security provider to use, or null for the default one
+     * @throws XMLSecurityException if an algorithm is unknown
+     */
+    public XMLSignatureTemplate(
+        String signatureMethodURI, String canonicalizationMethodURI, String digestMethodURI,
+        List<String> transformURIs, Provider provider
+    ) throws XMLSecurityException {
+        this.signatureMethodURI = signatureMethodURI;
+        this.canonicalizationMethodURI = canonicalizationMethodURI;
+        this.digestMethodURI = digestMethodURI;
+        this.transformURIs = Collections.unmodifiableList(new ArrayList<>(transformURIs));
+        this.provider = provider;
+
+        if (!this.transformURIs.contains(Transforms.TRANSFORM_ENVELOPED_SIGNATURE)) {
+            Object[] exArgs = { "The transforms of a signature template must contain the enveloped signature transform" };
+            throw new XMLSignatureException("empty", exArgs);
+        }
+        String signatureID = JCEMapper.translateURItoJCEID(signatureMethodURI);
+        if (signatureID == null) {
+            Object[] exArgs = { signatureMethodURI };
+            throw new XMLSignatureException("algorithms.NoSuchMap", exArgs);
+        }
+        String digestID = JCEMapper.translateURItoJCEID(digestMethodURI);
+        if (digestID == null) {
+            Object[] exArgs = { digestMethodURI };
+            throw new XMLSignatureException("algorithms.NoSuchMap", exArgs);
+        }
+        digestPool = provider == null
+            ? JCEEnginePool.getMessageDigestPool(digestID, JCEMapper.getProviderId())
+            : JCEEnginePool.getMessageDigestPool(digestID, provider);
+
+        Document doc = newDocument();
+        XMLSignature signature =
+            new XMLSignature(doc, "", signatureMethodURI, 0, canonicalizationMethodURI, provider, null);
+        doc.appendChild(signature.getElement());
+        Transforms transforms = new Transforms(doc);
+        for (String transformURI : this.transformURIs) {
+            transforms.addTransform(transformURI);
+        }
+        signature.addDocument("", transforms, digestMethodURI);
+        template = signature.getElement();
+
+        if (isExclusive(canonicalizationMethodURI)) {
+            // exclusive c14n doesn't render the context of the Signature, so only the
+            // DigestValue differs between the documents
+            byte[] placeholder = new byte[digestLength()];
+            signature.getSignedInfo().item(0).setDigestValue(placeholder);
+            byte[] signedInfo = canonicalize(signature.getSignedInfo().getElement());
+            byte[] placeholderOctets = canonicalText(XMLUtils.encodeToString(placeholder));
+            int start = indexOf(signedInfo, placeholderOctets);
+            signedInfoPrefix = copy(signedInfo, 0, start);
+            signedInfoSuffix = copy(signedInfo, start + placeholderOctets.length, signedInfo.length);
+        } else {
+            signedInfoPrefix = null;
+            signedInfoSuffix = null;
+        }
+
+        XMLUtils.prepareForConcurrentReads(doc);
+    }
+
+    /**
+     * @return the signature algorithm
+     */
+    public String getSignatureMethodURI() {
+        return signatureMethodURI;
+    }
+
+    /**
+     * @return the canonicalization algorithm of the SignedInfo
+     */
+    public String getCanonicalizationMethodURI() {
+        return canonicalizationMethodURI;
+    }
+
+    /**
+     * @return the digest algorithm of the Reference
+     */
+    public String getDigestMethodURI() {
+        return digestMethodURI;
+    }
+
+    /**
+     * @return the transforms of the Reference
+     */
+    public List<String> getTransformURIs() {
+        return transformURIs;
+    }
+
+    /**
+     * Adds an enveloped signature as last child of the document element and signs the document.
+     *
+     * @param doc the document to sign
+     * @param signingKey the signing key
+     * @return the Signature element, e.g. to add a KeyInfo afterwards
+     * @throws XMLSecurityException
+     */
+    public Element sign(Document doc, Key signingKey) throws XMLSecurityException {
+        if (signingKey instanceof PublicKey) {
+            throw new IllegalArgumentException(
+                I18n.translate("algorithms.operationOnlyVerification")
+            );
+        }
+
+        Element signature = (Element) doc.importNode(template, true);
+        doc.getDocumentElement().appendChild(signature);
+        Element signedInfo = XMLUtils.selectDsNode(signature.getFirstChild(), Constants._TAG_SIGNEDINFO, 0);
+        Element signatureMethod =
+            XMLUtils.selectDsNode(signedInfo.getFirstChild(), Constants._TAG_SIGNATUREMETHOD, 0);
+        Element reference = XMLUtils.selectDsNode(signedInfo.getFirstChild(), Constants._TAG_REFERENCE, 0);
+        Element transforms = XMLUtils.selectDsNode(reference.getFirstChild(), Constants._TAG_TRANSFORMS, 0);
+        Element digestValue = XMLUtils.selectDsNode(reference.getFirstChild(), Constants._TAG_DIGESTVALUE, 0);
+        Element signatureValue =
+            XMLUtils.selectDsNode(signedInfo.getNextSibling(), Constants._TAG_SIGNATUREVALUE, 0);
+
+        String base64codedDigest = XMLUtils.encodeToString(digest(doc, transforms));
+        digestValue.setTextContent(base64codedDigest);
+
+        byte[] canonicalSignedInfo;
+        if (signedInfoPrefix != null) {
+            byte[] digestOctets = canonicalText(base64codedDigest);
+            canonicalSignedInfo = new byte[signedInfoPrefix.length + digestOctets.length + signedInfoSuffix.length];
+            System.arraycopy(signedInfoPrefix, 0, canonicalSignedInfo, 0, signedInfoPrefix.length);
+            System.arraycopy(digestOctets, 0, canonicalSignedInfo, signedInfoPrefix.length, digestOctets.length);
+            System.arraycopy(signedInfoSuffix, 0, canonicalSignedInfo,
+                             signedInfoPrefix.length + digestOctets.length, signedInfoSuffix.length);
+        } else {
+            canonicalSignedInfo = canonicalize(signedInfo);
+        }
+
+        SignatureAlgorithm sa = new SignatureAlgorithm(signatureMethod, "", true, provider);
+        sa.initSign(signingKey);
+        sa.update(canonicalSignedInfo);
+        String base64codedValue = XMLUtils.encodeToString(sa.sign());
+        if (base64codedValue.length() > 76 && !XMLUtils.ignoreLineBreaks()) {
+            base64codedValue = "\n" + base64codedValue + "\n";
+        }
+        signatureValue.setTextContent(base64codedValue);
+        return signature;
+    }
+
+    /**
+     * Signs all documents like {@link #sign(Document, Key)}.
+     *
+     * @param docs the documents to sign
+     * @param signingKey the signing key
+     * @return the Signature elements in the order of the documents
+     * @throws XMLSecurityException the exception of the first document which couldn't be signed
+     */
+    public List<Element> signAll(List<Document> docs, Key signingKey) throws XMLSecurityException {
+        List<Element> signatures = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            signatures.add(sign(doc, signingKey));
+        }
+        return signatures;
+    }
+
+    /**
+     * Signs all documents like {@link #sign(Document, Key)}, several documents at the same time.
+     * The calling thread signs documents as well, up to <code>parallelism - 1</code> helpers are
+     * submitted to the Executor.
+     *
+     * @param docs the documents to sign
+     * @param signingKey the signing key
+     * @param executor the Executor, or null to use the common ForkJoinPool
+     * @param parallelism the maximum number of documents which are signed at the same time
+     * @return the Signature elements in the order of the documents
+     * @throws XMLSecurityException the exception of the first document which couldn't be signed
+     */
+    public List<Element> signAll(
+        List<Document> docs, Key signingKey, Executor executor, int parallelism
+    ) throws XMLSecurityException {
+        List<OrderedTaskRunner.Task<Element>> tasks = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            tasks.add(() -> sign(doc, signingKey));
+        }
+        OrderedTaskRunner<Element> runner = run(tasks, executor, parallelism);
+        List<Element> signatures = new ArrayList<>(docs.size());
+        for (int i = 0; i < runner.size(); i++) {
+            signatures.add(getResult(runner, i));
+        }
+        return signatures;
+    }
+
+    /**
+     * Verifies the enveloped signature of a document which was signed with the algorithms of this
+     * template. A signature with other algorithms, References or transforms is not valid.
+     *
+     * @param doc the signed document
+     * @param publicKey the verification key
+     * @return whether the signature is valid
+     * @throws XMLSecurityException if the document doesn't contain a signature, or the signature
+     * couldn't be verified
+     */
+    public boolean verify(Document doc, Key publicKey) throws XMLSecurityException {
+        Element signatureElement =
+            XMLUtils.selectDsNode(doc.getDocumentElement().getFirstChild(), Constants._TAG_SIGNATURE, 0);
+        if (signatureElement == null) {
+            Object[] exArgs = { "The document element doesn't contain a Signature" };
+            throw new XMLSignatureException("empty", exArgs);
+        }
+        XMLSignature signature = new XMLSignature(signatureElement, "", true, provider);
+        if (!matches(signature.getSignedInfo())) {
+            LOG.log(Level.WARNING, "The signature does not match the template");
+            return false;
+        }
+        return signature.checkSignatureValue(publicKey);
+    }
+
+    /**
+     * Verifies all documents like {@link #verify(Document, Key)}.
+     *
+     * @param docs the signed documents
+     * @param publicKey the verification key
+     * @return whether the signatures are valid, in the order of the documents
+     * @throws XMLSecurityException the exception of the first document which couldn't be verified
+     */
+    public List<Boolean> verifyAll(List<Document> docs, Key publicKey) throws XMLSecurityException {
+        List<Boolean> results = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            results.add(verify(doc, publicKey));
+        }
+        return results;
+    }
+
+    /**
+     * Verifies all documents like {@link #verify(Document, Key)}, several documents at the same
+     * time. The calling thread verifies documents as well, up to <code>parallelism - 1</code>
+     * helpers are submitted to the Executor.
+     *
+     * @param docs the signed documents
+     * @param publicKey the verification key
+     * @param executor the Executor, or null to use the common ForkJoinPool
+     * @param parallelism the maximum number of documents which are verified at the same time
+     * @return whether the signatures are valid, in the order of the documents
+     * @throws XMLSecurityException the exception of the first document which couldn't be verified
+     */
+    public List<Boolean> verifyAll(
+        List<Document> docs, Key publicKey, Executor executor, int parallelism
+    ) throws XMLSecurityException {
+        List<OrderedTaskRunner.Task<Boolean>> tasks = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            tasks.add(() -> verify(doc, publicKey));
+        }
+        OrderedTaskRunner<Boolean> runner = run(tasks, executor, parallelism);
+        List<Boolean> results = new ArrayList<>(docs.size());
+        for (int i = 0; i < runner.size(); i++) {
+            results.add(getResult(runner, i));
+        }
+        return results;
+    }
+
+    private boolean matches(SignedInfo signedInfo) throws XMLSecurityException {
+        if (!signatureMethodURI.equals(signedInfo.getSignatureMethodURI())
+            || !canonicalizationMethodURI.equals(signedInfo.getCanonicalizationMethodURI())
+            || signedInfo.getLength() != 1) {
+            return false;
+        }
+        Reference reference = signedInfo.item(0);
+        if (!"".equals(reference.getURI())
+            || !digestMethodURI.equals(reference.getMessageDigestAlgorithm().getAlgorithmURI())) {
+            return false;
+        }
+        Transforms transforms = reference.getTransforms();
+        if (transforms == null || transforms.getLength() != transformURIs.size()) {
+            return false;
+        }
+        for (int i = 0; i < transformURIs.size(); i++) {
+            if (!transformURIs.get(i).equals(transforms.item(i).getURI())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Digests the document like a Reference with <code>URI=""</code> does.
+     */
+    private byte[] digest(Document doc, Element transformsElement) throws XMLSecurityException {
+        Transforms transforms = new Transforms(transformsElement, "");
+        transforms.setSecureValidation(true);
+        XMLSignatureInput input = new XMLSignatureNodeInput(doc);
+        input.setSecureValidation(true);
+        input.setExcludeComments(true);
+
+        MessageDigest md;
+        try {
+            md = digestPool.borrow();
+        } catch (GeneralSecurityException ex) {
+            throw new XMLSignatureException(ex);
+        }
+        try (OutputStream os = new UnsyncBufferedOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), md))) {
+            XMLSignatureInput output = transforms.performTransforms(input, os);
+            output.write(os);
+            os.flush();
+            return md.digest();
+        } catch (IOException ex) {
+            throw new XMLSignatureException(ex);
+        } finally {
+            md.reset();
+            digestPool.release(md);
+        }
+    }
+
+    private int digestLength() throws XMLSignatureException {
+        MessageDigest md;
+        try {
+            md = digestPool.borrow();
+        } catch (GeneralSecurityException ex) {
+            throw new XMLSignatureException(ex);
+        }
+        try {
+            return md.getDigestLength();
+        } finally {
+            digestPool.release(md);
+        }
+    }
+
+    private byte[] canonicalize(Element signedInfo) throws XMLSecurityException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Canonicalizer.getInstance(canonicalizationMethodURI).canonicalizeSubtree(signedInfo, bos);
+        return bos.toByteArray();
+    }
+
+    private static boolean isExclusive(String canonicalizationMethodURI) {
+        return Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS.equals(canonicalizationMethodURI)
+            || Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS.equals(canonicalizationMethodURI);
+    }
+
+    /**
+     * Base64 text is canonicalized as is, apart from the carriage returns of the line breaks.
+     */
+    private static byte[] canonicalText(String base64) {
+        return base64.replace("\r", "&#xD;").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] array, byte[] target) {
+        outer:
+        for (int i = 0; i <= array.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalStateException("DigestValue not found in the canonical SignedInfo");
+    }
+
+    private static byte[] copy(byte[] array, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(array, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    private static Document newDocument() throws XMLSignatureException {
+        try {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            return dbf.newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException ex) {
+            throw new XMLSignatureException(ex);
+        }
+    }
+
+    private static <T> OrderedTaskRunner<T> run(
+        List<OrderedTaskRunner.Task<T>> tasks, Executor executor, int parallelism
+    ) throws XMLSecurityException {
+        try {
+            return OrderedTaskRunner.run(tasks, result -> false, executor, parallelism);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new XMLSecurityException(ex);
+        }
+    }
+
+    private static <T> T getResult(OrderedTaskRunner<T> runner, int index) throws XMLSecurityException {
+        try {
+            return runner.get(index);
+        } catch (XMLSecurityException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new XMLSecurityException(ex);
+        }
+    }
+}
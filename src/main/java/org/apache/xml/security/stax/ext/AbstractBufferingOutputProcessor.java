@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.stax.ext;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
@@ -25,6 +26,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.impl.util.SpillableXMLSecEventBuffer;
 
 /**
  * An abstract OutputProcessor class for reusabilty
@@ -32,26 +34,46 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
  */
 public abstract class AbstractBufferingOutputProcessor extends AbstractOutputProcessor {
 
-    private final ArrayDeque<XMLSecEvent> xmlSecEventBuffer = new ArrayDeque<>(100);
+    private Deque<XMLSecEvent> xmlSecEventBuffer;
 
     protected AbstractBufferingOutputProcessor() throws XMLSecurityException {
         super();
     }
 
     protected Deque<XMLSecEvent> getXmlSecEventBuffer() {
+        if (xmlSecEventBuffer == null) {
+            if (securityProperties != null && securityProperties.isSpillableEventBuffer()) {
+                xmlSecEventBuffer = new SpillableXMLSecEventBuffer(securityProperties.getEventBufferMemoryLimit(),
+                                                                   securityProperties.getEventBufferSpillDirectory());
+            } else {
+                xmlSecEventBuffer = new ArrayDeque<>(100);
+            }
+        }
         return xmlSecEventBuffer;
     }
 
     @Override
     public void processEvent(XMLSecEvent xmlSecEvent, OutputProcessorChain outputProcessorChain)
             throws XMLStreamException, XMLSecurityException {
-        xmlSecEventBuffer.offer(xmlSecEvent);
+        try {
+            getXmlSecEventBuffer().offer(xmlSecEvent);
+        } catch (UncheckedIOException e) {
+            throw new XMLStreamException(e.getCause());
+        }
     }
 
     @Override
     public void doFinal(OutputProcessorChain outputProcessorChain) throws XMLStreamException, XMLSecurityException {
         OutputProcessorChain subOutputProcessorChain = outputProcessorChain.createSubChain(this);
-        flushBufferAndCallbackAfterHeader(subOutputProcessorChain, getXmlSecEventBuffer());
+        try {
+            flushBufferAndCallbackAfterHeader(subOutputProcessorChain, getXmlSecEventBuffer());
+        } catch (UncheckedIOException e) {
+            throw new XMLStreamException(e.getCause());
+        } finally {
+            if (xmlSecEventBuffer instanceof SpillableXMLSecEventBuffer) {
+                ((SpillableXMLSecEventBuffer) xmlSecEventBuffer).close();
+            }
+        }
         //call final on the rest of the chain
         subOutputProcessorChain.doFinal();
         //this processor is now finished and we can remove it now
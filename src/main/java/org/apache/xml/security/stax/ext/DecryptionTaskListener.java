@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.ext;
+
+/**
+ * Lifecycle callbacks for the streaming decryption tasks which are handed over to the
+ * decryption {@link java.util.concurrent.Executor}. The callbacks can be used e.g. to measure
+ * the time a task spends queued before it gets a thread.
+ *
+ * Implementations must be thread-safe: {@link #taskSubmitted(String)} is called on the thread
+ * which processes the document while the other callbacks are called on the executing thread.
+ */
+public interface DecryptionTaskListener {
+
+    /**
+     * Called right before the decryption task is handed over to the executor.
+     *
+     * @param encryptedDataId the Id of the EncryptedData element or null if it has none
+     */
+    default void taskSubmitted(String encryptedDataId) {
+    }
+
+    /**
+     * Called when the executor starts to run the decryption task.
+     *
+     * @param encryptedDataId the Id of the EncryptedData element or null if it has none
+     */
+    default void taskStarted(String encryptedDataId) {
+    }
+
+    /**
+     * Called when the decryption task finished.
+     *
+     * @param encryptedDataId the Id of the EncryptedData element or null if it has none
+     * @param throwable the exception which terminated the task or null on success
+     */
+    default void taskCompleted(String encryptedDataId, Throwable throwable) {
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.ext;
+
+import javax.xml.namespace.QName;
+
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+
+/**
+ * A ResourceResolver for same document references which matches start elements by a
+ * configurable Id attribute.
+ *
+ */
+public interface ElementMatchingResourceResolver extends ResourceResolver {
+
+    /**
+     * Returns the value of the Id attribute a start element must carry to be matched.
+     *
+     * @return the referenced Id or null or an empty String when the resolver doesn't match
+     *         by Id (e.g. when the whole document is referenced)
+     */
+    String getId();
+
+    boolean matches(XMLSecStartElement xmlSecStartElement, QName idAttributeNS);
+}
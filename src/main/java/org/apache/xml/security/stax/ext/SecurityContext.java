@@ -21,6 +21,7 @@ package org.apache.xml.security.stax.ext;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
 
 /**
@@ -48,4 +49,15 @@ public interface SecurityContext extends SecurityEventListener {
      * @param securityEventListener The SecurityEventListener
      */
     void addSecurityEventListener(SecurityEventListener securityEventListener);
+
+    /**
+     * Returns whether a SecurityEvent of the given type would be forwarded to anybody.
+     * Producers can use it to skip creating events nobody is interested in.
+     *
+     * @param securityEventType the type of the SecurityEvent
+     * @return false if a SecurityEvent of the given type would be dropped
+     */
+    default boolean isSecurityEventSubscribed(SecurityEventConstants.Event securityEventType) {
+        return true;
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.stax.ext;
 
+import java.nio.file.Path;
 import java.security.Key;
 import java.security.cert.X509Certificate;
 import java.security.spec.AlgorithmParameterSpec;
@@ -27,6 +28,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.xml.namespace.QName;
 
@@ -59,6 +61,13 @@ public class XMLSecurityProperties {
     private String encryptionKeyName;
 
     private Key decryptionKey;
+    private Executor decryptionExecutor;
+    private DecryptionTaskListener decryptionTaskListener;
+    private boolean singleThreadedDecryption = false;
+
+    private boolean spillableEventBuffer = false;
+    private long eventBufferMemoryLimit = 32L * 1024 * 1024;
+    private Path eventBufferSpillDirectory;
 
     private final List<SecurePart> signatureParts = new LinkedList<>();
     private String signatureAlgorithm;
@@ -105,6 +114,12 @@ public class XMLSecurityProperties {
         this.encryptionTransportKey = xmlSecurityProperties.encryptionTransportKey;
         this.encryptionKeyIdentifier = xmlSecurityProperties.encryptionKeyIdentifier;
         this.decryptionKey = xmlSecurityProperties.decryptionKey;
+        this.decryptionExecutor = xmlSecurityProperties.decryptionExecutor;
+        this.decryptionTaskListener = xmlSecurityProperties.decryptionTaskListener;
+        this.singleThreadedDecryption = xmlSecurityProperties.singleThreadedDecryption;
+        this.spillableEventBuffer = xmlSecurityProperties.spillableEventBuffer;
+        this.eventBufferMemoryLimit = xmlSecurityProperties.eventBufferMemoryLimit;
+        this.eventBufferSpillDirectory = xmlSecurityProperties.eventBufferSpillDirectory;
         this.signatureParts.addAll(xmlSecurityProperties.signatureParts);
         this.signatureAlgorithm = xmlSecurityProperties.signatureAlgorithm;
         this.signatureDigestAlgorithm = xmlSecurityProperties.signatureDigestAlgorithm;
@@ -238,6 +253,100 @@ public class XMLSecurityProperties {
         return decryptionKey;
     }
 
+    /**
+     * Returns the Executor which runs the streaming decryption tasks
+     *
+     * @return the Executor or null if the default one is used
+     */
+    public Executor getDecryptionExecutor() {
+        return decryptionExecutor;
+    }
+
+    /**
+     * Specifies the Executor which runs the streaming decryption tasks. Each task writes the decrypted
+     * octets into a pipe which is read by the thread processing the document, therefore the Executor must
+     * not run the task in the calling thread and should not queue tasks indefinitely.
+     * By default, virtual threads are used when available and a bounded thread pool otherwise.
+     *
+     * @param decryptionExecutor the Executor to use or null to use the default one
+     */
+    public void setDecryptionExecutor(Executor decryptionExecutor) {
+        this.decryptionExecutor = decryptionExecutor;
+    }
+
+    public boolean isSingleThreadedDecryption() {
+        return singleThreadedDecryption;
+    }
+
+    /**
+     * Specifies if encrypted content is decrypted lazily in the thread which processes the document.
+     * The CipherValue is then decoded and decrypted on demand while the decrypted content is read,
+     * so neither an additional thread nor a pipe is needed. The decryption Executor and the
+     * DecryptionTaskListener are not used in this mode.
+     *
+     * @param singleThreadedDecryption set to true to decrypt in the calling thread, false (default) otherwise
+     */
+    public void setSingleThreadedDecryption(boolean singleThreadedDecryption) {
+        this.singleThreadedDecryption = singleThreadedDecryption;
+    }
+
+    public boolean isSpillableEventBuffer() {
+        return spillableEventBuffer;
+    }
+
+    /**
+     * Specifies if the outbound processors which buffer the document until its end, to insert the
+     * Signature or the EncryptedKey before the secured content, keep the buffered events in a compact
+     * binary form off the heap instead of as objects. Beyond the eventBufferMemoryLimit the buffered
+     * events are written to a memory-mapped temporary file. The events are passed on to the following
+     * processors as copies of the buffered events.
+     *
+     * @param spillableEventBuffer set to true to serialize the buffered events, false (default) otherwise
+     */
+    public void setSpillableEventBuffer(boolean spillableEventBuffer) {
+        this.spillableEventBuffer = spillableEventBuffer;
+    }
+
+    public long getEventBufferMemoryLimit() {
+        return eventBufferMemoryLimit;
+    }
+
+    /**
+     * Specifies how many bytes of serialized events a spillable event buffer keeps in direct memory
+     * before it continues in a temporary file. The default is 32 MiB.
+     *
+     * @param eventBufferMemoryLimit the limit in bytes
+     */
+    public void setEventBufferMemoryLimit(long eventBufferMemoryLimit) {
+        this.eventBufferMemoryLimit = eventBufferMemoryLimit;
+    }
+
+    public Path getEventBufferSpillDirectory() {
+        return eventBufferSpillDirectory;
+    }
+
+    /**
+     * Specifies the directory of the temporary files of the spillable event buffers.
+     *
+     * @param eventBufferSpillDirectory the directory or null to use the default temporary-file directory
+     */
+    public void setEventBufferSpillDirectory(Path eventBufferSpillDirectory) {
+        this.eventBufferSpillDirectory = eventBufferSpillDirectory;
+    }
+
+    public DecryptionTaskListener getDecryptionTaskListener() {
+        return decryptionTaskListener;
+    }
+
+    /**
+     * Specifies a listener which is notified about the lifecycle of the streaming decryption tasks
+     *
+     * @param decryptionTaskListener the listener or null
+     */
+    public void setDecryptionTaskListener(DecryptionTaskListener decryptionTaskListener) {
+        this.decryptionTaskListener = decryptionTaskListener;
+    }
+
     public void setEncryptionTransportKey(Key encryptionTransportKey) {
         this.encryptionTransportKey = encryptionTransportKey;
     }
@@ -19,41 +19,109 @@
 package org.apache.xml.security.stax.impl;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
 
 /**
+ * Base class of the security contexts.
+ * <p>
+ * SecurityEvents are forwarded without locking to an immutable array of listeners, which is
+ * replaced when a listener is added. Each listener only receives the event types it
+ * subscribed to with {@link SecurityEventListener#getSubscribedSecurityEvents()}. Producers may
+ * skip the creation of events of a type no listener subscribed to, but only when every listener
+ * declared a restricted subscription. A subclass which overrides {@link #registerSecurityEvent}
+ * or {@link #forwardSecurityEvent} to check the events itself receives all events, unless it also
+ * overrides {@link #isSecurityEventSubscribed}. The content
+ * is kept in a ConcurrentHashMap, since streaming decryption may process events of the same
+ * message on another thread. Null values are not stored, putting null removes the key.
  */
 public class AbstractSecurityContextImpl {
-    @SuppressWarnings("unchecked")
-    private final Map content = Collections.synchronizedMap(new HashMap());
-    private final List<SecurityEventListener> securityEventListeners = new ArrayList<>(2);
 
-    public void addSecurityEventListener(SecurityEventListener securityEventListener) {
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    /**
+     * Whether a class handles the SecurityEvents itself without telling which ones it needs.
+     * The lookup is done once per class.
+     */
+    private static final ClassValue<Boolean> HANDLES_ALL_SECURITY_EVENTS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> clazz = type; clazz != AbstractSecurityContextImpl.class; clazz = clazz.getSuperclass()) {
+                if (declaresMethod(clazz, "isSecurityEventSubscribed", SecurityEventConstants.Event.class)) {
+                    return Boolean.FALSE;
+                }
+                if (declaresMethod(clazz, "registerSecurityEvent", SecurityEvent.class)
+                    || declaresMethod(clazz, "forwardSecurityEvent", SecurityEvent.class)) {
+                    return Boolean.TRUE;
+                }
+            }
+            return Boolean.FALSE;
+        }
+    };
+
+    private final Map<Object, Object> content = new ConcurrentHashMap<>();
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+    private volatile Set<SecurityEventConstants.Event> subscribedSecurityEvents = new HashSet<>();
+    private volatile boolean allSecurityEventsSubscribed;
+    private final boolean handlesAllSecurityEvents = HANDLES_ALL_SECURITY_EVENTS.get(getClass());
+
+    public synchronized void addSecurityEventListener(SecurityEventListener securityEventListener) {
         if (securityEventListener != null) {
-            this.securityEventListeners.add(securityEventListener);
+            Subscription subscription = new Subscription(securityEventListener);
+            Subscription[] newSubscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            newSubscriptions[subscriptions.length] = subscription;
+
+            if (subscription.securityEvents == null) {
+                allSecurityEventsSubscribed = true;
+            } else {
+                Set<SecurityEventConstants.Event> newSubscribedSecurityEvents = new HashSet<>(subscribedSecurityEvents);
+                newSubscribedSecurityEvents.addAll(subscription.securityEvents);
+                subscribedSecurityEvents = newSubscribedSecurityEvents;
+            }
+            subscriptions = newSubscriptions;
         }
     }
 
-    public synchronized void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+    /**
+     * @param securityEventType the type of a SecurityEvent
+     * @return false only if every registered listener declared a subscription which doesn't
+     *         contain the given type and SecurityEvents are not handled by a subclass
+     */
+    public boolean isSecurityEventSubscribed(SecurityEventConstants.Event securityEventType) {
+        return handlesAllSecurityEvents || allSecurityEventsSubscribed || subscriptions.length == 0
+            || subscribedSecurityEvents.contains(securityEventType);
+    }
+
+    public void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
         forwardSecurityEvent(securityEvent);
     }
 
     protected void forwardSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
-        for (SecurityEventListener securityEventListener : securityEventListeners) {
-            securityEventListener.registerSecurityEvent(securityEvent);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.securityEvents == null
+                || subscription.securityEvents.contains(securityEvent.getSecurityEventType())) {
+                subscription.securityEventListener.registerSecurityEvent(securityEvent);
+            }
         }
     }
 
-    @SuppressWarnings("unchecked")
     public <T> void put(String key, T value) {
-        content.put(key, value);
+        if (value == null) {
+            content.remove(key);
+        } else {
+            content.put(key, value);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -71,21 +139,13 @@ public class AbstractSecurityContextImpl {
         if (value == null) {
             return;
         }
-        List<T> entry = (List<T>) content.get(key);
-        if (entry == null) {
-            entry = new ArrayList<>();
-            content.put(key, entry);
-        }
+        List<T> entry = (List<T>) content.computeIfAbsent(key, k -> new ArrayList<>());
         entry.addAll(value);
     }
 
     @SuppressWarnings("unchecked")
     public <T> void putAsList(Object key, T value) {
-        List<T> entry = (List<T>) content.get(key);
-        if (entry == null) {
-            entry = new ArrayList<>();
-            content.put(key, entry);
-        }
+        List<T> entry = (List<T>) content.computeIfAbsent(key, k -> new ArrayList<>());
         entry.add(value);
     }
 
@@ -96,11 +156,7 @@ public class AbstractSecurityContextImpl {
 
     @SuppressWarnings("unchecked")
     public <T, U> void putAsMap(Object key, T mapKey, U mapValue) {
-        Map<T, U> entry = (Map<T, U>) content.get(key);
-        if (entry == null) {
-            entry = new HashMap<>();
-            content.put(key, entry);
-        }
+        Map<T, U> entry = (Map<T, U>) content.computeIfAbsent(key, k -> new HashMap<>());
         entry.put(mapKey, mapValue);
     }
 
@@ -108,4 +164,24 @@ public class AbstractSecurityContextImpl {
     public <T, U> Map<T, U> getAsMap(Object key) {
         return (Map<T, U>) content.get(key);
     }
+
+    private static boolean declaresMethod(Class<?> clazz, String name, Class<?> parameterType) {
+        try {
+            clazz.getDeclaredMethod(name, parameterType);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static final class Subscription {
+        private final SecurityEventListener securityEventListener;
+        private final Set<SecurityEventConstants.Event> securityEvents;
+
+        Subscription(SecurityEventListener securityEventListener) {
+            this.securityEventListener = securityEventListener;
+            Collection<SecurityEventConstants.Event> events = securityEventListener.getSubscribedSecurityEvents();
+            this.securityEvents = events != null ? new HashSet<>(events) : null;
+        }
+    }
 }
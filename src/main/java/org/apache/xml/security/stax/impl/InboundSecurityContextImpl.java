@@ -54,6 +54,15 @@ public class InboundSecurityContextImpl extends AbstractSecurityContextImpl impl
         super.forwardSecurityEvent(securityEvent);
     }
 
+    @Override
+    public boolean isSecurityEventSubscribed(SecurityEventConstants.Event securityEventType) {
+        // the algorithms are checked here even if nobody else is interested in them
+        if (!InboundSecurityContextImpl.allowMD5Algorithm && SecurityEventConstants.AlgorithmSuite.equals(securityEventType)) {
+            return true;
+        }
+        return super.isSecurityEventSubscribed(securityEventType);
+    }
+
     @Override
     public void registerSecurityTokenProvider(String id, SecurityTokenProvider<? extends InboundSecurityToken> securityTokenProvider) {
         if (id == null) {
@@ -18,6 +18,7 @@
  */
 package org.apache.xml.security.stax.impl.algorithms;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -27,21 +28,23 @@ import java.security.NoSuchProviderException;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
 
-import javax.crypto.Mac;
-
+import org.apache.xml.security.algorithms.JCEEnginePool;
+import org.apache.xml.security.algorithms.PooledMac;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 
 /**
  */
 public class HMACSignatureAlgorithm implements SignatureAlgorithm {
 
-    private Mac mac;
+    private final PooledMac mac;
 
     public HMACSignatureAlgorithm(String jceName, String jceProvider) throws NoSuchProviderException, NoSuchAlgorithmException {
-        if (jceProvider != null) {
-            mac = Mac.getInstance(jceName, jceProvider);
-        } else {
-            mac = Mac.getInstance(jceName);
+        try {
+            mac = new PooledMac(JCEEnginePool.getMacPool(jceName, jceProvider));
+        } catch (NoSuchProviderException | NoSuchAlgorithmException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new NoSuchAlgorithmException(e);
         }
     }
 
@@ -19,6 +19,7 @@
 package org.apache.xml.security.stax.impl.algorithms;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -27,11 +28,12 @@ import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
-import java.security.Signature;
 import java.security.SignatureException;
 import java.security.interfaces.ECPrivateKey;
 import java.security.spec.AlgorithmParameterSpec;
 
+import org.apache.xml.security.algorithms.JCEEnginePool;
+import org.apache.xml.security.algorithms.PooledSignature;
 import org.apache.xml.security.algorithms.implementations.ECDSAUtils;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.utils.JavaUtils;
@@ -41,17 +43,19 @@ import org.apache.xml.security.utils.JavaUtils;
 public class PKISignatureAlgorithm implements SignatureAlgorithm {
 
     private final String jceName;
-    private final Signature signature;
+    private final PooledSignature signature;
 
     /** Length for each integer in signature */
     private int signIntLen = -1;
 
     public PKISignatureAlgorithm(String jceName, String jceProvider) throws NoSuchProviderException, NoSuchAlgorithmException {
         this.jceName = jceName;
-        if (jceProvider != null) {
-            signature = Signature.getInstance(this.jceName, jceProvider);
-        } else {
-            signature = Signature.getInstance(this.jceName);
+        try {
+            signature = new PooledSignature(JCEEnginePool.getSignaturePool(this.jceName, jceProvider));
+        } catch (NoSuchProviderException | NoSuchAlgorithmException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new NoSuchAlgorithmException(e);
         }
     }
 
@@ -86,7 +90,7 @@ public class PKISignatureAlgorithm implements SignatureAlgorithm {
     public void engineInitSign(Key signingKey) throws XMLSecurityException {
         initSignIntLen(signingKey);
         try {
-            signature.initSign((PrivateKey) signingKey);
+            signature.initSign((PrivateKey) signingKey, null);
         } catch (InvalidKeyException e) {
             throw new XMLSecurityException(e);
         }
@@ -106,7 +110,7 @@ public class PKISignatureAlgorithm implements SignatureAlgorithm {
     public void engineInitSign(Key signingKey, AlgorithmParameterSpec algorithmParameterSpec) throws XMLSecurityException {
         initSignIntLen(signingKey);
         try {
-            signature.initSign((PrivateKey) signingKey);
+            signature.initSign((PrivateKey) signingKey, null);
         } catch (InvalidKeyException e) {
             throw new XMLSecurityException(e);
         }
@@ -25,12 +25,10 @@ import jakarta.xml.bind.Unmarshaller;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
@@ -41,6 +39,9 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -56,7 +57,6 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 
-import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.binding.xmldsig.KeyInfoType;
 import org.apache.xml.security.binding.xmlenc.EncryptedDataType;
@@ -64,9 +64,11 @@ import org.apache.xml.security.binding.xmlenc.EncryptedKeyType;
 import org.apache.xml.security.binding.xmlenc.ReferenceList;
 import org.apache.xml.security.binding.xmlenc.ReferenceType;
 import org.apache.xml.security.binding.xop.Include;
+import org.apache.xml.security.encryption.DecryptingInputStream;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.config.ConfigurationProperties;
 import org.apache.xml.security.stax.ext.AbstractInputProcessor;
+import org.apache.xml.security.stax.ext.DecryptionTaskListener;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.SecurePart;
@@ -79,6 +81,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
 import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.XMLSecurityEventReader;
+import org.apache.xml.security.stax.impl.util.DecryptionExecutors;
 import org.apache.xml.security.stax.impl.util.FullyBufferedOutputStream;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.impl.util.IVSplittingOutputStream;
@@ -88,6 +91,7 @@ import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.stax.securityToken.SecurityTokenFactory;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
+import org.apache.xml.security.utils.Base64Codec;
 import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
 
 /**
@@ -302,30 +306,26 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                         throw new XMLSecurityException(e);
                     }
                 } else {
-                    //create a new Thread for streaming decryption
-                    DecryptionThread decryptionThread = new DecryptionThread(subInputProcessorChain, isSecurityHeaderEvent, nextEvent);
                     Key decryptionKey =
                         inboundSecurityToken.getSecretKey(algorithmURI, XMLSecurityConstants.Enc, encryptedDataType.getId());
-                    decryptionKey = XMLSecurityUtils.prepareSecretKey(algorithmURI, decryptionKey.getEncoded());
-                    decryptionThread.setSecretKey(decryptionKey);
-                    decryptionThread.setSymmetricCipher(symCipher);
-                    decryptionThread.setIvLength(ivLength);
-
-                    Thread thread = new Thread(decryptionThread);
-                    thread.setPriority(Thread.NORM_PRIORITY + 1);
-                    thread.setName("decryption thread");
-                    //when an exception in the decryption thread occurs, we want to forward them:
-                    thread.setUncaughtExceptionHandler(decryptedEventReaderInputProcessor);
-
-                    decryptedEventReaderInputProcessor.setDecryptionThread(thread);
-
-                    //we have to start the thread before we call decryptionThread.getPipedInputStream().
-                    //Otherwise we will end in a deadlock, because the StAX reader expects already data.
-                    //@See some lines below:
-                    LOG.log(Level.DEBUG, "Starting decryption thread");
-                    thread.start();
-
-                    decryptInputStream = decryptionThread.getPipedInputStream();
+                    final Key secretKey = XMLSecurityUtils.prepareSecretKey(algorithmURI, decryptionKey.getEncoded());
+
+                    if (getSecurityProperties().isSingleThreadedDecryption()) {
+                        //decrypt lazily in this thread: the CipherValue character events are pulled from
+                        //the chain when the StAX reader of the decrypted content asks for more data
+                        InputStream cipherValueInputStream =
+                            new CipherValueInputStream(subInputProcessorChain, isSecurityHeaderEvent, nextEvent);
+                        decryptInputStream = new DecryptingInputStream(
+                                cipherValueInputStream, symCipher, secretKey, ivLength) {
+                            @Override
+                            protected void endOfStream() {
+                                destroySecretKey(secretKey);
+                            }
+                        };
+                    } else {
+                        decryptInputStream = startDecryptionTask(subInputProcessorChain, isSecurityHeaderEvent, nextEvent,
+                            decryptedEventReaderInputProcessor, encryptedDataType, symCipher, secretKey, ivLength);
+                    }
                 }
 
                 InputStream prologInputStream;  //NOPMD
@@ -361,6 +361,49 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         return xmlSecEvent;
     }
 
+    private InputStream startDecryptionTask(InputProcessorChain subInputProcessorChain, boolean isSecurityHeaderEvent,
+                                            XMLSecEvent firstEvent,
+                                            AbstractDecryptedEventReaderInputProcessor decryptedEventReaderInputProcessor,
+                                            EncryptedDataType encryptedDataType, Cipher symCipher, Key secretKey,
+                                            int ivLength) throws XMLStreamException, XMLSecurityException {
+        //create a new task for streaming decryption
+        DecryptionTask decryptionTask = new DecryptionTask(subInputProcessorChain, isSecurityHeaderEvent, firstEvent);
+        decryptionTask.setSecretKey(secretKey);
+        decryptionTask.setSymmetricCipher(symCipher);
+        decryptionTask.setIvLength(ivLength);
+        decryptionTask.setEncryptedDataId(encryptedDataType.getId());
+        decryptionTask.setDecryptionTaskListener(getSecurityProperties().getDecryptionTaskListener());
+        //when an exception in the decryption task occurs, we want to forward them:
+        decryptionTask.setUncaughtExceptionHandler(decryptedEventReaderInputProcessor);
+
+        decryptedEventReaderInputProcessor.setDecryptionTask(decryptionTask);
+
+        //we have to start the task before we call decryptionTask.getPipedInputStream().
+        //Otherwise we will end in a deadlock, because the StAX reader expects already data.
+        //@See some lines below:
+        Executor executor = getSecurityProperties().getDecryptionExecutor();
+        if (executor == null) {
+            executor = DecryptionExecutors.getDefaultExecutor();
+        }
+        LOG.log(Level.DEBUG, "Starting decryption task");
+        decryptionTask.submit(executor);
+
+        return decryptionTask.getPipedInputStream();
+    }
+
+    /**
+     * Clean the secret key from memory when we're done with it
+     */
+    private static void destroySecretKey(Key secretKey) {
+        if (secretKey instanceof Destroyable) {
+            try {
+                ((Destroyable)secretKey).destroy();
+            } catch (DestroyFailedException e) {
+                LOG.log(Level.DEBUG, "Error destroying key: {0}", e.getMessage());
+            }
+        }
+    }
+
     protected InputStream applyTransforms(ReferenceType referenceType, InputStream inputStream) throws XMLSecurityException {
         return inputStream;
     }
@@ -620,7 +663,7 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         private final InboundSecurityToken inboundSecurityToken;
         private boolean rootElementProcessed;
         private EncryptedDataType encryptedDataType;
-        private Thread decryptionThread;
+        private DecryptionTask decryptionTask;
 
         public AbstractDecryptedEventReaderInputProcessor(
                 XMLSecurityProperties securityProperties, SecurePart.Modifier encryptionModifier,
@@ -642,8 +685,8 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
             }
         }
 
-        public void setDecryptionThread(Thread decryptionThread) {
-            this.decryptionThread = decryptionThread;
+        void setDecryptionTask(DecryptionTask decryptionTask) {
+            this.decryptionTask = decryptionTask;
         }
 
         public void setXmlStreamReader(XMLStreamReader xmlStreamReader) {
@@ -664,11 +707,11 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
 
         private XMLSecEvent processEvent(InputProcessorChain inputProcessorChain, boolean headerEvent)
                 throws XMLStreamException, XMLSecurityException {
-            //did an exception occur during decryption in the decryption thread?
+            //did an exception occur during decryption in the decryption task?
             testAndThrowUncaughtException();
 
             XMLSecEvent xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parentXmlSecStartElement);
-            //here we request the next XMLEvent from the decryption thread
+            //here we request the next XMLEvent from the decryption task
             //instead from the processor-chain as we normally would do
             if (XMLStreamConstants.START_ELEMENT == xmlSecEvent.getEventType()) {
                 currentXMLStructureDepth++;
@@ -724,14 +767,15 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                         xmlSecEvent = inputProcessorChain.processEvent();
                     }
 
-                    if (decryptionThread != null) {
-                        //wait until the decryption thread dies...
+                    if (decryptionTask != null) {
+                        //wait until the decryption task finished...
                         try {
-                            decryptionThread.join();
+                            decryptionTask.awaitCompletion();
                         } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
                             throw new XMLStreamException(e);
                         }
-                        //...and test again for an exception in the decryption thread.
+                        //...and test again for an exception in the decryption task.
                         testAndThrowUncaughtException();
                     }
                     inputProcessorChain.removeProcessor(this);
@@ -765,22 +809,109 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
     }
 
     /**
-     * The DecryptionThread handles encrypted XML-Parts
+     * Pulls the character events of the CipherValue element from the chain and exposes them as
+     * base64 decoded octets. The stream ends with the CipherValue end element.
+     */
+    static class CipherValueInputStream extends InputStream {
+
+        private final InputProcessorChain inputProcessorChain;
+        private final boolean header;
+        private final Base64Codec.Decoder base64Decoder = Base64Codec.newLenientDecoder();
+        private XMLSecEvent nextEvent;
+        private byte[] decoded = new byte[8192];
+        private int pos;
+        private int limit;
+        private boolean endOfStream;
+
+        CipherValueInputStream(InputProcessorChain inputProcessorChain, boolean header, XMLSecEvent firstEvent) {
+            this.inputProcessorChain = inputProcessorChain;
+            this.header = header;
+            this.nextEvent = firstEvent;
+        }
+
+        private boolean fill() throws IOException {
+            while (pos == limit && !endOfStream) {
+                try {
+                    XMLSecEvent xmlSecEvent = nextEvent;
+                    nextEvent = null;
+                    if (xmlSecEvent == null) {
+                        inputProcessorChain.reset();
+                        if (header) {
+                            xmlSecEvent = inputProcessorChain.processHeaderEvent();
+                        } else {
+                            xmlSecEvent = inputProcessorChain.processEvent();
+                        }
+                    }
+                    pos = 0;
+                    // End element must be the CipherValue EndElement.
+                    if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                        endOfStream = true;
+                        limit = base64Decoder.finish(decoded, 0);
+                    } else if (xmlSecEvent.getEventType() == XMLStreamConstants.CHARACTERS) {
+                        char[] chars = xmlSecEvent.asCharacters().getText();
+                        int decodedLength = Base64Codec.Decoder.decodedLength(chars.length);
+                        if (decoded.length < decodedLength) {
+                            decoded = new byte[decodedLength];
+                        }
+                        limit = base64Decoder.decode(chars, 0, chars.length, decoded, 0);
+                    } else {
+                        throw new XMLSecurityException(
+                                "stax.unexpectedXMLEvent",
+                                new Object[] {XMLSecurityUtils.getXMLEventAsString(xmlSecEvent)}
+                        );
+                    }
+                } catch (XMLSecurityException | XMLStreamException | IllegalArgumentException e) {
+                    throw new IOException(e);
+                }
+            }
+            return pos < limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return decoded[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, limit - pos);
+            System.arraycopy(decoded, pos, b, off, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    /**
+     * The DecryptionTask handles encrypted XML-Parts. It is run by the configured decryption Executor
+     * and pipes the decrypted octets to the StAX reader of the document processing thread.
      */
-    static class DecryptionThread implements Runnable {
+    static class DecryptionTask implements Runnable {
 
         private final InputProcessorChain inputProcessorChain;
         private final boolean header;
         private final PipedOutputStream pipedOutputStream;
         private final PipedInputStream pipedInputStream;
+        private final CountDownLatch completed = new CountDownLatch(1);
         private Cipher symmetricCipher;
         private int ivLength;
         private Key secretKey;
+        private String encryptedDataId;
+        private DecryptionTaskListener decryptionTaskListener;
+        private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
         private final XMLSecEvent firstEvent;
 
-        protected DecryptionThread(InputProcessorChain inputProcessorChain,
-                                   boolean header,
-                                   XMLSecEvent firstEvent) throws XMLStreamException, XMLSecurityException {
+        protected DecryptionTask(InputProcessorChain inputProcessorChain,
+                                 boolean header,
+                                 XMLSecEvent firstEvent) throws XMLStreamException, XMLSecurityException {
 
             this.inputProcessorChain = inputProcessorChain;
             this.header = header;
@@ -799,6 +930,32 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
             return pipedInputStream;
         }
 
+        /**
+         * Hands this task over to the given executor
+         */
+        void submit(Executor executor) throws XMLSecurityException {
+            if (decryptionTaskListener != null) {
+                decryptionTaskListener.taskSubmitted(encryptedDataId);
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                closePipe();
+                if (decryptionTaskListener != null) {
+                    decryptionTaskListener.taskCompleted(encryptedDataId, e);
+                }
+                completed.countDown();
+                throw new XMLSecurityException(e);
+            }
+        }
+
+        /**
+         * Blocks until the task has finished, either successfully or with an exception
+         */
+        void awaitCompletion() throws InterruptedException {
+            completed.await();
+        }
+
         private XMLSecEvent processNextEvent() throws XMLSecurityException, XMLStreamException {
             inputProcessorChain.reset();
             if (header) {
@@ -810,6 +967,31 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
 
         @Override
         public void run() {
+            if (decryptionTaskListener != null) {
+                decryptionTaskListener.taskStarted(encryptedDataId);
+            }
+            Throwable throwable = null;
+            try {
+                decrypt();
+            } catch (Throwable t) { //NOPMD
+                throwable = t;
+                closePipe();
+                //we don't own the executing thread anymore so we forward the exception ourselves:
+                if (uncaughtExceptionHandler != null) {
+                    uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), t);
+                }
+            } finally {
+                try {
+                    if (decryptionTaskListener != null) {
+                        decryptionTaskListener.taskCompleted(encryptedDataId, throwable);
+                    }
+                } finally {
+                    completed.countDown();
+                }
+            }
+        }
+
+        private void decrypt() {
 
             try {
                 final OutputStream outputStream;    //NOPMD
@@ -841,14 +1023,11 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                 IVSplittingOutputStream ivSplittingOutputStream = new IVSplittingOutputStream(  //NOPMD
                         cipherOutputStream,
                         cipher, getSecretKey(), getIvLength());
-                //buffering seems not to help
-                //bufferedOutputStream = new BufferedOutputStream(new Base64OutputStream(ivSplittingOutputStream, false), 8192 * 5);
                 ReplaceableOuputStream replaceableOuputStream = new ReplaceableOuputStream(ivSplittingOutputStream);    //NOPMD
-                OutputStream base64OutputStream = new Base64OutputStream(replaceableOuputStream, false); //NOPMD
                 ivSplittingOutputStream.setParentOutputStream(replaceableOuputStream);
-                OutputStreamWriter outputStreamWriter = //NOPMD
-                        new OutputStreamWriter(base64OutputStream,
-                                               Charset.forName(inputProcessorChain.getDocumentContext().getEncoding()));
+                //the characters are decoded as they are, without encoding them into octets first
+                Base64Codec.Decoder base64Decoder = Base64Codec.newLenientDecoder();
+                byte[] decoded = new byte[8192];
 
                 //read the encrypted data from the stream until an end-element occurs and write then
                 //to the decrypter-stream
@@ -857,7 +1036,11 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                 while (xmlSecEvent.getEventType() != XMLStreamConstants.END_ELEMENT) {
                     if (xmlSecEvent.getEventType() == XMLStreamConstants.CHARACTERS) {
                         final char[] data = xmlSecEvent.asCharacters().getText();
-                        outputStreamWriter.write(data);
+                        int decodedLength = Base64Codec.Decoder.decodedLength(data.length);
+                        if (decoded.length < decodedLength) {
+                            decoded = new byte[decodedLength];
+                        }
+                        replaceableOuputStream.write(decoded, 0, base64Decoder.decode(data, 0, data.length, decoded, 0));
                     } else {
                         throw new XMLSecurityException(
                                 "stax.unexpectedXMLEvent",
@@ -867,32 +1050,31 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
                     xmlSecEvent = processNextEvent();
                 }
 
+                replaceableOuputStream.write(decoded, 0, base64Decoder.finish(decoded, 0));
                 //close to get Cipher.doFinal() called
-                outputStreamWriter.close();
+                replaceableOuputStream.close();
 
                 // Clean the secret key from memory now that we're done with it
-                if (secretKey instanceof Destroyable) {
-                    try {
-                        ((Destroyable)secretKey).destroy();
-                    } catch (DestroyFailedException e) {
-                        LOG.log(Level.DEBUG, "Error destroying key: {0}", e.getMessage());
-                    }
-                }
+                destroySecretKey(secretKey);
 
-                LOG.log(Level.DEBUG, "Decryption thread finished");
+                LOG.log(Level.DEBUG, "Decryption task finished");
 
             } catch (Exception e) {
-                try {
-                    //we have to close the pipe when an exception occurs. Otherwise we can run into a deadlock when an exception occurs
-                    //before we have written any byte to the pipe.
-                    this.pipedOutputStream.close();
-                } catch (IOException e1) { //NOPMD
-                    //ignore since we will throw the original exception below
-                }
+                //we have to close the pipe when an exception occurs. Otherwise we can run into a deadlock when an exception occurs
+                //before we have written any byte to the pipe.
+                closePipe();
                 throw new UncheckedXMLSecurityException(e);
             }
         }
 
+        private void closePipe() {
+            try {
+                this.pipedOutputStream.close();
+            } catch (IOException e) { //NOPMD
+                //ignore since we will throw the original exception
+            }
+        }
+
         protected Cipher getSymmetricCipher() {
             return symmetricCipher;
         }
@@ -916,5 +1098,17 @@ public abstract class AbstractDecryptInputProcessor extends AbstractInputProcess
         protected void setSecretKey(Key secretKey) {
             this.secretKey = secretKey;
         }
+
+        void setEncryptedDataId(String encryptedDataId) {
+            this.encryptedDataId = encryptedDataId;
+        }
+
+        void setDecryptionTaskListener(DecryptionTaskListener decryptionTaskListener) {
+            this.decryptionTaskListener = decryptionTaskListener;
+        }
+
+        void setUncaughtExceptionHandler(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+            this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+        }
     }
 }
@@ -38,6 +38,7 @@ import java.util.Map;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
 
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.binding.excc14n.InclusiveNamespaces;
@@ -48,6 +49,7 @@ import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.config.ConfigurationProperties;
 import org.apache.xml.security.stax.config.ResourceResolverMapper;
 import org.apache.xml.security.stax.ext.AbstractInputProcessor;
+import org.apache.xml.security.stax.ext.ElementMatchingResourceResolver;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.ResourceResolver;
@@ -83,9 +85,29 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
     protected static final Boolean allowNotSameDocumentReferences =
             Boolean.valueOf(ConfigurationProperties.getProperty("AllowNotSameDocumentReferences"));
 
+    /**
+     * A reflection hack to avoid breaking the ResourceResolver interface for SANTUARIO-407. Only used
+     * for resolvers which don't implement ElementMatchingResourceResolver. The lookup is done once per class.
+     */
+    private static final ClassValue<Method> MATCHES_WITH_ID_ATTRIBUTE_METHOD = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getMethod("matches", XMLSecStartElement.class, QName.class);
+            } catch (NoSuchMethodException ex) {
+                // No need to report this
+                return null;
+            }
+        }
+    };
+
     private final SignatureType signatureType;
     private final InboundSecurityToken inboundSecurityToken;
     private final List<KeyValue<ResourceResolver, ReferenceType>> sameDocumentReferences;
+    //positions in sameDocumentReferences of the resolvers which match by Id, indexed by the referenced Id
+    private final Map<String, List<Integer>> sameDocumentReferencesById = new HashMap<>();
+    //positions in sameDocumentReferences of the resolvers which must be asked for every start element
+    private final List<Integer> unindexedSameDocumentReferences = new ArrayList<>();
     private final List<KeyValue<ResourceResolver, ReferenceType>> externalReferences;
     private final List<ReferenceType> processedReferences;
 
@@ -124,7 +146,18 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
                             referenceType.getURI(), inputProcessorChain.getDocumentContext().getBaseURI());
 
             if (resourceResolver.isSameDocumentReference()) {
+                Integer position = sameDocumentReferences.size();
                 sameDocumentReferences.add(new KeyValue<>(resourceResolver, referenceType));
+
+                String id = null;
+                if (resourceResolver instanceof ElementMatchingResourceResolver) {
+                    id = ((ElementMatchingResourceResolver) resourceResolver).getId();
+                }
+                if (id == null || id.isEmpty()) {
+                    unindexedSameDocumentReferences.add(position);
+                } else {
+                    sameDocumentReferencesById.computeIfAbsent(id, k -> new ArrayList<>(1)).add(position);
+                }
             } else {
                 if (!allowNotSameDocumentReferences) {
                     throw new XMLSecurityException(
@@ -195,39 +228,86 @@ public abstract class AbstractSignatureReferenceVerifyInputProcessor extends Abs
             ReferenceType referenceType) throws XMLSecurityException;
 
     protected List<ReferenceType> resolvesResource(XMLSecStartElement xmlSecStartElement) {
-        List<ReferenceType> referenceTypes = Collections.emptyList();
-        for (int i = 0; i < sameDocumentReferences.size(); i++) {
-            KeyValue<ResourceResolver, ReferenceType> keyValue = sameDocumentReferences.get(i);
+        List<Integer> matchingPositions = null;
+        for (int i = 0; i < unindexedSameDocumentReferences.size(); i++) {
+            Integer position = unindexedSameDocumentReferences.get(i);
+            if (matches(sameDocumentReferences.get(position).getKey(), xmlSecStartElement)) {
+                matchingPositions = addPosition(matchingPositions, position);
+            }
+        }
+
+        if (!sameDocumentReferencesById.isEmpty()) {
+            //a resolver matches either by the configured Id attribute or by the default one
+            QName idAttributeNS = getSecurityProperties().getIdAttributeNS();
+            matchingPositions = addMatchingPositionsById(xmlSecStartElement, idAttributeNS, matchingPositions);
+            if (!XMLSecurityConstants.ATT_NULL_Id.equals(idAttributeNS)) {
+                matchingPositions =
+                    addMatchingPositionsById(xmlSecStartElement, XMLSecurityConstants.ATT_NULL_Id, matchingPositions);
+            }
+        }
+
+        if (matchingPositions == null) {
+            return Collections.emptyList();
+        }
+        if (matchingPositions.size() > 1) {
+            //keep the order of the references
+            Collections.sort(matchingPositions);
+        }
+        List<ReferenceType> referenceTypes = new ArrayList<>(matchingPositions.size());
+        for (int i = 0; i < matchingPositions.size(); i++) {
+            referenceTypes.add(sameDocumentReferences.get(matchingPositions.get(i)).getValue());
+        }
+        return referenceTypes;
+    }
+
+    private List<Integer> addMatchingPositionsById(XMLSecStartElement xmlSecStartElement, QName idAttributeName,
+                                                   List<Integer> matchingPositions) {
+        Attribute attribute = xmlSecStartElement.getAttributeByName(idAttributeName);
+        if (attribute == null) {
+            return matchingPositions;
+        }
+        List<Integer> candidates = sameDocumentReferencesById.get(attribute.getValue());
+        if (candidates == null) {
+            return matchingPositions;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            Integer position = candidates.get(i);
+            if ((matchingPositions == null || !matchingPositions.contains(position))
+                && matches(sameDocumentReferences.get(position).getKey(), xmlSecStartElement)) {
+                matchingPositions = addPosition(matchingPositions, position);
+            }
+        }
+        return matchingPositions;
+    }
 
-            ResourceResolver resolver = keyValue.getKey();
-            boolean resourceMatches = false;
+    private static List<Integer> addPosition(List<Integer> positions, Integer position) {
+        List<Integer> result = positions;
+        if (result == null) {
+            result = new ArrayList<>(1);
+        }
+        result.add(position);
+        return result;
+    }
+
+    private boolean matches(ResourceResolver resolver, XMLSecStartElement xmlSecStartElement) {
+        QName idAttributeNS = getSecurityProperties().getIdAttributeNS();
+        if (resolver instanceof ElementMatchingResourceResolver) {
+            if (((ElementMatchingResourceResolver) resolver).matches(xmlSecStartElement, idAttributeNS)) {
+                return true;
+            }
+        } else {
+            Method m = MATCHES_WITH_ID_ATTRIBUTE_METHOD.get(resolver.getClass());
             try {
-                // A reflection hack to avoid breaking the ResourceResolver interface for SANTUARIO-407.
-                Method m = resolver.getClass().getMethod("matches", XMLSecStartElement.class, QName.class);
-                if (m != null
-                    && (Boolean)m.invoke(resolver, xmlSecStartElement, getSecurityProperties().getIdAttributeNS())) {
-                    if (referenceTypes == Collections.<ReferenceType>emptyList()) {
-                        referenceTypes = new ArrayList<>();
-                    }
-                    referenceTypes.add(keyValue.getValue());
-                    resourceMatches = true;
+                if (m != null && (Boolean) m.invoke(resolver, xmlSecStartElement, idAttributeNS)) {
+                    return true;
                 }
-            } catch (NoSuchMethodException ex) {
-                // No need to report this
             } catch (InvocationTargetException ex) {
                 // No need to report this
             } catch (IllegalAccessException ex) {
                 // No need to report this
             }
-
-            if (!resourceMatches && keyValue.getKey().matches(xmlSecStartElement)) {
-                if (referenceTypes == Collections.<ReferenceType>emptyList()) {
-                    referenceTypes = new ArrayList<>();
-                }
-                referenceTypes.add(keyValue.getValue());
-            }
         }
-        return referenceTypes;
+        return resolver.matches(xmlSecStartElement);
     }
 
     @Override
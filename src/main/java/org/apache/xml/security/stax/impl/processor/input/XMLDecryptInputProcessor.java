@@ -35,6 +35,7 @@ import org.apache.xml.security.stax.ext.XMLSecurityUtils;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.securityEvent.ContentEncryptedElementSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.EncryptedElementSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -76,6 +77,9 @@ public class XMLDecryptInputProcessor extends AbstractDecryptInputProcessor {
                                           EncryptedDataType encryptedDataType)
             throws XMLSecurityException {
 
+        if (!inputProcessorChain.getSecurityContext().isSecurityEventSubscribed(SecurityEventConstants.ContentEncrypted)) {
+            return;
+        }
         final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
         List<QName> elementPath = parentXMLSecStartElement.getElementPath();
 
@@ -124,6 +128,9 @@ public class XMLDecryptInputProcessor extends AbstractDecryptInputProcessor {
                                               InboundSecurityToken inboundSecurityToken,
                                               EncryptedDataType encryptedDataType) throws XMLSecurityException {
             //fire a SecurityEvent:
+            if (!inputProcessorChain.getSecurityContext().isSecurityEventSubscribed(SecurityEventConstants.EncryptedElement)) {
+                return;
+            }
             final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
             List<QName> elementPath = xmlSecStartElement.getElementPath();
 
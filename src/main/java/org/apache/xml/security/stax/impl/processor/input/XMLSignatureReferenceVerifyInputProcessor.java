@@ -29,6 +29,7 @@ import org.apache.xml.security.stax.ext.DocumentContext;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
 import org.apache.xml.security.stax.securityEvent.SignedElementSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 
@@ -49,6 +50,9 @@ public class XMLSignatureReferenceVerifyInputProcessor extends AbstractSignature
     protected void processElementPath(
             List<QName> elementPath, InputProcessorChain inputProcessorChain, XMLSecEvent xmlSecEvent,
             ReferenceType referenceType) throws XMLSecurityException {
+        if (!inputProcessorChain.getSecurityContext().isSecurityEventSubscribed(SecurityEventConstants.SignedElement)) {
+            return;
+        }
         final DocumentContext documentContext = inputProcessorChain.getDocumentContext();
         SignedElementSecurityEvent signedElementSecurityEvent =
                 new SignedElementSecurityEvent(getInboundSecurityToken(), true, documentContext.getProtectionOrder());
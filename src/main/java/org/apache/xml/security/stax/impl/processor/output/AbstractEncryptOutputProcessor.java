@@ -26,6 +26,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.spec.AlgorithmParameterSpec;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
@@ -40,7 +41,6 @@ import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.xml.security.algorithms.JCEMapper;
 import org.apache.xml.security.encryption.XMLCipherUtil;
 import org.apache.xml.security.exceptions.XMLSecurityException;
@@ -57,6 +57,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.EncryptionPartDef;
 import org.apache.xml.security.stax.impl.XMLSecurityEventWriter;
 import org.apache.xml.security.stax.impl.util.TrimmerOutputStream;
+import org.apache.xml.security.utils.Base64Codec;
 import org.apache.xml.security.utils.XMLUtils;
 
 /**
@@ -174,13 +175,8 @@ public abstract class AbstractEncryptOutputProcessor extends AbstractOutputProce
                     XMLCipherUtil.constructBlockCipherParameters(encryptionSymAlgorithm, iv);
                 symmetricCipher.init(Cipher.ENCRYPT_MODE, encryptionPartDef.getSymmetricKey(), parameterSpec);
 
-                characterEventGeneratorOutputStream = new CharacterEventGeneratorOutputStream();
-                Base64OutputStream base64EncoderStream = null;  //NOPMD
-                if (XMLUtils.isIgnoreLineBreaks()) {
-                    base64EncoderStream = new Base64OutputStream(characterEventGeneratorOutputStream, true, 0, null);
-                } else {
-                    base64EncoderStream = new Base64OutputStream(characterEventGeneratorOutputStream, true);
-                }
+                characterEventGeneratorOutputStream = new Base64CharacterEventGeneratorOutputStream();
+                OutputStream base64EncoderStream = characterEventGeneratorOutputStream;  //NOPMD
                 base64EncoderStream.write(iv);
 
                 OutputStream outputStream = new CipherOutputStream(base64EncoderStream, symmetricCipher);   //NOPMD
@@ -409,10 +405,77 @@ public abstract class AbstractEncryptOutputProcessor extends AbstractOutputProce
         }
     }
 
+    /**
+     * Base64 encodes the octets written to it into a reused character buffer, which is turned
+     * into a Character-XMLEvent whenever it is full
+     */
+    public class Base64CharacterEventGeneratorOutputStream extends CharacterEventGeneratorOutputStream {
+
+        //the octets encoded at a time, their characters always fit into the second half of the buffer
+        private static final int CHUNK_SIZE = 3 * 1024;
+
+        private final Base64Codec.Encoder encoder = Base64Codec.newEncoder();
+        private final char[] chars = new char[8 * 1024];
+        private final byte[] singleByte = new byte[1];
+        private int position;
+        private boolean written;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            singleByte[0] = (byte) b;
+            write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK_SIZE);
+                if (position + encoder.encodedLength(chunk) > chars.length) {
+                    offerChars();
+                }
+                position += encoder.encode(b, off, chunk, chars, position);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (position + 8 > chars.length) {
+                offerChars();
+            }
+            position += encoder.finish(chars, position);
+            if (!XMLUtils.isIgnoreLineBreaks() && (written || position > 0)) {
+                //the encoded data is terminated by a line break, like by the formerly used commons-codec
+                chars[position++] = '\r';
+                chars[position++] = '\n';
+            }
+            offerChars();
+        }
+
+        private void offerChars() {
+            if (position > 0) {
+                written = true;
+                getCharactersBuffer().offer(createCharacters(Arrays.copyOf(chars, position)));
+                position = 0;
+            }
+        }
+    }
+
     private char[] byteToCharArray(byte[]  bytes, int off, int len) {
-        char[] chars = new char[len - off];
-        for (int i = off; i < len; i++) {
-            chars[i] = (char)bytes[i];
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char)bytes[off + i];
         }
         return chars;
     }
@@ -24,6 +24,7 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.events.Attribute;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.ElementMatchingResourceResolver;
 import org.apache.xml.security.stax.ext.ResourceResolver;
 import org.apache.xml.security.stax.ext.ResourceResolverLookup;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
@@ -34,7 +35,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
  * Resolver for references in the same document.
  *
  */
-public class ResolverSameDocument implements ResourceResolver, ResourceResolverLookup {
+public class ResolverSameDocument implements ElementMatchingResourceResolver, ResourceResolverLookup {
 
     private String id;
     private boolean firstElementOccured = false;
@@ -46,6 +47,7 @@ public class ResolverSameDocument implements ResourceResolver, ResourceResolverL
         this.id = XMLSecurityUtils.dropReferenceMarker(uri);
     }
 
+    @Override
     public String getId() {
         return id;
     }
@@ -76,6 +78,7 @@ public class ResolverSameDocument implements ResourceResolver, ResourceResolverL
         return this.matches(xmlSecStartElement, XMLSecurityConstants.ATT_NULL_Id);
     }
 
+    @Override
     public boolean matches(XMLSecStartElement xmlSecStartElement, QName idAttributeNS) {
         if (id.isEmpty()) {
             if (firstElementOccured) {
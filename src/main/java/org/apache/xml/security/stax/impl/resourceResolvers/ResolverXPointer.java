@@ -26,6 +26,7 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.events.Attribute;
 
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.ElementMatchingResourceResolver;
 import org.apache.xml.security.stax.ext.ResourceResolver;
 import org.apache.xml.security.stax.ext.ResourceResolverLookup;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
@@ -36,7 +37,7 @@ import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
  * Supported xpointers are '#xpointer(/)' and '#xpointer(id('ID'))'
  *
  */
-public class ResolverXPointer implements ResourceResolver, ResourceResolverLookup {
+public class ResolverXPointer implements ElementMatchingResourceResolver, ResourceResolverLookup {
 
     private Pattern pattern = Pattern.compile("^#xpointer\\((/)|(id\\([\"\']([^\"\']*)[\"\']\\))\\)");
     private String id;
@@ -61,6 +62,7 @@ public class ResolverXPointer implements ResourceResolver, ResourceResolverLooku
         }
     }
 
+    @Override
     public String getId() {
         return id;
     }
@@ -96,6 +98,7 @@ public class ResolverXPointer implements ResourceResolver, ResourceResolverLooku
         return this.matches(xmlSecStartElement, XMLSecurityConstants.ATT_NULL_Id);
     }
 
+    @Override
     public boolean matches(XMLSecStartElement xmlSecStartElement, QName idAttributeNS) {
         //when id is null we have #xpointer(/) and then we just return true for the first start-element
         if (id == null) {
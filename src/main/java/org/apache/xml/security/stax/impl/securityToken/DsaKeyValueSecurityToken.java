@@ -24,9 +24,12 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.DSAPublicKeySpec;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Collections;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.binding.xmldsig.DSAKeyValueType;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.KeyResolutionCache;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -48,15 +51,24 @@ public class DsaKeyValueSecurityToken extends AbstractInboundSecurityToken {
                 new BigInteger(1, dsaKeyValueType.getP()),
                 new BigInteger(1, dsaKeyValueType.getQ()),
                 new BigInteger(1, dsaKeyValueType.getG()));
-        KeyFactory keyFactory = KeyFactory.getInstance("DSA");
+        KeyFactory keyFactory = JCAFactoryCache.getKeyFactory("DSA");
         return keyFactory.generatePublic(dsaPublicKeySpec);
     }
 
     @Override
     public PublicKey getPublicKey() throws XMLSecurityException {
         if (super.getPublicKey() == null) {
+            Object cacheKey = KeyResolutionCache.newKey("DSAKeyValue", Collections.emptyList(),
+                this.dsaKeyValueType.getP(), this.dsaKeyValueType.getQ(),
+                this.dsaKeyValueType.getG(), this.dsaKeyValueType.getY());
+            PublicKey publicKey = KeyResolutionCache.get(cacheKey, PublicKey.class);
+            if (publicKey != null) {
+                setPublicKey(publicKey);
+                return publicKey;
+            }
             try {
                 setPublicKey(buildPublicKey(this.dsaKeyValueType));
+                KeyResolutionCache.put(cacheKey, super.getPublicKey());
             } catch (InvalidKeySpecException e) {
                 throw new XMLSecurityException(e);
             } catch (NoSuchAlgorithmException e) {
@@ -19,6 +19,7 @@
 package org.apache.xml.security.stax.impl.securityToken;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
@@ -28,10 +29,13 @@ import java.security.spec.ECPoint;
 import java.security.spec.ECPublicKeySpec;
 import java.security.spec.EllipticCurve;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Collections;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.algorithms.implementations.ECDSAUtils;
 import org.apache.xml.security.binding.xmldsig11.ECKeyValueType;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.KeyResolutionCache;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -89,15 +93,24 @@ public class ECKeyValueSecurityToken extends AbstractInboundSecurityToken {
                         ecCurveDefinition.getH()
                 )
         );
-        KeyFactory keyFactory = KeyFactory.getInstance("EC");
+        KeyFactory keyFactory = JCAFactoryCache.getKeyFactory("EC");
         return keyFactory.generatePublic(ecPublicKeySpec);
     }
 
     @Override
     public PublicKey getPublicKey() throws XMLSecurityException {
         if (super.getPublicKey() == null) {
+            Object cacheKey = KeyResolutionCache.newKey("ECKeyValue", Collections.emptyList(),
+                this.ecKeyValueType.getNamedCurve().getURI().getBytes(StandardCharsets.UTF_8),
+                this.ecKeyValueType.getPublicKey());
+            PublicKey publicKey = KeyResolutionCache.get(cacheKey, PublicKey.class);
+            if (publicKey != null) {
+                setPublicKey(publicKey);
+                return publicKey;
+            }
             try {
                 setPublicKey(buildPublicKey(this.ecKeyValueType));
+                KeyResolutionCache.put(cacheKey, super.getPublicKey());
             } catch (InvalidKeySpecException e) {
                 throw new XMLSecurityException(e);
             } catch (NoSuchAlgorithmException e) {
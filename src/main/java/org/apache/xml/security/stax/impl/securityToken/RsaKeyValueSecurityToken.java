@@ -24,9 +24,12 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.Collections;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.binding.xmldsig.RSAKeyValueType;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.keys.KeyResolutionCache;
 import org.apache.xml.security.stax.ext.InboundSecurityContext;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
@@ -46,15 +49,23 @@ public class RsaKeyValueSecurityToken extends AbstractInboundSecurityToken {
         RSAPublicKeySpec rsaPublicKeySpec = new RSAPublicKeySpec(
                 new BigInteger(1, rsaKeyValueType.getModulus()),
                 new BigInteger(1, rsaKeyValueType.getExponent()));
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        KeyFactory keyFactory = JCAFactoryCache.getKeyFactory("RSA");
         return keyFactory.generatePublic(rsaPublicKeySpec);
     }
 
     @Override
     public PublicKey getPublicKey() throws XMLSecurityException {
         if (super.getPublicKey() == null) {
+            Object cacheKey = KeyResolutionCache.newKey("RSAKeyValue", Collections.emptyList(),
+                this.rsaKeyValueType.getModulus(), this.rsaKeyValueType.getExponent());
+            PublicKey publicKey = KeyResolutionCache.get(cacheKey, PublicKey.class);
+            if (publicKey != null) {
+                setPublicKey(publicKey);
+                return publicKey;
+            }
             try {
                 setPublicKey(buildPublicKey(this.rsaKeyValueType));
+                KeyResolutionCache.put(cacheKey, super.getPublicKey());
             } catch (InvalidKeySpecException e) {
                 throw new XMLSecurityException(e);
             } catch (NoSuchAlgorithmException e) {
@@ -18,15 +18,13 @@
  */
 package org.apache.xml.security.stax.impl.securityToken;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.security.Key;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Map;
 
+import org.apache.xml.security.algorithms.JCAFactoryCache;
 import org.apache.xml.security.binding.xmldsig.DSAKeyValueType;
 import org.apache.xml.security.binding.xmldsig.KeyInfoType;
 import org.apache.xml.security.binding.xmldsig.KeyValueType;
@@ -45,7 +43,6 @@ import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants.TokenType;
 import org.apache.xml.security.stax.securityToken.SecurityTokenFactory;
 import org.apache.xml.security.utils.RFC2253Parser;
-import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
 
 /**
  * Factory to create SecurityToken Objects from keys in XML
@@ -294,10 +291,9 @@ public class SecurityTokenFactoryImpl extends SecurityTokenFactory {
      */
     private static X509Certificate getCertificateFromBytes(byte[] data)
             throws XMLSecurityException {
-        try (InputStream in = new UnsyncByteArrayInputStream(data)) {
-            CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            return (X509Certificate) factory.generateCertificate(in);
-        } catch (CertificateException | IOException e) {
+        try {
+            return JCAFactoryCache.getX509Certificate(data);
+        } catch (CertificateException e) {
             throw new XMLSecurityException(e);
         }
     }
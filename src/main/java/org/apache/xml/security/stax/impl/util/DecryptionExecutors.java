@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.impl.util;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the default {@link Executor} for the streaming decryption tasks.
+ *
+ * When the JDK supports virtual threads a virtual-thread-per-task executor is used. Otherwise
+ * a bounded pool of daemon platform threads is used. The pool size can be configured with the
+ * system property "org.apache.xml.security.stax.decryptionPoolSize".
+ *
+ * Every decryption task feeds a pipe which is drained by the thread processing the document, so a
+ * task must never wait for a free pool thread: when the pool is exhausted a dedicated thread is
+ * started for the task, which is the behaviour of the former thread-per-EncryptedData approach.
+ */
+public final class DecryptionExecutors {
+
+    private static final Logger LOG = System.getLogger(DecryptionExecutors.class.getName());
+
+    private static final int DEFAULT_POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final int POOL_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.stax.decryptionPoolSize",
+                                                                 DEFAULT_POOL_SIZE));
+
+    private DecryptionExecutors() {
+        super();
+    }
+
+    /**
+     * @return the shared default executor for streaming decryption tasks
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor.
+     *
+     * @return the executor or null when virtual threads are not available on this JDK
+     */
+    static Executor newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // virtual threads are not available (or a preview feature which isn't enabled)
+            LOG.log(Level.DEBUG, "Virtual threads are not available: {0}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates a bounded pool of daemon platform threads. Idle threads are released after a minute.
+     * When all threads are busy a new, unpooled thread is started for the task instead of queueing it.
+     *
+     * @param poolSize the maximum number of pooled threads
+     * @return the executor
+     */
+    static Executor newPlatformThreadExecutor(int poolSize) {
+        final ThreadFactory threadFactory = new DecryptionThreadFactory();
+        ThreadPoolExecutor threadPoolExecutor =
+            new ThreadPoolExecutor(0, poolSize, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory,
+                (runnable, executor) -> {
+                    LOG.log(Level.DEBUG, "Decryption thread pool exhausted, starting an unpooled thread");
+                    threadFactory.newThread(runnable).start();
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    private static final class DefaultExecutorHolder {
+
+        private static final Executor EXECUTOR = createDefaultExecutor();
+
+        private static Executor createDefaultExecutor() {
+            Executor executor = newVirtualThreadExecutor();
+            if (executor != null) {
+                LOG.log(Level.DEBUG, "Using virtual threads for streaming decryption");
+                return executor;
+            }
+            LOG.log(Level.DEBUG, "Using a pool of {0} platform threads for streaming decryption", POOL_SIZE);
+            return newPlatformThreadExecutor(POOL_SIZE);
+        }
+    }
+
+    private static final class DecryptionThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "decryption thread-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY + 1);
+            return thread;
+        }
+    }
+}
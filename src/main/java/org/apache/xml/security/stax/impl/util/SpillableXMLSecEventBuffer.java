@@ -0,0 +1,698 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.stax.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.stax.XMLSecAttributeImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecCharactersImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecCommentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecEndDocumentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecEndElementImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecNamespaceImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecProcessingInstructionImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecStartDocumentImpl;
+import org.apache.xml.security.stax.impl.stax.XMLSecStartElementImpl;
+
+/**
+ * A buffer of XMLSecEvents which keeps the buffered events off the heap.
+ * <p>
+ * The events are serialized into a binary log which is stored in direct ByteBuffer segments.
+ * When the segments reach the configured memory limit, further segments are mapped from a
+ * temporary file, which is deleted when the buffer is closed. Element, namespace and attribute
+ * names are kept in a small table on the heap.
+ * <p>
+ * The events are deserialized again when they reach the head of the buffer, so the buffer hands
+ * out copies of the offered events. A copy has the content of the original event, and its parent
+ * is the copy of the enclosing element. Each buffered event is deserialized exactly once, so
+ * peeking and polling the same position give the same object. Events of classes other than the
+ * XMLSecEvent implementations of this library, and events whose parent is not the enclosing
+ * element of the log, are not serialized and are handed out as they are. The buffering output
+ * processors can work with copies because the OutputProcessorChain sets the parent of every event
+ * again when the buffer is flushed.
+ * <p>
+ * Appending events at the tail and taking them from or pushing them back to the head works on the
+ * log. Every other Deque operation first deserializes all remaining events onto the heap and
+ * continues as a heap buffer until it is cleared. The buffer is not thread-safe.
+ */
+public class SpillableXMLSecEventBuffer extends AbstractCollection<XMLSecEvent> implements Deque<XMLSecEvent>, Closeable {
+
+    private static final Logger LOG = System.getLogger(SpillableXMLSecEventBuffer.class.getName());
+
+    private static final int DIRECT_SEGMENT_SIZE = 256 * 1024;
+    private static final int MAPPED_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final byte START_DOCUMENT = 1;
+    private static final byte END_DOCUMENT = 2;
+    private static final byte START_ELEMENT = 3;
+    private static final byte END_ELEMENT = 4;
+    private static final byte CHARACTERS = 5;
+    private static final byte COMMENT = 6;
+    private static final byte PROCESSING_INSTRUCTION = 7;
+    private static final byte HEAP_EVENT = 8;
+
+    private final long memoryLimit;
+    private final Path spillDirectory;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long directMemory;
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private long spillFileSize;
+
+    private final List<QName> names = new ArrayList<>();
+    private final Map<List<String>, Integer> nameIndex = new HashMap<>();
+    private final List<XMLSecEvent> heapEvents = new ArrayList<>();
+
+    private final Deque<XMLSecStartElement> writeStack = new ArrayDeque<>();
+    private ByteBuffer record = ByteBuffer.allocate(1024);
+
+    private final Deque<XMLSecEvent> head = new ArrayDeque<>();
+    private final Cursor cursor = new Cursor();
+    private int loggedEvents;
+    private boolean onHeap;
+
+    /**
+     * @param memoryLimit the number of bytes the log may occupy in direct memory before
+     *                    it is continued in a temporary file
+     * @param spillDirectory the directory of the temporary file, or null for the default
+     *                       temporary-file directory
+     */
+    public SpillableXMLSecEventBuffer(long memoryLimit, Path spillDirectory) {
+        this.memoryLimit = memoryLimit;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return the number of bytes of the temporary file, 0 if nothing was spilled
+     */
+    public long getSpilledBytes() {
+        return spillFileSize;
+    }
+
+    @Override
+    public int size() {
+        return head.size() + loggedEvents;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean add(XMLSecEvent xmlSecEvent) {
+        addLast(xmlSecEvent);
+        return true;
+    }
+
+    @Override
+    public boolean offer(XMLSecEvent xmlSecEvent) {
+        return offerLast(xmlSecEvent);
+    }
+
+    @Override
+    public boolean offerLast(XMLSecEvent xmlSecEvent) {
+        addLast(xmlSecEvent);
+        return true;
+    }
+
+    @Override
+    public void addLast(XMLSecEvent xmlSecEvent) {
+        if (xmlSecEvent == null) {
+            throw new NullPointerException();
+        }
+        if (onHeap) {
+            head.addLast(xmlSecEvent);
+            return;
+        }
+        record.clear();
+        record.putInt(0);
+        encode(xmlSecEvent);
+        record.putInt(0, record.position() - 4);
+        record.flip();
+        append(record);
+
+        if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            writeStack.push(xmlSecEvent.asStartElement());
+        } else if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT) {
+            writeStack.poll();
+        }
+        loggedEvents++;
+    }
+
+    @Override
+    public void push(XMLSecEvent xmlSecEvent) {
+        addFirst(xmlSecEvent);
+    }
+
+    @Override
+    public boolean offerFirst(XMLSecEvent xmlSecEvent) {
+        addFirst(xmlSecEvent);
+        return true;
+    }
+
+    @Override
+    public void addFirst(XMLSecEvent xmlSecEvent) {
+        head.addFirst(xmlSecEvent);
+    }
+
+    @Override
+    public XMLSecEvent pollFirst() {
+        XMLSecEvent xmlSecEvent = head.pollFirst();
+        if (xmlSecEvent == null && loggedEvents > 0) {
+            xmlSecEvent = readNext();
+        }
+        return xmlSecEvent;
+    }
+
+    @Override
+    public XMLSecEvent poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public XMLSecEvent removeFirst() {
+        XMLSecEvent xmlSecEvent = pollFirst();
+        if (xmlSecEvent == null) {
+            throw new NoSuchElementException();
+        }
+        return xmlSecEvent;
+    }
+
+    @Override
+    public XMLSecEvent pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public XMLSecEvent remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public XMLSecEvent peekFirst() {
+        if (head.isEmpty() && loggedEvents > 0) {
+            head.addFirst(readNext());
+        }
+        return head.peekFirst();
+    }
+
+    @Override
+    public XMLSecEvent peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public XMLSecEvent getFirst() {
+        XMLSecEvent xmlSecEvent = peekFirst();
+        if (xmlSecEvent == null) {
+            throw new NoSuchElementException();
+        }
+        return xmlSecEvent;
+    }
+
+    @Override
+    public XMLSecEvent element() {
+        return getFirst();
+    }
+
+    @Override
+    public XMLSecEvent peekLast() {
+        return moveToHeap().peekLast();
+    }
+
+    @Override
+    public XMLSecEvent getLast() {
+        return moveToHeap().getLast();
+    }
+
+    @Override
+    public XMLSecEvent pollLast() {
+        return moveToHeap().pollLast();
+    }
+
+    @Override
+    public XMLSecEvent removeLast() {
+        return moveToHeap().removeLast();
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return moveToHeap().removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return moveToHeap().removeLastOccurrence(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return moveToHeap().remove(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return moveToHeap().contains(o);
+    }
+
+    @Override
+    public Iterator<XMLSecEvent> iterator() {
+        return moveToHeap().iterator();
+    }
+
+    @Override
+    public Iterator<XMLSecEvent> descendingIterator() {
+        return moveToHeap().descendingIterator();
+    }
+
+    /**
+     * @return true if the buffer has given up the log and keeps all events on the heap
+     */
+    public boolean isOnHeap() {
+        return onHeap;
+    }
+
+    /**
+     * Removes all events and releases the memory and the temporary file. The buffer
+     * starts with a new log afterwards.
+     */
+    @Override
+    public void clear() {
+        head.clear();
+        releaseLog();
+        onHeap = false;
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private XMLSecEvent readNext() {
+        XMLSecEvent xmlSecEvent = cursor.next();
+        loggedEvents--;
+        releaseConsumedSegments();
+        return xmlSecEvent;
+    }
+
+    /**
+     * Deserializes the remaining events of the log onto the heap, for the operations which
+     * need random access to the buffered events.
+     */
+    private Deque<XMLSecEvent> moveToHeap() {
+        if (!onHeap) {
+            while (loggedEvents > 0) {
+                head.addLast(readNext());
+            }
+            releaseLog();
+            onHeap = true;
+        }
+        return head;
+    }
+
+    private void releaseLog() {
+        segments.clear();
+        directMemory = 0;
+        names.clear();
+        nameIndex.clear();
+        heapEvents.clear();
+        writeStack.clear();
+        cursor.reset();
+        loggedEvents = 0;
+        closeSpillFile();
+    }
+
+    private void encode(XMLSecEvent xmlSecEvent) {
+        Class<?> eventClass = xmlSecEvent.getClass();
+        boolean enclosed = xmlSecEvent.getParentXMLSecStartElement() == writeStack.peek();
+        if (enclosed && eventClass == XMLSecStartElementImpl.class && isEncodable(xmlSecEvent.asStartElement())) {
+            XMLSecStartElement xmlSecStartElement = xmlSecEvent.asStartElement();
+            putByte(START_ELEMENT);
+            putName(xmlSecStartElement.getName());
+            List<XMLSecNamespace> namespaces = xmlSecStartElement.getOnElementDeclaredNamespaces();
+            putInt(namespaces.size());
+            for (XMLSecNamespace xmlSecNamespace : namespaces) {
+                putName(new QName(xmlSecNamespace.getNamespaceURI(), "", xmlSecNamespace.getPrefix()));
+            }
+            List<XMLSecAttribute> attributes = xmlSecStartElement.getOnElementDeclaredAttributes();
+            putInt(attributes.size());
+            for (XMLSecAttribute xmlSecAttribute : attributes) {
+                putName(xmlSecAttribute.getName());
+                putString(xmlSecAttribute.getValue());
+            }
+        } else if (enclosed && eventClass == XMLSecEndElementImpl.class) {
+            putByte(END_ELEMENT);
+            putName(xmlSecEvent.asEndElement().getName());
+        } else if (enclosed && eventClass == XMLSecCharactersImpl.class) {
+            XMLSecCharactersImpl characters = (XMLSecCharactersImpl) xmlSecEvent;
+            putByte(CHARACTERS);
+            putByte((byte) ((characters.isCData() ? 1 : 0)
+                | (characters.isIgnorableWhiteSpace() ? 2 : 0)
+                | (characters.isWhiteSpace() ? 4 : 0)));
+            putChars(characters.getText());
+        } else if (enclosed && eventClass == XMLSecCommentImpl.class) {
+            putByte(COMMENT);
+            putString(((XMLSecCommentImpl) xmlSecEvent).getText());
+        } else if (enclosed && eventClass == XMLSecProcessingInstructionImpl.class) {
+            XMLSecProcessingInstructionImpl processingInstruction = (XMLSecProcessingInstructionImpl) xmlSecEvent;
+            putByte(PROCESSING_INSTRUCTION);
+            putString(processingInstruction.getTarget());
+            putString(processingInstruction.getData());
+        } else if (enclosed && eventClass == XMLSecStartDocumentImpl.class) {
+            XMLSecStartDocumentImpl startDocument = (XMLSecStartDocumentImpl) xmlSecEvent;
+            putByte(START_DOCUMENT);
+            putString(startDocument.getSystemId());
+            putString(startDocument.encodingSet() ? startDocument.getCharacterEncodingScheme() : null);
+            putByte((byte) (startDocument.standaloneSet() ? startDocument.isStandalone() ? 2 : 1 : 0));
+            putString(startDocument.getVersion());
+        } else if (enclosed && eventClass == XMLSecEndDocumentImpl.class) {
+            putByte(END_DOCUMENT);
+        } else {
+            putByte(HEAP_EVENT);
+            putInt(heapEvents.size());
+            heapEvents.add(xmlSecEvent);
+        }
+    }
+
+    private static boolean isEncodable(XMLSecStartElement xmlSecStartElement) {
+        for (XMLSecAttribute xmlSecAttribute : xmlSecStartElement.getOnElementDeclaredAttributes()) {
+            if (xmlSecAttribute.getClass() != XMLSecAttributeImpl.class) {
+                return false;
+            }
+        }
+        for (XMLSecNamespace xmlSecNamespace : xmlSecStartElement.getOnElementDeclaredNamespaces()) {
+            if (xmlSecNamespace.getClass() != XMLSecNamespaceImpl.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (record.remaining() < bytes) {
+            int capacity = Math.max(record.capacity() * 2, record.position() + bytes);
+            ByteBuffer newRecord = ByteBuffer.allocate(capacity);
+            record.flip();
+            newRecord.put(record);
+            record = newRecord;
+        }
+    }
+
+    private void putByte(byte b) {
+        ensureCapacity(1);
+        record.put(b);
+    }
+
+    private void putInt(int i) {
+        ensureCapacity(4);
+        record.putInt(i);
+    }
+
+    private void putName(QName name) {
+        List<String> key = Arrays.asList(name.getNamespaceURI(), name.getLocalPart(), name.getPrefix());
+        Integer index = nameIndex.get(key);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndex.put(key, index);
+        }
+        putInt(index);
+    }
+
+    private void putString(String s) {
+        if (s == null) {
+            putInt(-1);
+        } else {
+            putChars(s.toCharArray());
+        }
+    }
+
+    private void putChars(char[] chars) {
+        boolean latin1 = true;
+        for (char c : chars) {
+            if (c > 0xFF) {
+                latin1 = false;
+                break;
+            }
+        }
+        ensureCapacity(5 + chars.length * (latin1 ? 1 : 2));
+        record.putInt(chars.length);
+        record.put(latin1 ? (byte) 0 : (byte) 1);
+        if (latin1) {
+            for (char c : chars) {
+                record.put((byte) c);
+            }
+        } else {
+            record.asCharBuffer().put(chars);
+            record.position(record.position() + chars.length * 2);
+        }
+    }
+
+    private void append(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || !segment.hasRemaining()) {
+                segment = newSegment();
+                segments.add(segment);
+            }
+            int length = Math.min(segment.remaining(), bytes.remaining());
+            ByteBuffer slice = bytes.duplicate();
+            slice.limit(slice.position() + length);
+            segment.put(slice);
+            bytes.position(bytes.position() + length);
+        }
+    }
+
+    private ByteBuffer newSegment() {
+        if (directMemory + DIRECT_SEGMENT_SIZE <= memoryLimit) {
+            directMemory += DIRECT_SEGMENT_SIZE;
+            return ByteBuffer.allocateDirect(DIRECT_SEGMENT_SIZE);
+        }
+        try {
+            if (spillChannel == null) {
+                spillFile = spillDirectory != null
+                    ? Files.createTempFile(spillDirectory, "xmlsec-events", ".tmp")
+                    : Files.createTempFile("xmlsec-events", ".tmp");
+                spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                StandardOpenOption.DELETE_ON_CLOSE);
+                LOG.log(Level.DEBUG, "Spilling buffered events to {0}", spillFile);
+            }
+            ByteBuffer segment = spillChannel.map(FileChannel.MapMode.READ_WRITE, spillFileSize, MAPPED_SEGMENT_SIZE);
+            spillFileSize += MAPPED_SEGMENT_SIZE;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops the references to the segments which were read completely, so that their memory
+     * can be reclaimed. The segment which is written to is kept.
+     */
+    private void releaseConsumedSegments() {
+        for (int i = cursor.releasedSegments; i < cursor.segment && i < segments.size() - 1; i++) {
+            if (!(segments.get(i) instanceof MappedByteBuffer)) {
+                directMemory -= DIRECT_SEGMENT_SIZE;
+            }
+            segments.set(i, null);
+            cursor.releasedSegments = i + 1;
+        }
+    }
+
+    private void closeSpillFile() {
+        spillFileSize = 0;
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                LOG.log(Level.DEBUG, "Error closing {0}: {1}", spillFile, e.getMessage());
+            }
+            spillChannel = null;
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                LOG.log(Level.DEBUG, "Error deleting {0}: {1}", spillFile, e.getMessage());
+            }
+            spillFile = null;
+        }
+    }
+
+    /**
+     * A read position in the log together with the elements which are open at that position.
+     */
+    private final class Cursor {
+
+        private int segment;
+        private int offset;
+        private int releasedSegments;
+        private final Deque<XMLSecStartElement> readStack = new ArrayDeque<>();
+        private ByteBuffer readRecord = ByteBuffer.allocate(1024);
+
+
+        void reset() {
+            segment = 0;
+            offset = 0;
+            releasedSegments = 0;
+            readStack.clear();
+        }
+
+        XMLSecEvent next() {
+            read(4);
+            int length = readRecord.getInt();
+            read(length);
+            XMLSecEvent xmlSecEvent = decode();
+            if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                readStack.push(xmlSecEvent.asStartElement());
+            } else if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                readStack.poll();
+            }
+            return xmlSecEvent;
+        }
+
+        /**
+         * Reads the next bytes of the log into readRecord.
+         */
+        private void read(int length) {
+            if (readRecord.capacity() < length) {
+                readRecord = ByteBuffer.allocate(Math.max(length, readRecord.capacity() * 2));
+            }
+            readRecord.clear();
+            readRecord.limit(length);
+            while (readRecord.hasRemaining()) {
+                ByteBuffer source = segments.get(segment).duplicate();
+                source.flip();
+                source.position(offset);
+                if (!source.hasRemaining()) {
+                    segment++;
+                    offset = 0;
+                    continue;
+                }
+                int n = Math.min(source.remaining(), readRecord.remaining());
+                source.limit(offset + n);
+                readRecord.put(source);
+                offset += n;
+            }
+            readRecord.flip();
+        }
+
+        private XMLSecEvent decode() {
+            XMLSecStartElement parent = readStack.peek();
+            byte type = readRecord.get();
+            switch (type) {
+                case START_ELEMENT:
+                    QName elementName = names.get(readRecord.getInt());
+                    int namespaceCount = readRecord.getInt();
+                    List<XMLSecNamespace> namespaces = namespaceCount == 0
+                        ? Collections.emptyList() : new ArrayList<>(namespaceCount);
+                    for (int i = 0; i < namespaceCount; i++) {
+                        QName namespace = names.get(readRecord.getInt());
+                        namespaces.add(XMLSecNamespaceImpl.getInstance(namespace.getPrefix(), namespace.getNamespaceURI()));
+                    }
+                    int attributeCount = readRecord.getInt();
+                    List<XMLSecAttribute> attributes = attributeCount == 0
+                        ? Collections.emptyList() : new ArrayList<>(attributeCount);
+                    for (int i = 0; i < attributeCount; i++) {
+                        QName attributeName = names.get(readRecord.getInt());
+                        attributes.add(new XMLSecAttributeImpl(attributeName, getString()));
+                    }
+                    return new XMLSecStartElementImpl(elementName, attributes, namespaces, parent);
+                case END_ELEMENT:
+                    return new XMLSecEndElementImpl(names.get(readRecord.getInt()), parent);
+                case CHARACTERS:
+                    byte flags = readRecord.get();
+                    return new XMLSecCharactersImpl(getChars(), (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, parent);
+                case COMMENT:
+                    return new XMLSecCommentImpl(getString(), parent);
+                case PROCESSING_INSTRUCTION:
+                    String target = getString();
+                    return new XMLSecProcessingInstructionImpl(target, getString(), parent);
+                case START_DOCUMENT:
+                    String systemId = getString();
+                    String encoding = getString();
+                    byte standalone = readRecord.get();
+                    return new XMLSecStartDocumentImpl(systemId, encoding,
+                                                       standalone == 0 ? null : Boolean.valueOf(standalone == 2), getString());
+                case END_DOCUMENT:
+                    XMLSecEndDocumentImpl endDocument = new XMLSecEndDocumentImpl();
+                    endDocument.setParentXMLSecStartElement(parent);
+                    return endDocument;
+                case HEAP_EVENT:
+                    int index = readRecord.getInt();
+                    XMLSecEvent xmlSecEvent = heapEvents.get(index);
+                    heapEvents.set(index, null);
+                    return xmlSecEvent;
+                default:
+                    throw new IllegalStateException("Corrupt event log, unknown record type " + type);
+            }
+        }
+
+        private char[] getChars() {
+            int length = readRecord.getInt();
+            char[] chars = new char[length];
+            if (readRecord.get() == 0) {
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) (readRecord.get() & 0xFF);
+                }
+            } else {
+                readRecord.asCharBuffer().get(chars);
+                readRecord.position(readRecord.position() + length * 2);
+            }
+            return chars;
+        }
+
+        private String getString() {
+            int length = readRecord.getInt(readRecord.position());
+            if (length < 0) {
+                readRecord.getInt();
+                return null;
+            }
+            return new String(getChars());
+        }
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.xml.security.stax.securityEvent;
 
 
+import java.util.Collection;
+
 import org.apache.xml.security.exceptions.XMLSecurityException;
 
 /**
@@ -32,4 +34,16 @@ public interface SecurityEventListener {
      * @throws XMLSecurityException when the event will not be accepted (e.g. policy-violation)
      */
     void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException;
+
+    /**
+     * Returns the types of the SecurityEvents this listener wants to receive. Events of other
+     * types are not forwarded to it, and events which no listener subscribed to may not be
+     * created at all. The default implementation returns null, i.e. the listener receives all
+     * events.
+     *
+     * @return the subscribed event types, or null for all types
+     */
+    default Collection<SecurityEventConstants.Event> getSubscribedSecurityEvents() {
+        return null;
+    }
 }
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.transforms.implementations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.c14n.CanonicalizationException;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.c14n.helper.C14nHelper;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.signature.XMLSignatureByteInput;
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.TransformIdentity;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_WithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_Excl;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclWithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_WithCommentsTransformer;
+
+/**
+ * Canonicalizes unparsed octets with the StAX canonicalizers straight into the output stream
+ * of the last transform (usually the digest stream of a Reference). In contrast to parsing the
+ * octets into a DOM first, the memory needed doesn't grow with the size of the document.
+ *
+ * Streaming is disabled by default and can be switched on with the system property
+ * "org.apache.xml.security.streamingCanonicalization". The octets are only streamed when secure
+ * validation is enabled: a DOM parser then rejects a document type declaration just like this
+ * class does, so both ways produce the same canonical form.
+ */
+final class StreamingCanonicalizer {
+
+    private static final boolean ENABLED =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () ->
+                Boolean.parseBoolean(System.getProperty("org.apache.xml.security.streamingCanonicalization", "false")));
+
+    private StreamingCanonicalizer() {
+        // complete
+    }
+
+    /**
+     * @param input the input of the transform
+     * @param os the stream the transform has to write its output to, may be null
+     * @param secureValidation whether secure validation is enabled
+     * @return whether the input can be canonicalized by streaming it
+     */
+    static boolean canStream(XMLSignatureInput input, OutputStream os, boolean secureValidation) {
+        return ENABLED && os != null && secureValidation && input.hasUnprocessedInput();
+    }
+
+    /**
+     * Canonicalizes the unprocessed input of the given XMLSignatureInput to the output stream.
+     *
+     * @param input the input of the transform
+     * @param os the output of the transform
+     * @param c14nURI the canonicalization algorithm
+     * @param inclusiveNamespaces the inclusive namespace prefix list of exclusive c14n, may be null
+     * @return the output of the transform
+     * @throws CanonicalizationException
+     */
+    static XMLSignatureInput canonicalize(
+        XMLSignatureInput input, OutputStream os, String c14nURI, String inclusiveNamespaces
+    ) throws CanonicalizationException {
+        Transformer transformer = getTransformer(c14nURI, input.isExcludeComments(), inclusiveNamespaces);
+        try (InputStream is = input.getUnprocessedInput()) {
+            transformer.setOutputStream(os);
+            XMLStreamReader xmlStreamReader = TransformIdentity.getXmlInputFactory().createXMLStreamReader(is);
+            try {
+                XMLSecStartElement parentXMLSecStartElement = null;
+                XMLSecEvent xmlSecEvent;
+                do {
+                    xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parentXMLSecStartElement);
+                    checkEvent(xmlSecEvent);
+                    transformer.transform(xmlSecEvent);
+                    if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                        parentXMLSecStartElement = xmlSecEvent.asStartElement();
+                    } else if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT
+                        && parentXMLSecStartElement != null) {
+                        parentXMLSecStartElement = parentXMLSecStartElement.getParentXMLSecStartElement();
+                    }
+                    if (xmlStreamReader.hasNext()) {
+                        xmlStreamReader.next();
+                    }
+                } while (xmlSecEvent.getEventType() != XMLStreamConstants.END_DOCUMENT);
+                transformer.doFinal();
+            } finally {
+                xmlStreamReader.close();
+            }
+            os.flush();
+        } catch (XMLStreamException | XMLSecurityException | IOException ex) {
+            throw new CanonicalizationException(ex);
+        }
+
+        XMLSignatureInput output = new XMLSignatureByteInput((byte[])null);
+        output.setSecureValidation(true);
+        output.setOutputStream(os);
+        return output;
+    }
+
+    /**
+     * Rejects what a DOM parser with secure validation or the DOM canonicalizers reject.
+     */
+    private static void checkEvent(XMLSecEvent xmlSecEvent) throws CanonicalizationException {
+        if (xmlSecEvent.getEventType() == XMLStreamConstants.DTD) {
+            throw new CanonicalizationException("empty", new Object[] {"DOCTYPE is disallowed"});
+        }
+        if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            List<XMLSecNamespace> namespaces = xmlSecEvent.asStartElement().getOnElementDeclaredNamespaces();
+            for (int i = 0; i < namespaces.size(); i++) {
+                XMLSecNamespace namespace = namespaces.get(i);
+                String uri = namespace.getNamespaceURI();
+                if (uri != null && C14nHelper.namespaceIsRelative(uri)) {
+                    String prefix = namespace.getPrefix();
+                    QName name = xmlSecEvent.asStartElement().getName();
+                    Object[] exArgs = {
+                        name.getPrefix().isEmpty() ? name.getLocalPart() : name.getPrefix() + ":" + name.getLocalPart(),
+                        prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                        uri
+                    };
+                    throw new CanonicalizationException("c14n.Canonicalizer.RelativeNamespace", exArgs);
+                }
+            }
+        }
+    }
+
+    private static Transformer getTransformer(
+        String c14nURI, boolean excludeComments, String inclusiveNamespaces
+    ) throws CanonicalizationException {
+        Transformer transformer;
+        switch (c14nURI) {
+        case Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS:
+            transformer = new Canonicalizer20010315_OmitCommentsTransformer();
+            break;
+        case Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS:
+            transformer = excludeComments
+                ? new Canonicalizer20010315_OmitCommentsTransformer()
+                : new Canonicalizer20010315_WithCommentsTransformer();
+            break;
+        case Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS:
+            transformer = new Canonicalizer11_OmitCommentsTransformer();
+            break;
+        case Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS:
+            transformer = excludeComments
+                ? new Canonicalizer11_OmitCommentsTransformer()
+                : new Canonicalizer11_WithCommentsTransformer();
+            break;
+        case Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS:
+            transformer = new Canonicalizer20010315_ExclOmitCommentsTransformer();
+            break;
+        case Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS:
+            transformer = excludeComments
+                ? new Canonicalizer20010315_ExclOmitCommentsTransformer()
+                : new Canonicalizer20010315_ExclWithCommentsTransformer();
+            break;
+        default:
+            throw new CanonicalizationException("c14n.Canonicalizer.NoSuchCanonicalizer", new Object[] {c14nURI});
+        }
+
+        if (inclusiveNamespaces != null && !inclusiveNamespaces.trim().isEmpty()
+            && transformer instanceof Canonicalizer20010315_Excl) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(Canonicalizer20010315_Excl.INCLUSIVE_NAMESPACES_PREFIX_LIST,
+                           Arrays.asList(inclusiveNamespaces.trim().split("\\s+")));
+            try {
+                transformer.setProperties(properties);
+            } catch (XMLSecurityException ex) {
+                throw new CanonicalizationException(ex);
+            }
+        }
+        return transformer;
+    }
+}
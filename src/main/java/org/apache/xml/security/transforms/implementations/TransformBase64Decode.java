@@ -27,7 +27,9 @@ import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.transforms.TransformSpi;
 import org.apache.xml.security.transforms.TransformationException;
 import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.Base64Codec;
 import org.apache.xml.security.utils.JavaUtils;
+import org.apache.xml.security.utils.UnsyncByteArrayOutputStream;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -59,6 +61,8 @@ import org.w3c.dom.Text;
  */
 public class TransformBase64Decode extends TransformSpi {
 
+    private static final int TEXT_CHUNK_SIZE = 8192;
+
     /**
      * {@inheritDoc}
      */
@@ -80,16 +84,19 @@ public class TransformBase64Decode extends TransformSpi {
             if (input.getSubNode().getNodeType() == Node.TEXT_NODE) {
                 el = el.getParentNode();
             }
-            StringBuilder sb = new StringBuilder();
-            traverseElement((Element)el, sb);
+            // the text nodes are decoded one by one, without concatenating them first
+            Base64Codec.Decoder decoder = Base64Codec.newDecoder();
+            byte[] buffer = new byte[Base64Codec.Decoder.decodedLength(TEXT_CHUNK_SIZE)];
             if (os == null) {
-                byte[] decodedBytes = XMLUtils.decode(sb.toString());
-                XMLSignatureInput output = new XMLSignatureByteInput(decodedBytes);
+                UnsyncByteArrayOutputStream decodedBytes = new UnsyncByteArrayOutputStream();
+                decodeElement((Element)el, decoder, buffer, decodedBytes);
+                decodedBytes.write(buffer, 0, decoder.finish(buffer, 0));
+                XMLSignatureInput output = new XMLSignatureByteInput(decodedBytes.toByteArray());
                 output.setSecureValidation(secureValidation);
                 return output;
             }
-            byte[] bytes = XMLUtils.decode(sb.toString());
-            os.write(bytes);
+            decodeElement((Element)el, decoder, buffer, os);
+            os.write(buffer, 0, decoder.finish(buffer, 0));
             XMLSignatureInput output = new XMLSignatureByteInput(null);
             output.setSecureValidation(secureValidation);
             output.setOutputStream(os);
@@ -113,13 +120,19 @@ public class TransformBase64Decode extends TransformSpi {
         throw new TransformationException("empty", new Object[] {"Unrecognized XMLSignatureInput state"});
     }
 
-    private void traverseElement(Element node, StringBuilder sb) {
+    private static void decodeElement(
+        Element node, Base64Codec.Decoder decoder, byte[] buffer, OutputStream os
+    ) throws IOException {
         Node sibling = node.getFirstChild();
         while (sibling != null) {
             if (Node.ELEMENT_NODE == sibling.getNodeType()) {
-                traverseElement((Element)sibling, sb);
+                decodeElement((Element)sibling, decoder, buffer, os);
             } else if (Node.TEXT_NODE == sibling.getNodeType()) {
-                sb.append(((Text)sibling).getData());
+                String data = ((Text)sibling).getData();
+                for (int off = 0; off < data.length(); off += TEXT_CHUNK_SIZE) {
+                    int len = Math.min(TEXT_CHUNK_SIZE, data.length() - off);
+                    os.write(buffer, 0, decoder.decode(data, off, len, buffer, 0));
+                }
             }
             sibling = sibling.getNextSibling();
         }
@@ -57,6 +57,10 @@ public class TransformC14N extends TransformSpi {
 
         Canonicalizer20010315 c14n = getCanonicalizer();
 
+        if (StreamingCanonicalizer.canStream(input, os, secureValidation)) {
+            return StreamingCanonicalizer.canonicalize(input, os, c14n.engineGetURI(), null);
+        }
+
         if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
             try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
                 c14n.engineCanonicalize(input, writer, secureValidation);
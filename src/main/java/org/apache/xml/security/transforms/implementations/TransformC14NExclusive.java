@@ -79,6 +79,10 @@ public class TransformC14NExclusive extends TransformSpi {
 
             Canonicalizer20010315Excl c14n = getCanonicalizer();
 
+            if (StreamingCanonicalizer.canStream(input, os, secureValidation)) {
+                return StreamingCanonicalizer.canonicalize(input, os, c14n.engineGetURI(), inclusiveNamespaces);
+            }
+
             if (os == null && (input.hasUnprocessedInput() || input.isElement() || input.isNodeSet())) {
                 try (ByteArrayOutputStream writer = new ByteArrayOutputStream()) {
                     c14n.engineCanonicalize(input, inclusiveNamespaces, writer, secureValidation);
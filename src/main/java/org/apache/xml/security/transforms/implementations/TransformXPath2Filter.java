@@ -88,7 +88,7 @@ public class TransformXPath2Filter extends TransformSpi {
             if (input.getSubNode() != null) {
                 inputDoc = XMLUtils.getOwnerDocument(input.getSubNode());
             } else {
-                inputDoc = XMLUtils.getOwnerDocument(input.getNodeSet());
+                inputDoc = XMLUtils.getOwnerDocument(input.getNodeSetView());
             }
 
             XPathFactory xpathFactory = getXPathFactory();
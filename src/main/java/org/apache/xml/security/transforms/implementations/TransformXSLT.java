@@ -26,12 +26,9 @@ import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 
-import javax.xml.XMLConstants;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -88,48 +85,13 @@ public class TransformXSLT extends TransformSpi {
                 throw new TransformationException("xml.WrongContent", exArgs);
             }
 
-            TransformerFactory tFactory = TransformerFactory.newInstance();
-            // Process XSLT stylesheets in a secure manner
-            tFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-            if (secureValidation) {
-                try {
-                    tFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-                    tFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-                } catch (IllegalArgumentException ex) {
-                    // ignore
-                }
-            }
-
             /*
              * This transform requires an octet stream as input. If the actual
              * input is an XPath node-set, then the signature application should
              * attempt to convert it to octets (apply Canonical XML]) as described
              * in the Reference Processing Model (section 4.3.3.2).
              */
-            Source stylesheet;
-
-            /*
-             * This complicated transformation of the stylesheet itself is necessary
-             * because of the need to get the pure style sheet. If we simply say
-             * Source stylesheet = new DOMSource(this.xsltElement);
-             * whereby this.xsltElement is not the rootElement of the Document,
-             * this causes problems;
-             * so we convert the stylesheet to byte[] and use this as input stream
-             */
-            {
-                try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-                    Transformer transformer = tFactory.newTransformer();
-                    DOMSource source = new DOMSource(xsltElement);
-                    StreamResult result = new StreamResult(os);
-
-                    transformer.transform(source, result);
-
-                    stylesheet =
-                        new StreamSource(new ByteArrayInputStream(os.toByteArray()));
-                }
-            }
-
-            Transformer transformer = tFactory.newTransformer(stylesheet);
+            Transformer transformer = XSLTTemplatesCache.getTransformer(xsltElement, secureValidation);
 
             // Force Xalan to use \n as line separator on all OSes. This
             // avoids OS specific signature validation failures due to line
@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.transforms.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.w3c.dom.Element;
+
+/**
+ * A process-wide cache of compiled XSLT stylesheets for the {@link TransformXSLT} transform.
+ * The Templates are keyed by the SHA-256 digest of the canonical form (inclusive, with comments)
+ * of the stylesheet element, whether secure validation is enabled and the TransformerFactory.
+ * The canonical form includes all namespaces in scope of the stylesheet, so two stylesheets
+ * only share an entry if they are compiled to the same Templates.
+ * <p>
+ * Templates are thread-safe, a Transformer isn't. Every entry therefore keeps one Transformer
+ * per thread, which is reset before it is handed out again. The number of entries is bounded by
+ * the system property <code>org.apache.xml.security.xslt.cache-size</code> (default 32), the least
+ * recently used entries are evicted first.
+ * <p>
+ * The TransformerFactories are created with secure processing enabled and cached per context
+ * ClassLoader, exactly as TransformXSLT used to configure them for every transform.
+ */
+public final class XSLTTemplatesCache {
+
+    private static final int CACHE_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.xslt.cache-size", 32));
+
+    private static final Map<ClassLoader, TransformerFactory[]> FACTORIES =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final Map<Key, CachedTemplates> ENTRIES = new LinkedHashMap<Key, CachedTemplates>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedTemplates> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private XSLTTemplatesCache() {
+        // complete
+    }
+
+    /**
+     * @return the number of transforms which found their stylesheet already compiled
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return the number of transforms which had to compile their stylesheet
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return the number of cached stylesheets
+     */
+    public static int getSize() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    /**
+     * Removes all entries. The counters are left untouched.
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * @param xsltElement the xslt:stylesheet or xslt:transform element
+     * @param secureValidation whether secure validation is enabled
+     * @return a Transformer of the compiled stylesheet, owned by the current thread
+     * @throws XMLSecurityException if the stylesheet can't be canonicalized
+     * @throws TransformerException if the stylesheet can't be compiled
+     */
+    static Transformer getTransformer(Element xsltElement, boolean secureValidation)
+        throws XMLSecurityException, TransformerException {
+        TransformerFactory tFactory = getTransformerFactory(secureValidation);
+        Key key = new Key(digest(xsltElement), secureValidation, tFactory);
+
+        CachedTemplates cached;
+        synchronized (ENTRIES) {
+            cached = ENTRIES.get(key);
+        }
+        if (cached != null) {
+            HITS.increment();
+        } else {
+            MISSES.increment();
+            CachedTemplates compiled = new CachedTemplates(compile(tFactory, xsltElement));
+            synchronized (ENTRIES) {
+                cached = ENTRIES.putIfAbsent(key, compiled);
+            }
+            if (cached == null) {
+                cached = compiled;
+            }
+        }
+        return cached.getTransformer();
+    }
+
+    private static TransformerFactory getTransformerFactory(boolean secureValidation)
+        throws TransformerConfigurationException {
+        ClassLoader loader = AccessController.doPrivileged(
+            (PrivilegedAction<ClassLoader>) () -> Thread.currentThread().getContextClassLoader());
+        int index = secureValidation ? 1 : 0;
+        synchronized (FACTORIES) {
+            TransformerFactory[] factories = FACTORIES.computeIfAbsent(loader, l -> new TransformerFactory[2]);
+            if (factories[index] == null) {
+                TransformerFactory tFactory = TransformerFactory.newInstance();
+                // Process XSLT stylesheets in a secure manner
+                tFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
+                if (secureValidation) {
+                    try {
+                        tFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                        tFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+                    } catch (IllegalArgumentException ex) {
+                        // ignore
+                    }
+                }
+                factories[index] = tFactory;
+            }
+            return factories[index];
+        }
+    }
+
+    private static ByteBuffer digest(Element xsltElement) throws XMLSecurityException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new XMLSecurityException(ex);
+        }
+        Canonicalizer c14n = Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS);
+        c14n.canonicalizeSubtree(xsltElement, new DigestOutputStream(OutputStream.nullOutputStream(), md));
+        return ByteBuffer.wrap(md.digest());
+    }
+
+    /*
+     * This complicated transformation of the stylesheet itself is necessary
+     * because of the need to get the pure style sheet. If we simply say
+     * Source stylesheet = new DOMSource(this.xsltElement);
+     * whereby this.xsltElement is not the rootElement of the Document,
+     * this causes problems;
+     * so we convert the stylesheet to byte[] and use this as input stream
+     */
+    private static Templates compile(TransformerFactory tFactory, Element xsltElement)
+        throws TransformerException {
+        // a TransformerFactory isn't thread-safe
+        synchronized (tFactory) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            Transformer transformer = tFactory.newTransformer();
+            transformer.transform(new DOMSource(xsltElement), new StreamResult(os));
+
+            return tFactory.newTemplates(new StreamSource(new ByteArrayInputStream(os.toByteArray())));
+        }
+    }
+
+    private static final class Key {
+        private final ByteBuffer digest;
+        private final boolean secureValidation;
+        private final TransformerFactory tFactory;
+
+        Key(ByteBuffer digest, boolean secureValidation, TransformerFactory tFactory) {
+            this.digest = digest;
+            this.secureValidation = secureValidation;
+            this.tFactory = tFactory;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return digest.equals(other.digest) && secureValidation == other.secureValidation
+                && tFactory == other.tFactory;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * digest.hashCode() + (secureValidation ? 1 : 0);
+        }
+    }
+
+    private static final class CachedTemplates {
+        private final Templates templates;
+        private final ThreadLocal<Transformer> transformers = new ThreadLocal<>();
+
+        CachedTemplates(Templates templates) {
+            this.templates = templates;
+        }
+
+        Transformer getTransformer() throws TransformerConfigurationException {
+            Transformer transformer = transformers.get();
+            if (transformer == null) {
+                transformer = templates.newTransformer();
+                transformers.set(transformer);
+            } else {
+                transformer.reset();
+            }
+            return transformer;
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental Base64 encoding and decoding of arrays, which doesn't create Strings or copies of
+ * the input.
+ * <p>
+ * Unlike <code>java.util.Base64</code>, the {@link Encoder} and {@link Decoder} keep the state
+ * between consecutive calls, so the data can be processed in chunks of arbitrary length, e.g. the
+ * character events of a StAX parser or the text nodes of an element. The output is the same as
+ * of {@link XMLUtils#encodeToString(byte[])} and {@link XMLUtils#decode(String)}, i.e. lines of
+ * 76 characters separated by CRLF unless {@link XMLUtils#isIgnoreLineBreaks()}, and all
+ * characters outside of the Base64 alphabet are skipped when decoding.
+ * <p>
+ * Encoders and decoders are not thread safe.
+ */
+public final class Base64Codec {
+
+    /** The line length of MIME, see RFC 2045 */
+    public static final int MIME_LINE_LENGTH = 76;
+
+    private static final char[] ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final byte[] ALPHABET_OCTETS = new byte[ALPHABET.length];
+    private static final int[] VALUES = new int[256];
+    private static final int PADDING = -2;
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            ALPHABET_OCTETS[i] = (byte) ALPHABET[i];
+            VALUES[ALPHABET[i]] = i;
+        }
+        VALUES['='] = PADDING;
+    }
+
+    private Base64Codec() {
+        // we don't allow instantiation
+    }
+
+    /**
+     * @return a new encoder, which breaks lines like {@link XMLUtils#encodeToString(byte[])}
+     */
+    public static Encoder newEncoder() {
+        return new Encoder(XMLUtils.isIgnoreLineBreaks() ? 0 : MIME_LINE_LENGTH);
+    }
+
+    /**
+     * @param lineLength the maximum number of characters per line, rounded down to a multiple of
+     *    four, or 0 for no line breaks
+     * @return a new encoder, which separates lines by CRLF
+     */
+    public static Encoder newEncoder(int lineLength) {
+        return new Encoder(lineLength);
+    }
+
+    /**
+     * @return a new decoder
+     */
+    public static Decoder newDecoder() {
+        return new Decoder(false);
+    }
+
+    /**
+     * @return a new decoder, which stops at the first padding character and discards a last unit
+     *    of a single character instead of rejecting the input, like the commons-codec decoder
+     *    formerly used by the streaming implementation
+     */
+    public static Decoder newLenientDecoder() {
+        return new Decoder(true);
+    }
+
+    private static int value(char c) {
+        return c > 0xFF ? -1 : VALUES[c];
+    }
+
+    /**
+     * Encodes octets into Base64 characters or ASCII octets. Up to two octets of each call are
+     * kept until the next call or {@link #finish(char[], int)}.
+     */
+    public static final class Encoder {
+
+        private static final int SCRATCH_SIZE = 768;
+
+        private final int lineLength;
+        private byte[] scratchIn;
+        private byte[] scratchOut;
+        private int pending;
+        private int pendingCount;
+        private int column;
+
+        private Encoder(int lineLength) {
+            this.lineLength = lineLength > 0 ? lineLength & ~3 : 0;
+        }
+
+        /**
+         * @param len the number of octets of the next call of <code>encode</code>
+         * @return the maximum number of characters which the call writes
+         */
+        public int encodedLength(int len) {
+            int quartets = (int) (((long) pendingCount + len) / 3);
+            if (lineLength == 0 || quartets == 0) {
+                return quartets * 4;
+            }
+            return quartets * 4 + (column + 4 * quartets - 1) / lineLength * 2;
+        }
+
+        /**
+         * Encodes the given octets.
+         *
+         * @param src the octets
+         * @param off the offset of the first octet
+         * @param len the number of octets
+         * @param dst the array to write the characters to, with space for
+         *    {@link #encodedLength(int)} characters
+         * @param dstOff the offset of the first character
+         * @return the number of written characters
+         */
+        public int encode(byte[] src, int off, int len, char[] dst, int dstOff) {
+            int end = off + len;
+            int d = dstOff;
+            while (pendingCount > 0 && off < end) {
+                pending = pending << 8 | src[off++] & 0xFF;
+                if (++pendingCount == 3) {
+                    d = quartet(pending, dst, d);
+                    pendingCount = 0;
+                }
+            }
+            while (end - off >= 3) {
+                int run = (end - off) / 3;
+                if (lineLength > 0) {
+                    if (column == lineLength) {
+                        dst[d++] = '\r';
+                        dst[d++] = '\n';
+                        column = 0;
+                    }
+                    run = Math.min(run, (lineLength - column) / 4);
+                }
+                // 24 bits of three octets at a time into four characters
+                for (int i = 0; i < run; i++, off += 3, d += 4) {
+                    int bits = (src[off] & 0xFF) << 16 | (src[off + 1] & 0xFF) << 8 | src[off + 2] & 0xFF;
+                    dst[d] = ALPHABET[bits >>> 18];
+                    dst[d + 1] = ALPHABET[bits >>> 12 & 0x3F];
+                    dst[d + 2] = ALPHABET[bits >>> 6 & 0x3F];
+                    dst[d + 3] = ALPHABET[bits & 0x3F];
+                }
+                column += run * 4;
+            }
+            while (off < end) {
+                pending = pending << 8 | src[off++] & 0xFF;
+                pendingCount++;
+            }
+            return d - dstOff;
+        }
+
+        /**
+         * Encodes the given octets into ASCII octets.
+         *
+         * @see #encode(byte[], int, int, char[], int)
+         */
+        public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+            int end = off + len;
+            int d = dstOff;
+            while (pendingCount > 0 && off < end) {
+                pending = pending << 8 | src[off++] & 0xFF;
+                if (++pendingCount == 3) {
+                    d = quartet(pending, dst, d);
+                    pendingCount = 0;
+                }
+            }
+            while (end - off >= 3) {
+                int run = (end - off) / 3;
+                if (lineLength > 0) {
+                    if (column == lineLength) {
+                        dst[d++] = '\r';
+                        dst[d++] = '\n';
+                        column = 0;
+                    }
+                    run = Math.min(run, (lineLength - column) / 4);
+                }
+                for (int i = 0; i < run; i++, off += 3, d += 4) {
+                    int bits = (src[off] & 0xFF) << 16 | (src[off + 1] & 0xFF) << 8 | src[off + 2] & 0xFF;
+                    dst[d] = ALPHABET_OCTETS[bits >>> 18];
+                    dst[d + 1] = ALPHABET_OCTETS[bits >>> 12 & 0x3F];
+                    dst[d + 2] = ALPHABET_OCTETS[bits >>> 6 & 0x3F];
+                    dst[d + 3] = ALPHABET_OCTETS[bits & 0x3F];
+                }
+                column += run * 4;
+            }
+            while (off < end) {
+                pending = pending << 8 | src[off++] & 0xFF;
+                pendingCount++;
+            }
+            return d - dstOff;
+        }
+
+        /**
+         * Encodes the remaining octets of the given buffer into ASCII octets, which are put into
+         * the destination buffer. Buffers without an accessible array, like direct buffers, are
+         * encoded block by block through a small array which the encoder reuses.
+         *
+         * @param src the octets
+         * @param dst the buffer with {@link #encodedLength(int)} remaining octets
+         * @return the number of written octets
+         * @throws BufferOverflowException if the destination buffer has not enough space left,
+         *    in which case neither buffer is modified
+         */
+        public int encode(ByteBuffer src, ByteBuffer dst) {
+            int len = src.remaining();
+            if (dst.remaining() < encodedLength(len)) {
+                throw new BufferOverflowException();
+            }
+            if (src.hasArray() && dst.hasArray()) {
+                int n = encode(src.array(), src.arrayOffset() + src.position(), len,
+                               dst.array(), dst.arrayOffset() + dst.position());
+                src.position(src.limit());
+                dst.position(dst.position() + n);
+                return n;
+            }
+            if (scratchIn == null) {
+                scratchIn = new byte[SCRATCH_SIZE];
+                // 4 characters per 3 octets plus the line breaks and the pending octets
+                scratchOut = new byte[2 * SCRATCH_SIZE];
+            }
+            int total = 0;
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), SCRATCH_SIZE);
+                byte[] in;
+                int inOff;
+                if (src.hasArray()) {
+                    in = src.array();
+                    inOff = src.arrayOffset() + src.position();
+                    src.position(src.position() + n);
+                } else {
+                    in = scratchIn;
+                    inOff = 0;
+                    src.get(scratchIn, 0, n);
+                }
+                int written;
+                if (dst.hasArray()) {
+                    written = encode(in, inOff, n, dst.array(), dst.arrayOffset() + dst.position());
+                    dst.position(dst.position() + written);
+                } else {
+                    written = encode(in, inOff, n, scratchOut, 0);
+                    dst.put(scratchOut, 0, written);
+                }
+                total += written;
+            }
+            return total;
+        }
+
+        /**
+         * Writes the pending octets with padding and resets the encoder.
+         *
+         * @param dst the array to write up to six characters to
+         * @param dstOff the offset of the first character
+         * @return the number of written characters
+         */
+        public int finish(char[] dst, int dstOff) {
+            int d = dstOff;
+            if (pendingCount > 0) {
+                int bits = pending << (3 - pendingCount) * 8;
+                d = quartet(bits, dst, d);
+                dst[d - 1] = '=';
+                if (pendingCount == 1) {
+                    dst[d - 2] = '=';
+                }
+            }
+            reset();
+            return d - dstOff;
+        }
+
+        /**
+         * Writes the pending octets with padding as ASCII octets and resets the encoder.
+         *
+         * @see #finish(char[], int)
+         */
+        public int finish(byte[] dst, int dstOff) {
+            int d = dstOff;
+            if (pendingCount > 0) {
+                int bits = pending << (3 - pendingCount) * 8;
+                d = quartet(bits, dst, d);
+                dst[d - 1] = '=';
+                if (pendingCount == 1) {
+                    dst[d - 2] = '=';
+                }
+            }
+            reset();
+            return d - dstOff;
+        }
+
+        private void reset() {
+            pending = 0;
+            pendingCount = 0;
+            column = 0;
+        }
+
+        private int quartet(int bits, char[] dst, int d) {
+            if (lineLength > 0 && column == lineLength) {
+                dst[d++] = '\r';
+                dst[d++] = '\n';
+                column = 0;
+            }
+            dst[d] = ALPHABET[bits >>> 18 & 0x3F];
+            dst[d + 1] = ALPHABET[bits >>> 12 & 0x3F];
+            dst[d + 2] = ALPHABET[bits >>> 6 & 0x3F];
+            dst[d + 3] = ALPHABET[bits & 0x3F];
+            column += 4;
+            return d + 4;
+        }
+
+        private int quartet(int bits, byte[] dst, int d) {
+            if (lineLength > 0 && column == lineLength) {
+                dst[d++] = '\r';
+                dst[d++] = '\n';
+                column = 0;
+            }
+            dst[d] = ALPHABET_OCTETS[bits >>> 18 & 0x3F];
+            dst[d + 1] = ALPHABET_OCTETS[bits >>> 12 & 0x3F];
+            dst[d + 2] = ALPHABET_OCTETS[bits >>> 6 & 0x3F];
+            dst[d + 3] = ALPHABET_OCTETS[bits & 0x3F];
+            column += 4;
+            return d + 4;
+        }
+    }
+
+    /**
+     * Decodes Base64 characters into octets. Characters outside of the Base64 alphabet, e.g.
+     * line breaks, are skipped. Up to three characters of each call are kept until the next call
+     * or {@link #finish(byte[], int)}.
+     * <p>
+     * Malformed input, i.e. misplaced padding or a last unit of a single character, is reported
+     * as IllegalArgumentException like by <code>java.util.Base64</code>, unless the decoder is
+     * lenient.
+     */
+    public static final class Decoder {
+
+        private int bits;
+        private int count;
+        /** The first of two '=' was seen */
+        private boolean padding;
+        /** The last unit ended with padding */
+        private boolean complete;
+
+        private final boolean lenient;
+
+        private Decoder(boolean lenient) {
+            this.lenient = lenient;
+        }
+
+        /**
+         * @param len the number of characters of the next call of <code>decode</code>
+         * @return the maximum number of octets which the call writes
+         */
+        public static int decodedLength(int len) {
+            return (int) (((long) len + 3) / 4 * 3);
+        }
+
+        /**
+         * Decodes the given characters.
+         *
+         * @param src the characters
+         * @param off the offset of the first character
+         * @param len the number of characters
+         * @param dst the array to write the octets to, with space for
+         *    {@link #decodedLength(int)} octets
+         * @param dstOff the offset of the first octet
+         * @return the number of written octets
+         */
+        public int decode(char[] src, int off, int len, byte[] dst, int dstOff) {
+            int end = off + len;
+            int d = dstOff;
+            while (off < end) {
+                if (count == 0 && !complete) {
+                    // four characters without line breaks at a time into 24 bits
+                    while (end - off >= 4) {
+                        int b0 = value(src[off]);
+                        int b1 = value(src[off + 1]);
+                        int b2 = value(src[off + 2]);
+                        int b3 = value(src[off + 3]);
+                        if ((b0 | b1 | b2 | b3) < 0) {
+                            break;
+                        }
+                        int b = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+                        dst[d] = (byte) (b >> 16);
+                        dst[d + 1] = (byte) (b >> 8);
+                        dst[d + 2] = (byte) b;
+                        d += 3;
+                        off += 4;
+                    }
+                    if (off == end) {
+                        break;
+                    }
+                }
+                d = decode(value(src[off++]), dst, d);
+            }
+            return d - dstOff;
+        }
+
+        /**
+         * Decodes the given characters.
+         *
+         * @see #decode(char[], int, int, byte[], int)
+         */
+        public int decode(CharSequence src, int off, int len, byte[] dst, int dstOff) {
+            int end = off + len;
+            int d = dstOff;
+            while (off < end) {
+                if (count == 0 && !complete) {
+                    while (end - off >= 4) {
+                        int b0 = value(src.charAt(off));
+                        int b1 = value(src.charAt(off + 1));
+                        int b2 = value(src.charAt(off + 2));
+                        int b3 = value(src.charAt(off + 3));
+                        if ((b0 | b1 | b2 | b3) < 0) {
+                            break;
+                        }
+                        int b = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+                        dst[d] = (byte) (b >> 16);
+                        dst[d + 1] = (byte) (b >> 8);
+                        dst[d + 2] = (byte) b;
+                        d += 3;
+                        off += 4;
+                    }
+                    if (off == end) {
+                        break;
+                    }
+                }
+                d = decode(value(src.charAt(off++)), dst, d);
+            }
+            return d - dstOff;
+        }
+
+        /**
+         * Writes the octets of an unpadded last unit and resets the decoder.
+         *
+         * @param dst the array to write up to two octets to
+         * @param dstOff the offset of the first octet
+         * @return the number of written octets
+         * @throws IllegalArgumentException if the input ends with a single character or
+         *    incomplete padding
+         */
+        public int finish(byte[] dst, int dstOff) {
+            int d = dstOff;
+            if (padding) {
+                reset();
+                throw new IllegalArgumentException("Input has incomplete padding");
+            }
+            if (count == 1 && !lenient) {
+                reset();
+                throw new IllegalArgumentException("Last unit does not have enough valid bits");
+            } else if (count == 2) {
+                dst[d++] = (byte) (bits >> 4);
+            } else if (count == 3) {
+                dst[d++] = (byte) (bits >> 10);
+                dst[d++] = (byte) (bits >> 2);
+            }
+            reset();
+            return d - dstOff;
+        }
+
+        private int decode(int value, byte[] dst, int d) {
+            if (value == -1) {
+                return d;
+            }
+            if (complete) {
+                // only further padding may follow
+                if (value == PADDING || lenient) {
+                    return d;
+                }
+                throw new IllegalArgumentException("Input has incorrect ending");
+            }
+            if (value == PADDING && lenient) {
+                d = finish(dst, d) + d;
+                complete = true;
+                return d;
+            }
+            if (value == PADDING) {
+                if (count == 3) {
+                    dst[d++] = (byte) (bits >> 10);
+                    dst[d++] = (byte) (bits >> 2);
+                    complete = true;
+                } else if (count == 2 && padding) {
+                    dst[d++] = (byte) (bits >> 4);
+                    complete = true;
+                } else if (count == 2) {
+                    padding = true;
+                } else {
+                    throw new IllegalArgumentException("Input has misplaced padding");
+                }
+                if (complete) {
+                    bits = 0;
+                    count = 0;
+                    padding = false;
+                }
+                return d;
+            }
+            if (padding) {
+                throw new IllegalArgumentException("Input has misplaced padding");
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                dst[d] = (byte) (bits >> 16);
+                dst[d + 1] = (byte) (bits >> 8);
+                dst[d + 2] = (byte) bits;
+                d += 3;
+                bits = 0;
+                count = 0;
+            }
+            return d;
+        }
+
+        private void reset() {
+            bits = 0;
+            count = 0;
+            padding = false;
+            complete = false;
+        }
+    }
+}
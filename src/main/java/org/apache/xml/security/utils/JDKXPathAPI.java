@@ -18,28 +18,26 @@
  */
 package org.apache.xml.security.utils;
 
-import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
 import javax.xml.transform.TransformerException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import javax.xml.xpath.XPathFactoryConfigurationException;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
- * An implementation for XPath evaluation that uses the JDK API.
+ * An implementation for XPath evaluation that uses the JDK API. The compiled expressions are
+ * shared by all instances through the {@link XPathExpressionCache}.
  */
 class JDKXPathAPI implements XPathAPI {
 
-    private XPathFactory xpf;
-
     private String xpathStr;
 
-    private XPathExpression xpathExpression;
+    private Node namespaceNode;
+
+    private XPathExpressionCache.CachedExpression cachedExpression;
 
     /**
      *  Use an XPath string to select a nodelist.
@@ -57,29 +55,7 @@ class JDKXPathAPI implements XPathAPI {
     public NodeList selectNodeList(
         Node contextNode, Node xpathnode, String str, Node namespaceNode
     ) throws TransformerException {
-        if (!str.equals(xpathStr) || xpathExpression == null) {
-            if (xpf == null) {
-                xpf = XPathFactory.newInstance();
-                try {
-                    xpf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-                } catch (XPathFactoryConfigurationException ex) {
-                    throw new TransformerException(ex);
-                }
-            }
-            XPath xpath = xpf.newXPath();
-            xpath.setNamespaceContext(new DOMNamespaceContext(namespaceNode));
-            xpathStr = str;
-            try {
-                xpathExpression = xpath.compile(xpathStr);
-            } catch (XPathExpressionException ex) {
-                throw new TransformerException(ex);
-            }
-        }
-        try {
-            return (NodeList)xpathExpression.evaluate(contextNode, XPathConstants.NODESET);
-        } catch (XPathExpressionException ex) {
-            throw new TransformerException(ex);
-        }
+        return (NodeList) evaluate(contextNode, str, namespaceNode, XPathConstants.NODESET);
     }
 
     /**
@@ -92,29 +68,7 @@ class JDKXPathAPI implements XPathAPI {
     @Override
     public boolean evaluate(Node contextNode, Node xpathnode, String str, Node namespaceNode)
         throws TransformerException {
-        if (!str.equals(xpathStr) || xpathExpression == null) {
-            if (xpf == null) {
-                xpf = XPathFactory.newInstance();
-                try {
-                    xpf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-                } catch (XPathFactoryConfigurationException ex) {
-                    throw new TransformerException(ex);
-                }
-            }
-            XPath xpath = xpf.newXPath();
-            xpath.setNamespaceContext(new DOMNamespaceContext(namespaceNode));
-            xpathStr = str;
-            try {
-                xpathExpression = xpath.compile(xpathStr);
-            } catch (XPathExpressionException ex) {
-                throw new TransformerException(ex);
-            }
-        }
-        try {
-            return (Boolean)xpathExpression.evaluate(contextNode, XPathConstants.BOOLEAN);
-        } catch (XPathExpressionException ex) {
-            throw new TransformerException(ex);
-        }
+        return (Boolean) evaluate(contextNode, str, namespaceNode, XPathConstants.BOOLEAN);
     }
 
     /**
@@ -123,8 +77,25 @@ class JDKXPathAPI implements XPathAPI {
     @Override
     public void clear() {
         xpathStr = null;
-        xpathExpression = null;
-        xpf = null;
+        namespaceNode = null;
+        cachedExpression = null;
     }
 
+    private Object evaluate(Node contextNode, String str, Node namespaceNode, QName returnType)
+        throws TransformerException {
+        // usually the same expression is evaluated for many nodes in a row
+        if (!str.equals(xpathStr) || namespaceNode != this.namespaceNode || cachedExpression == null) {
+            cachedExpression = XPathExpressionCache.get(str, namespaceNode);
+            xpathStr = str;
+            this.namespaceNode = namespaceNode;
+        }
+        XPathExpression xpathExpression = cachedExpression.take();
+        try {
+            return xpathExpression.evaluate(contextNode, returnType);
+        } catch (XPathExpressionException ex) {
+            throw new TransformerException(ex);
+        } finally {
+            cachedExpression.release(xpathExpression);
+        }
+    }
 }
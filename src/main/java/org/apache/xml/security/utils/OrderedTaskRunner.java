@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Runs a list of independent tasks concurrently and hands out their outcomes in list order, so
+ * that the caller can process them as if it had run the tasks one after the other.
+ * <p>
+ * The tasks are claimed in list order by up to <code>parallelism</code> workers: the calling
+ * thread and <code>parallelism - 1</code> helpers which are submitted to the Executor. Since the
+ * calling thread takes part, all tasks are run even if the Executor is saturated or rejects the
+ * helpers. Once a task has failed, i.e. it threw an exception or returned a result which matches
+ * the failure predicate, no task with a higher index is started anymore. {@link #run} returns
+ * only after all started tasks have completed, so no task outlives the call.
+ * <p>
+ * All tasks up to and including the first failed one are guaranteed to have been run. Tasks
+ * after it may or may not have been run.
+ *
+ * @param <T> the result type of the tasks
+ */
+public final class OrderedTaskRunner<T> {
+
+    /**
+     * A task which computes a result and may throw an exception.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+
+        T call() throws Exception;
+    }
+
+    private final List<? extends Task<? extends T>> tasks;
+    private final Predicate<? super T> failed;
+    private final Object[] results;
+    private final Throwable[] exceptions;
+    private final boolean[] completed;
+
+    /** The next task to claim */
+    private final AtomicInteger next = new AtomicInteger();
+    /** The lowest index of a failed task */
+    private final AtomicInteger firstFailure;
+
+    private final Object lock = new Object();
+    private int activeHelpers;
+    private boolean closed;
+
+    private OrderedTaskRunner(List<? extends Task<? extends T>> tasks, Predicate<? super T> failed) {
+        this.tasks = tasks;
+        this.failed = failed;
+        this.results = new Object[tasks.size()];
+        this.exceptions = new Throwable[tasks.size()];
+        this.completed = new boolean[tasks.size()];
+        this.firstFailure = new AtomicInteger(tasks.size());
+    }
+
+    /**
+     * Runs the given tasks.
+     *
+     * @param tasks the tasks to run
+     * @param failed matches the results which fail the whole run, e.g. an invalid Reference
+     * @param executor the Executor which runs the helpers, or null to use the common ForkJoinPool
+     * @param parallelism the maximum number of tasks which run at the same time, including the calling thread
+     * @return the outcomes of the tasks
+     * @throws InterruptedException if the calling thread was interrupted while it waited for the
+     * helpers. The tasks which were not started yet are skipped in this case.
+     */
+    public static <T> OrderedTaskRunner<T> run(
+        List<? extends Task<? extends T>> tasks, Predicate<? super T> failed, Executor executor, int parallelism
+    ) throws InterruptedException {
+        OrderedTaskRunner<T> runner = new OrderedTaskRunner<>(tasks, failed);
+        Executor helperExecutor = executor != null ? executor : ForkJoinPool.commonPool();
+        int helpers = Math.min(parallelism, tasks.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                helperExecutor.execute(runner::help);
+            } catch (RejectedExecutionException ex) {
+                // the calling thread runs the remaining tasks
+                break;
+            }
+        }
+        runner.work();
+        runner.awaitHelpers();
+        return runner;
+    }
+
+    /**
+     * @return the number of tasks
+     */
+    public int size() {
+        return results.length;
+    }
+
+    /**
+     * Returns the result of the task at the given index or rethrows the exception it threw.
+     *
+     * @param index the index of the task
+     * @return the result of the task
+     * @throws CancellationException if the task was skipped because a task before it failed
+     * @throws Exception the exception thrown by the task
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) throws Exception {
+        if (!completed[index]) {
+            throw new CancellationException("Task " + index + " was not run");
+        }
+        Throwable exception = exceptions[index];
+        if (exception instanceof Error) {
+            throw (Error) exception;
+        } else if (exception != null) {
+            throw (Exception) exception;
+        }
+        return (T) results[index];
+    }
+
+    private void help() {
+        synchronized (lock) {
+            if (closed) {
+                // the calling thread has already claimed all tasks
+                return;
+            }
+            activeHelpers++;
+        }
+        try {
+            work();
+        } finally {
+            synchronized (lock) {
+                if (--activeHelpers == 0) {
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void work() {
+        int index;
+        while ((index = next.getAndIncrement()) < results.length) {
+            if (index > firstFailure.get()) {
+                return;
+            }
+            try {
+                T result = tasks.get(index).call();
+                results[index] = result;
+                if (failed.test(result)) {
+                    fail(index);
+                }
+            } catch (Exception | Error ex) {    //NOPMD
+                exceptions[index] = ex;
+                fail(index);
+            }
+            completed[index] = true;
+        }
+    }
+
+    private void fail(int index) {
+        int current;
+        while (index < (current = firstFailure.get()) && !firstFailure.compareAndSet(current, index)) { //NOPMD
+            // retry
+        }
+    }
+
+    /**
+     * Waits until no helper is running anymore. The outcomes of the tasks are visible to the
+     * calling thread afterwards since every helper leaves the lock after its last task.
+     */
+    private void awaitHelpers() throws InterruptedException {
+        boolean interrupted = false;
+        synchronized (lock) {
+            closed = true;
+            while (activeHelpers > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    // skip the remaining tasks, but never leave a task running
+                    interrupted = true;
+                    firstFailure.set(-1);
+                }
+            }
+        }
+        if (interrupted) {
+            throw new InterruptedException();
+        }
+    }
+}
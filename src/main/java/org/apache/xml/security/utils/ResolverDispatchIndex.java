@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable snapshot of a resolver registry, which maps a dispatch key (e.g. the qualified
+ * name of an element or the scheme of a URI) to the resolvers which have to be consulted for it.
+ * <p>
+ * A resolver may declare the keys it handles. It is then only a candidate for these keys.
+ * A resolver which declares nothing (null or an empty collection) is a candidate for every key.
+ * The candidates for a key are returned in registration order, so a lookup consults the
+ * resolvers in the same order as a scan of the whole registry would, it just skips those which
+ * declared other keys.
+ *
+ * @param <K> the type of the dispatch key
+ * @param <T> the type of the resolvers
+ */
+public final class ResolverDispatchIndex<K, T> {
+
+    private final List<T> all;
+    private final List<T> undeclared;
+    private final Map<K, List<T>> candidates;
+
+    /**
+     * @param resolvers the registered resolvers in registration order, null elements are kept
+     * @param declaredKeys returns the keys a resolver handles, or null if it handles any key
+     */
+    public ResolverDispatchIndex(List<T> resolvers, Function<? super T, ? extends Collection<K>> declaredKeys) {
+        List<Set<K>> keysPerResolver = new ArrayList<>(resolvers.size());
+        Set<K> allKeys = new LinkedHashSet<>();
+        for (T resolver : resolvers) {
+            Collection<K> keys = resolver != null ? declaredKeys.apply(resolver) : null;
+            if (keys == null || keys.isEmpty()) {
+                keysPerResolver.add(null);
+            } else {
+                Set<K> keySet = new LinkedHashSet<>(keys);
+                keysPerResolver.add(keySet);
+                allKeys.addAll(keySet);
+            }
+        }
+
+        List<T> undeclaredResolvers = new ArrayList<>();
+        for (int i = 0; i < resolvers.size(); i++) {
+            if (keysPerResolver.get(i) == null) {
+                undeclaredResolvers.add(resolvers.get(i));
+            }
+        }
+
+        Map<K, List<T>> map = new HashMap<>();
+        for (K key : allKeys) {
+            List<T> list = new ArrayList<>();
+            for (int i = 0; i < resolvers.size(); i++) {
+                Set<K> keys = keysPerResolver.get(i);
+                if (keys == null || keys.contains(key)) {
+                    list.add(resolvers.get(i));
+                }
+            }
+            map.put(key, Collections.unmodifiableList(list));
+        }
+
+        this.all = Collections.unmodifiableList(new ArrayList<>(resolvers));
+        this.undeclared = Collections.unmodifiableList(undeclaredResolvers);
+        this.candidates = map;
+    }
+
+    /**
+     * @param key the dispatch key, or null if it can't be determined
+     * @return the resolvers to consult for the key in registration order. If the key is null,
+     *         all registered resolvers are returned.
+     */
+    public List<T> getCandidates(K key) {
+        if (key == null) {
+            return all;
+        }
+        List<T> list = candidates.get(key);
+        return list != null ? list : undeclared;
+    }
+
+    /**
+     * @return all registered resolvers in registration order
+     */
+    public List<T> getAll() {
+        return all;
+    }
+
+    /**
+     * @param <K> the type of the dispatch key
+     * @param declaredKeys the keys a resolver declared, may be null
+     * @param key the dispatch key, may be null
+     * @return whether a resolver which declared the given keys has to be consulted for the key
+     */
+    public static <K> boolean isCandidate(Collection<K> declaredKeys, K key) {
+        return key == null || declaredKeys == null || declaredKeys.isEmpty() || declaredKeys.contains(key);
+    }
+}
@@ -521,6 +521,31 @@ public final class XMLUtils {
         return Base64.getMimeEncoder().encodeToString(bytes);
     }
 
+    /**
+     * Wraps the given stream for Base64 encoding the octets written to it, with the same line
+     * breaks as {@link #encodeToString(byte[])}. Closing the returned stream closes the given one.
+     *
+     * @param os the stream the Base64 text is written to
+     * @return the stream to write the octets to
+     */
+    public static OutputStream encodeStream(OutputStream os) {
+        if (ignoreLineBreaks) {
+            return Base64.getEncoder().wrap(os);
+        }
+        return Base64.getMimeEncoder().wrap(os);
+    }
+
+    /**
+     * Wraps the given stream for decoding the Base64 text read from it. Line breaks and other
+     * characters outside of the Base64 alphabet are ignored, like in {@link #decode(String)}.
+     *
+     * @param is the stream the Base64 text is read from
+     * @return the stream to read the decoded octets from
+     */
+    public static InputStream decodeStream(InputStream is) {
+        return Base64.getMimeDecoder().wrap(is);
+    }
+
     public static byte[] decode(String encodedString) {
         return Base64.getMimeDecoder().decode(encodedString);
     }
@@ -646,6 +671,37 @@ public final class XMLUtils {
         } while (true);
     }
 
+    /**
+     * Reads every node of the given document once. DOM implementations like Xerces build parts
+     * of the tree on the first access (deferred node expansion, attribute maps), so a read can
+     * modify the tree. Afterwards the document may be read by several threads at the same time,
+     * provided that none of them modifies it.
+     *
+     * @param doc the document to prepare
+     */
+    public static void prepareForConcurrentReads(Document doc) {
+        Node node = doc;
+        while (node != null) {
+            node.getNodeName();
+            node.getNamespaceURI();
+            node.getNodeValue();
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                NamedNodeMap attributes = node.getAttributes();
+                for (int i = 0, length = attributes.getLength(); i < length; i++) {
+                    Node attr = attributes.item(i);
+                    attr.getNamespaceURI();
+                    attr.getNodeValue();
+                }
+            }
+            Node next = node.getFirstChild();
+            while (next == null && node != null) {
+                next = node.getNextSibling();
+                node = node.getParentNode();
+            }
+            node = next;
+        }
+    }
+
     /**
      * @param sibling
      * @param nodeName
@@ -0,0 +1,293 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.utils;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFactoryConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * A process-wide cache of compiled XPath expressions, keyed by the expression, the namespace
+ * bindings in scope of the namespace node and the XPathFactory. The expressions are compiled
+ * with a snapshot of the bindings, so the cache doesn't keep any DOM alive.
+ * <p>
+ * An XPathExpression must not be used by several threads at the same time, so each entry is a
+ * small pool of expressions which are taken for an evaluation and released afterwards. The
+ * number of entries is bounded by the system property
+ * <code>org.apache.xml.security.xpath.cache-size</code> (default 256), the least recently used
+ * entries are evicted first.
+ * <p>
+ * The XPathFactory, whose lookup is expensive, is cached per context ClassLoader.
+ */
+final class XPathExpressionCache {
+
+    private static final int CACHE_SIZE =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger("org.apache.xml.security.xpath.cache-size", 256));
+
+    private static final int MAX_IDLE_PER_ENTRY = 8;
+
+    private static final Map<ClassLoader, XPathFactory> FACTORIES =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final Map<Key, CachedExpression> ENTRIES = new LinkedHashMap<Key, CachedExpression>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedExpression> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private XPathExpressionCache() {
+        // complete
+    }
+
+    /**
+     * @param expression the XPath expression
+     * @param namespaceNode the node from which prefixes in the XPath will be resolved to namespaces
+     * @return the cache entry of the expression
+     * @throws TransformerException if the XPathFactory can't be configured
+     */
+    static CachedExpression get(String expression, Node namespaceNode) throws TransformerException {
+        Key key = new Key(expression, getInScopeNamespaces(namespaceNode), getXPathFactory());
+        synchronized (ENTRIES) {
+            return ENTRIES.computeIfAbsent(key, CachedExpression::new);
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    private static XPathFactory getXPathFactory() throws TransformerException {
+        ClassLoader loader = AccessController.doPrivileged(
+            (PrivilegedAction<ClassLoader>) () -> Thread.currentThread().getContextClassLoader());
+        synchronized (FACTORIES) {
+            XPathFactory xpf = FACTORIES.get(loader);
+            if (xpf == null) {
+                xpf = XPathFactory.newInstance();
+                try {
+                    xpf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
+                } catch (XPathFactoryConfigurationException ex) {
+                    throw new TransformerException(ex);
+                }
+                FACTORIES.put(loader, xpf);
+            }
+            return xpf;
+        }
+    }
+
+    /**
+     * Collects the namespace bindings the same way as {@link Node#lookupNamespaceURI(String)}
+     * resolves them: the prefix of an element binds before its namespace declarations, and inner
+     * elements bind before outer ones.
+     */
+    private static Map<String, String> getInScopeNamespaces(Node namespaceNode) {
+        Map<String, String> bindings = new TreeMap<>();
+        Node node = namespaceNode;
+        if (node != null && node.getNodeType() == Node.DOCUMENT_NODE) {
+            node = ((Document) node).getDocumentElement();
+        } else if (node != null && node.getNodeType() == Node.ATTRIBUTE_NODE) {
+            node = ((Attr) node).getOwnerElement();
+        }
+        while (node != null && node.getNodeType() != Node.ELEMENT_NODE) {
+            node = node.getParentNode();
+        }
+        for (; node != null && node.getNodeType() == Node.ELEMENT_NODE; node = node.getParentNode()) {
+            Element element = (Element) node;
+            if (element.getNamespaceURI() != null) {
+                bindings.putIfAbsent(prefixKey(element.getPrefix()), element.getNamespaceURI());
+            }
+            NamedNodeMap attributes = element.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Attr attr = (Attr) attributes.item(i);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())) {
+                    String prefix = XMLConstants.XMLNS_ATTRIBUTE.equals(attr.getNodeName()) ? "" : attr.getLocalName();
+                    bindings.putIfAbsent(prefix, attr.getValue());
+                }
+            }
+        }
+        return bindings;
+    }
+
+    private static String prefixKey(String prefix) {
+        return prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix;
+    }
+
+    /**
+     * A pool of compiled instances of one expression.
+     */
+    static final class CachedExpression {
+
+        private final Key key;
+        private final Queue<XPathExpression> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        CachedExpression(Key key) {
+            this.key = key;
+        }
+
+        /**
+         * @return a compiled expression, which must be released after the evaluation
+         * @throws TransformerException if the expression can't be compiled
+         */
+        XPathExpression take() throws TransformerException {
+            XPathExpression expression = idle.poll();
+            if (expression != null) {
+                idleCount.decrementAndGet();
+                return expression;
+            }
+            XPath xpath;
+            // XPathFactory isn't thread-safe
+            synchronized (key.factory) {
+                xpath = key.factory.newXPath();
+            }
+            xpath.setNamespaceContext(new BindingsNamespaceContext(key.bindings));
+            try {
+                return xpath.compile(key.expression);
+            } catch (XPathExpressionException ex) {
+                throw new TransformerException(ex);
+            }
+        }
+
+        /**
+         * @param expression an expression taken from this entry
+         */
+        void release(XPathExpression expression) {
+            if (idleCount.incrementAndGet() <= MAX_IDLE_PER_ENTRY) {
+                idle.offer(expression);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final String expression;
+        private final Map<String, String> bindings;
+        private final XPathFactory factory;
+        private final int hashCode;
+
+        Key(String expression, Map<String, String> bindings, XPathFactory factory) {
+            this.expression = expression;
+            this.bindings = bindings;
+            this.factory = factory;
+            this.hashCode = Objects.hash(expression, bindings, System.identityHashCode(factory));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return factory == other.factory && expression.equals(other.expression) && bindings.equals(other.bindings);
+        }
+    }
+
+    /**
+     * Resolves prefixes like {@link DOMNamespaceContext}, but from a snapshot of the bindings.
+     */
+    private static final class BindingsNamespaceContext implements NamespaceContext {
+
+        private final Map<String, String> bindings;
+
+        BindingsNamespaceContext(Map<String, String> bindings) {
+            this.bindings = bindings;
+        }
+
+        @Override
+        public String getNamespaceURI(String prefix) {
+            if (prefix == null) {
+                throw new IllegalArgumentException("prefix is null");
+            }
+            String namespaceURI = bindings.get(prefix);
+            if (namespaceURI != null && !namespaceURI.isEmpty()) {
+                return namespaceURI;
+            }
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                return XMLConstants.XML_NS_URI;
+            } else if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            return XMLConstants.NULL_NS_URI;
+        }
+
+        @Override
+        public String getPrefix(String namespaceURI) {
+            Iterator<String> prefixes = getPrefixes(namespaceURI);
+            return prefixes.hasNext() ? prefixes.next() : null;
+        }
+
+        @Override
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            if (namespaceURI == null) {
+                throw new IllegalArgumentException("namespace URI is null");
+            }
+            List<String> prefixes = new ArrayList<>();
+            for (Map.Entry<String, String> binding : bindings.entrySet()) {
+                if (binding.getValue().equals(namespaceURI)) {
+                    prefixes.add(binding.getKey());
+                }
+            }
+            return prefixes.iterator();
+        }
+    }
+}
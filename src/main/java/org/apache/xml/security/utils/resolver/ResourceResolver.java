@@ -22,12 +22,14 @@ import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.utils.ClassLoaderUtils;
 import org.apache.xml.security.utils.JavaUtils;
+import org.apache.xml.security.utils.ResolverDispatchIndex;
 import org.apache.xml.security.utils.resolver.implementations.ResolverFragment;
 import org.apache.xml.security.utils.resolver.implementations.ResolverXPointer;
 
@@ -36,6 +38,11 @@ import org.apache.xml.security.utils.resolver.implementations.ResolverXPointer;
  * This is done by retrieving a Resolver. The resolver needs two arguments: The
  * URI in which the link to the new resource is defined and the baseURI of the
  * file/entity in which the URI occurs (the baseURI is the same as the SystemId).
+ * <p>
+ * The system-wide resolvers are indexed by the URI schemes they declare with
+ * {@link ResourceResolverSpi#engineGetResolvableURISchemes()}, so that a URI is only offered to
+ * the resolvers which declared its scheme and to those which didn't declare any scheme. The
+ * order in which they are consulted is the order of registration.
  */
 public class ResourceResolver {
 
@@ -44,6 +51,9 @@ public class ResourceResolver {
     /** these are the system-wide resolvers */
     private static final List<ResourceResolverSpi> resolverList = new CopyOnWriteArrayList<>();
 
+    private static volatile ResolverDispatchIndex<String, ResourceResolverSpi> dispatchIndex =
+        new ResolverDispatchIndex<>(new ArrayList<>(), ResourceResolverSpi::getResolvableURISchemes);
+
     private static final AtomicBoolean defaultResolversAdded = new AtomicBoolean();
 
     /**
@@ -98,6 +108,7 @@ public class ResourceResolver {
         } else {
             resolverList.add(resourceResolverSpi);
         }
+        updateDispatchIndex();
         LOG.log(Level.DEBUG, "Registered resolver: {0}", resourceResolverSpi.toString());
     }
 
@@ -122,6 +133,7 @@ public class ResourceResolver {
             resourceResolversToAdd.add(resourceResolverSpi);
         }
         resolverList.addAll(resourceResolversToAdd);
+        updateDispatchIndex();
     }
 
     /**
@@ -135,6 +147,7 @@ public class ResourceResolver {
             resourceResolversToAdd.add(new ResolverXPointer());
 
             resolverList.addAll(resourceResolversToAdd);
+            updateDispatchIndex();
         }
     }
 
@@ -148,7 +161,7 @@ public class ResourceResolver {
      */
     public static XMLSignatureInput resolve(ResourceResolverContext context)
         throws ResourceResolverException {
-        for (ResourceResolverSpi resolver : resolverList) {
+        for (ResourceResolverSpi resolver : dispatchIndex.getCandidates(getURIScheme(context))) {
             LOG.log(Level.DEBUG, "check resolvability by class {0}", resolver.getClass().getName());
 
             if (resolver.engineCanResolveURI(context)) {
@@ -181,7 +194,11 @@ public class ResourceResolver {
 
         // first check the individual Resolvers
         if (individualResolvers != null) {
+            String scheme = getURIScheme(context);
             for (ResourceResolverSpi resolver : individualResolvers) {
+                if (!ResolverDispatchIndex.isCandidate(resolver.getResolvableURISchemes(), scheme)) {
+                    continue;
+                }
                 String currentClass = resolver.getClass().getName();
                 LOG.log(Level.DEBUG, "check resolvability by class {0}", currentClass);
 
@@ -193,4 +210,50 @@ public class ResourceResolver {
 
         return resolve(context);
     }
+
+    /**
+     * Returns the dispatch key of the URI to resolve: the empty string for same-document
+     * references, else the lower case scheme of the URI or, if it is relative, of the base URI.
+     *
+     * @param context
+     * @return the scheme, or null if the URI is missing or its scheme is unknown
+     */
+    static String getURIScheme(ResourceResolverContext context) {
+        String uri = context.uriToResolve;
+        if (uri == null) {
+            return null;
+        }
+        if (uri.isEmpty() || uri.charAt(0) == '#') {
+            return "";
+        }
+        String scheme = getScheme(uri);
+        if (scheme == null && context.baseUri != null) {
+            scheme = getScheme(context.baseUri);
+        }
+        return scheme;
+    }
+
+    private static String getScheme(String uri) {
+        // scheme = ALPHA *( ALPHA / DIGIT / "+" / "-" / "." ), see RFC 3986
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == ':') {
+                return i > 0 ? uri.substring(0, i).toLowerCase(Locale.ROOT) : null;
+            }
+            boolean alpha = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+            if (!(alpha || i > 0 && (c >= '0' && c <= '9' || c == '+' || c == '-' || c == '.'))) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rebuilds the dispatch index from the current resolver list. It is called after every
+     * registration, so the last rebuild always sees all registered resolvers.
+     */
+    private static synchronized void updateDispatchIndex() {
+        dispatchIndex =
+            new ResolverDispatchIndex<>(new ArrayList<>(resolverList), ResourceResolverSpi::getResolvableURISchemes);
+    }
 }
@@ -18,15 +18,37 @@
  */
 package org.apache.xml.security.utils.resolver;
 
+import java.util.Collection;
+
 import org.apache.xml.security.signature.XMLSignatureInput;
 
 /**
  * During reference validation, we have to retrieve resources from somewhere.
  *
  * Extensions of this class must be thread-safe.
+ *
+ * An extension which only handles URIs with certain schemes should declare them by
+ * overriding {@link #engineGetResolvableURISchemes()}, so that {@link ResourceResolver}
+ * doesn't consult it for other URIs. A subclass which overrides {@link #engineCanResolveURI}
+ * without declaring the schemes again is consulted for every URI.
  */
 public abstract class ResourceResolverSpi {
 
+    private static final ClassValue<Boolean> DECLARATION_IS_CURRENT = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> clazz = type; clazz != ResourceResolverSpi.class; clazz = clazz.getSuperclass()) {
+                if (declaresMethod(clazz, "engineGetResolvableURISchemes")) {
+                    return Boolean.TRUE;
+                }
+                if (declaresMethod(clazz, "engineCanResolveURI", ResourceResolverContext.class)) {
+                    return Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    };
+
     /**
      * This is the workhorse method used to resolve resources.
      * @param context Context to use to resolve resources.
@@ -47,4 +69,39 @@ public abstract class ResourceResolverSpi {
      */
     public abstract boolean engineCanResolveURI(ResourceResolverContext context);
 
+    /**
+     * Returns the URI schemes this ResourceResolverSpi is able to resolve, in lower case.
+     * The scheme of a relative URI is the one of the base URI, the empty string stands for
+     * same-document references, i.e. an empty URI or a bare fragment.
+     * {@link #engineCanResolveURI} is then only called for URIs with one of these schemes.
+     * The default implementation returns null, i.e. the ResourceResolverSpi is asked for every
+     * URI.
+     *
+     * @return the resolvable URI schemes, or null if they are not known in advance.
+     *         The returned collection must not change afterwards.
+     */
+    public Collection<String> engineGetResolvableURISchemes() {
+        return null;
+    }
+
+    /**
+     * Returns the schemes of {@link #engineGetResolvableURISchemes()}, unless the class overrides
+     * {@link #engineCanResolveURI} below the class which declared them. Such a subclass may
+     * accept other URIs than its parent, so it is asked for every URI.
+     *
+     * @return the resolvable URI schemes, or null
+     */
+    final Collection<String> getResolvableURISchemes() {
+        return DECLARATION_IS_CURRENT.get(getClass()) ? engineGetResolvableURISchemes() : null;
+    }
+
+    private static boolean declaresMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            clazz.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
 }
@@ -20,6 +20,8 @@ package org.apache.xml.security.utils.resolver.implementations;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.util.Collection;
+import java.util.Collections;
 
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.signature.XMLSignatureNodeInput;
@@ -42,6 +44,8 @@ public class ResolverFragment extends ResourceResolverSpi {
 
     private static final Logger LOG = System.getLogger(ResolverFragment.class.getName());
 
+    private static final Collection<String> SAME_DOCUMENT = Collections.singletonList("");
+
     /**
      * {@inheritDoc}
      */
@@ -103,6 +107,15 @@ public class ResolverFragment extends ResourceResolverSpi {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * Only same-document references are resolved.
+     */
+    @Override
+    public Collection<String> engineGetResolvableURISchemes() {
+        return SAME_DOCUMENT;
+    }
+
     /**
      * Method engineCanResolve
      * {@inheritDoc}
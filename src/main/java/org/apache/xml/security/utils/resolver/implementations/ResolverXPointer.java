@@ -20,6 +20,8 @@ package org.apache.xml.security.utils.resolver.implementations;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.util.Collection;
+import java.util.Collections;
 
 import org.apache.xml.security.signature.XMLSignatureInput;
 import org.apache.xml.security.signature.XMLSignatureNodeInput;
@@ -51,6 +53,7 @@ public class ResolverXPointer extends ResourceResolverSpi {
 
     private static final String XP = "#xpointer(id(";
     private static final int XP_LENGTH = XP.length();
+    private static final Collection<String> SAME_DOCUMENT = Collections.singletonList("");
 
     /**
      * {@inheritDoc}
@@ -100,6 +103,15 @@ public class ResolverXPointer extends ResourceResolverSpi {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * Only same-document references are resolved.
+     */
+    @Override
+    public Collection<String> engineGetResolvableURISchemes() {
+        return SAME_DOCUMENT;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.utils.Base64Codec;
+import org.apache.xml.security.utils.XMLUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base64 encoding and decoding of digest, signature and cipher values of different sizes, with
+ * java.util.Base64 and with the incremental Base64Codec on the char arrays of StAX events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64Benchmark {
+
+    @Param({"32", "256", "65536", "1048576"})
+    public int length;
+
+    private byte[] data;
+    private String encoded;
+    private byte[] encodedOctets;
+    private char[] encodedChars;
+    private char[] charBuffer;
+    private byte[] octetBuffer;
+
+    @Setup
+    public void setUp() {
+        data = new byte[length];
+        new Random(length).nextBytes(data);
+        encoded = XMLUtils.encodeToString(data);
+        encodedOctets = encoded.getBytes(StandardCharsets.US_ASCII);
+        encodedChars = encoded.toCharArray();
+        charBuffer = new char[encodedChars.length];
+        octetBuffer = new byte[Base64Codec.Decoder.decodedLength(encodedChars.length)];
+    }
+
+    @Benchmark
+    public String encode() {
+        return XMLUtils.encodeToString(data);
+    }
+
+    @Benchmark
+    public byte[] decodeString() {
+        return XMLUtils.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] decodeOctets() {
+        return XMLUtils.decode(encodedOctets);
+    }
+
+    @Benchmark
+    public int encodeChars() {
+        Base64Codec.Encoder encoder = Base64Codec.newEncoder();
+        int length = encoder.encode(data, 0, data.length, charBuffer, 0);
+        return length + encoder.finish(charBuffer, length);
+    }
+
+    @Benchmark
+    public byte[] decodeCharsAsString() {
+        return XMLUtils.decode(new String(encodedChars));
+    }
+
+    @Benchmark
+    public int decodeChars() {
+        Base64Codec.Decoder decoder = Base64Codec.newDecoder();
+        int length = decoder.decode(encodedChars, 0, encodedChars.length, octetBuffer, 0);
+        return length + decoder.finish(octetBuffer, length);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xml.security.utils.XMLUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A generated input document of a given size and shape, both as octets and as parsed DOM.
+ * <ul>
+ * <li><code>flat</code>: records which are all children of the document element</li>
+ * <li><code>deep</code>: records which are nested into each other</li>
+ * <li><code>namespaced</code>: records which declare and use namespaces of their own, which is
+ * the expensive case for the canonicalizers</li>
+ * </ul>
+ * Each record has an <code>Id</code> attribute, which is registered as ID in the DOM.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDocument {
+
+    @Param({"10", "1000"})
+    public int records;
+
+    @Param({"flat", "deep", "namespaced"})
+    public String shape;
+
+    private byte[] octets;
+    private Document document;
+
+    @Setup
+    public void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+        octets = createDocument(records, shape).getBytes(StandardCharsets.UTF_8);
+        document = XMLUtils.read(new ByteArrayInputStream(octets), false);
+        registerIds(document.getDocumentElement());
+    }
+
+    /**
+     * @return the document as octets
+     */
+    public byte[] getOctets() {
+        return octets;
+    }
+
+    /**
+     * @return the parsed document, which must not be modified
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    static String createDocument(int records, String shape) {
+        StringBuilder sb = new StringBuilder(records * 200);
+        sb.append("<root xmlns=\"urn:example:root\" xmlns:a=\"urn:example:attributes\" xml:lang=\"en\">\n");
+        for (int i = 0; i < records; i++) {
+            switch (shape) {
+            case "flat":
+                sb.append("<record Id=\"rec-").append(i).append("\" a:seq=\"").append(i).append("\">");
+                sb.append("Record &amp; text number ").append(i).append("</record>\n");
+                break;
+            case "deep":
+                sb.append("<record Id=\"rec-").append(i).append("\" a:seq=\"").append(i).append("\">");
+                sb.append("Record &amp; text number ").append(i);
+                break;
+            case "namespaced":
+                sb.append("<r").append(i % 10).append(":record xmlns:r").append(i % 10)
+                    .append("=\"urn:example:record:").append(i % 10).append("\" xmlns:unused=\"urn:example:unused\"")
+                    .append(" Id=\"rec-").append(i).append("\" a:seq=\"").append(i).append("\" z=\"last\" b=\"first\">");
+                sb.append("<value xmlns=\"\">Record &amp; text number ").append(i).append("</value>");
+                sb.append("</r").append(i % 10).append(":record>\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+            }
+        }
+        if ("deep".equals(shape)) {
+            for (int i = 0; i < records; i++) {
+                sb.append("</record>");
+            }
+        }
+        sb.append("</root>\n");
+        return sb.toString();
+    }
+
+    private static void registerIds(Element root) {
+        Element element = root;
+        while (element != null) {
+            if (element.hasAttributeNS(null, "Id")) {
+                element.setIdAttributeNS(null, "Id", true);
+            }
+            Element child = XMLUtils.getNextElement(element.getFirstChild());
+            if (child != null) {
+                element = child;
+                continue;
+            }
+            while (element != null && element != root && XMLUtils.getNextElement(element.getNextSibling()) == null) {
+                element = (Element) element.getParentNode();
+            }
+            element = element == null || element == root ? null : XMLUtils.getNextElement(element.getNextSibling());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.TransformIdentity;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11_WithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclWithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_WithCommentsTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Canonicalizes the whole {@link BenchmarkDocument} with each DOM canonicalizer and with the
+ * corresponding StAX transformer. The output is discarded, so the numbers don't include a digest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CanonicalizerBenchmark {
+
+    @Param({
+        Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS
+    })
+    public String algorithm;
+
+    @Benchmark
+    public void dom(BenchmarkDocument input) throws Exception {
+        Canonicalizer.getInstance(algorithm).canonicalizeSubtree(input.getDocument(), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void stax(BenchmarkDocument input) throws Exception {
+        Transformer transformer = getTransformer(algorithm);
+        transformer.setOutputStream(OutputStream.nullOutputStream());
+        XMLStreamReader xmlStreamReader =
+            TransformIdentity.getXmlInputFactory().createXMLStreamReader(new ByteArrayInputStream(input.getOctets()));
+        try {
+            XMLSecStartElement parentXMLSecStartElement = null;
+            XMLSecEvent xmlSecEvent;
+            do {
+                xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parentXMLSecStartElement);
+                transformer.transform(xmlSecEvent);
+                if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                    parentXMLSecStartElement = xmlSecEvent.asStartElement();
+                } else if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT
+                    && parentXMLSecStartElement != null) {
+                    parentXMLSecStartElement = parentXMLSecStartElement.getParentXMLSecStartElement();
+                }
+                if (xmlStreamReader.hasNext()) {
+                    xmlStreamReader.next();
+                }
+            } while (xmlSecEvent.getEventType() != XMLStreamConstants.END_DOCUMENT);
+            transformer.doFinal();
+        } finally {
+            xmlStreamReader.close();
+        }
+    }
+
+    private static Transformer getTransformer(String algorithm) {
+        switch (algorithm) {
+        case Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS:
+            return new Canonicalizer20010315_OmitCommentsTransformer();
+        case Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS:
+            return new Canonicalizer20010315_WithCommentsTransformer();
+        case Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS:
+            return new Canonicalizer11_OmitCommentsTransformer();
+        case Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS:
+            return new Canonicalizer11_WithCommentsTransformer();
+        case Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS:
+            return new Canonicalizer20010315_ExclOmitCommentsTransformer();
+        case Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS:
+            return new Canonicalizer20010315_ExclWithCommentsTransformer();
+        default:
+            throw new IllegalArgumentException(algorithm);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Digests octets of different sizes with each MessageDigestAlgorithm, including the lookup of
+ * the algorithm and the JCE engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DigestBenchmark {
+
+    @Param({
+        MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA1,
+        MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+        MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA384,
+        MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA512
+    })
+    public String algorithm;
+
+    @Param({"512", "16384", "1048576"})
+    public int length;
+
+    private Document doc;
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+        doc = TestUtils.newDocument();
+        data = new byte[length];
+        new Random(length).nextBytes(data);
+    }
+
+    @Benchmark
+    public byte[] digest() throws Exception {
+        MessageDigestAlgorithm mda = MessageDigestAlgorithm.getInstance(doc, algorithm);
+        try {
+            return mda.digest(data);
+        } finally {
+            mda.release();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import org.apache.xml.security.test.JmhUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.apache.xml.security.test.JmhUtils.getSystemOptArg;
+import static org.hamcrest.Matchers.any;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Runs the benchmarks of the single hot paths in this package with the GC profiler, which reports
+ * the allocations per operation as <code>gc.alloc.rate.norm</code>.
+ * <p>
+ * All benchmarks take a while, a subset can be selected with a regular expression in the system
+ * property <code>benchmark.include</code>, e.g.
+ * <code>mvn verify -DskipIT=false -Dit.test=HotPathBenchmarksIT -Dbenchmark.include=CanonicalizerBenchmark.dom</code>.
+ * JMH parameters can be restricted with <code>benchmark.params</code>, e.g.
+ * <code>-Dbenchmark.params=records=1000;shape=flat</code>.
+ */
+@Tag("benchmark")
+class HotPathBenchmarksIT {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        String include = System.getProperty("benchmark.include", ".*");
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include(HotPathBenchmarksIT.class.getPackage().getName() + "\\." + include)
+            .shouldFailOnError(true)
+            .shouldDoGC(true)
+            .addProfiler(GCProfiler.class)
+            .jvmArgsPrepend(
+                "-Xms1g", "-Xmx1g",
+                getSystemOptArg("org.apache.xml.security.securerandom.algorithm")
+            );
+        String params = System.getProperty("benchmark.params");
+        if (params != null && !params.isEmpty()) {
+            for (String param : params.split(";")) {
+                String[] nameAndValues = param.split("=", 2);
+                options.param(nameAndValues[0], nameAndValues[1].split(","));
+            }
+        }
+        JmhUtils.runAndVerify(options.build(), greaterThan(0d), any(Double.class));
+    }
+}
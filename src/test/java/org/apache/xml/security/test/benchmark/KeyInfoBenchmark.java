@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.keys.KeyInfo;
+import org.apache.xml.security.keys.content.X509Data;
+import org.apache.xml.security.test.XmlSecTestEnvironment;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Resolves the public key of a KeyInfo element with the registered KeyResolvers, for each kind
+ * of KeyInfo content which carries the key itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyInfoBenchmark {
+
+    @Param({"KeyValue", "DEREncodedKeyValue", "X509Certificate"})
+    public String content;
+
+    private Element keyInfoElement;
+
+    @Setup
+    public void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+        X509Certificate cert =
+            (X509Certificate) XmlSecTestEnvironment.getTestKeyStore().getCertificate("mullan");
+
+        Document doc = TestUtils.newDocument();
+        KeyInfo keyInfo = new KeyInfo(doc);
+        switch (content) {
+        case "KeyValue":
+            keyInfo.addKeyValue(cert.getPublicKey());
+            break;
+        case "DEREncodedKeyValue":
+            keyInfo.addDEREncodedKeyValue(cert.getPublicKey());
+            break;
+        case "X509Certificate":
+            X509Data x509Data = new X509Data(doc);
+            x509Data.addCertificate(cert);
+            keyInfo.add(x509Data);
+            break;
+        default:
+            throw new IllegalArgumentException(content);
+        }
+        keyInfoElement = keyInfo.getElement();
+        doc.appendChild(keyInfoElement);
+    }
+
+    @Benchmark
+    public PublicKey getPublicKey() throws Exception {
+        KeyInfo keyInfo = new KeyInfo(keyInfoElement, "");
+        keyInfo.setSecureValidation(true);
+        return keyInfo.getPublicKey();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.utils.resolver.ResourceResolver;
+import org.apache.xml.security.utils.resolver.ResourceResolverContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+
+/**
+ * Dispatches a Reference URI to the registered ResourceResolvers and dereferences it in the
+ * {@link BenchmarkDocument}. The URI attribute is attached to a detached element, so the
+ * document itself isn't modified.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceResolverBenchmark {
+
+    @Param({"", "#rec-5", "#xpointer(/)", "#xpointer(id('rec-5'))"})
+    public String uri;
+
+    private Attr uriAttr;
+
+    @Setup
+    public void setUp(BenchmarkDocument input) {
+        Element reference = input.getDocument().createElementNS(null, "Reference");
+        reference.setAttributeNS(null, "URI", uri);
+        uriAttr = reference.getAttributeNodeNS(null, "URI");
+    }
+
+    @Benchmark
+    public XMLSignatureInput resolve() throws Exception {
+        return ResourceResolver.resolve(new ResourceResolverContext(uriAttr, "", true));
+    }
+}
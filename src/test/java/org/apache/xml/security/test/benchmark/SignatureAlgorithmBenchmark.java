@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.algorithms.SignatureAlgorithm;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Signs and verifies canonical SignedInfo octets of different sizes with each SignatureAlgorithm,
+ * including the lookup of the algorithm and the JCE engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureAlgorithmBenchmark {
+
+    @Param({
+        XMLSignature.ALGO_ID_MAC_HMAC_SHA256,
+        XMLSignature.ALGO_ID_MAC_HMAC_SHA512,
+        XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256,
+        XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA512,
+        XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA256,
+        XMLSignature.ALGO_ID_SIGNATURE_ECDSA_SHA512
+    })
+    public String algorithm;
+
+    @Param({"512", "16384"})
+    public int length;
+
+    private Document doc;
+    private byte[] data;
+    private Key signingKey;
+    private Key verificationKey;
+    private byte[] signatureValue;
+
+    @Setup
+    public void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+        doc = TestUtils.newDocument();
+        data = new byte[length];
+        new Random(length).nextBytes(data);
+
+        if (algorithm.contains("hmac")) {
+            signingKey = new SecretKeySpec("secret-key-of-sixty-four-bytes-for-hmac-sha512-is-long-enough!!!"
+                .getBytes(StandardCharsets.US_ASCII), "HMAC");
+            verificationKey = signingKey;
+        } else {
+            KeyPairGenerator kpg;
+            if (algorithm.contains("ecdsa")) {
+                kpg = KeyPairGenerator.getInstance("EC");
+                kpg.initialize(new ECGenParameterSpec("secp256r1"));
+            } else {
+                kpg = KeyPairGenerator.getInstance("RSA");
+                kpg.initialize(2048);
+            }
+            KeyPair keyPair = kpg.generateKeyPair();
+            signingKey = keyPair.getPrivate();
+            verificationKey = keyPair.getPublic();
+        }
+        signatureValue = sign();
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        SignatureAlgorithm sa = new SignatureAlgorithm(doc, algorithm);
+        sa.initSign(signingKey);
+        sa.update(data);
+        return sa.sign();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        SignatureAlgorithm sa = new SignatureAlgorithm(doc, algorithm);
+        sa.initVerify(verificationKey);
+        sa.update(data);
+        return sa.verify(signatureValue);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.encryption.EncryptedData;
+import org.apache.xml.security.encryption.XMLCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+
+/**
+ * Encrypts the document element of the {@link BenchmarkDocument} with each block cipher and
+ * decrypts it again. The source document isn't modified by either operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XMLCipherBenchmark {
+
+    @Param({
+        XMLCipher.AES_128,
+        XMLCipher.AES_256,
+        XMLCipher.AES_128_GCM,
+        XMLCipher.AES_256_GCM,
+        XMLCipher.TRIPLEDES
+    })
+    public String algorithm;
+
+    private SecretKey key;
+    private Element encryptedData;
+
+    @Setup
+    public void setUp(BenchmarkDocument input) throws Exception {
+        byte[] keyBytes;
+        String keyAlgorithm;
+        if (XMLCipher.TRIPLEDES.equals(algorithm)) {
+            keyBytes = new byte[24];
+            keyAlgorithm = "DESede";
+        } else {
+            keyBytes = new byte[algorithm.contains("256") ? 32 : 16];
+            keyAlgorithm = "AES";
+        }
+        new Random(keyBytes.length).nextBytes(keyBytes);
+        key = new SecretKeySpec(keyBytes, keyAlgorithm);
+
+        XMLCipher cipher = XMLCipher.getInstance(algorithm);
+        cipher.init(XMLCipher.ENCRYPT_MODE, key);
+        // the EncryptedData element stays detached from the document
+        encryptedData = cipher.martial(input.getDocument(), encrypt(input));
+    }
+
+    @Benchmark
+    public EncryptedData encrypt(BenchmarkDocument input) throws Exception {
+        XMLCipher cipher = XMLCipher.getInstance(algorithm);
+        cipher.init(XMLCipher.ENCRYPT_MODE, key);
+        return cipher.encryptData(input.getDocument(), input.getDocument().getDocumentElement());
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        XMLCipher cipher = XMLCipher.getInstance(algorithm);
+        cipher.init(XMLCipher.DECRYPT_MODE, key);
+        return cipher.decryptToByteArray(encryptedData);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.algorithms;
+
+import java.nio.file.Files;
+import java.security.KeyFactory;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.xml.security.algorithms.JCAFactoryCache;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests for the caching of key and certificate factories and of parsed certificates
+ */
+class JCAFactoryCacheTest {
+
+    @Test
+    void testFactoriesAreCachedPerThread() throws Exception {
+        KeyFactory keyFactory = JCAFactoryCache.getKeyFactory("RSA");
+        assertSame(keyFactory, JCAFactoryCache.getKeyFactory("RSA"));
+        assertNotSame(keyFactory, JCAFactoryCache.getKeyFactory("EC"));
+        assertSame(JCAFactoryCache.getCertificateFactory("X.509"), JCAFactoryCache.getCertificateFactory("X.509"));
+
+        KeyFactory other = CompletableFuture.supplyAsync(() -> {
+            try {
+                return JCAFactoryCache.getKeyFactory("RSA");
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }).get();
+        assertNotSame(keyFactory, other);
+    }
+
+    @Test
+    void testCertificateIsParsedOnce() throws Exception {
+        byte[] pem = Files.readAllBytes(
+            resolveFile("src/test/resources/org/apache/xml/security/keys/content/x509/cert-X509Digest.crt").toPath());
+
+        X509Certificate certificate = JCAFactoryCache.getX509Certificate(pem);
+        long hits = JCAFactoryCache.getCertificateHits();
+        long misses = JCAFactoryCache.getCertificateMisses();
+
+        assertSame(certificate, JCAFactoryCache.getX509Certificate(pem.clone()));
+        assertEquals(hits + 1, JCAFactoryCache.getCertificateHits());
+
+        // the DER form of the same certificate is cached separately
+        X509Certificate fromDer = JCAFactoryCache.getX509Certificate(certificate.getEncoded());
+        assertEquals(certificate, fromDer);
+        assertEquals(misses + 1, JCAFactoryCache.getCertificateMisses());
+
+        JCAFactoryCache.clear();
+        assertEquals(certificate, JCAFactoryCache.getX509Certificate(pem));
+        assertEquals(misses + 2, JCAFactoryCache.getCertificateMisses());
+    }
+
+}
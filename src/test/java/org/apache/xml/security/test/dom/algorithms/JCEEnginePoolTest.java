@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.algorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.SignatureSpi;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.algorithms.JCEEnginePool;
+import org.apache.xml.security.algorithms.PooledMac;
+import org.apache.xml.security.algorithms.PooledSignature;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the pooling of JCE engines
+ */
+class JCEEnginePoolTest {
+
+    private static final byte[] DATA = "Some data to sign".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testMessageDigestIsReusedAndReset() throws Exception {
+        JCEEnginePool<MessageDigest> pool = JCEEnginePool.getMessageDigestPool("SHA-256", (String) null);
+        assertSame(pool, JCEEnginePool.getMessageDigestPool("SHA-256", (String) null));
+
+        MessageDigest md = pool.borrow();
+        md.update(DATA);
+        pool.release(md);
+
+        MessageDigest md2 = pool.borrow();
+        assertSame(md, md2);
+        // the partial update of the previous borrower must have been discarded
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(DATA), md2.digest(DATA));
+        pool.release(md2);
+    }
+
+    @Test
+    void testUnknownAlgorithm() {
+        JCEEnginePool<MessageDigest> pool = JCEEnginePool.getMessageDigestPool("SHA-999", (String) null);
+        assertThrows(NoSuchAlgorithmException.class, pool::borrow);
+    }
+
+    @Test
+    void testPooledSignatureReuse() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair keyPair = kpg.generateKeyPair();
+
+        JCEEnginePool<Signature> pool = JCEEnginePool.getSignaturePool("SHA256withRSA", (String) null);
+        PooledSignature signer = new PooledSignature(pool);
+        signer.initSign(keyPair.getPrivate(), null);
+        signer.update(DATA);
+        byte[] signature1 = signer.sign();
+
+        // the object stays usable after its engine was handed back to the pool
+        signer.update(DATA);
+        byte[] signature2 = signer.sign();
+        assertArrayEquals(signature1, signature2);
+
+        PooledSignature verifier = new PooledSignature(pool);
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(DATA);
+        assertTrue(verifier.verify(signature1));
+    }
+
+    @Test
+    void testPooledSignatureNotInitialized() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        KeyPair keyPair = kpg.generateKeyPair();
+
+        JCEEnginePool<Signature> pool = JCEEnginePool.getSignaturePool("SHA384withRSA", (String) null);
+        PooledSignature signer = new PooledSignature(pool);
+        signer.initSign(keyPair.getPrivate(), null);
+        signer.update(DATA);
+        signer.sign();
+
+        // the pooled engine is still initialized with the private key of the previous user
+        PooledSignature other = new PooledSignature(pool);
+        assertThrows(SignatureException.class, () -> other.update(DATA));
+        assertThrows(SignatureException.class, other::sign);
+    }
+
+    @Test
+    void testPooledMac() throws Exception {
+        SecretKeySpec key = new SecretKeySpec(new byte[32], "HmacSHA256");
+        JCEEnginePool<Mac> pool = JCEEnginePool.getMacPool("HmacSHA256", (String) null);
+
+        PooledMac mac = new PooledMac(pool);
+        mac.init(key);
+        mac.update(DATA);
+        byte[] result1 = mac.doFinal();
+        mac.update(DATA);
+        byte[] result2 = mac.doFinal();
+        assertArrayEquals(result1, result2);
+
+        Mac expected = Mac.getInstance("HmacSHA256");
+        expected.init(key);
+        assertArrayEquals(expected.doFinal(DATA), result1);
+
+        PooledMac other = new PooledMac(pool);
+        assertThrows(IllegalStateException.class, () -> other.update(DATA));
+    }
+
+    @Test
+    void testReleasedSignatureForgetsKey() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        PrivateKey privateKey = kpg.generateKeyPair().getPrivate();
+
+        JCEEnginePool<Signature> pool =
+            JCEEnginePool.getSignaturePool("SHA256withRSA", new KeyRecordingProvider());
+        Signature signature = pool.borrow();
+        signature.initSign(privateKey);
+        KeyRecordingSignatureSpi spi = KeyRecordingSignatureSpi.lastInstance;
+        assertSame(privateKey, spi.key);
+        pool.release(signature);
+
+        assertNotSame(privateKey, spi.key);
+        assertTrue(spi.key instanceof PublicKey);
+        assertSame(signature, pool.borrow());
+    }
+
+    @Test
+    void testReleasedMacAndCipherForgetKey() throws Exception {
+        SecretKeySpec key = new SecretKeySpec(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16},
+                                              "AES");
+
+        JCEEnginePool<Mac> macPool = JCEEnginePool.getMacPool("HmacSHA512", (String) null);
+        Mac mac = macPool.borrow();
+        mac.init(new SecretKeySpec(key.getEncoded(), "HmacSHA512"));
+        byte[] callerMac = mac.doFinal(DATA);
+        macPool.release(mac);
+        assertSame(mac, macPool.borrow());
+        assertFalse(Arrays.equals(callerMac, mac.doFinal(DATA)));
+
+        JCEEnginePool<Cipher> cipherPool = JCEEnginePool.getCipherPool("AES/CBC/NoPadding", (String) null);
+        Cipher cipher = cipherPool.borrow();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(new byte[16]));
+        byte[] cipherText = cipher.doFinal(new byte[16]);
+        cipherPool.release(cipher);
+        assertSame(cipher, cipherPool.borrow());
+        // the engine decrypts with a throwaway key now
+        assertFalse(Arrays.equals(new byte[16], cipher.doFinal(cipherText)));
+    }
+
+    @Test
+    void testPoolsAreKeyedByProviderName() {
+        assertSame(JCEEnginePool.getSignaturePool("SHA256withRSA", new KeyRecordingProvider()),
+                   JCEEnginePool.getSignaturePool("SHA256withRSA", new KeyRecordingProvider()));
+    }
+
+    private static final class KeyRecordingProvider extends Provider {
+
+        private static final long serialVersionUID = 1L;
+
+        KeyRecordingProvider() {
+            super("KeyRecording", "1.0", "Records the keys of its Signature engines");
+            putService(new Service(this, "Signature", "SHA256withRSA", KeyRecordingSignatureSpi.class.getName(),
+                                   null, null) {
+                @Override
+                public Object newInstance(Object constructorParameter) {
+                    return new KeyRecordingSignatureSpi();
+                }
+            });
+        }
+    }
+
+    // A Signature engine which keeps a reference to its key, like the JDK implementations do
+    private static final class KeyRecordingSignatureSpi extends SignatureSpi {
+
+        private static volatile KeyRecordingSignatureSpi lastInstance;
+
+        private Key key;
+
+        KeyRecordingSignatureSpi() {
+            lastInstance = this;
+        }
+
+        @Override
+        protected void engineInitVerify(PublicKey publicKey) {
+            key = publicKey;
+        }
+
+        @Override
+        protected void engineInitSign(PrivateKey privateKey) {
+            key = privateKey;
+        }
+
+        @Override
+        protected void engineUpdate(byte b) {
+        }
+
+        @Override
+        protected void engineUpdate(byte[] b, int off, int len) {
+        }
+
+        @Override
+        protected byte[] engineSign() {
+            return new byte[0];
+        }
+
+        @Override
+        protected boolean engineVerify(byte[] sigBytes) {
+            return false;
+        }
+
+        @Override
+        @Deprecated
+        protected void engineSetParameter(String param, Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        protected Object engineGetParameter(String param) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
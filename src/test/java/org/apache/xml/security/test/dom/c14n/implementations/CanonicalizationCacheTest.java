@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.c14n.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.CanonicalizationCache;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The canonical form served by a CanonicalizationCache must be the same as the one of an
+ * uncached canonicalization, also after the Document was modified.
+ */
+class CanonicalizationCacheTest {
+
+    private static final String XML =
+        "<a:root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\" xmlns=\"urn:default\">"
+        + "<a:data Id=\"data\" b:attr=\"1\"><!-- comment --><b:item>text</b:item></a:data>"
+        + "</a:root>";
+
+    private static final SecretKey KEY =
+        new SecretKeySpec("secret-key-of-thirty-two-bytes!!".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @Test
+    void testCacheHitAndInvalidation() throws Exception {
+        Document doc = parse();
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc);
+        assertNotNull(cache);
+        assertSame(cache, CanonicalizationCache.enable(doc));
+        Element data = (Element) doc.getDocumentElement().getFirstChild();
+
+        String expected = canonicalize(parse().getDocumentElement().getFirstChild(), null);
+        assertEquals(expected, canonicalize(data, null));
+        assertEquals(expected, canonicalize(data, null));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(cache.getSize() > 0);
+
+        data.setAttributeNS(null, "Id", "modified");
+        assertEquals(0, cache.getSize());
+        String modified = canonicalize(data, null);
+        assertNotEquals(expected, modified);
+        assertTrue(modified.contains("Id=\"modified\""));
+
+        data.getLastChild().getFirstChild().setNodeValue("other text");
+        assertTrue(canonicalize(data, null).contains("other text"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testParametersAreCachedSeparately() throws Exception {
+        Document doc = parse();
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc);
+        Element data = (Element) doc.getDocumentElement().getFirstChild();
+        Element uncached = (Element) parse().getDocumentElement().getFirstChild();
+
+        String[] algorithms = {
+            Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS,
+            Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
+            Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS,
+        };
+        for (int i = 0; i < 2; i++) {
+            for (String algorithm : algorithms) {
+                assertEquals(canonicalize(algorithm, uncached, null), canonicalize(algorithm, data, null));
+            }
+            assertEquals(canonicalize(uncached, "a"), canonicalize(data, "a"));
+            assertEquals(canonicalize(uncached, "#default b"), canonicalize(data, "#default b"));
+        }
+        assertEquals(algorithms.length + 2, cache.getMisses());
+        assertEquals(algorithms.length + 2, cache.getHits());
+
+        CanonicalizationCache.disable(doc);
+        assertNull(CanonicalizationCache.getCache(data));
+        data.setAttributeNS(null, "Id", "modified");
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testSizeLimit() throws Exception {
+        Document doc = parse();
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc, 64);
+        Element root = doc.getDocumentElement();
+        Element item = (Element) root.getFirstChild().getLastChild();
+
+        canonicalize(root, null);
+        assertEquals(0, cache.getSize());
+        canonicalize(item, null);
+        int size = cache.getSize();
+        assertTrue(size > 0 && size <= 64);
+        canonicalize(item, null);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testDetachedSubtreeIsNotCached() throws Exception {
+        Document doc = parse();
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc);
+        Element detached = doc.createElementNS(null, "x");
+        detached.setTextContent("one");
+
+        assertEquals("<x>one</x>", canonicalize(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, detached, null));
+        detached.setTextContent("two");
+        assertEquals("<x>two</x>", canonicalize(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS, detached, null));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertNull(CanonicalizationCache.getAttachedCache(detached));
+
+        doc.getDocumentElement().appendChild(detached);
+        assertSame(cache, CanonicalizationCache.getAttachedCache(detached));
+    }
+
+    @Test
+    void testSignatureVerification() throws Exception {
+        Document doc = parse();
+        Element root = doc.getDocumentElement();
+        ((Element) root.getFirstChild()).setIdAttributeNS(null, "Id", true);
+
+        XMLSignature signature = new XMLSignature(doc, "", XMLSignature.ALGO_ID_MAC_HMAC_SHA256,
+                                                  Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        root.appendChild(signature.getElement());
+        Transforms transforms = new Transforms(doc);
+        transforms.addTransform(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        signature.addDocument("#data", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        signature.sign(KEY);
+
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc);
+        Element signatureElement =
+            (Element) doc.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+        assertTrue(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+        long misses = cache.getMisses();
+        assertTrue(misses > 0);
+        assertTrue(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+        assertEquals(misses, cache.getHits());
+
+        ((Element) root.getFirstChild()).setAttributeNS("urn:b", "b:attr", "2");
+        assertFalse(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+    }
+
+    @Test
+    void testEnvelopedSignatureVerification() throws Exception {
+        Document doc = parse();
+        Element root = doc.getDocumentElement();
+
+        XMLSignature signature = new XMLSignature(doc, "", XMLSignature.ALGO_ID_MAC_HMAC_SHA256,
+                                                  Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        root.appendChild(signature.getElement());
+        Transforms transforms = new Transforms(doc);
+        transforms.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+        transforms.addTransform(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+        signature.addDocument("", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        signature.sign(KEY);
+
+        CanonicalizationCache cache = CanonicalizationCache.enable(doc);
+        Element signatureElement =
+            (Element) doc.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+        assertTrue(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+        // SignedInfo and the Document without the enveloped Signature
+        assertEquals(2, cache.getMisses());
+        assertTrue(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+        assertEquals(2, cache.getHits());
+
+        ((Element) root.getFirstChild()).setAttributeNS("urn:b", "b:attr", "2");
+        assertFalse(new XMLSignature(signatureElement, "").checkSignatureValue(KEY));
+    }
+
+    private static Document parse() throws Exception {
+        return XMLUtils.read(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    private static String canonicalize(Node node, String inclusiveNamespaces) throws Exception {
+        return canonicalize(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS, node, inclusiveNamespaces);
+    }
+
+    private static String canonicalize(String algorithm, Node node, String inclusiveNamespaces) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Canonicalizer canonicalizer = Canonicalizer.getInstance(algorithm);
+        if (inclusiveNamespaces == null) {
+            canonicalizer.canonicalizeSubtree(node, os);
+        } else {
+            canonicalizer.canonicalizeSubtree(node, inclusiveNamespaces, os);
+        }
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
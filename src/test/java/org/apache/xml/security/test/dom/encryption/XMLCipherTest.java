@@ -34,6 +34,7 @@ import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.Random;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -41,6 +42,7 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.DESedeKeySpec;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.xml.security.algorithms.JCEMapper;
@@ -65,10 +67,13 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 
@@ -700,6 +705,10 @@ class XMLCipherTest {
 
             assertEquals("A test encrypted secret",
                         new String(decryptBytes, StandardCharsets.US_ASCII));
+
+            ByteArrayOutputStream decryptStream = new ByteArrayOutputStream();
+            cipherDecrypt.decryptToStream(ee, decryptStream);
+            assertEquals("A test encrypted secret", decryptStream.toString(StandardCharsets.US_ASCII));
         } else {
             LOG.log(Level.WARNING,
                 "Test testSameDocumentCipherReference skipped as "
@@ -708,6 +717,142 @@ class XMLCipherTest {
         }
     }
 
+    /*
+     * Test that a CipherValue which is larger than a single text chunk is decrypted again
+     */
+    @Test
+    void testLargeElementCipherValueChunks() throws Exception {
+        if (haveISOPadding) {
+            Document d = TestUtils.newDocument();
+            Element docElement = d.createElement("Records");
+            d.appendChild(docElement);
+            Element secret = d.createElement("Secret");
+            docElement.appendChild(secret);
+            for (int i = 0; i < 2000; i++) {
+                Element record = d.createElement("Record");
+                record.setAttributeNS(null, "Id", "record-" + i);
+                record.appendChild(d.createTextNode("The quick brown fox jumps over the lazy dog " + i));
+                secret.appendChild(record);
+            }
+            String source = toString(d);
+
+            Key key = new SecretKeySpec("abcdefghijklmnop".getBytes(StandardCharsets.US_ASCII), "AES");
+            cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+            cipher.init(XMLCipher.ENCRYPT_MODE, key);
+            Document ed = cipher.doFinal(d, secret);
+
+            Element cipherValue =
+                (Element) ed.getElementsByTagNameNS(EncryptionConstants.EncryptionSpecNS, "CipherValue").item(0);
+            assertTrue(cipherValue.getChildNodes().getLength() > 1);
+            byte[] encryptedBytes = XMLUtils.decode(XMLUtils.getFullTextChildrenFromNode(cipherValue));
+            assertTrue(encryptedBytes.length > 64 * 1024);
+
+            cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+            cipher.init(XMLCipher.DECRYPT_MODE, key);
+            Element ee = (Element) ed.getElementsByTagName("xenc:EncryptedData").item(0);
+            Document dd = cipher.doFinal(ed, ee);
+
+            assertEquals(source, toString(dd));
+        } else {
+            LOG.log(Level.WARNING,
+                "Test testLargeElementCipherValueChunks skipped as "
+                + "necessary algorithms not available"
+            );
+        }
+    }
+
+    /*
+     * Test encrypting an element to a stream, which is referred to by a CipherReference
+     */
+    @Test
+    void testEncryptToCipherReferenceStream() throws Exception {
+        if (haveISOPadding) {
+            Document d = document();
+            Element e = (Element) d.getElementsByTagName(element()).item(index());
+            String source = toString(d);
+
+            Key key = new SecretKeySpec("abcdefghijklmnop".getBytes(StandardCharsets.US_ASCII), "AES");
+            cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+            cipher.init(XMLCipher.ENCRYPT_MODE, key);
+
+            ByteArrayOutputStream cipherOutput = new ByteArrayOutputStream();
+            EncryptedData encryptedData = cipher.encryptData(d, e, false, "cipher.bin", cipherOutput);
+            assertEquals(CipherData.REFERENCE_TYPE, encryptedData.getCipherData().getDataType());
+            assertEquals("cipher.bin", encryptedData.getCipherData().getCipherReference().getURI());
+            assertEquals(EncryptionConstants.TYPE_ELEMENT, encryptedData.getType());
+            assertEquals(source, toString(d));
+
+            // the stream contains the IV followed by the cipher text
+            byte[] encryptedBytes = cipherOutput.toByteArray();
+            Cipher jceCipher = Cipher.getInstance(JCEMapper.translateURItoJCEID(XMLCipher.AES_128));
+            jceCipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(encryptedBytes, 0, 16));
+            byte[] decryptedBytes = jceCipher.doFinal(encryptedBytes, 16, encryptedBytes.length - 16);
+
+            // the same cipher still encrypts into a CipherValue afterwards
+            EncryptedData inline = cipher.encryptData(d, e);
+            assertEquals(CipherData.VALUE_TYPE, inline.getCipherData().getDataType());
+            Element ee = cipher.martial(d, inline);
+            XMLCipher decryptCipher = XMLCipher.getInstance(XMLCipher.AES_128);
+            decryptCipher.init(XMLCipher.DECRYPT_MODE, key);
+            assertArrayEquals(decryptCipher.decryptToByteArray(ee), decryptedBytes);
+        } else {
+            LOG.log(Level.WARNING,
+                "Test testEncryptToCipherReferenceStream skipped as "
+                + "necessary algorithms not available"
+            );
+        }
+    }
+
+    /*
+     * Test decrypting binary content to a stream
+     */
+    @Test
+    void testDecryptToStream() throws Exception {
+        if (haveISOPadding) {
+            byte[] data = new byte[200 * 1024];
+            new Random(42).nextBytes(data);
+            Key key = new SecretKeySpec("abcdefghijklmnop".getBytes(StandardCharsets.US_ASCII), "AES");
+
+            for (String algorithm : new String[] {XMLCipher.AES_128, XMLCipher.AES_128_GCM}) {
+                Document d = TestUtils.newDocument();
+                cipher = XMLCipher.getInstance(algorithm);
+                cipher.init(XMLCipher.ENCRYPT_MODE, key);
+                EncryptedData encryptedData =
+                    cipher.encryptData(d, EncryptionConstants.TYPE_CONTENT, new ByteArrayInputStream(data));
+                Element ee = cipher.martial(d, encryptedData);
+                d.appendChild(ee);
+
+                cipher = XMLCipher.getInstance(algorithm);
+                cipher.init(XMLCipher.DECRYPT_MODE, key);
+                ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+                cipher.decryptToStream(ee, decrypted);
+                assertArrayEquals(data, decrypted.toByteArray());
+
+                try (InputStream is = cipher.decryptAsInputStream(ee)) {
+                    assertArrayEquals(data, is.readAllBytes());
+                }
+
+                // a parsed CipherValue is streamed text node by text node
+                Element cipherValue = (Element) ee.getElementsByTagNameNS(
+                    EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_CIPHERVALUE).item(0);
+                cipherValue.normalize();
+                Text text = (Text) cipherValue.getFirstChild();
+                for (int offset : new int[] {100 * 1024 + 1, 50 * 1024 + 2, 1}) {
+                    text.splitText(offset);
+                }
+                assertEquals(4, cipherValue.getChildNodes().getLength());
+                try (InputStream is = cipher.decryptAsInputStream(ee)) {
+                    assertArrayEquals(data, is.readAllBytes());
+                }
+            }
+        } else {
+            LOG.log(Level.WARNING,
+                "Test testDecryptToStream skipped as "
+                + "necessary algorithms not available"
+            );
+        }
+    }
+
     /*
      * Test physical representation of decrypted element, see SANTUARIO-309
      */
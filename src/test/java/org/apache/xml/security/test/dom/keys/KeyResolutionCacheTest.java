@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.keys;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+
+import org.apache.xml.security.keys.KeyInfo;
+import org.apache.xml.security.keys.KeyResolutionCache;
+import org.apache.xml.security.keys.content.X509Data;
+import org.apache.xml.security.keys.storage.StorageResolver;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+class KeyResolutionCacheTest {
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    private PublicKey publicKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyResolutionCache.configure(16, 60_000L);
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        publicKey = kpg.generateKeyPair().getPublic();
+    }
+
+    @AfterEach
+    void tearDown() {
+        KeyResolutionCache.configure(0, 0L);
+    }
+
+    @Test
+    void testSameKeyInfoIsResolvedOnce() throws Exception {
+        byte[] keyInfoBytes = newKeyInfo();
+        long hits = KeyResolutionCache.getHits();
+
+        PublicKey first = parse(keyInfoBytes).getPublicKey();
+        assertEquals(publicKey, first);
+        assertEquals(1, KeyResolutionCache.getSize());
+
+        // another message with the same KeyInfo
+        assertSame(first, parse(keyInfoBytes).getPublicKey());
+        assertEquals(hits + 1, KeyResolutionCache.getHits());
+
+        // the storage resolvers are part of the key
+        KeyInfo keyInfo = parse(keyInfoBytes);
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        StorageResolver storage = new StorageResolver(trustStore);
+        keyInfo.addStorageResolver(storage);
+        assertEquals(publicKey, keyInfo.getPublicKey());
+        assertEquals(2, KeyResolutionCache.getSize());
+
+        KeyResolutionCache.invalidate(storage);
+        assertEquals(1, KeyResolutionCache.getSize());
+    }
+
+    @Test
+    void testRemovedTrustStoreCertificateIsNotResolved() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JCEKS");
+        try (FileInputStream f = new FileInputStream(resolveFile("src", "test", "resources", "org", "apache", "xml",
+            "security", "samples", "input", "keystore2.jks"))) {
+            keyStore.load(f, "xmlsecurity".toCharArray());
+        }
+        X509Certificate cert = (X509Certificate) keyStore.getCertificate("testcert");
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("trusted", cert);
+        StorageResolver storage = new StorageResolver(trustStore);
+
+        Document doc = TestUtils.newDocument();
+        KeyInfo keyInfo = new KeyInfo(doc);
+        X509Data x509Data = new X509Data(doc);
+        x509Data.addSubjectName(cert);
+        keyInfo.add(x509Data);
+        doc.appendChild(keyInfo.getElement());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, os);
+        byte[] keyInfoBytes = os.toByteArray();
+
+        keyInfo = parse(keyInfoBytes);
+        keyInfo.addStorageResolver(storage);
+        assertEquals(cert, keyInfo.getX509Certificate());
+
+        // the cached certificate is only used while the trust store is unchanged
+        trustStore.deleteEntry("trusted");
+        keyInfo = parse(keyInfoBytes);
+        keyInfo.addStorageResolver(storage);
+        assertNull(keyInfo.getX509Certificate());
+    }
+
+    @Test
+    void testRetrievalMethodIsNotCached() throws Exception {
+        Document doc = TestUtils.newDocument();
+        KeyInfo keyInfo = new KeyInfo(doc);
+        keyInfo.addKeyValue(publicKey);
+        keyInfo.addRetrievalMethod("#unknown", null, null);
+        doc.appendChild(keyInfo.getElement());
+
+        assertEquals(publicKey, keyInfo.getPublicKey());
+        assertEquals(0, KeyResolutionCache.getSize());
+    }
+
+    private byte[] newKeyInfo() throws Exception {
+        Document doc = TestUtils.newDocument();
+        KeyInfo keyInfo = new KeyInfo(doc);
+        keyInfo.addKeyValue(publicKey);
+        doc.appendChild(keyInfo.getElement());
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, os);
+        return os.toByteArray();
+    }
+
+    private static KeyInfo parse(byte[] keyInfoBytes) throws Exception {
+        Document doc = XMLUtils.read(new ByteArrayInputStream(keyInfoBytes), false);
+        return new KeyInfo(doc.getDocumentElement(), "");
+    }
+
+}
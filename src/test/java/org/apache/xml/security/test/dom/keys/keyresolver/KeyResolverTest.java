@@ -51,6 +51,7 @@ import org.apache.xml.security.keys.keyresolver.KeyResolver;
 import org.apache.xml.security.keys.keyresolver.KeyResolverException;
 import org.apache.xml.security.keys.keyresolver.KeyResolverSpi;
 import org.apache.xml.security.keys.keyresolver.implementations.PrivateKeyResolver;
+import org.apache.xml.security.keys.keyresolver.implementations.RSAKeyValueResolver;
 import org.apache.xml.security.keys.keyresolver.implementations.SecretKeyResolver;
 import org.apache.xml.security.keys.keyresolver.implementations.SingleKeyResolver;
 import org.apache.xml.security.keys.storage.StorageResolver;
@@ -64,7 +65,9 @@ import org.w3c.dom.Text;
 
 import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -308,6 +311,22 @@ class KeyResolverTest {
         assertEquals("elem", decryptedElement.getLocalName());
     }
 
+    /**
+     * A subclass which accepts other elements than its parent is consulted for them, even if
+     * it doesn't declare them.
+     */
+    @Test
+    void testWidenedResolverIsCandidate() throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element keyName = doc.createElementNS(Constants.SignatureSpecNS, "ds:" + Constants._TAG_KEYNAME);
+        Element keyValue = doc.createElementNS(Constants.SignatureSpecNS, "ds:" + Constants._TAG_KEYVALUE);
+
+        assertFalse(KeyResolver.isCandidate(new RSAKeyValueResolver(), keyName));
+        assertTrue(KeyResolver.isCandidate(new RSAKeyValueResolver(), keyValue));
+        assertTrue(KeyResolver.isCandidate(new KeyNameRSAKeyValueResolver(), keyName));
+        assertTrue(KeyResolver.isCandidate(new KeyNameRSAKeyValueResolver(), keyValue));
+    }
+
     // A KeyResolver that returns a PrivateKey for a specific KeyName.
     public static class MyPrivateKeyResolver extends KeyResolverSpi {
 
@@ -354,4 +373,15 @@ class KeyResolverTest {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // An RSAKeyValueResolver which accepts a KeyName as well.
+    public static class KeyNameRSAKeyValueResolver extends RSAKeyValueResolver {
+
+        @Override
+        protected boolean engineCanResolve(Element element, String baseURI, StorageResolver storage) {
+            return super.engineCanResolve(element, baseURI, storage)
+                || Constants.SignatureSpecNS.equals(element.getNamespaceURI())
+                    && Constants._TAG_KEYNAME.equals(element.getLocalName());
+        }
+    }
+}
@@ -20,17 +20,40 @@ package org.apache.xml.security.test.dom.keys.storage;
 
 
 import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.Key;
 import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.KeyStoreSpi;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.keys.content.x509.XMLX509Digest;
+import org.apache.xml.security.keys.storage.CertificateQuery;
 import org.apache.xml.security.keys.storage.implementations.KeyStoreResolver;
+import org.apache.xml.security.utils.RFC2253Parser;
 import org.junit.jupiter.api.Test;
 
 import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 
@@ -39,6 +62,10 @@ import static org.junit.jupiter.api.Assertions.fail;
  */
 class KeyStoreResolverTest {
 
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
     @Test
     void testKeyStoreResolver() throws Exception {
 
@@ -78,6 +105,78 @@ class KeyStoreResolverTest {
         assertFalse(iter2.hasNext());
     }
 
+    @Test
+    void testFindAfterKeyStoreChanges() throws Exception {
+        KeyStore ks = KeyStore.getInstance("JCEKS");
+        try (FileInputStream f = new FileInputStream(resolveFile("src", "test", "resources", "org", "apache", "xml",
+            "security", "samples", "input", "keystore2.jks"))) {
+            ks.load(f, "xmlsecurity".toCharArray());
+        }
+        KeyStoreResolver ksResolver = new KeyStoreResolver(ks);
+
+        List<String> aliases = new ArrayList<>();
+        for (String alias : Collections.list(ks.aliases())) {
+            if (ks.getCertificate(alias) != null) {
+                aliases.add(alias);
+            }
+        }
+        for (String alias : aliases) {
+            X509Certificate cert = (X509Certificate) ks.getCertificate(alias);
+            assertEquals(cert, ksResolver.find(subjectName(cert)));
+            assertEquals(cert, ksResolver.find(new CertificateQuery().addIssuerSerial(
+                RFC2253Parser.normalize(cert.getIssuerX500Principal().getName()), cert.getSerialNumber())));
+            assertEquals(cert, ksResolver.find(new CertificateQuery().addDigest(
+                MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+                XMLX509Digest.getDigestBytesFromCert(cert, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256))));
+        }
+
+        // a removed certificate is no longer found
+        X509Certificate cert = (X509Certificate) ks.getCertificate("testcert");
+        ks.deleteEntry("testcert");
+        assertNull(ksResolver.find(subjectName(cert)));
+
+        // the size of the KeyStore doesn't change, a refresh makes the modification visible at once
+        ks.setCertificateEntry("testcert", cert);
+        ks.deleteEntry("3deskey");
+        ksResolver.refresh();
+        assertEquals(cert, ksResolver.find(subjectName(cert)));
+    }
+
+    @Test
+    void testFindDoesNotWaitForRefresh() throws Exception {
+        KeyStore delegate = KeyStore.getInstance("JCEKS");
+        try (FileInputStream f = new FileInputStream(resolveFile("src", "test", "resources", "org", "apache", "xml",
+            "security", "samples", "input", "keystore2.jks"))) {
+            delegate.load(f, "xmlsecurity".toCharArray());
+        }
+        BlockingKeyStoreSpi spi = new BlockingKeyStoreSpi(delegate);
+        KeyStore ks = new KeyStore(spi, delegate.getProvider(), delegate.getType()) { };
+        ks.load(null, null);
+        KeyStoreResolver ksResolver = new KeyStoreResolver(ks);
+        X509Certificate cert = (X509Certificate) ks.getCertificate("testcert");
+        assertEquals(cert, ksResolver.find(subjectName(cert)));
+
+        // a refresh hangs while reading the KeyStore...
+        spi.blocked = new CountDownLatch(1);
+        Thread refresher = new Thread(ksResolver::refresh);
+        refresher.start();
+        try {
+            assertTrue(spi.reading.await(10, TimeUnit.SECONDS));
+            // ...and the changed size of the KeyStore doesn't make the lookups wait for it
+            delegate.deleteEntry("3deskey");
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertEquals(cert, ksResolver.find(subjectName(cert))));
+        } finally {
+            spi.blocked.countDown();
+            refresher.join();
+        }
+    }
+
+    private static CertificateQuery subjectName(X509Certificate cert) {
+        return new CertificateQuery().addSubjectName(
+            RFC2253Parser.normalize(cert.getSubjectX500Principal().getName()));
+    }
+
     private void checkIterator(Iterator<?> iter) {
         int count = 0;
         iter.hasNext(); // hasNext() is idempotent
@@ -100,4 +199,143 @@ class KeyStoreResolverTest {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Delegates to a loaded KeyStore, and lets aliases() wait for a latch.
+     */
+    private static final class BlockingKeyStoreSpi extends KeyStoreSpi {
+
+        private final KeyStore delegate;
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private volatile CountDownLatch blocked;
+
+        BlockingKeyStoreSpi(KeyStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Enumeration<String> engineAliases() {
+            try {
+                if (blocked != null) {
+                    reading.countDown();
+                    blocked.await();
+                }
+                return delegate.aliases();
+            } catch (InterruptedException | KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Key engineGetKey(String alias, char[] password)
+            throws NoSuchAlgorithmException, UnrecoverableKeyException {
+            try {
+                return delegate.getKey(alias, password);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Certificate[] engineGetCertificateChain(String alias) {
+            try {
+                return delegate.getCertificateChain(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Certificate engineGetCertificate(String alias) {
+            try {
+                return delegate.getCertificate(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Date engineGetCreationDate(String alias) {
+            try {
+                return delegate.getCreationDate(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void engineSetKeyEntry(String alias, Key key, char[] password, Certificate[] chain)
+            throws KeyStoreException {
+            delegate.setKeyEntry(alias, key, password, chain);
+        }
+
+        @Override
+        public void engineSetKeyEntry(String alias, byte[] key, Certificate[] chain) throws KeyStoreException {
+            delegate.setKeyEntry(alias, key, chain);
+        }
+
+        @Override
+        public void engineSetCertificateEntry(String alias, Certificate cert) throws KeyStoreException {
+            delegate.setCertificateEntry(alias, cert);
+        }
+
+        @Override
+        public void engineDeleteEntry(String alias) throws KeyStoreException {
+            delegate.deleteEntry(alias);
+        }
+
+        @Override
+        public boolean engineContainsAlias(String alias) {
+            try {
+                return delegate.containsAlias(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int engineSize() {
+            try {
+                return delegate.size();
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean engineIsKeyEntry(String alias) {
+            try {
+                return delegate.isKeyEntry(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean engineIsCertificateEntry(String alias) {
+            try {
+                return delegate.isCertificateEntry(alias);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String engineGetCertificateAlias(Certificate cert) {
+            try {
+                return delegate.getCertificateAlias(cert);
+            } catch (KeyStoreException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void engineStore(OutputStream stream, char[] password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void engineLoad(InputStream stream, char[] password) {
+            // the delegate is loaded already
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.parser;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.xml.security.parser.DocumentBuilderPool;
+import org.apache.xml.security.parser.XMLParserException;
+import org.apache.xml.security.parser.XMLParserImpl;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The counters of the DocumentBuilder pools of XMLParserImpl must add up, also if the pools are
+ * used concurrently.
+ */
+class DocumentBuilderPoolTest {
+
+    private static final String XML = "<root xmlns=\"urn:test\"><child>text</child></root>";
+    private static final String XML_DOCTYPE = "<!DOCTYPE root [<!ELEMENT root ANY>]><root/>";
+
+    @Test
+    void testCounters() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            XMLParserImpl parser = new XMLParserImpl();
+            DocumentBuilderPool pool = XMLParserImpl.getDocumentBuilderPool(loader, true);
+            assertSame(pool, XMLParserImpl.getDocumentBuilderPool(loader, true));
+            assertNotSame(pool, XMLParserImpl.getDocumentBuilderPool(loader, false));
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("child", parse(parser, XML, true).getDocumentElement().getFirstChild().getLocalName());
+            }
+            assertEquals(1, pool.getMisses());
+            assertEquals(2, pool.getHits());
+            assertEquals(1, pool.getCreates());
+            assertEquals(1, pool.getIdle());
+
+            assertThrows(XMLParserException.class, () -> parse(parser, XML_DOCTYPE, true));
+            parse(parser, XML_DOCTYPE, false);
+            assertEquals(1, XMLParserImpl.getDocumentBuilderPool(loader, false).getCreates());
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextLoader);
+        }
+    }
+
+    @Test
+    void testConcurrentParsing() throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        int threads = 8;
+        int parses = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(() -> {
+                    Thread.currentThread().setContextClassLoader(loader);
+                    XMLParserImpl parser = new XMLParserImpl();
+                    for (int j = 0; j < parses; j++) {
+                        assertEquals("root", parse(parser, XML, true).getDocumentElement().getLocalName());
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        DocumentBuilderPool pool = XMLParserImpl.getDocumentBuilderPool(loader, true);
+        assertEquals(threads * parses, pool.getHits() + pool.getMisses());
+        assertEquals(pool.getMisses(), pool.getCreates());
+        assertEquals(pool.getCreates(), pool.getIdle() + pool.getDiscards());
+        assertTrue(pool.getIdle() <= pool.getMaxIdle());
+        assertTrue(pool.getCreates() <= threads);
+    }
+
+    private static Document parse(XMLParserImpl parser, String xml, boolean disallowDocType) throws XMLParserException {
+        return parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), disallowDocType);
+    }
+}
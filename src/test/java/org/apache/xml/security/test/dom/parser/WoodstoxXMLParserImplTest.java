@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.parser.WoodstoxXMLParserImpl;
+import org.apache.xml.security.parser.XMLParser;
+import org.apache.xml.security.parser.XMLParserException;
+import org.apache.xml.security.parser.XMLParserImpl;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.utils.Constants;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The DOM built by the WoodstoxXMLParserImpl must be equal to the one of the XMLParserImpl, and
+ * the parser must reject the same insecure documents.
+ */
+class WoodstoxXMLParserImplTest {
+
+    private static final String XML =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<?pi before?>\n"
+        + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns=\"urn:default\">\n"
+        + "  <!-- comment -->\n"
+        + "  <soap:Body xmlns:a=\"urn:a\" a:attr=\"1 &amp; 2\" plain=\"x&#9;y\" xml:lang=\"en\">\n"
+        + "    <a:item xmlns=\"\">text &lt;escaped&gt; &#x20AC;<![CDATA[<cdata> & more]]>tail</a:item>\n"
+        + "    <empty/><?pi inside?>\n"
+        + "  </soap:Body>\n"
+        + "</soap:Envelope>\n"
+        + "<!-- after -->";
+
+    private static final String XML_DOCTYPE =
+        "<!DOCTYPE root [\n"
+        + "<!ELEMENT root ANY>\n"
+        + "<!ATTLIST root Id ID #IMPLIED defaulted CDATA \"value\">\n"
+        + "<!ENTITY greeting \"hello\">\n"
+        + "]>\n"
+        + "<root Id=\"r1\">&greeting; world</root>";
+
+    private static final String XML_EXTERNAL_ENTITY =
+        "<!DOCTYPE root [<!ENTITY ext SYSTEM \"file:///etc/hostname\">]><root>&ext;</root>";
+
+    private static final String XML_EXTERNAL_DTD =
+        "<!DOCTYPE root SYSTEM \"file:///etc/hostname\"><root/>";
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    private final XMLParser woodstox = new WoodstoxXMLParserImpl();
+    private final XMLParser xerces = new XMLParserImpl();
+
+    @Test
+    void testSameDocument() throws Exception {
+        for (boolean disallowDocType : new boolean[] {true, false}) {
+            Document expected = parse(xerces, XML, disallowDocType);
+            Document actual = parse(woodstox, XML, disallowDocType);
+            assertEquals(expected.getChildNodes().getLength(), actual.getChildNodes().getLength());
+            for (int i = 0; i < expected.getChildNodes().getLength(); i++) {
+                assertTrue(expected.getChildNodes().item(i).isEqualNode(actual.getChildNodes().item(i)));
+            }
+            assertEquals(canonicalize(expected), canonicalize(actual));
+        }
+    }
+
+    @Test
+    void testDocType() throws Exception {
+        assertThrows(XMLParserException.class, () -> parse(woodstox, XML_DOCTYPE, true));
+
+        Document expected = parse(xerces, XML_DOCTYPE, false);
+        Document actual = parse(woodstox, XML_DOCTYPE, false);
+        assertEquals("hello world", actual.getDocumentElement().getTextContent());
+        assertEquals("value", actual.getDocumentElement().getAttributeNS(null, "defaulted"));
+        assertNotNull(actual.getElementById("r1"));
+        assertTrue(expected.getDocumentElement().isEqualNode(actual.getDocumentElement()));
+        assertEquals(canonicalize(expected), canonicalize(actual));
+    }
+
+    @Test
+    void testExternalResourcesAreRejected() {
+        for (String xml : new String[] {XML_EXTERNAL_ENTITY, XML_EXTERNAL_DTD}) {
+            assertThrows(XMLParserException.class, () -> parse(woodstox, xml, false));
+            assertThrows(XMLParserException.class, () -> parse(woodstox, xml, true));
+        }
+    }
+
+    @Test
+    void testEntityExpansionLimit() {
+        StringBuilder sb = new StringBuilder("<!DOCTYPE root [<!ENTITY e0 \"laugh\">");
+        for (int i = 1; i < 10; i++) {
+            sb.append("<!ENTITY e").append(i).append(" \"");
+            for (int j = 0; j < 10; j++) {
+                sb.append("&e").append(i - 1).append(';');
+            }
+            sb.append("\">");
+        }
+        sb.append("]><root>&e9;</root>");
+        assertThrows(XMLParserException.class, () -> parse(woodstox, sb.toString(), false));
+    }
+
+    @Test
+    void testVerifySignature() throws Exception {
+        Document doc;
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(
+            "ie/baltimore/merlin-examples/merlin-xmldsig-twenty-three/signature-enveloping-rsa.xml")) {
+            doc = woodstox.parse(is, false);
+        }
+        Element sigElement = (Element) doc.getElementsByTagNameNS(
+            Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+        XMLSignature signature = new XMLSignature(sigElement, "");
+        assertTrue(signature.checkSignatureValue(signature.getKeyInfo().getPublicKey()));
+    }
+
+    private static Document parse(XMLParser parser, String xml, boolean disallowDocType) throws XMLParserException {
+        return parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), disallowDocType);
+    }
+
+    private static String canonicalize(Node node) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Canonicalizer.getInstance(Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS).canonicalizeSubtree(node, os);
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
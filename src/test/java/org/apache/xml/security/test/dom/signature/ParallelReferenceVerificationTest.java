@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.MissingResourceFailureException;
+import org.apache.xml.security.signature.VerifiedReference;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.transforms.params.XPathContainer;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The References of a signature can be digested and verified concurrently. The outcome must be
+ * the same as the one of the sequential processing.
+ */
+class ParallelReferenceVerificationTest {
+
+    private static final int RECORDS = 20;
+
+    private static final SecretKey KEY =
+        new SecretKeySpec("secret-key-of-thirty-two-bytes!!".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+    private static ExecutorService executor;
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @BeforeAll
+    static void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testValid() throws Exception {
+        byte[] signedDocument = sign();
+
+        List<VerifiedReference> sequential = verify(read(signedDocument), false, true);
+        List<VerifiedReference> parallel = verify(read(signedDocument), true, true);
+
+        assertEquals(RECORDS + 1, parallel.size());
+        assertSameResults(sequential, parallel);
+    }
+
+    @Test
+    void testInvalidReferences() throws Exception {
+        byte[] signedDocument = sign();
+
+        Document doc = read(signedDocument);
+        modifyRecord(doc, 5);
+        modifyRecord(doc, 12);
+        List<VerifiedReference> sequential = verify(doc, false, false);
+
+        doc = read(signedDocument);
+        modifyRecord(doc, 5);
+        modifyRecord(doc, 12);
+        List<VerifiedReference> parallel = verify(doc, true, false);
+
+        assertSameResults(sequential, parallel);
+        assertFalse(parallel.get(5).isValid());
+        assertFalse(parallel.get(12).isValid());
+    }
+
+    @Test
+    void testFirstMissingReferenceIsReported() throws Exception {
+        byte[] signedDocument = sign();
+
+        Document doc = read(signedDocument);
+        removeRecord(doc, 7);
+        removeRecord(doc, 15);
+        XMLSignature signature = getSignature(doc);
+        signature.setReferenceVerificationExecutor(executor);
+
+        MissingResourceFailureException ex =
+            assertThrows(MissingResourceFailureException.class, () -> signature.checkSignatureValue(KEY));
+        assertEquals("#rec-7", ex.getReference().getURI());
+    }
+
+    @Test
+    void testParallelismWithoutExecutor() throws Exception {
+        Document doc = read(sign());
+        XMLSignature signature = getSignature(doc);
+        signature.setReferenceVerificationParallelism(3);
+
+        assertTrue(signature.checkSignatureValue(KEY));
+        assertEquals(RECORDS + 1, signature.getSignedInfo().getVerificationResults().size());
+    }
+
+    @Test
+    void testParallelDigests() throws Exception {
+        byte[] sequential = sign(false);
+        byte[] parallel = sign(true);
+
+        assertEquals(new String(sequential, StandardCharsets.UTF_8), new String(parallel, StandardCharsets.UTF_8));
+        verify(read(parallel), true, true);
+    }
+
+    private static byte[] sign() throws Exception {
+        return sign(false);
+    }
+
+    private static byte[] sign(boolean parallel) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element root = doc.createElementNS(null, "records");
+        doc.appendChild(root);
+        for (int i = 0; i < RECORDS; i++) {
+            Element record = doc.createElementNS("urn:example:record", "r:record");
+            record.setAttributeNS(Constants.NamespaceSpecNS, "xmlns:r", "urn:example:record");
+            record.setAttributeNS(null, "Id", "rec-" + i);
+            record.setIdAttributeNS(null, "Id", true);
+            record.appendChild(doc.createTextNode("Record number " + i));
+            root.appendChild(record);
+        }
+
+        XMLSignature signature = new XMLSignature(doc, "", XMLSignature.ALGO_ID_MAC_HMAC_SHA256);
+        root.appendChild(signature.getElement());
+        for (int i = 0; i < RECORDS; i++) {
+            Transforms transforms = new Transforms(doc);
+            transforms.addTransform(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+            signature.addDocument("#rec-" + i, transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+        }
+
+        // an XPath transform which makes the namespace nodes visible in the document
+        XPathContainer xpath = new XPathContainer(doc);
+        xpath.setXPath("not(ancestor-or-self::*[local-name()='Signature'])");
+        Transforms transforms = new Transforms(doc);
+        transforms.addTransform(Transforms.TRANSFORM_XPATH, xpath.getElementPlusReturns());
+        transforms.addTransform(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        signature.addDocument("", transforms, MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256);
+
+        if (parallel) {
+            signature.setReferenceDigestExecutor(executor);
+        }
+        signature.sign(KEY);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, bos);
+        return bos.toByteArray();
+    }
+
+    private static Document read(byte[] document) throws Exception {
+        return XMLUtils.read(new ByteArrayInputStream(document), false);
+    }
+
+    private static List<VerifiedReference> verify(Document doc, boolean parallel, boolean expected) throws Exception {
+        XMLSignature signature = getSignature(doc);
+        if (parallel) {
+            signature.setReferenceVerificationExecutor(executor);
+        }
+        assertEquals(expected, signature.checkSignatureValue(KEY));
+        return signature.getSignedInfo().getVerificationResults();
+    }
+
+    private static XMLSignature getSignature(Document doc) throws Exception {
+        Element sigElement =
+            (Element) doc.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+        Element records = doc.getDocumentElement();
+        for (Element record = XMLUtils.getNextElement(records.getFirstChild()); record != null;
+             record = XMLUtils.getNextElement(record.getNextSibling())) {
+            if (record.hasAttributeNS(null, "Id")) {
+                record.setIdAttributeNS(null, "Id", true);
+            }
+        }
+        return new XMLSignature(sigElement, "");
+    }
+
+    private static Element getRecord(Document doc, int index) {
+        return (Element) doc.getElementsByTagNameNS("urn:example:record", "record").item(index);
+    }
+
+    private static void modifyRecord(Document doc, int index) {
+        getRecord(doc, index).setTextContent("Modified record number " + index);
+    }
+
+    private static void removeRecord(Document doc, int index) {
+        Element record = getRecord(doc, index);
+        record.removeAttributeNS(null, "Id");
+    }
+
+    private static void assertSameResults(List<VerifiedReference> expected, List<VerifiedReference> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getUri(), actual.get(i).getUri());
+            assertEquals(expected.get(i).isValid(), actual.get(i).isValid(), expected.get(i).getUri());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.xml.security.signature.NodeFilter;
+import org.apache.xml.security.signature.SubtreeNodeSet;
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.signature.XMLSignatureNodeInput;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A SubtreeNodeSet must contain the same nodes in the same order as XMLUtils.getSet.
+ */
+class SubtreeNodeSetTest {
+
+    private static final String XML =
+        "<?pi before?><!-- before --><a:root xmlns:a=\"urn:a\" attr=\"1\">"
+        + "text<!-- comment --><child xml:lang=\"en\">child text<![CDATA[cdata]]><?pi inside?></child>"
+        + "<a:excluded Id=\"x\"><inner>excluded text</inner></a:excluded>"
+        + "<empty/>tail</a:root><!-- after -->";
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @Test
+    void testSameAsGetSet() throws Exception {
+        Document doc = parse();
+        Element root = doc.getDocumentElement();
+        // adjacent text nodes, of which only the first one is part of the node-set
+        root.insertBefore(doc.createTextNode(" more"), root.getFirstChild().getNextSibling());
+        Element child = (Element) root.getElementsByTagName("child").item(0);
+        child.appendChild(doc.createTextNode("last"));
+        child.appendChild(doc.createTextNode("very last"));
+        Node excluded = root.getElementsByTagNameNS("urn:a", "excluded").item(0);
+
+        List<Node> roots = new ArrayList<>();
+        roots.add(doc);
+        roots.add(root);
+        roots.add(child);
+        roots.add(child.getFirstChild());
+        roots.add(excluded);
+        roots.add(doc.getFirstChild());
+        roots.add(root.getFirstChild().getNextSibling().getNextSibling());
+        for (Node subtreeRoot : roots) {
+            for (Node exclude : new Node[] {null, excluded, child.getFirstChild()}) {
+                for (boolean comments : new boolean[] {true, false}) {
+                    Set<Node> expected = new LinkedHashSet<>();
+                    XMLUtils.getSet(subtreeRoot, expected, exclude, comments);
+                    SubtreeNodeSet actual = new SubtreeNodeSet(subtreeRoot, exclude, comments, null);
+                    assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+                    assertEquals(expected.size(), actual.size());
+                    assertEquals(expected.isEmpty(), actual.isEmpty());
+                    for (Node node : allNodes(doc)) {
+                        assertEquals(expected.contains(node), actual.contains(node));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNodeFilters() throws Exception {
+        Document doc = parse();
+        Node excluded = doc.getDocumentElement().getElementsByTagNameNS("urn:a", "excluded").item(0);
+        NodeFilter filter = new NodeFilter() {
+            @Override
+            public int isNodeInclude(Node n) {
+                return XMLUtils.isDescendantOrSelf(excluded, n) ? -1 : 1;
+            }
+
+            @Override
+            public int isNodeIncludeDO(Node n, int level) {
+                return isNodeInclude(n);
+            }
+        };
+
+        Set<Node> expected = new LinkedHashSet<>();
+        XMLUtils.getSet(doc, expected, excluded, true);
+        Set<Node> actual = new SubtreeNodeSet(doc, null, true, Collections.singletonList(filter));
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertFalse(actual.contains(excluded));
+        assertFalse(actual.contains(excluded.getAttributes().item(0)));
+        assertTrue(actual.contains(doc.getDocumentElement()));
+    }
+
+    @Test
+    void testXMLSignatureInputNodeSet() throws Exception {
+        Document doc = parse();
+        XMLSignatureInput input = new XMLSignatureNodeInput(doc.getDocumentElement());
+        Set<Node> expected = new LinkedHashSet<>();
+        XMLUtils.getSet(doc.getDocumentElement(), expected, null, false);
+
+        Set<Node> view = input.getNodeSetView();
+        assertTrue(view instanceof SubtreeNodeSet);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(view));
+        assertTrue(input.isNodeSet());
+
+        // the public node set is a modifiable copy as before
+        Set<Node> nodeSet = input.getNodeSet();
+        assertFalse(nodeSet instanceof SubtreeNodeSet);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(nodeSet));
+        assertTrue(nodeSet.remove(doc.getDocumentElement()));
+        assertFalse(input.getNodeSet().contains(doc.getDocumentElement()));
+    }
+
+    private static Document parse() throws Exception {
+        return XMLUtils.read(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    private static List<Node> allNodes(Node node) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(node);
+        if (node.hasAttributes()) {
+            NamedNodeMap attributes = node.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                nodes.add(attributes.item(i));
+            }
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            nodes.addAll(allNodes(child));
+        }
+        return nodes;
+    }
+}
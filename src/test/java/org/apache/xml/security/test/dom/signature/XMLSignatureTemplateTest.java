@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.signature;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.signature.XMLSignatureException;
+import org.apache.xml.security.signature.XMLSignatureTemplate;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A document signed with an XMLSignatureTemplate must be the same as one signed with the
+ * XMLSignature API, and vice versa for the verification.
+ */
+class XMLSignatureTemplateTest {
+
+    private static final List<String> TRANSFORMS =
+        Arrays.asList(Transforms.TRANSFORM_ENVELOPED_SIGNATURE, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS);
+
+    private static final SecretKey KEY =
+        new SecretKeySpec("secret-key-of-thirty-two-bytes!!".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+    private static KeyPair keyPair;
+    private static ExecutorService executor;
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testSameAsXMLSignatureExclusive() throws Exception {
+        XMLSignatureTemplate template = new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA512, TRANSFORMS);
+
+        for (int i = 0; i < 3; i++) {
+            Document doc = createDocument(i);
+            template.sign(doc, keyPair.getPrivate());
+            assertEquals(signWithXMLSignature(createDocument(i), template, keyPair.getPrivate()), toString(doc));
+            assertTrue(new XMLSignature(getSignatureElement(doc), "").checkSignatureValue(keyPair.getPublic()));
+        }
+    }
+
+    @Test
+    void testSameAsXMLSignatureInclusive() throws Exception {
+        XMLSignatureTemplate template = new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+            Collections.singletonList(Transforms.TRANSFORM_ENVELOPED_SIGNATURE));
+
+        Document doc = createDocument(1);
+        template.sign(doc, KEY);
+        assertEquals(signWithXMLSignature(createDocument(1), template, KEY), toString(doc));
+
+        Document signedDoc = createDocument(2);
+        signWithXMLSignature(signedDoc, template, KEY);
+        assertTrue(template.verify(signedDoc, KEY));
+    }
+
+    @Test
+    void testSignAllAndVerifyAll() throws Exception {
+        XMLSignatureTemplate template = new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256, TRANSFORMS);
+
+        List<Document> sequential = new ArrayList<>();
+        List<Document> parallel = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequential.add(createDocument(i));
+            parallel.add(createDocument(i));
+        }
+        template.signAll(sequential, keyPair.getPrivate());
+        template.signAll(parallel, keyPair.getPrivate(), executor, 4);
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(toString(sequential.get(i)), toString(parallel.get(i)));
+        }
+
+        getRecord(parallel.get(7)).setTextContent("Modified record");
+        List<Boolean> results = template.verifyAll(parallel, keyPair.getPublic(), executor, 4);
+        assertEquals(template.verifyAll(parallel, keyPair.getPublic()), results);
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i != 7, results.get(i));
+        }
+    }
+
+    @Test
+    void testOtherAlgorithmsAreInvalid() throws Exception {
+        XMLSignatureTemplate sha256 = new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256, TRANSFORMS);
+        XMLSignatureTemplate sha512 = new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA512, TRANSFORMS);
+
+        Document doc = createDocument(0);
+        sha256.sign(doc, KEY);
+        assertTrue(sha256.verify(doc, KEY));
+        assertFalse(sha512.verify(doc, KEY));
+    }
+
+    @Test
+    void testEnvelopedTransformIsRequired() {
+        assertThrows(XMLSignatureException.class, () -> new XMLSignatureTemplate(
+            XMLSignature.ALGO_ID_MAC_HMAC_SHA256, Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+            MessageDigestAlgorithm.ALGO_ID_DIGEST_SHA256,
+            Collections.singletonList(Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS)));
+    }
+
+    private static Document createDocument(int index) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element root = doc.createElementNS("urn:example:order", "o:order");
+        root.setAttributeNS(Constants.NamespaceSpecNS, "xmlns:o", "urn:example:order");
+        doc.appendChild(root);
+        Element record = doc.createElementNS("urn:example:order", "o:item");
+        record.setTextContent("Item number " + index);
+        root.appendChild(record);
+        return doc;
+    }
+
+    private static String signWithXMLSignature(
+        Document doc, XMLSignatureTemplate template, Key key
+    ) throws Exception {
+        XMLSignature signature = new XMLSignature(doc, "", template.getSignatureMethodURI(),
+                                                  template.getCanonicalizationMethodURI());
+        doc.getDocumentElement().appendChild(signature.getElement());
+        Transforms transforms = new Transforms(doc);
+        for (String transform : template.getTransformURIs()) {
+            transforms.addTransform(transform);
+        }
+        signature.addDocument("", transforms, template.getDigestMethodURI());
+        signature.sign(key);
+        return toString(doc);
+    }
+
+    private static Element getSignatureElement(Document doc) {
+        return (Element) doc.getElementsByTagNameNS(Constants.SignatureSpecNS, Constants._TAG_SIGNATURE).item(0);
+    }
+
+    private static Element getRecord(Document doc) {
+        return (Element) doc.getElementsByTagNameNS("urn:example:order", "item").item(0);
+    }
+
+    private static String toString(Document doc) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, bos);
+        return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.transforms.implementations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.signature.XMLSignatureByteInput;
+import org.apache.xml.security.signature.XMLSignatureStreamInput;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.transforms.TransformationException;
+import org.apache.xml.security.transforms.Transforms;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Document;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The canonicalization transforms stream unparsed octets through the StAX canonicalizers when
+ * streaming is switched on and secure validation is enabled. The result must be the same as the
+ * one of the DOM canonicalizers.
+ */
+class StreamingCanonicalizationTest {
+
+    static {
+        // read once when the transforms are first used, every test class runs in its own JVM
+        System.setProperty("org.apache.xml.security.streamingCanonicalization", "true");
+        org.apache.xml.security.Init.init();
+    }
+
+    //J-
+    private static final String INPUT = ""
+        + "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<?xml-stylesheet href=\"doc.xsl\"\n   type=\"text/xsl\"   ?>\n"
+        + "<!-- comment before -->\n"
+        + "<doc xmlns=\"http://example.org/default\" xmlns:b=\"http://example.org/b\" "
+        + "xmlns:unused=\"http://example.org/unused\" z=\"1\" a=\"2\" b:c=\"3\">\r\n"
+        + "  <e1   />\n"
+        + "  <b:e2 attr=\"tab\there &amp; &lt;quote&gt; &quot;\">Text &amp; &lt;more&gt; ä€😀</b:e2>\n"
+        + "  <e3 xmlns=\"\"><![CDATA[cdata <section> & more]]></e3>\n"
+        + "  <!-- comment inside -->\n"
+        + "  <e4 xmlns:b=\"http://example.org/b\" xml:lang=\"en\"><b:e5/></e4>\n"
+        + "</doc>\n"
+        + "<!-- comment after -->\n";
+    //J+
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_WITH_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N11_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N11_WITH_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_EXCL_OMIT_COMMENTS,
+        Canonicalizer.ALGO_ID_C14N_EXCL_WITH_COMMENTS
+    })
+    void testSameResultAsDOM(String c14nURI) throws Exception {
+        byte[] input = INPUT.getBytes(UTF_8);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Canonicalizer.getInstance(c14nURI).canonicalize(input, expected, true);
+
+        Transforms transforms = createTransforms(c14nURI);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        transforms.performTransforms(new XMLSignatureStreamInput(new ByteArrayInputStream(input)), streamed);
+
+        assertEquals(new String(expected.toByteArray(), UTF_8), new String(streamed.toByteArray(), UTF_8));
+    }
+
+    @Test
+    void testDoctypeIsRejected() throws Exception {
+        String input = "<!DOCTYPE doc [<!ENTITY e \"entity\">]><doc>&e;</doc>";
+        Transforms transforms = createTransforms(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        assertThrows(TransformationException.class, () ->
+            transforms.performTransforms(new XMLSignatureByteInput(input.getBytes(UTF_8)),
+                                         new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testRelativeNamespaceIsRejected() throws Exception {
+        String input = "<doc xmlns:a=\"relative\"><a:e/></doc>";
+        Transforms transforms = createTransforms(Canonicalizer.ALGO_ID_C14N_OMIT_COMMENTS);
+        assertThrows(TransformationException.class, () ->
+            transforms.performTransforms(new XMLSignatureByteInput(input.getBytes(UTF_8)),
+                                         new ByteArrayOutputStream()));
+    }
+
+    private static Transforms createTransforms(String c14nURI) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Transforms transforms = new Transforms(doc);
+        doc.appendChild(transforms.getElement());
+        transforms.addTransform(c14nURI);
+        transforms.setSecureValidation(true);
+        return transforms;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.transforms.implementations;
+
+import java.io.File;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.xml.security.signature.XMLSignatureInput;
+import org.apache.xml.security.signature.XMLSignatureNodeInput;
+import org.apache.xml.security.test.dom.DSNamespaceContext;
+import org.apache.xml.security.transforms.Transform;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.transforms.implementations.XSLTTemplatesCache;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.apache.xml.security.test.XmlSecTestEnvironment.resolveFile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XSLTTemplatesCacheTest {
+
+    private static final String SOURCE_PATH = "src/test/resources/com/phaos/phaos-xmldsig-three";
+    private static final String SIGNATURE_FILE = "signature-rsa-detached-xslt-transform.xml";
+    private static final String STYLESHEET_FILE = "document-stylesheet.xml";
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @Test
+    void testSameStylesheetIsCompiledOnce() throws Exception {
+        XSLTTemplatesCache.clear();
+        long hits = XSLTTemplatesCache.getHits();
+        long misses = XSLTTemplatesCache.getMisses();
+
+        byte[] first = transform(getDocument(SIGNATURE_FILE));
+        // a different Document with an equal stylesheet
+        byte[] second = transform(getDocument(SIGNATURE_FILE));
+
+        assertArrayEquals(first, second);
+        assertEquals(misses + 1, XSLTTemplatesCache.getMisses());
+        assertEquals(hits + 1, XSLTTemplatesCache.getHits());
+        assertEquals(1, XSLTTemplatesCache.getSize());
+    }
+
+    @Test
+    void testChangedStylesheetIsCompiledAgain() throws Exception {
+        XSLTTemplatesCache.clear();
+        Document signature = getDocument(SIGNATURE_FILE);
+        transform(signature);
+        long misses = XSLTTemplatesCache.getMisses();
+
+        Element transformEl = getTransformElement(signature);
+        Element stylesheet = XMLUtils.getNextElement(transformEl.getFirstChild());
+        stylesheet.appendChild(signature.createComment("changed"));
+        transform(signature);
+
+        assertEquals(misses + 1, XSLTTemplatesCache.getMisses());
+        assertEquals(2, XSLTTemplatesCache.getSize());
+    }
+
+    private static byte[] transform(Document signature) throws Exception {
+        Element transformEl = getTransformElement(signature);
+        Transform transform = new Transform(signature, Transforms.TRANSFORM_XSLT, transformEl.getChildNodes());
+        XMLSignatureInput output =
+            transform.performTransform(new XMLSignatureNodeInput(getDocument(STYLESHEET_FILE)), false);
+        return output.getBytes();
+    }
+
+    private static Element getTransformElement(Document signature) throws Exception {
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        xpath.setNamespaceContext(new DSNamespaceContext());
+        return (Element) xpath.evaluate("//ds:Transform[1]", signature, XPathConstants.NODE);
+    }
+
+    private static Document getDocument(String fileName) throws Exception {
+        return XMLUtils.read(new File(resolveFile(SOURCE_PATH), fileName), false);
+    }
+
+}
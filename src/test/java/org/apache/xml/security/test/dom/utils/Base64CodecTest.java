@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.utils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import org.apache.xml.security.utils.Base64Codec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the incremental Base64Codec with java.util.Base64 for inputs split into chunks.
+ */
+class Base64CodecTest {
+
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 56, 57, 58, 113, 114, 115, 1000, 10000};
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 5, 7, 64, 76, 77, Integer.MAX_VALUE};
+
+    @Test
+    void testEncode() throws Exception {
+        Random random = new Random(42);
+        for (int length : LENGTHS) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            for (int chunkSize : CHUNK_SIZES) {
+                assertEquals(Base64.getMimeEncoder().encodeToString(data), encode(Base64Codec.newEncoder(76), data, chunkSize));
+                assertEquals(Base64.getEncoder().encodeToString(data), encode(Base64Codec.newEncoder(0), data, chunkSize));
+                assertEquals(Base64.getMimeEncoder(64, new byte[] {'\r', '\n'}).encodeToString(data),
+                             encode(Base64Codec.newEncoder(64), data, chunkSize));
+            }
+        }
+    }
+
+    @Test
+    void testEncodeOctets() throws Exception {
+        byte[] data = new byte[1000];
+        new Random(7).nextBytes(data);
+
+        Base64Codec.Encoder encoder = Base64Codec.newEncoder(76);
+        byte[] encoded = new byte[encoder.encodedLength(data.length) + 6];
+        int length = encoder.encode(data, 0, data.length, encoded, 0);
+        length += encoder.finish(encoded, length);
+        assertArrayEquals(Base64.getMimeEncoder().encode(data), Arrays.copyOf(encoded, length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        ByteBuffer heap = ByteBuffer.allocate(encoder.encodedLength(data.length) + 6);
+        encoder.encode(direct, heap);
+        heap.position(heap.position() + encoder.finish(heap.array(), heap.position()));
+        assertEquals(Base64.getMimeEncoder().encodeToString(data),
+                     new String(heap.array(), 0, heap.position(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testEncodeByteBuffers() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(11).nextBytes(data);
+        String expected = Base64.getMimeEncoder().encodeToString(data);
+
+        Base64Codec.Encoder encoder = Base64Codec.newEncoder(76);
+        ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+        src.put(data).flip();
+        ByteBuffer dst = ByteBuffer.allocateDirect(encoder.encodedLength(data.length) + 6);
+        encoder.encode(src, dst);
+        assertEquals(0, src.remaining());
+        byte[] tail = new byte[6];
+        dst.put(tail, 0, encoder.finish(tail, 0)).flip();
+        byte[] encoded = new byte[dst.remaining()];
+        dst.get(encoded);
+        assertEquals(expected, new String(encoded, StandardCharsets.US_ASCII));
+
+        src.rewind();
+        ByteBuffer small = ByteBuffer.allocate(encoder.encodedLength(data.length) - 1);
+        assertThrows(BufferOverflowException.class, () -> encoder.encode(src, small));
+        assertEquals(data.length, src.remaining());
+        assertEquals(0, small.position());
+        ByteBuffer smallDirect = ByteBuffer.allocateDirect(100);
+        assertThrows(BufferOverflowException.class, () -> encoder.encode(src, smallDirect));
+        assertEquals(0, smallDirect.position());
+    }
+
+    @Test
+    void testDecode() throws Exception {
+        Random random = new Random(42);
+        for (int length : LENGTHS) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String[] encodings = {
+                Base64.getMimeEncoder().encodeToString(data),
+                Base64.getEncoder().encodeToString(data),
+                Base64.getEncoder().withoutPadding().encodeToString(data),
+                "\n  " + Base64.getMimeEncoder(40, new byte[] {'\n', ' ', '\t'}).encodeToString(data) + "\n",
+            };
+            for (String encoded : encodings) {
+                for (int chunkSize : CHUNK_SIZES) {
+                    assertArrayEquals(data, decode(encoded, chunkSize), encoded);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDecodeMalformed() throws Exception {
+        for (String encoded : new String[] {"QUJD=", "QUJDR", "QU=JD", "QQ=Q", "QQ==QUJD", "QQ="}) {
+            assertThrows(IllegalArgumentException.class, () -> Base64.getMimeDecoder().decode(encoded), encoded);
+            assertThrows(IllegalArgumentException.class, () -> decode(encoded, 1), encoded);
+            assertThrows(IllegalArgumentException.class, () -> decode(encoded, Integer.MAX_VALUE), encoded);
+        }
+        // characters outside of the alphabet and padding after the end are ignored
+        assertArrayEquals(Base64.getMimeDecoder().decode("Q€U\näI="), decode("Q€U\näI=", 2));
+        assertArrayEquals(Base64.getMimeDecoder().decode("QQ==\r\n="), decode("QQ==\r\n=", 3));
+    }
+
+    @Test
+    void testDecodeLenient() throws Exception {
+        Base64Codec.Decoder decoder = Base64Codec.newLenientDecoder();
+        byte[] decoded = new byte[16];
+        String encoded = "QUJDR";
+        int length = decoder.decode(encoded, 0, encoded.length(), decoded, 0);
+        length += decoder.finish(decoded, length);
+        assertEquals("ABC", new String(decoded, 0, length, StandardCharsets.US_ASCII));
+
+        encoded = "QUI=QUJD";
+        length = decoder.decode(encoded.toCharArray(), 0, encoded.length(), decoded, 0);
+        length += decoder.finish(decoded, length);
+        assertEquals("AB", new String(decoded, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    private static String encode(Base64Codec.Encoder encoder, byte[] data, int chunkSize) {
+        StringBuilder sb = new StringBuilder();
+        for (int off = 0; off < data.length; off += chunkSize) {
+            int len = Math.min(chunkSize, data.length - off);
+            char[] chars = new char[encoder.encodedLength(len)];
+            int written = encoder.encode(data, off, len, chars, 0);
+            assertEquals(chars.length, written);
+            sb.append(chars, 0, written);
+        }
+        char[] chars = new char[6];
+        sb.append(chars, 0, encoder.finish(chars, 0));
+        return sb.toString();
+    }
+
+    private static byte[] decode(String encoded, int chunkSize) {
+        Base64Codec.Decoder decoder = Base64Codec.newDecoder();
+        char[] chars = encoded.toCharArray();
+        byte[] decoded = new byte[Base64Codec.Decoder.decodedLength(chars.length) + 2];
+        int length = 0;
+        for (int off = 0; off < chars.length; off += chunkSize) {
+            int len = Math.min(chunkSize, chars.length - off);
+            // alternate between the char[] and CharSequence variants
+            if (off / chunkSize % 2 == 0) {
+                length += decoder.decode(chars, off, len, decoded, length);
+            } else {
+                length += decoder.decode(encoded, off, len, decoded, length);
+            }
+        }
+        length += decoder.finish(decoded, length);
+        return Arrays.copyOf(decoded, length);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xml.security.keys.keyresolver.KeyResolver;
+import org.apache.xml.security.keys.keyresolver.implementations.RSAKeyValueResolver;
+import org.apache.xml.security.keys.keyresolver.implementations.X509CertificateResolver;
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.ResolverDispatchIndex;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The dispatch index must offer a key to the resolvers which declared it and to those which
+ * didn't declare anything, in registration order.
+ */
+class ResolverDispatchIndexTest {
+
+    static {
+        org.apache.xml.security.Init.init();
+    }
+
+    @Test
+    void testCandidatesKeepRegistrationOrder() {
+        Map<String, Collection<String>> declared = new HashMap<>();
+        declared.put("fragment", Collections.singletonList(""));
+        declared.put("http", Arrays.asList("http", "https"));
+        declared.put("any", null);
+        declared.put("file", Collections.singletonList("file"));
+        List<String> resolvers = Arrays.asList("fragment", "any", "http", "file", null);
+
+        ResolverDispatchIndex<String, String> index = new ResolverDispatchIndex<>(resolvers, declared::get);
+
+        assertEquals(Arrays.asList("fragment", "any", null), index.getCandidates(""));
+        assertEquals(Arrays.asList("any", "http", null), index.getCandidates("https"));
+        assertEquals(Arrays.asList("any", "file", null), index.getCandidates("file"));
+        assertEquals(Arrays.asList("any", null), index.getCandidates("ftp"));
+        assertEquals(resolvers, index.getCandidates(null));
+        assertEquals(resolvers, index.getAll());
+    }
+
+    @Test
+    void testKeyResolverCandidates() throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element keyValue = doc.createElementNS(Constants.SignatureSpecNS, "ds:" + Constants._TAG_KEYVALUE);
+        Element keyName = doc.createElementNS(Constants.SignatureSpecNS, "ds:" + Constants._TAG_KEYNAME);
+
+        assertTrue(KeyResolver.isCandidate(new RSAKeyValueResolver(), keyValue));
+        assertFalse(KeyResolver.isCandidate(new RSAKeyValueResolver(), keyName));
+        // doesn't declare any elements
+        assertTrue(KeyResolver.isCandidate(new X509CertificateResolver(), keyName));
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.dom.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.xml.security.utils.JDKXPathFactory;
+import org.apache.xml.security.utils.XMLUtils;
+import org.apache.xml.security.utils.XPathAPI;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The compiled XPath expressions shared by the JDKXPathAPI instances must be resolved against
+ * the namespace bindings they were requested with, and must not be evaluated concurrently.
+ */
+class XPathExpressionCacheTest {
+
+    @Test
+    void testCachedExpressionsUseTheirNamespaceBindings() throws Exception {
+        String xml = "<root xmlns:p=\"urn:one\"><a:item xmlns:a=\"urn:one\"/>"
+            + "<context xmlns:p=\"urn:two\"/></root>";
+        Document doc;
+        try (InputStream is = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+            doc = XMLUtils.read(is, false);
+        }
+        Element root = doc.getDocumentElement();
+        Element item = (Element) root.getFirstChild();
+        Element context = (Element) item.getNextSibling();
+
+        // the same expression string, resolved against different bindings of the prefix
+        for (int i = 0; i < 2; i++) {
+            XPathAPI xpathAPI = new JDKXPathFactory().newXPathAPI();
+            assertTrue(xpathAPI.evaluate(item, null, "self::p:item", root));
+            assertFalse(xpathAPI.evaluate(item, null, "self::p:item", context));
+            assertEquals(1, xpathAPI.selectNodeList(doc, null, "//p:item", root).getLength());
+            assertEquals(0, xpathAPI.selectNodeList(doc, null, "//p:item", context).getLength());
+        }
+    }
+
+    @Test
+    void testConcurrentEvaluation() throws Exception {
+        StringBuilder xml = new StringBuilder("<root xmlns:p=\"urn:p\">");
+        for (int i = 0; i < 100; i++) {
+            xml.append("<p:item n=\"").append(i).append("\"/>");
+        }
+        xml.append("</root>");
+        Document doc;
+        try (InputStream is = new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8))) {
+            doc = XMLUtils.read(is, false);
+        }
+        XMLUtils.prepareForConcurrentReads(doc);
+        Element root = doc.getDocumentElement();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    XPathAPI xpathAPI = new JDKXPathFactory().newXPathAPI();
+                    int matches = 0;
+                    for (int i = 0; i < 50; i++) {
+                        for (Element item = (Element) root.getFirstChild(); item != null;
+                            item = (Element) item.getNextSibling()) {
+                            if (xpathAPI.evaluate(item, null, "self::p:item[@n mod 2 = 0]", root)) {
+                                matches++;
+                            }
+                        }
+                    }
+                    return matches;
+                });
+            }
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                assertEquals(50 * 50, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.javax.xml.crypto.dsig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLObject;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.crypto.dsig.spec.XPathFilterParameterSpec;
+
+import org.apache.xml.security.test.dom.TestUtils;
+import org.apache.xml.security.utils.Constants;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The References of a signature are digested or validated concurrently if an Executor or a
+ * parallelism is set as property of the DOMSignContext or DOMValidateContext.
+ */
+class ParallelReferenceValidationTest {
+
+    private static final int OBJECTS = 16;
+
+    private static final SecretKey KEY =
+        new SecretKeySpec("secret-key-of-thirty-two-bytes!!".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+    private static ExecutorService executor;
+
+    private final XMLSignatureFactory fac;
+
+    static {
+        Security.insertProviderAt(new org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI(), 1);
+    }
+
+    ParallelReferenceValidationTest() {
+        fac = XMLSignatureFactory.getInstance("DOM", new org.apache.jcp.xml.dsig.internal.dom.XMLDSigRI());
+    }
+
+    @BeforeAll
+    static void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testValid() throws Exception {
+        byte[] signedDocument = sign();
+
+        assertTrue(validate(read(signedDocument), null, null));
+        assertTrue(validate(read(signedDocument), executor, null));
+        assertTrue(validate(read(signedDocument), null, 3));
+    }
+
+    @Test
+    void testInvalidReference() throws Exception {
+        byte[] signedDocument = sign();
+
+        assertFalse(validate(modifyObject(read(signedDocument), 9), null, null));
+        assertFalse(validate(modifyObject(read(signedDocument), 9), executor, null));
+        assertFalse(validate(modifyObject(read(signedDocument), 9), executor, 2));
+    }
+
+    @Test
+    void testParallelDigests() throws Exception {
+        byte[] sequential = signEnveloped(null);
+        byte[] parallel = signEnveloped(executor);
+
+        assertEquals(new String(sequential, StandardCharsets.UTF_8), new String(parallel, StandardCharsets.UTF_8));
+
+        Document doc = read(parallel);
+        registerIds(doc);
+        DOMValidateContext vc =
+            new DOMValidateContext(KEY, doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0));
+        assertTrue(fac.unmarshalXMLSignature(vc).validate(vc));
+    }
+
+    private byte[] signEnveloped(ExecutorService digestExecutor) throws Exception {
+        Document doc = TestUtils.newDocument();
+        Element root = doc.createElementNS(null, "records");
+        doc.appendChild(root);
+        DigestMethod sha256 = fac.newDigestMethod(DigestMethod.SHA256, null);
+
+        List<Reference> references = new ArrayList<>();
+        for (int i = 0; i < OBJECTS; i++) {
+            Element record = doc.createElementNS("urn:example:record", "r:record");
+            record.setAttributeNS(Constants.NamespaceSpecNS, "xmlns:r", "urn:example:record");
+            record.setAttributeNS(null, "Id", "rec-" + i);
+            record.setTextContent("Record number " + i);
+            root.appendChild(record);
+            references.add(fac.newReference("#rec-" + i, sha256));
+        }
+        // the whole document contains the signature, so it is digested sequentially
+        Transform enveloped = fac.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null);
+        references.add(fac.newReference("", sha256, Collections.singletonList(enveloped), null, null));
+
+        SignedInfo si = fac.newSignedInfo(
+            fac.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null),
+            fac.newSignatureMethod("http://www.w3.org/2001/04/xmldsig-more#hmac-sha256", null),
+            references);
+        XMLSignature signature = fac.newXMLSignature(si, null);
+        DOMSignContext signContext = new DOMSignContext(KEY, root);
+        registerIds(doc);
+        signContext.setProperty("org.apache.jcp.xml.dsig.referenceDigestExecutor", digestExecutor);
+        signature.sign(signContext);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, bos);
+        return bos.toByteArray();
+    }
+
+    private static void registerIds(Document doc) {
+        for (Element record = XMLUtils.getNextElement(doc.getDocumentElement().getFirstChild()); record != null;
+             record = XMLUtils.getNextElement(record.getNextSibling())) {
+            if (record.hasAttributeNS(null, "Id")) {
+                record.setIdAttributeNS(null, "Id", true);
+            }
+        }
+    }
+
+    private byte[] sign() throws Exception {
+        Document doc = TestUtils.newDocument();
+        DigestMethod sha256 = fac.newDigestMethod(DigestMethod.SHA256, null);
+
+        List<XMLObject> objects = new ArrayList<>();
+        List<Reference> references = new ArrayList<>();
+        for (int i = 0; i < OBJECTS; i++) {
+            Element record = doc.createElementNS("urn:example:record", "r:record");
+            record.setAttributeNS(Constants.NamespaceSpecNS, "xmlns:r", "urn:example:record");
+            record.setTextContent("Record number " + i);
+            objects.add(fac.newXMLObject(
+                Collections.singletonList(new DOMStructure(record)), "obj-" + i, null, null));
+            references.add(fac.newReference("#obj-" + i, sha256));
+        }
+        // the Apache transform behind an XPath transform is created while the Reference is validated
+        Transform xpath = fac.newTransform(Transform.XPATH, new XPathFilterParameterSpec("self::text()"));
+        references.add(fac.newReference("#obj-0", sha256, Collections.singletonList(xpath), null, null));
+
+        SignedInfo si = fac.newSignedInfo(
+            fac.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null),
+            fac.newSignatureMethod("http://www.w3.org/2001/04/xmldsig-more#hmac-sha256", null),
+            references);
+        XMLSignature signature = fac.newXMLSignature(si, null, objects, null, null);
+        signature.sign(new DOMSignContext(KEY, doc));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLUtils.outputDOM(doc, bos);
+        return bos.toByteArray();
+    }
+
+    private static Document read(byte[] document) throws Exception {
+        return XMLUtils.read(new ByteArrayInputStream(document), false);
+    }
+
+    private static Document modifyObject(Document doc, int index) {
+        Element record = (Element) doc.getElementsByTagNameNS("urn:example:record", "record").item(index);
+        record.setTextContent("Modified record number " + index);
+        return doc;
+    }
+
+    private boolean validate(Document doc, ExecutorService verificationExecutor, Integer parallelism) throws Exception {
+        DOMValidateContext vc = new DOMValidateContext(KEY, doc.getDocumentElement());
+        vc.setProperty("org.apache.jcp.xml.dsig.referenceVerificationExecutor", verificationExecutor);
+        vc.setProperty("org.apache.jcp.xml.dsig.referenceVerificationParallelism", parallelism);
+        XMLSignature signature = fac.unmarshalXMLSignature(vc);
+
+        boolean valid = signature.validate(vc);
+        assertTrue(signature.getSignatureValue().validate(vc));
+
+        // the References are evaluated in document order up to the first invalid one
+        @SuppressWarnings("unchecked")
+        List<Reference> references = signature.getSignedInfo().getReferences();
+        for (Reference reference : references) {
+            boolean expected = valid || !"#obj-9".equals(reference.getURI());
+            boolean referenceValid = reference.validate(vc);
+            assertEquals(expected, referenceValid, reference.getURI());
+            if (!referenceValid) {
+                break;
+            }
+        }
+        return valid;
+    }
+}
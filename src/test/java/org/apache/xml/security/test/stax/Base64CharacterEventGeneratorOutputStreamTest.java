@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.util.Base64;
+import java.util.Random;
+
+import org.apache.xml.security.stax.ext.stax.XMLSecCharacters;
+import org.apache.xml.security.stax.impl.processor.output.AbstractEncryptOutputProcessor;
+import org.apache.xml.security.stax.impl.processor.output.XMLEncryptOutputProcessor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ */
+class Base64CharacterEventGeneratorOutputStreamTest {
+
+    @Test
+    void testWriteSingleBytes() throws Exception {
+        byte[] data = newData(100);
+        AbstractEncryptOutputProcessor.Base64CharacterEventGeneratorOutputStream outputStream = newOutputStream();
+        for (byte b : data) {
+            outputStream.write(b);
+        }
+        outputStream.close();
+
+        assertEquals(1, outputStream.getCharactersBuffer().size());
+        assertEquals(encode(data), getCharacters(outputStream));
+    }
+
+    @Test
+    void testWriteRandomByteSizes() throws Exception {
+        byte[] data = newData(100 * 1024);
+        AbstractEncryptOutputProcessor.Base64CharacterEventGeneratorOutputStream outputStream = newOutputStream();
+        int written = 0;
+        int count = 0;
+        while (written < data.length) {
+            count = Math.min(count * 2 + 1, data.length - written);
+            outputStream.write(data, written, count);
+            written += count;
+            if (count > 16 * 1024) {
+                count = 0;
+            }
+        }
+        outputStream.close();
+
+        assertTrue(outputStream.getCharactersBuffer().size() > 1);
+        assertEquals(encode(data), getCharacters(outputStream));
+    }
+
+    private static AbstractEncryptOutputProcessor.Base64CharacterEventGeneratorOutputStream newOutputStream()
+        throws Exception {
+        return new XMLEncryptOutputProcessor().new Base64CharacterEventGeneratorOutputStream();
+    }
+
+    private static byte[] newData(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static String encode(byte[] data) {
+        return Base64.getMimeEncoder().encodeToString(data) + "\r\n";
+    }
+
+    private static String getCharacters(
+        AbstractEncryptOutputProcessor.Base64CharacterEventGeneratorOutputStream outputStream) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (XMLSecCharacters characters : outputStream.getCharactersBuffer()) {
+            stringBuilder.append(characters.getText());
+        }
+        return stringBuilder.toString();
+    }
+}
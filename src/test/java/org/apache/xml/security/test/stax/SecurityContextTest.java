@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.config.Init;
+import org.apache.xml.security.stax.impl.InboundSecurityContextImpl;
+import org.apache.xml.security.stax.impl.OutboundSecurityContextImpl;
+import org.apache.xml.security.stax.securityEvent.EncryptedElementSecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
+import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
+import org.apache.xml.security.stax.securityEvent.SignedElementSecurityEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The security contexts must only forward SecurityEvents to the listeners which subscribed to
+ * their type, and must only let producers skip events nobody can receive.
+ */
+class SecurityContextTest {
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Init.init(this.getClass().getClassLoader().getResource("security-config.xml").toURI(), this.getClass());
+    }
+
+    @Test
+    void testSubscribedSecurityEvents() throws Exception {
+        OutboundSecurityContextImpl securityContext = new OutboundSecurityContextImpl();
+        // nothing is suppressed as long as nobody declared a subscription
+        assertTrue(securityContext.isSecurityEventSubscribed(SecurityEventConstants.SignedElement));
+
+        RecordingListener signedElementListener =
+            new RecordingListener(Collections.singletonList(SecurityEventConstants.SignedElement));
+        securityContext.addSecurityEventListener(signedElementListener);
+        assertTrue(securityContext.isSecurityEventSubscribed(SecurityEventConstants.SignedElement));
+        assertFalse(securityContext.isSecurityEventSubscribed(SecurityEventConstants.EncryptedElement));
+
+        SecurityEvent signedElement = new SignedElementSecurityEvent(null, true, null);
+        SecurityEvent encryptedElement = new EncryptedElementSecurityEvent(null, true, null);
+        securityContext.registerSecurityEvent(signedElement);
+        securityContext.registerSecurityEvent(encryptedElement);
+        assertEquals(1, signedElementListener.events.size());
+        assertSame(signedElement, signedElementListener.events.get(0));
+
+        // a listener without a declaration receives everything
+        RecordingListener allEventsListener = new RecordingListener(null);
+        securityContext.addSecurityEventListener(allEventsListener);
+        assertTrue(securityContext.isSecurityEventSubscribed(SecurityEventConstants.EncryptedElement));
+        securityContext.registerSecurityEvent(encryptedElement);
+        assertEquals(1, signedElementListener.events.size());
+        assertEquals(1, allEventsListener.events.size());
+    }
+
+    @Test
+    void testAlgorithmSuiteIsAlwaysSubscribedInbound() {
+        // the inbound context checks the algorithms itself
+        InboundSecurityContextImpl securityContext = new InboundSecurityContextImpl();
+        securityContext.addSecurityEventListener(
+            new RecordingListener(Collections.singletonList(SecurityEventConstants.EncryptedElement)));
+        assertTrue(securityContext.isSecurityEventSubscribed(SecurityEventConstants.AlgorithmSuite));
+        assertFalse(securityContext.isSecurityEventSubscribed(SecurityEventConstants.SignedElement));
+    }
+
+    @Test
+    void testOverriddenEventHandlingReceivesAllEvents() throws Exception {
+        List<SecurityEvent> checkedEvents = new ArrayList<>();
+        InboundSecurityContextImpl securityContext = new InboundSecurityContextImpl() {
+            @Override
+            public void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+                checkedEvents.add(securityEvent);
+                super.registerSecurityEvent(securityEvent);
+            }
+        };
+        RecordingListener encryptedElementListener =
+            new RecordingListener(Collections.singletonList(SecurityEventConstants.EncryptedElement));
+        securityContext.addSecurityEventListener(encryptedElementListener);
+        assertTrue(securityContext.isSecurityEventSubscribed(SecurityEventConstants.SignedElement));
+
+        securityContext.registerSecurityEvent(new SignedElementSecurityEvent(null, true, null));
+        assertEquals(1, checkedEvents.size());
+        assertTrue(encryptedElementListener.events.isEmpty());
+    }
+
+    @Test
+    void testNullValueRemovesKey() {
+        InboundSecurityContextImpl securityContext = new InboundSecurityContextImpl();
+        securityContext.put("key", "value");
+        securityContext.put("key", null);
+        assertNull(securityContext.get("key"));
+        securityContext.putAsList(SecurityEvent.class, "a");
+        securityContext.putAsList(SecurityEvent.class, "b");
+        assertEquals(2, securityContext.getAsList(SecurityEvent.class).size());
+    }
+
+    private static class RecordingListener implements SecurityEventListener {
+
+        private final Collection<SecurityEventConstants.Event> subscribedSecurityEvents;
+        private final List<SecurityEvent> events = new ArrayList<>();
+
+        RecordingListener(Collection<SecurityEventConstants.Event> subscribedSecurityEvents) {
+            this.subscribedSecurityEvents = subscribedSecurityEvents;
+        }
+
+        @Override
+        public void registerSecurityEvent(SecurityEvent securityEvent) throws XMLSecurityException {
+            events.add(securityEvent);
+        }
+
+        @Override
+        public Collection<SecurityEventConstants.Event> getSubscribedSecurityEvents() {
+            return subscribedSecurityEvents;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.xml.security.test.stax;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.stax.ext.OutboundXMLSec;
+import org.apache.xml.security.stax.ext.SecurePart;
+import org.apache.xml.security.stax.ext.XMLSec;
+import org.apache.xml.security.stax.ext.XMLSecurityConstants;
+import org.apache.xml.security.stax.ext.XMLSecurityProperties;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.stax.XMLSecEntityReferenceImpl;
+import org.apache.xml.security.stax.impl.util.SpillableXMLSecEventBuffer;
+import org.apache.xml.security.test.XmlSecTestEnvironment;
+import org.apache.xml.security.test.stax.utils.XMLSecEventAllocator;
+import org.apache.xml.security.test.stax.utils.XmlReaderToWriter;
+import org.apache.xml.security.utils.XMLUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.xml.security.test.XmlSecTestEnvironment.TRANSMITTER_KS_PASSWORD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ */
+class SpillableXMLSecEventBufferTest {
+
+    private static final String PLAINTEXT = "ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml";
+
+    @TempDir
+    Path spillDirectory;
+
+    @BeforeAll
+    static void setup() {
+        org.apache.xml.security.Init.init();
+    }
+
+    @Test
+    void testReplayInMemory() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(1024 * 1024, spillDirectory)) {
+            events.forEach(buffer::offer);
+            assertEquals(0, buffer.getSpilledBytes());
+            assertReplay(events, buffer);
+        }
+    }
+
+    @Test
+    void testReplaySpilled() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(0, spillDirectory)) {
+            events.forEach(buffer::offer);
+            assertTrue(buffer.getSpilledBytes() > 0);
+            assertReplay(events, buffer);
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testParentLinks() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(0, spillDirectory)) {
+            events.forEach(buffer::offer);
+            Deque<XMLSecStartElement> openElements = new ArrayDeque<>();
+            while (!buffer.isEmpty()) {
+                XMLSecEvent peeked = buffer.peek();
+                XMLSecEvent xmlSecEvent = buffer.pop();
+                assertSame(peeked, xmlSecEvent);
+                if (xmlSecEvent.getEventType() != XMLStreamConstants.START_DOCUMENT) {
+                    assertSame(openElements.peek(), xmlSecEvent.getParentXMLSecStartElement());
+                }
+                if (xmlSecEvent.isStartElement()) {
+                    openElements.push(xmlSecEvent.asStartElement());
+                } else if (xmlSecEvent.isEndElement()) {
+                    openElements.pop();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnknownEventKeptAsIs() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        XMLSecEvent entityReference = new XMLSecEntityReferenceImpl("entity", null, null);
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(0, spillDirectory)) {
+            buffer.offer(events.get(0));
+            buffer.offer(entityReference);
+            buffer.offer(events.get(1));
+            buffer.pop();
+            assertSame(entityReference, buffer.pop());
+            assertEquals(toString(events.get(1)), toString(buffer.pop()));
+        }
+    }
+
+    @Test
+    void testPushBack() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(0, spillDirectory)) {
+            events.forEach(buffer::offer);
+
+            XMLSecEvent first = buffer.pop();
+            XMLSecEvent second = buffer.pop();
+            buffer.push(second);
+            assertEquals(events.size() - 1, buffer.size());
+            assertSame(second, buffer.peek());
+            assertSame(second, buffer.pop());
+            assertEquals(toString(events.get(0)), toString(first));
+
+            buffer.clear();
+            assertTrue(buffer.isEmpty());
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    void testDequeOperations() throws Exception {
+        List<XMLSecEvent> events = readEvents();
+        try (SpillableXMLSecEventBuffer buffer = new SpillableXMLSecEventBuffer(0, spillDirectory)) {
+            events.forEach(buffer::offer);
+            XMLSecEvent first = buffer.pop();
+            buffer.push(first);
+
+            XMLSecEvent last = buffer.peekLast();
+            assertTrue(buffer.isOnHeap());
+            assertEquals(0, buffer.getSpilledBytes());
+            assertEquals(toString(events.get(events.size() - 1)), toString(last));
+
+            Iterator<XMLSecEvent> iterator = buffer.iterator();
+            assertSame(first, iterator.next());
+            Iterator<XMLSecEvent> descendingIterator = buffer.descendingIterator();
+            assertSame(last, descendingIterator.next());
+
+            assertSame(last, buffer.pollLast());
+            assertTrue(buffer.remove(first));
+            assertFalse(buffer.contains(first));
+            assertEquals(events.size() - 2, buffer.size());
+
+            buffer.offer(first);
+            assertSame(first, buffer.removeLast());
+
+            buffer.clear();
+            assertFalse(buffer.isOnHeap());
+        }
+    }
+
+    @Test
+    void testSignatureCreation() throws Exception {
+        XMLSecurityProperties properties = newSignatureProperties();
+        X509Certificate cert = properties.getSignatureCerts()[0];
+
+        Document document = sign(properties);
+        Element root = document.getDocumentElement();
+        Element signature = XMLUtils.getNextElement(root.getFirstChild());
+        assertEquals("Signature", signature.getLocalName());
+        verify(document, cert);
+    }
+
+    @Test
+    void testSignatureCreationPushBack() throws Exception {
+        XMLSecurityProperties properties = newSignatureProperties();
+        X509Certificate cert = properties.getSignatureCerts()[0];
+        // the position is after the last child, so the end of the root element is pushed back
+        properties.setSignaturePosition(100);
+
+        Document document = sign(properties);
+        Element signature =
+            (Element) document.getElementsByTagNameNS(XMLSecurityConstants.NS_DSIG, "Signature").item(0);
+        assertSame(document.getDocumentElement(), signature.getParentNode());
+        assertNull(XMLUtils.getNextElement(signature.getNextSibling()));
+        verify(document, cert);
+    }
+
+    private static XMLSecurityProperties newSignatureProperties() throws Exception {
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        List<XMLSecurityConstants.Action> actions = new ArrayList<>();
+        actions.add(XMLSecurityConstants.SIGNATURE);
+        properties.setActions(actions);
+        properties.setSpillableEventBuffer(true);
+        // spill the buffered events to a temporary file right away
+        properties.setEventBufferMemoryLimit(0);
+
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        properties.setSignatureKey(key);
+        X509Certificate cert = (X509Certificate)keyStore.getCertificate("transmitter");
+        properties.setSignatureCerts(new X509Certificate[]{cert});
+
+        properties.addSignaturePart(
+            new SecurePart(new QName("urn:example:po", "PaymentInfo"), SecurePart.Modifier.Content));
+        return properties;
+    }
+
+    private Document sign(XMLSecurityProperties properties) throws Exception {
+        properties.setEventBufferSpillDirectory(spillDirectory);
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setEventAllocator(new XMLSecEventAllocator());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream sourceDocument = getClass().getClassLoader().getResourceAsStream(PLAINTEXT)) {
+            XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(sourceDocument);
+            OutboundXMLSec outboundXMLSec = XMLSec.getOutboundXMLSec(properties);
+            XMLStreamWriter xmlStreamWriter = outboundXMLSec.processOutMessage(baos, UTF_8.name(), null);
+            XmlReaderToWriter.writeAllAndClose(xmlStreamReader, xmlStreamWriter);
+        }
+        try (InputStream is = new ByteArrayInputStream(baos.toByteArray())) {
+            return XMLUtils.read(is, false);
+        }
+    }
+
+    private static void verify(Document document, X509Certificate cert) throws Exception {
+        Element signedElement =
+            (Element) document.getElementsByTagNameNS("urn:example:po", "PaymentInfo").item(0);
+        signedElement.setIdAttributeNS(null, "Id", true);
+        Element sigElement =
+            (Element) document.getElementsByTagNameNS(XMLSecurityConstants.NS_DSIG, "Signature").item(0);
+        XMLSignature signature = new XMLSignature(sigElement, "", true, null);
+        assertTrue(signature.checkSignatureValue(cert));
+    }
+
+    private static void assertReplay(List<XMLSecEvent> events, SpillableXMLSecEventBuffer buffer) {
+        assertEquals(events.size(), buffer.size());
+        for (XMLSecEvent event : events) {
+            XMLSecEvent replayed = buffer.pop();
+            assertEquals(event.getEventType(), replayed.getEventType());
+            assertEquals(toString(event), toString(replayed));
+            if (event.isStartElement()) {
+                XMLSecStartElement parent = event.getParentXMLSecStartElement();
+                XMLSecStartElement replayedParent = replayed.getParentXMLSecStartElement();
+                assertEquals(parent == null ? null : parent.getName(),
+                             replayedParent == null ? null : replayedParent.getName());
+                assertEquals(event.asStartElement().getNamespaceURI("ds"),
+                             replayed.asStartElement().getNamespaceURI("ds"));
+            }
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static String toString(XMLSecEvent xmlSecEvent) {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            xmlSecEvent.writeAsEncodedUnicode(stringWriter);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return stringWriter.toString();
+    }
+
+    private List<XMLSecEvent> readEvents() throws Exception {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        List<XMLSecEvent> events = new ArrayList<>();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(PLAINTEXT)) {
+            readEvents(xmlInputFactory.createXMLStreamReader(inputStream), events);
+        }
+        String xml = "<?xml version=\"1.0\" standalone=\"yes\"?>"
+            + "<a:root xmlns:a=\"urn:a\" xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\" a:attr=\"v\u00e9\">"
+            + "<!-- comment --><?target data?><ds:child><![CDATA[<cdata>]]>\u20ac text \u00fc</ds:child></a:root>";
+        readEvents(xmlInputFactory.createXMLStreamReader(new StringReader(xml)), events);
+        return events;
+    }
+
+    private static void readEvents(XMLStreamReader xmlStreamReader, List<XMLSecEvent> events) throws Exception {
+        XMLSecStartElement parent = null;
+        while (true) {
+            XMLSecEvent xmlSecEvent = XMLSecEventFactory.allocate(xmlStreamReader, parent);
+            events.add(xmlSecEvent);
+            if (xmlSecEvent.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                parent = xmlSecEvent.asStartElement();
+            } else if (xmlSecEvent.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                parent = parent.getParentXMLSecStartElement();
+            }
+            if (!xmlStreamReader.hasNext()) {
+                break;
+            }
+            xmlStreamReader.next();
+        }
+        xmlStreamReader.close();
+    }
+}
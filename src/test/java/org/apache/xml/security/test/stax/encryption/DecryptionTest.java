@@ -31,6 +31,9 @@ import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -53,6 +56,7 @@ import org.apache.xml.security.encryption.XMLCipher;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.keys.KeyInfo;
 import org.apache.xml.security.keys.content.X509Data;
+import org.apache.xml.security.stax.ext.DecryptionTaskListener;
 import org.apache.xml.security.stax.ext.InboundXMLSec;
 import org.apache.xml.security.stax.ext.XMLSec;
 import org.apache.xml.security.stax.ext.XMLSecurityConstants;
@@ -73,6 +77,8 @@ import org.apache.xml.security.test.stax.utils.XMLSecEventAllocator;
 import org.apache.xml.security.utils.XMLUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -334,6 +340,174 @@ class DecryptionTest {
                 securityEventListener, "http://www.w3.org/2001/04/xmlenc#tripledes-cbc", null);
     }
 
+    @Test
+    void testDecryptMultipleElementsWithCustomExecutor() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        SecretKey secretKey = generateSecretKey();
+
+        // Encrypt using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+        localNames.add("ShippingAddress");
+        encryptUsingDOM(
+            "http://www.w3.org/2001/04/xmlenc#tripledes-cbc", secretKey, null, null, document,
+            localNames, false
+        );
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+        final XMLStreamReader xmlStreamReader =
+                xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(baos.toByteArray()));
+
+        // Decrypt using a single pooled thread
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        try {
+            XMLSecurityProperties properties = new XMLSecurityProperties();
+            properties.setDecryptionKey(secretKey);
+            properties.setDecryptionExecutor(executorService);
+            properties.setDecryptionTaskListener(new DecryptionTaskListener() {
+                @Override
+                public void taskSubmitted(String encryptedDataId) {
+                    submitted.incrementAndGet();
+                }
+
+                @Override
+                public void taskStarted(String encryptedDataId) {
+                    started.incrementAndGet();
+                }
+
+                @Override
+                public void taskCompleted(String encryptedDataId, Throwable throwable) {
+                    assertNull(throwable);
+                    completed.incrementAndGet();
+                }
+            });
+            InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+            TestSecurityEventListener securityEventListener = new TestSecurityEventListener();
+            XMLStreamReader securityStreamReader =
+                    inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+
+            document = StAX2DOM.readDoc(securityStreamReader);
+        } finally {
+            executorService.shutdown();
+        }
+
+        // Check the CreditCard and the ShippingAddress decrypted ok
+        NodeList nodeList = document.getElementsByTagNameNS("urn:example:po", "CreditCard");
+        assertEquals(nodeList.getLength(), 1);
+        nodeList = document.getElementsByTagNameNS("urn:example:po", "ShippingAddress");
+        assertEquals(nodeList.getLength(), 1);
+
+        assertEquals(2, submitted.get());
+        assertEquals(2, started.get());
+        assertEquals(2, completed.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"http://www.w3.org/2001/04/xmlenc#aes128-cbc", "http://www.w3.org/2009/xmlenc11#aes128-gcm"})
+    void testSingleThreadedDecryption(String algorithm) throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        SecretKey secretKey = keygen.generateKey();
+
+        // Encrypt using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+        localNames.add("ShippingAddress");
+        encryptUsingDOM(algorithm, secretKey, null, null, document, localNames, false);
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+        final XMLStreamReader xmlStreamReader =
+                xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(baos.toByteArray()));
+
+        // Decrypt
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        properties.setDecryptionKey(secretKey);
+        properties.setSingleThreadedDecryption(true);
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+        TestSecurityEventListener securityEventListener = new TestSecurityEventListener();
+        XMLStreamReader securityStreamReader =
+                inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+
+        document = StAX2DOM.readDoc(securityStreamReader);
+
+        // Check the CreditCard and the ShippingAddress decrypted ok
+        NodeList nodeList = document.getElementsByTagNameNS("urn:example:po", "CreditCard");
+        assertEquals(nodeList.getLength(), 1);
+        nodeList = document.getElementsByTagNameNS("urn:example:po", "ShippingAddress");
+        assertEquals(nodeList.getLength(), 1);
+
+        // Check the SecurityEvents
+        checkMultipleEncryptedElementSecurityEvents(securityEventListener);
+        checkEncryptionMethod(securityEventListener, algorithm, null);
+    }
+
+    @Test
+    void testSingleThreadedDecryptionModifiedCipherValue() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyGenerator keygen = KeyGenerator.getInstance("AES");
+        keygen.init(128);
+        SecretKey secretKey = keygen.generateKey();
+
+        // Encrypt using DOM
+        List<String> localNames = new ArrayList<>();
+        localNames.add("PaymentInfo");
+        encryptUsingDOM(
+            "http://www.w3.org/2009/xmlenc11#aes128-gcm", secretKey, null, null, document, localNames, false
+        );
+
+        // Modify the CipherValue
+        Element cipherValue =
+            (Element) document.getElementsByTagNameNS(XMLSecurityConstants.NS_XMLENC, "CipherValue").item(0);
+        char[] chars = cipherValue.getTextContent().toCharArray();
+        chars[chars.length / 2] = chars[chars.length / 2] == 'A' ? 'B' : 'A';
+        cipherValue.setTextContent(new String(chars));
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+        final XMLStreamReader xmlStreamReader =
+                xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(baos.toByteArray()));
+
+        // Decrypt
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        properties.setDecryptionKey(secretKey);
+        properties.setSingleThreadedDecryption(true);
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+        TestSecurityEventListener securityEventListener = new TestSecurityEventListener();
+
+        try {
+            XMLStreamReader securityStreamReader =
+                    inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+            StAX2DOM.readDoc(securityStreamReader);
+            fail("Exception expected");
+        } catch (XMLStreamException e) {
+            // expected
+        }
+    }
+
     /**
      * Test encryption using a generated AES 128 bit key that is
      * encrypted using a AES 192 bit key.  Then reverse using the KEK
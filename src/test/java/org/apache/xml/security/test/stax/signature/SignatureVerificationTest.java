@@ -33,6 +33,7 @@ import java.util.Map;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.TransformerFactory;
@@ -62,6 +63,7 @@ import org.apache.xml.security.stax.securityToken.SecurityTokenConstants;
 import org.apache.xml.security.test.XmlSecTestEnvironment;
 import org.apache.xml.security.test.stax.utils.StAX2DOM;
 import org.apache.xml.security.transforms.Transform;
+import org.apache.xml.security.transforms.Transforms;
 import org.apache.xml.security.transforms.implementations.TransformC14N;
 import org.apache.xml.security.utils.XMLUtils;
 import org.junit.jupiter.api.Test;
@@ -232,6 +234,67 @@ class SignatureVerificationTest extends AbstractSignatureVerificationTest {
                 signatureSecurityEvents.size() + signedElementSecurityEvents1.size() + signedElementSecurityEvents2.size());
     }
 
+    @Test
+    void testCustomIdAttribute() throws Exception {
+        // Read in plaintext document
+        Document document = XMLUtils.readResource("ie/baltimore/merlin-examples/merlin-xmlenc-five/plaintext.xml",
+            getClass().getClassLoader(), false);
+
+        // Set up the Key
+        KeyStore keyStore = XmlSecTestEnvironment.getTransmitterKeyStore();
+        Key key = keyStore.getKey("transmitter", TRANSMITTER_KS_PASSWORD.toCharArray());
+        X509Certificate cert = (X509Certificate)keyStore.getCertificate("transmitter");
+
+        // Sign using DOM, PaymentInfo is referenced by a "ID" attribute and ShippingAddress by a "Id" attribute
+        String c14nMethod = "http://www.w3.org/2001/10/xml-exc-c14n#";
+        XMLSignature sig = new XMLSignature(document, "", "http://www.w3.org/2000/09/xmldsig#rsa-sha1", 0, c14nMethod);
+        document.getDocumentElement().appendChild(sig.getElement());
+
+        Element paymentInfo =
+            (Element) document.getElementsByTagNameNS("urn:example:po", "PaymentInfo").item(0);
+        paymentInfo.setAttributeNS(null, "ID", "payment");
+        paymentInfo.setIdAttributeNS(null, "ID", true);
+        Element shippingAddress =
+            (Element) document.getElementsByTagNameNS("urn:example:po", "ShippingAddress").item(0);
+        shippingAddress.setAttributeNS(null, "Id", "shipping");
+        shippingAddress.setIdAttributeNS(null, "Id", true);
+
+        for (String id : new String[] {"payment", "shipping"}) {
+            Transforms transforms = new Transforms(document);
+            transforms.addTransform(c14nMethod);
+            sig.addDocument("#" + id, transforms, "http://www.w3.org/2000/09/xmldsig#sha1");
+        }
+        sig.sign(key);
+        sig.addKeyInfo(cert);
+
+        // Convert Document to a Stream Reader
+        javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(document), new StreamResult(baos));
+
+        XMLStreamReader xmlStreamReader = null;
+        try (InputStream is = new ByteArrayInputStream(baos.toByteArray())) {
+           xmlStreamReader = xmlInputFactory.createXMLStreamReader(is);
+        }
+
+        // Verify signature
+        XMLSecurityProperties properties = new XMLSecurityProperties();
+        properties.setIdAttributeNS(new QName(null, "ID"));
+        InboundXMLSec inboundXMLSec = XMLSec.getInboundWSSec(properties);
+        TestSecurityEventListener securityEventListener = new TestSecurityEventListener();
+        XMLStreamReader securityStreamReader =
+            inboundXMLSec.processInMessage(xmlStreamReader, null, securityEventListener);
+
+        document = StAX2DOM.readDoc(securityStreamReader);
+
+        // Check the SecurityEvents
+        checkSecurityEvents(securityEventListener);
+        checkSignedElementMultipleSecurityEvents(securityEventListener);
+        List<SignedElementSecurityEvent> signedElementSecurityEventList =
+            securityEventListener.getSecurityEvents(SecurityEventConstants.SignedElement);
+        assertEquals(2, signedElementSecurityEventList.size());
+    }
+
     @Test
     void testMultipleSignatures() throws Exception {
         // Read in plaintext document